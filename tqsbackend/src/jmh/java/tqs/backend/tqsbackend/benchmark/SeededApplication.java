@@ -0,0 +1,175 @@
+package tqs.backend.tqsbackend.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import tqs.backend.tqsbackend.TqsbackendApplication;
+import tqs.backend.tqsbackend.fixtures.StubStripeEventSource;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.service.AdminDashboardService;
+import tqs.backend.tqsbackend.service.BookingService;
+import tqs.backend.tqsbackend.service.ItemService;
+import tqs.backend.tqsbackend.service.MessageService;
+import tqs.backend.tqsbackend.service.RatingService;
+import tqs.backend.tqsbackend.service.StripeWebhookService;
+import tqs.backend.tqsbackend.service.SyntheticDataGenerator;
+
+/**
+ * The application without its web layer, running against a file database
+ * filled by the synthetic data profile. Each size and database gets its own
+ * seeded file under target/jmh, which is generated on the first run and
+ * reused afterwards. Every trial runs on a fresh copy of it, so bookings,
+ * ratings and webhook events written by one trial never skew the next.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    private static final Path DATA_DIR = Path.of("target", "jmh");
+
+    /** Number of bookings; the other synthetic volumes scale with it. */
+    @Param({ "10000" })
+    public int rows;
+
+    @Param({ "h2" })
+    public String database;
+
+    ConfigurableApplicationContext context;
+
+    ItemService itemService;
+    BookingService bookingService;
+    BookingRepository bookingRepository;
+    RatingService ratingService;
+    MessageService messageService;
+    AdminDashboardService adminDashboardService;
+    StripeWebhookService webhookService;
+
+    long[] itemIds;
+    long[] renterIds;
+    /** (renter, item) pairs of ended accepted bookings, i.e. ratings that pass validation. */
+    long[][] completedRentals;
+    /** Bookings already paid, so webhook deliveries for them leave the bookings untouched. */
+    long[] paidBookingIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        try {
+            Files.createDirectories(DATA_DIR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Path seeded = DATA_DIR.resolve("partyshare-" + database + "-" + rows).toAbsolutePath();
+        Path trial = DATA_DIR.resolve("partyshare-" + database + "-" + rows + "-trial").toAbsolutePath();
+        if (!Files.exists(databaseFile(seeded))) {
+            run(seeded).close();
+        }
+        try {
+            Files.copy(databaseFile(seeded), databaseFile(trial), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        context = run(trial);
+
+        itemService = context.getBean(ItemService.class);
+        bookingService = context.getBean(BookingService.class);
+        bookingRepository = context.getBean(BookingRepository.class);
+        ratingService = context.getBean(RatingService.class);
+        messageService = context.getBean(MessageService.class);
+        adminDashboardService = context.getBean(AdminDashboardService.class);
+        webhookService = context.getBean(StripeWebhookService.class);
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        String syntheticUsers = "%" + SyntheticDataGenerator.EMAIL_DOMAIN;
+        itemIds = toArray(jdbc.queryForList("SELECT id FROM items WHERE is_active = ? ORDER BY id", Long.class, true));
+        renterIds = toArray(jdbc.queryForList(
+                "SELECT id FROM users WHERE role = 'RENTER' AND email LIKE ? ORDER BY id", Long.class, syntheticUsers));
+        completedRentals = jdbc.query(
+                "SELECT renter_id, item_id FROM bookings WHERE status = 'ACCEPTED' AND end_date < ? ORDER BY id",
+                (rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2) },
+                java.sql.Date.valueOf(LocalDate.now())).toArray(long[][]::new);
+        paidBookingIds = toArray(jdbc.queryForList(
+                "SELECT id FROM bookings WHERE status = 'ACCEPTED' AND payment_status = 'PAID' ORDER BY id", Long.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private ConfigurableApplicationContext run(Path file) {
+        // Passed as arguments so they take precedence over application.properties
+        String[] args = properties(file).entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(TqsbackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    /** The single file each database keeps its data in once closed. */
+    private Path databaseFile(Path file) {
+        return switch (database) {
+            case "h2" -> Path.of(file + ".mv.db");
+            case "sqlite" -> Path.of(file + ".db");
+            default -> throw new IllegalArgumentException("Unsupported database: " + database);
+        };
+    }
+
+    private Map<String, Object> properties(Path file) {
+        Map<String, Object> properties = new HashMap<>();
+        switch (database) {
+            case "h2" -> {
+                properties.put("spring.datasource.url", "jdbc:h2:file:" + file);
+                properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+                properties.put("spring.datasource.username", "sa");
+                properties.put("spring.datasource.password", "");
+                properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+            }
+            case "sqlite" -> {
+                properties.put("spring.datasource.url", "jdbc:sqlite:" + file + ".db");
+                properties.put("spring.datasource.driver-class-name", "org.sqlite.JDBC");
+                properties.put("spring.jpa.database-platform", "org.hibernate.community.dialect.SQLiteDialect");
+            }
+            default -> throw new IllegalArgumentException("Unsupported database: " + database);
+        }
+        properties.put("spring.profiles.active", "synthetic");
+        properties.put("synthetic.bookings", rows);
+        properties.put("synthetic.users", Math.max(20, rows / 20));
+        properties.put("synthetic.items", Math.max(10, rows / 10));
+        properties.put("synthetic.ratings", rows / 10);
+        properties.put("synthetic.messages", rows / 2);
+        properties.put("synthetic.wallet-transactions", rows / 5);
+        properties.put("spring.jpa.hibernate.ddl-auto", "update");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.tqs.backend.tqsbackend.service.SyntheticDataGenerator", "INFO");
+        properties.put("stripe.webhook.secret", StubStripeEventSource.SECRET);
+        // Measure the aggregate query rather than the cached totals
+        properties.put("admin.stats.cache-ttl", "PT0S");
+        return properties;
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
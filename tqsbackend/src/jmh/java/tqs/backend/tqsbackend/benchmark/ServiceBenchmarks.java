@@ -0,0 +1,138 @@
+package tqs.backend.tqsbackend.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tqs.backend.tqsbackend.dto.BookingCreateRequest;
+import tqs.backend.tqsbackend.dto.ConversationSummaryDTO;
+import tqs.backend.tqsbackend.dto.GlobalStatsDTO;
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.RatingType;
+import tqs.backend.tqsbackend.exception.AvailabilityException;
+import tqs.backend.tqsbackend.fixtures.StubStripeEventSource;
+import tqs.backend.tqsbackend.fixtures.StubStripeEventSource.Delivery;
+import tqs.backend.tqsbackend.service.ItemSearchCursor;
+import tqs.backend.tqsbackend.service.StripeWebhookService;
+import tqs.backend.tqsbackend.service.SyntheticDataGenerator;
+
+/**
+ * Service-layer hot paths against the seeded database. Inputs are drawn from
+ * a fixed-seed generator per thread so every run issues the same requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmarks {
+
+    private static final int PAGE_SIZE = 24;
+
+    @State(Scope.Thread)
+    public static class Inputs {
+
+        final SplittableRandom random = new SplittableRandom(7L);
+
+        long pick(long[] ids) {
+            return ids[random.nextInt(ids.length)];
+        }
+
+        String keyword() {
+            return SyntheticDataGenerator.ITEM_WORDS[random.nextInt(SyntheticDataGenerator.ITEM_WORDS.length)];
+        }
+
+        /** A few days starting somewhere in the next ten years. */
+        LocalDate futureStart() {
+            return LocalDate.now().plusDays(60 + random.nextInt(3650));
+        }
+    }
+
+    /** Signed checkout events from the local stub, one in ten a redelivery. */
+    @State(Scope.Thread)
+    public static class Webhooks {
+
+        StubStripeEventSource source;
+
+        @Setup
+        public void start(SeededApplication app) {
+            // Unique event ids per thread, so only the stub's own redeliveries repeat
+            source = new StubStripeEventSource("evt_" + UUID.randomUUID() + "_", 7L, app.paidBookingIds, 0.1);
+        }
+    }
+
+    @Benchmark
+    public List<Item> searchItems(SeededApplication app, Inputs in) {
+        return app.itemService.searchItems(new ItemSearchCriteria(in.keyword(), null, null, 120.0, null, null));
+    }
+
+    @Benchmark
+    public ItemSearchPage searchItemsFirstPage(SeededApplication app, Inputs in) {
+        return app.itemService.searchItemsPage(new ItemSearchCriteria(in.keyword(), null, null, 120.0, null, null),
+                ItemSearchCursor.Sort.PRICE, null, PAGE_SIZE);
+    }
+
+    /** The overlap query run by BookingService.ensureAvailability. */
+    @Benchmark
+    public boolean availabilityCheck(SeededApplication app, Inputs in) {
+        LocalDate start = LocalDate.now().plusDays(in.random.nextInt(30));
+        return app.bookingRepository.existsActiveOverlap(in.pick(app.itemIds), start, start.plusDays(3));
+    }
+
+    @Benchmark
+    public void createBooking(SeededApplication app, Inputs in, Blackhole blackhole) {
+        BookingCreateRequest request = new BookingCreateRequest();
+        request.setItemId(in.pick(app.itemIds));
+        request.setRenterId(in.pick(app.renterIds));
+        request.setStartDate(in.futureStart());
+        request.setEndDate(request.getStartDate().plusDays(1 + in.random.nextInt(3)));
+        try {
+            blackhole.consume(app.bookingService.createBooking(request));
+        } catch (AvailabilityException e) {
+            // Dates taken by an earlier iteration; still a full availability check
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void createRating(SeededApplication app, Inputs in, Blackhole blackhole) {
+        long[] rental = app.completedRentals[in.random.nextInt(app.completedRentals.length)];
+        blackhole.consume(app.ratingService.createRating(rental[0], RatingType.PRODUCT, rental[1],
+                1 + in.random.nextInt(5), "Benchmark"));
+    }
+
+    /** What Stripe waits for: verify, store and queue; the workers apply events in the background. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public StripeWebhookService.Receipt receiveWebhook(SeededApplication app, Webhooks webhooks) {
+        Delivery delivery = webhooks.source.next();
+        return app.webhookService.receive(delivery.payload(), delivery.signature());
+    }
+
+    @Benchmark
+    public List<ConversationSummaryDTO> getConversationsList(SeededApplication app, Inputs in) {
+        return app.messageService.getConversationsList(in.pick(app.renterIds), 0, 50);
+    }
+
+    @Benchmark
+    public GlobalStatsDTO getGlobalStats(SeededApplication app) {
+        return app.adminDashboardService.getGlobalStats();
+    }
+}
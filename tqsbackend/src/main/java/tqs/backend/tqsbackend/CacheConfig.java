@@ -0,0 +1,94 @@
+package tqs.backend.tqsbackend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.User;
+
+/**
+ * Caffeine caches for the category, user and item lookups, configured from
+ * the spring.cache properties.
+ *
+ * Entries are stored and handed out as copies, so a caller changing a
+ * cached entity neither changes it for other requests nor for the cache.
+ * Puts and evictions inside a transaction are applied after it commits, so
+ * a concurrent lookup cannot cache the row again before the write is visible.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager caffeine = new CopyingCaffeineCacheManager();
+        String spec = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(spec)) {
+            caffeine.setCacheSpecification(spec);
+        }
+        caffeine.setCacheNames(cacheProperties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+
+    static Object copyOf(Object value) {
+        if (value instanceof Item item) {
+            return item.copy();
+        }
+        if (value instanceof User user) {
+            return user.copy();
+        }
+        if (value instanceof Category category) {
+            return category.copy();
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(copyOf(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    static class CopyingCaffeineCacheManager extends CaffeineCacheManager {
+
+        @Override
+        protected org.springframework.cache.Cache adaptCaffeineCache(String name,
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+            return new CopyingCaffeineCache(name, cache, isAllowNullValues());
+        }
+    }
+
+    /**
+     * Still a {@link CaffeineCache}, so its statistics keep being published
+     * as the cache.gets metric.
+     */
+    static class CopyingCaffeineCache extends CaffeineCache {
+
+        CopyingCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        protected Object toStoreValue(Object userValue) {
+            return super.toStoreValue(copyOf(userValue));
+        }
+
+        @Override
+        protected Object fromStoreValue(Object storeValue) {
+            return copyOf(super.fromStoreValue(storeValue));
+        }
+    }
+}
@@ -19,6 +19,7 @@ import tqs.backend.tqsbackend.exception.AvailabilityException;
 import tqs.backend.tqsbackend.exception.BookingValidationException;
 import tqs.backend.tqsbackend.service.BookingService;
 import tqs.backend.tqsbackend.service.ItemService;
+import tqs.backend.tqsbackend.service.SessionPrincipal;
 
 import lombok.RequiredArgsConstructor;
 
@@ -126,8 +127,8 @@ public class BookingController {
             return "redirect:/users/login";
         }
 
-        tqs.backend.tqsbackend.entity.User user = userService.getUserById(userId).orElse(null);
-        if (user == null || user.getRole() != tqs.backend.tqsbackend.entity.UserRoles.OWNER) {
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal == null || !principal.hasRole(tqs.backend.tqsbackend.entity.UserRoles.OWNER)) {
             return "redirect:/items/search";
         }
 
@@ -1,20 +1,32 @@
 package tqs.backend.tqsbackend.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
+import tqs.backend.tqsbackend.dto.UserSummaryDTO;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
-import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
 import tqs.backend.tqsbackend.service.CategoryService;
+import tqs.backend.tqsbackend.service.ItemSearchCursor;
 import tqs.backend.tqsbackend.service.ItemService;
+import tqs.backend.tqsbackend.service.MessageService;
+import tqs.backend.tqsbackend.service.SessionPrincipal;
 import tqs.backend.tqsbackend.service.UserService;
 
-import java.util.Optional;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import jakarta.servlet.http.HttpSession;
 import java.util.List;
@@ -30,8 +42,12 @@ public class ItemController {
 
     private final UserService userService;
 
+    private final MessageService messageService;
+
     private static final String CATEGORIES_ATTR = "categories";
 
+    private static final int SEARCH_PAGE_SIZE = 24;
+
     @GetMapping("/search")
     public String searchItems(
             @RequestParam(required = false) String q,
@@ -40,6 +56,9 @@ public class ItemController {
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false) Double minRating,
             @RequestParam(required = false) String location,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String after,
             Model model, HttpSession session) {
 
         Category cat = null;
@@ -47,10 +66,25 @@ public class ItemController {
             cat = categoryService.getCategoryByName(category);
         }
 
-        List<Item> items = itemService.searchItems(q, cat, minPrice, maxPrice, minRating, location);
+        ItemSearchCriteria criteria = new ItemSearchCriteria(q, cat, minPrice, maxPrice, minRating, location,
+                startDate, endDate);
+        ItemSearchPage page;
+        ItemFacets facets = null;
+        try {
+            page = itemService.searchItemsPage(criteria, ItemSearchCursor.Sort.ID, after, SEARCH_PAGE_SIZE);
+            facets = itemService.getFacets(criteria);
+        } catch (IllegalArgumentException e) {
+            // Invalid date range or stale cursor
+            model.addAttribute("error", e.getMessage());
+            page = new ItemSearchPage(List.of(), null);
+        }
+        List<Item> items = page.getItems();
         List<Category> categories = categoryService.getAllCategories();
 
         model.addAttribute("items", items);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("facets", facets);
+        model.addAttribute("isFirstPage", after == null || after.isEmpty());
         model.addAttribute(CATEGORIES_ATTR, categories);
         model.addAttribute("q", q);
         model.addAttribute("selectedCategory", category);
@@ -58,22 +92,38 @@ public class ItemController {
         model.addAttribute("maxPrice", maxPrice);
         model.addAttribute("minRating", minRating);
         model.addAttribute("location", location);
+        model.addAttribute("startDate", startDate);
+        model.addAttribute("endDate", endDate);
 
         Long userId = (Long) session.getAttribute("userId");
         model.addAttribute("isLoggedIn", userId != null);
         model.addAttribute("userName", session.getAttribute("userName"));
+        if (userId != null) {
+            model.addAttribute("unreadMessages", messageService.getUnreadCount(userId));
+        }
 
-        // Add userRole for conditional UI elements
+        // Owners of the listed items and the session user are loaded in one query
+        Set<Long> userIds = new HashSet<>();
+        for (Item item : items) {
+            if (item.getOwnerId() != null) {
+                userIds.add(item.getOwnerId());
+            }
+        }
         if (userId != null) {
-            Optional<User> userOpt = userService.getUserById(userId);
-            userOpt.ifPresent(user -> model.addAttribute("userRole", user.getRole().toString()));
+            userIds.add(userId);
+        }
+        Map<Long, UserSummaryDTO> summaries = userService.getUserSummaries(userIds);
+
+        // Add userRole for conditional UI elements
+        if (userId != null && summaries.containsKey(userId)) {
+            model.addAttribute("userRole", summaries.get(userId).getRole().toString());
         }
 
         // Add owner information for each item
-        java.util.Map<Long, User> ownerMap = new java.util.HashMap<>();
+        Map<Long, UserSummaryDTO> ownerMap = new HashMap<>();
         for (Item item : items) {
-            if (item.getOwnerId() != null && !ownerMap.containsKey(item.getOwnerId())) {
-                userService.getUserById(item.getOwnerId()).ifPresent(owner -> ownerMap.put(item.getOwnerId(), owner));
+            if (item.getOwnerId() != null && summaries.containsKey(item.getOwnerId())) {
+                ownerMap.put(item.getOwnerId(), summaries.get(item.getOwnerId()));
             }
         }
         model.addAttribute("ownerMap", ownerMap);
@@ -94,10 +144,9 @@ public class ItemController {
         }
 
         // Add user role for conditional UI elements
-        Long userId = (Long) session.getAttribute("userId");
-        if (userId != null) {
-            Optional<User> userOpt = userService.getUserById(userId);
-            userOpt.ifPresent(user -> model.addAttribute("userRole", user.getRole().toString()));
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal != null) {
+            model.addAttribute("userRole", principal.role().toString());
         }
 
         return "item_details";
@@ -110,11 +159,11 @@ public class ItemController {
             return "redirect:/users/login";
         }
 
-        tqs.backend.tqsbackend.entity.User user = userService.getUserById(userId).orElse(null);
-        if (user == null || user.getRole() != tqs.backend.tqsbackend.entity.UserRoles.OWNER) {
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal == null || !principal.hasRole(UserRoles.OWNER)) {
             return "redirect:/items/search";
         }
-        model.addAttribute("userRole", user.getRole().name());
+        model.addAttribute("userRole", principal.role().name());
 
         model.addAttribute("item", new Item());
         model.addAttribute(CATEGORIES_ATTR, categoryService.getAllCategories());
@@ -132,8 +181,8 @@ public class ItemController {
             return "redirect:/users/login";
         }
 
-        tqs.backend.tqsbackend.entity.User user = userService.getUserById(userId).orElse(null);
-        if (user == null || user.getRole() != tqs.backend.tqsbackend.entity.UserRoles.OWNER) {
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal == null || !principal.hasRole(UserRoles.OWNER)) {
             return "redirect:/items/search";
         }
 
@@ -151,11 +200,11 @@ public class ItemController {
             return "redirect:/users/login";
         }
 
-        tqs.backend.tqsbackend.entity.User user = userService.getUserById(userId).orElse(null);
-        if (user == null || user.getRole() != tqs.backend.tqsbackend.entity.UserRoles.OWNER) {
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal == null || !principal.hasRole(UserRoles.OWNER)) {
             return "redirect:/items/search";
         }
-        model.addAttribute("userRole", user.getRole().name());
+        model.addAttribute("userRole", principal.role().name());
 
         List<Item> items = itemService.findByOwnerId(userId);
         model.addAttribute("items", items);
@@ -173,12 +222,12 @@ public class ItemController {
             return "redirect:/items/search";
         }
 
-        tqs.backend.tqsbackend.entity.User user = userService.getUserById(userId).orElse(null);
-        if (user == null || !item.getOwnerId().equals(userId)) {
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal == null || !item.getOwnerId().equals(userId)) {
              return "redirect:/items/search";
         }
         
-        model.addAttribute("userRole", user.getRole().name());
+        model.addAttribute("userRole", principal.role().name());
         model.addAttribute("item", item);
         model.addAttribute(CATEGORIES_ATTR, categoryService.getAllCategories());
         return "items/edit_item";
@@ -1,12 +1,17 @@
 package tqs.backend.tqsbackend.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.service.CategoryService;
+import tqs.backend.tqsbackend.service.ItemSearchCursor;
 import tqs.backend.tqsbackend.service.ItemService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -25,13 +30,46 @@ public class ItemRestController {
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false) Double minRating,
-            @RequestParam(required = false) String location) {
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
 
         Category cat = null;
         if (category != null && !category.isEmpty()) {
             cat = categoryService.getCategoryByName(category);
         }
 
-        return itemService.searchItems(q, cat, minPrice, maxPrice, minRating, location);
+        return itemService.searchItems(
+                new ItemSearchCriteria(q, cat, minPrice, maxPrice, minRating, location, startDate, endDate));
+    }
+
+    @GetMapping(value = "/search", params = "limit")
+    public ItemSearchPage searchItemsPage(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "false") boolean facets) {
+
+        Category cat = null;
+        if (category != null && !category.isEmpty()) {
+            cat = categoryService.getCategoryByName(category);
+        }
+
+        ItemSearchCriteria criteria = new ItemSearchCriteria(q, cat, minPrice, maxPrice, minRating, location,
+                startDate, endDate);
+        ItemSearchPage page = itemService.searchItemsPage(criteria, ItemSearchCursor.Sort.fromParam(sort), after,
+                limit);
+        if (!facets) {
+            return page;
+        }
+        return new ItemSearchPage(page.getItems(), page.getNextCursor(), itemService.getFacets(criteria));
     }
 }
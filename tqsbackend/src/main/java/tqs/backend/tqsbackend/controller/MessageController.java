@@ -14,6 +14,7 @@ import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import tqs.backend.tqsbackend.dto.ConversationSummaryDTO;
 import tqs.backend.tqsbackend.dto.MessageCreateRequest;
+import tqs.backend.tqsbackend.dto.MessageHistoryPage;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.entity.Message;
 import tqs.backend.tqsbackend.exception.BookingValidationException;
@@ -25,6 +26,10 @@ import tqs.backend.tqsbackend.service.MessageService;
 @RequiredArgsConstructor
 public class MessageController {
 
+    private static final int CONVERSATIONS_PAGE_SIZE = 20;
+
+    private static final int HISTORY_PAGE_SIZE = 50;
+
     private final MessageService messageService;
     private final ItemService itemService;
 
@@ -32,6 +37,7 @@ public class MessageController {
     public String showNewMessageForm(
             @RequestParam Long receiverId,
             @RequestParam(required = false) Long itemId,
+            @RequestParam(required = false) String before,
             Model model, HttpSession session) {
 
         Long userId = (Long) session.getAttribute("userId");
@@ -47,9 +53,22 @@ public class MessageController {
             model.addAttribute("item", item);
         }
 
-        // Load existing conversation
-        List<Message> messages = messageService.getConversation(userId, receiverId);
-        model.addAttribute("messages", messages);
+        // Load the latest messages; older history is paged in on request
+        MessageHistoryPage<Message> history;
+        try {
+            history = messageService.getConversationPage(userId, receiverId, before, HISTORY_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            // Stale or tampered cursor
+            model.addAttribute("error", e.getMessage());
+            history = messageService.getConversationPage(userId, receiverId, null, HISTORY_PAGE_SIZE);
+        }
+        model.addAttribute("messages", history.getMessages());
+        if (before == null && !history.getMessages().isEmpty()) {
+            // Everything up to the newest message on screen has now been seen
+            List<Message> shown = history.getMessages();
+            messageService.markConversationRead(userId, receiverId, shown.get(shown.size() - 1).getId());
+        }
+        model.addAttribute("olderCursor", history.getOlderCursor());
 
         return "messages";
     }
@@ -96,14 +115,18 @@ public class MessageController {
     }
 
     @GetMapping("/conversations")
-    public String listConversations(Model model, HttpSession session) {
+    public String listConversations(@RequestParam(defaultValue = "0") int page, Model model, HttpSession session) {
         Long userId = (Long) session.getAttribute("userId");
         if (userId == null) {
             return "redirect:/users/login";
         }
 
-        List<ConversationSummaryDTO> conversations = messageService.getConversationsList(userId);
+        int currentPage = Math.max(page, 0);
+        List<ConversationSummaryDTO> conversations = messageService.getConversationsList(userId, currentPage,
+                CONVERSATIONS_PAGE_SIZE);
         model.addAttribute("conversations", conversations);
+        model.addAttribute("page", currentPage);
+        model.addAttribute("hasNextPage", conversations.size() == CONVERSATIONS_PAGE_SIZE);
         model.addAttribute("userId", userId);
         model.addAttribute("userRole", session.getAttribute("userRole"));
 
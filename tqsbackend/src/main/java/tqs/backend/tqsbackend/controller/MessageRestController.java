@@ -1,6 +1,7 @@
 package tqs.backend.tqsbackend.controller;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +17,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import tqs.backend.tqsbackend.dto.ConversationSummaryDTO;
 import tqs.backend.tqsbackend.dto.MessageCreateRequest;
+import tqs.backend.tqsbackend.dto.MessageHistoryPage;
 import tqs.backend.tqsbackend.dto.MessageResponse;
 import tqs.backend.tqsbackend.entity.Message;
 import tqs.backend.tqsbackend.service.MessageService;
@@ -49,9 +51,37 @@ public class MessageRestController {
         return ResponseEntity.ok(messages.stream().map(this::toResponse).toList());
     }
 
+    @GetMapping(value = "/conversation/{otherUserId}", params = "limit")
+    public ResponseEntity<MessageHistoryPage<MessageResponse>> getConversationPage(
+            @RequestParam Long userId,
+            @PathVariable Long otherUserId,
+            @RequestParam int limit,
+            @RequestParam(required = false) String before) {
+        MessageHistoryPage<Message> page = messageService.getConversationPage(userId, otherUserId, before, limit);
+        return ResponseEntity.ok(new MessageHistoryPage<>(
+                page.getMessages().stream().map(this::toResponse).toList(), page.getOlderCursor()));
+    }
+
+    @PostMapping("/conversation/{otherUserId}/read")
+    public ResponseEntity<Map<String, Integer>> markConversationRead(
+            @RequestParam Long userId,
+            @PathVariable Long otherUserId,
+            @RequestParam Long upToMessageId) {
+        int marked = messageService.markConversationRead(userId, otherUserId, upToMessageId);
+        return ResponseEntity.ok(Map.of("marked", marked));
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Integer>> getUnreadCount(@RequestParam Long userId) {
+        return ResponseEntity.ok(Map.of("unreadCount", messageService.getUnreadCount(userId)));
+    }
+
     @GetMapping("/conversations")
-    public ResponseEntity<List<ConversationSummaryDTO>> getConversationsList(@RequestParam Long userId) {
-        List<ConversationSummaryDTO> conversations = messageService.getConversationsList(userId);
+    public ResponseEntity<List<ConversationSummaryDTO>> getConversationsList(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        List<ConversationSummaryDTO> conversations = messageService.getConversationsList(userId, page, size);
         return ResponseEntity.ok(conversations);
     }
 
@@ -7,13 +7,13 @@ import org.springframework.web.bind.annotation.*;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.entity.Rating;
 import tqs.backend.tqsbackend.entity.RatingType;
-import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.Report;
 import tqs.backend.tqsbackend.repository.BookingRepository;
 import tqs.backend.tqsbackend.service.ItemService;
 import tqs.backend.tqsbackend.service.RatingService;
+import tqs.backend.tqsbackend.service.SessionPrincipal;
 import tqs.backend.tqsbackend.service.UserService;
 import tqs.backend.tqsbackend.service.ReportService;
 
@@ -44,8 +44,8 @@ public class OwnerDashboardRestController {
                     .body(Map.of(ERROR_KEY, "User not logged in"));
         }
 
-        Optional<User> userOpt = userService.getUserById(userId);
-        if (userOpt.isEmpty() || userOpt.get().getRole() != UserRoles.OWNER) {
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+        if (principal == null || !principal.hasRole(UserRoles.OWNER)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of(ERROR_KEY, "User is not an owner"));
         }
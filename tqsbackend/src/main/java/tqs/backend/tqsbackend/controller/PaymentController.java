@@ -11,10 +11,11 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
@@ -23,7 +24,10 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.service.BookingService;
-import tqs.backend.tqsbackend.service.WalletService;
+import tqs.backend.tqsbackend.service.MockPaymentService;
+import tqs.backend.tqsbackend.service.PaymentResult;
+import tqs.backend.tqsbackend.service.StripeGateway;
+import tqs.backend.tqsbackend.service.StripeWebhookService;
 
 @Controller
 @RequestMapping("/payment")
@@ -31,14 +35,17 @@ import tqs.backend.tqsbackend.service.WalletService;
 public class PaymentController {
 
     private final BookingService bookingService;
-    private final WalletService walletService;
-
-    @Value("${stripe.api.secret-key:}")
-    private String stripeSecretKey;
+    private final StripeWebhookService webhookService;
+    private final StripeGateway stripe;
+    private final MockPaymentService paymentSimulator;
 
     @Value("${stripe.api.public-key:}")
     private String stripePublicKey;
 
+    // Set by the payment-sim profile: checkout charges the simulated provider instead of opening a Stripe session
+    @Value("${payment.simulated-checkout:false}")
+    private boolean simulatedCheckout;
+
     @GetMapping("/{bookingId}")
     public String showPaymentPage(@PathVariable Long bookingId, Model model) {
         Booking booking = bookingService.getBooking(bookingId);
@@ -58,14 +65,18 @@ public class PaymentController {
             HttpServletRequest request) {
         
         try {
-            Stripe.apiKey = stripeSecretKey;
-            
             Booking booking = bookingService.getBooking(bookingId);
             if (booking == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Booking not found"));
             }
 
             String baseUrl = request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort();
+            if (simulatedCheckout) {
+                return chargeSimulated(booking, baseUrl);
+            }
+            if (!stripe.isConfigured()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Stripe is not configured"));
+            }
 
             SessionCreateParams params = SessionCreateParams.builder()
                 .setMode(SessionCreateParams.Mode.PAYMENT)
@@ -86,9 +97,15 @@ public class PaymentController {
                                 .build())
                         .build())
                 .putMetadata("booking_id", bookingId.toString())
+                // Copied onto the payment so a refund can find it by booking
+                .setPaymentIntentData(SessionCreateParams.PaymentIntentData.builder()
+                    .putMetadata("booking_id", bookingId.toString())
+                    .build())
                 .build();
 
-            Session session = Session.create(params);
+            // Runs on the Stripe pool with a timeout; an open circuit or a
+            // timeout surfaces as a 503 through the global exception handler
+            Session session = stripe.call("checkout.session.create", options -> Session.create(params, options));
 
             Map<String, String> response = new HashMap<>();
             response.put("url", session.getUrl());
@@ -99,24 +116,51 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Charges the booking through the payment simulator, on the same Stripe
+     * pool, timeout and circuit breaker as a real checkout, and sends the
+     * browser straight to the success page when the charge goes through.
+     * The simulator is called directly, never a PaymentService that makes
+     * its own gateway calls, so no call waits on the pool it is running on.
+     */
+    private ResponseEntity<Map<String, String>> chargeSimulated(Booking booking, String baseUrl)
+            throws StripeException {
+        // Declines, rate limits and hangs are thrown, so the gateway counts them like Stripe's own
+        PaymentResult result = stripe.call("payment.charge", options -> paymentSimulator.simulateCharge(
+                booking.getRenterId(), booking.getItem(), booking.getTotalPrice(), booking.getId()));
+        if (result.pending()) {
+            // Not failed either; the provider's webhook confirms the booking
+            return ResponseEntity.accepted().body(Map.of("status", result.reason()));
+        }
+        if (!result.success()) {
+            return ResponseEntity.badRequest().body(Map.of("error", result.reason()));
+        }
+        return ResponseEntity.ok(Map.of("url", baseUrl + "/payment/success/" + booking.getId()));
+    }
+
     @GetMapping("/success/{bookingId}")
     public String paymentSuccess(@PathVariable Long bookingId, Model model) {
-        // Confirm payment status on booking
+        // Confirm payment status on booking; the funds are held in the owner's
+        // wallet in the background once the confirmation commits
         bookingService.confirmPayment(bookingId);
-        
-        // Hold funds in owner's wallet (pending release until dual confirmation)
-        try {
-            walletService.holdFunds(bookingId);
-        } catch (Exception e) {
-            // Log but don't fail - payment already succeeded
-            System.err.println("Warning: Could not hold funds for booking " + bookingId + ": " + e.getMessage());
-        }
-        
+
         Booking booking = bookingService.getBooking(bookingId);
         model.addAttribute("booking", booking);
         return "payment/success";
     }
 
+    /**
+     * Stripe's notification of payment events. The event is stored and
+     * acknowledged straight away; confirming the booking happens afterwards.
+     */
+    @PostMapping("/webhook")
+    @ResponseBody
+    public ResponseEntity<Void> webhook(@RequestBody String payload,
+            @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        webhookService.receive(payload, signature);
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/cancel/{bookingId}")
     public String paymentCancel(@PathVariable Long bookingId, Model model) {
         Booking booking = bookingService.getBooking(bookingId);
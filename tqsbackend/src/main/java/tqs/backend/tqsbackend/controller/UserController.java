@@ -12,6 +12,7 @@ import jakarta.servlet.http.HttpSession;
 import jakarta.servlet.http.HttpServletRequest;
 import tqs.backend.tqsbackend.dto.UserRegistrationDto;
 import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.service.SessionPrincipal;
 import tqs.backend.tqsbackend.service.UserService;
 
 @Controller
@@ -40,6 +41,7 @@ public class UserController {
             newSession.setAttribute("userId", user.getId());
             newSession.setAttribute("userRole", user.getRole());
             newSession.setAttribute("userName", user.getName());
+            newSession.setAttribute(SessionPrincipal.ATTRIBUTE, SessionPrincipal.of(user));
 
             redirectAttributes.addFlashAttribute("success", "Login successful!");
             if (user.getRole() == tqs.backend.tqsbackend.entity.UserRoles.ADMIN) {
@@ -3,6 +3,7 @@ package tqs.backend.tqsbackend.controller;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import tqs.backend.tqsbackend.dto.WalletBalance;
 import tqs.backend.tqsbackend.dto.WalletDTO;
 import tqs.backend.tqsbackend.dto.WalletTransactionDTO;
 import tqs.backend.tqsbackend.entity.Wallet;
@@ -39,10 +40,11 @@ public class WalletController {
         }
 
         Wallet wallet = walletOpt.get();
+        WalletBalance balance = walletService.getBalance(wallet);
         WalletDTO dto = new WalletDTO(
                 wallet.getId(),
-                wallet.getBalance(),
-                wallet.getPendingBalance(),
+                balance.available(),
+                balance.pending(),
                 wallet.getCreatedAt()
         );
         return ResponseEntity.ok(dto);
@@ -9,6 +9,7 @@ public class ConversationSummaryDTO {
     private LocalDateTime lastMessageTime;
     private boolean lastMessageFromMe;
     private Long itemId;
+    private int unreadCount;
 
     public ConversationSummaryDTO() {
     }
@@ -23,6 +24,12 @@ public class ConversationSummaryDTO {
         this.itemId = itemId;
     }
 
+    public ConversationSummaryDTO(Long otherUserId, String otherUserName, String lastMessageContent,
+            LocalDateTime lastMessageTime, boolean lastMessageFromMe, Long itemId, int unreadCount) {
+        this(otherUserId, otherUserName, lastMessageContent, lastMessageTime, lastMessageFromMe, itemId);
+        this.unreadCount = unreadCount;
+    }
+
     public Long getOtherUserId() {
         return otherUserId;
     }
@@ -70,4 +77,12 @@ public class ConversationSummaryDTO {
     public void setItemId(Long itemId) {
         this.itemId = itemId;
     }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
 }
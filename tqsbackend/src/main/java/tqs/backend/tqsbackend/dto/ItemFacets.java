@@ -0,0 +1,32 @@
+package tqs.backend.tqsbackend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ItemFacets {
+    private Map<String, Long> categories;
+    private Map<String, Long> locations;
+    private List<PriceRange> priceRanges;
+    // Number of items rated at least N stars, keyed by N
+    private Map<Integer, Long> minRatings;
+
+    // max is exclusive and null for the open-ended last range
+    public record PriceRange(Double min, Double max, long count) {
+
+        private static final BigDecimal CENT = new BigDecimal("0.01");
+
+        /**
+         * The last price inside the range at cent precision, for the
+         * inclusive maxPrice filter, so a link never includes the next range's
+         * lowest price.
+         */
+        public Double maxInclusive() {
+            return max == null ? null : BigDecimal.valueOf(max).subtract(CENT).doubleValue();
+        }
+    }
+}
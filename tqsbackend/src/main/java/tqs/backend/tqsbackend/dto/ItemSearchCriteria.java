@@ -0,0 +1,29 @@
+package tqs.backend.tqsbackend.dto;
+
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tqs.backend.tqsbackend.entity.Category;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemSearchCriteria {
+    private String keyword;
+    private Category category;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double minRating;
+    private String location;
+    // Only items with no active booking overlapping [startDate, endDate)
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    public ItemSearchCriteria(String keyword, Category category, Double minPrice, Double maxPrice, Double minRating,
+            String location) {
+        this(keyword, category, minPrice, maxPrice, minRating, location, null, null);
+    }
+}
@@ -0,0 +1,22 @@
+package tqs.backend.tqsbackend.dto;
+
+import java.util.List;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tqs.backend.tqsbackend.entity.Item;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemSearchPage {
+    private List<Item> items;
+    // Opaque token for the next page, null when this is the last page
+    private String nextCursor;
+    // Only present when facet counts were requested
+    private ItemFacets facets;
+
+    public ItemSearchPage(List<Item> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+}
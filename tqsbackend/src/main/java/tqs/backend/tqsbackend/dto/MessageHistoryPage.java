@@ -0,0 +1,16 @@
+package tqs.backend.tqsbackend.dto;
+
+import java.util.List;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageHistoryPage<T> {
+    // Oldest first, ready to render top to bottom
+    private List<T> messages;
+    // Opaque token for the previous (older) page, null when the history starts here
+    private String olderCursor;
+}
@@ -0,0 +1,14 @@
+package tqs.backend.tqsbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tqs.backend.tqsbackend.entity.UserRoles;
+
+@Getter
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private Long id;
+    private String name;
+    private UserRoles role;
+    private Double averageRating;
+}
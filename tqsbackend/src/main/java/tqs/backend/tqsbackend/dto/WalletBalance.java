@@ -0,0 +1,12 @@
+package tqs.backend.tqsbackend.dto;
+
+import java.math.BigDecimal;
+
+public record WalletBalance(BigDecimal available, BigDecimal pending) {
+
+    public static final WalletBalance ZERO = new WalletBalance(BigDecimal.ZERO, BigDecimal.ZERO);
+
+    public WalletBalance plus(WalletBalance other) {
+        return new WalletBalance(available.add(other.available), pending.add(other.pending));
+    }
+}
@@ -7,9 +7,13 @@ import java.time.LocalDateTime;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import tqs.backend.tqsbackend.service.BookingAvailabilityListener;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_item_status_dates", columnList = "item_id, status, start_date, end_date")
+})
+@EntityListeners(BookingAvailabilityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
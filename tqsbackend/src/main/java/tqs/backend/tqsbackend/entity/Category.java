@@ -25,6 +25,15 @@ public class Category {
         this.name = name;
     }
 
+    /**
+     * Detached copy for the category cache. The lazy item list is left out.
+     */
+    public Category copy() {
+        Category copy = new Category(name);
+        copy.id = id;
+        return copy;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,109 @@
+package tqs.backend.tqsbackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Summary of the messages exchanged between two users, kept up to date on
+ * every send so the inbox never has to scan the messages table. The pair is
+ * stored ordered (userAId < userBId) so each conversation has a single row.
+ */
+@Entity
+@Table(name = "conversations", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_conversations_users", columnNames = { "user_a_id", "user_b_id" })
+}, indexes = {
+        @Index(name = "idx_conversations_user_a_last", columnList = "user_a_id, last_sent_at"),
+        @Index(name = "idx_conversations_user_b_last", columnList = "user_b_id, last_sent_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class Conversation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_a_id", nullable = false)
+    private Long userAId;
+
+    @Column(name = "user_b_id", nullable = false)
+    private Long userBId;
+
+    // Names as they were when the conversation started
+    @Column(name = "user_a_name")
+    private String userAName;
+
+    @Column(name = "user_b_name")
+    private String userBName;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(name = "last_content", length = 2000)
+    private String lastContent;
+
+    @Column(name = "last_item_id")
+    private Long lastItemId;
+
+    @Column(name = "last_sent_at", nullable = false)
+    private LocalDateTime lastSentAt;
+
+    @Column(name = "unread_a", nullable = false)
+    private int unreadA = 0;
+
+    @Column(name = "unread_b", nullable = false)
+    private int unreadB = 0;
+
+    public Conversation(Long userId1, Long userId2) {
+        this.userAId = Math.min(userId1, userId2);
+        this.userBId = Math.max(userId1, userId2);
+    }
+
+    public void recordMessage(Message message) {
+        this.lastMessageId = message.getId();
+        this.lastSenderId = message.getSenderId();
+        this.lastContent = message.getContent();
+        this.lastItemId = message.getItemId();
+        this.lastSentAt = message.getSentAt();
+        if (message.getReceiverId().equals(userAId)) {
+            unreadA++;
+        } else {
+            unreadB++;
+        }
+    }
+
+    public void markRead(Long userId, int count) {
+        if (userId.equals(userAId)) {
+            unreadA = Math.max(0, unreadA - count);
+        } else {
+            unreadB = Math.max(0, unreadB - count);
+        }
+    }
+
+    public Long getPartnerId(Long userId) {
+        return userId.equals(userAId) ? userBId : userAId;
+    }
+
+    public String getPartnerName(Long userId) {
+        return userId.equals(userAId) ? userBName : userAName;
+    }
+
+    public int getUnreadCount(Long userId) {
+        return userId.equals(userAId) ? unreadA : unreadB;
+    }
+
+    public void setName(Long userId, String name) {
+        if (userId.equals(userAId)) {
+            this.userAName = name;
+        } else {
+            this.userBName = name;
+        }
+    }
+}
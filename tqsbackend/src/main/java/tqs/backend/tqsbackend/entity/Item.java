@@ -1,9 +1,11 @@
 package tqs.backend.tqsbackend.entity;
 
 import jakarta.persistence.*;
+import tqs.backend.tqsbackend.service.ItemSearchIndexListener;
 
 @Entity
 @Table(name = "items")
+@EntityListeners(ItemSearchIndexListener.class)
 public class Item {
 
     @Id
@@ -53,6 +55,18 @@ public class Item {
         this(name, description, price, category, averageRating, location, null);
     }
 
+    /**
+     * Detached copy for the item cache, so callers never share an instance.
+     */
+    public Item copy() {
+        Item copy = new Item(name, description, price, category != null ? category.copy() : null, averageRating,
+                location, ownerId);
+        copy.id = id;
+        copy.isActive = isActive;
+        copy.imageUrl = imageUrl;
+        return copy;
+    }
+
     public Long getId() {
         return id;
     }
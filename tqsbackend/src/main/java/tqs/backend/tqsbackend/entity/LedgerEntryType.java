@@ -0,0 +1,39 @@
+package tqs.backend.tqsbackend.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Movements recorded in the wallet ledger. Each one debits one account and
+ * credits another, so the pending and available deltas of an entry always
+ * balance against the outside world.
+ */
+public enum LedgerEntryType {
+    HOLD(0, 1),      // Renter payment -> pending
+    RELEASE(1, -1),  // Pending -> available
+    REFUND(0, -1),   // Pending -> back to the renter
+    WITHDRAW(-1, 0); // Available -> owner's bank account
+
+    private final int availableSign;
+    private final int pendingSign;
+
+    LedgerEntryType(int availableSign, int pendingSign) {
+        this.availableSign = availableSign;
+        this.pendingSign = pendingSign;
+    }
+
+    public BigDecimal availableDelta(BigDecimal amount) {
+        return signed(amount, availableSign);
+    }
+
+    public BigDecimal pendingDelta(BigDecimal amount) {
+        return signed(amount, pendingSign);
+    }
+
+    private static BigDecimal signed(BigDecimal amount, int sign) {
+        return switch (sign) {
+            case 1 -> amount;
+            case -1 -> amount.negate();
+            default -> BigDecimal.ZERO;
+        };
+    }
+}
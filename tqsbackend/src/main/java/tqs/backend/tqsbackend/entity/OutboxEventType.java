@@ -0,0 +1,6 @@
+package tqs.backend.tqsbackend.entity;
+
+public enum OutboxEventType {
+    HOLD_FUNDS,     // Hold the booking's payment in the owner's wallet
+    REFUND_PAYMENT  // Return a payment that arrived after the booking stopped being active
+}
@@ -0,0 +1,7 @@
+package tqs.backend.tqsbackend.entity;
+
+public enum OutboxStatus {
+    PENDING,    // Waiting for the dispatcher, possibly after a failed attempt
+    DONE,       // Side effect applied
+    FAILED      // Gave up after the maximum number of attempts
+}
@@ -0,0 +1,65 @@
+package tqs.backend.tqsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Running sum and count of the ratings received by an item, owner or renter,
+ * so averages can be maintained without rereading every rating.
+ */
+@Entity
+@Table(name = "rating_aggregates", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rating_aggregates_target", columnNames = { "rating_type", "rated_id" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class RatingAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rating_type", nullable = false)
+    private RatingType ratingType;
+
+    @Column(name = "rated_id", nullable = false)
+    private Long ratedId;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    public RatingAggregate(RatingType ratingType, Long ratedId, long ratingSum, long ratingCount) {
+        this.ratingType = ratingType;
+        this.ratedId = ratedId;
+        this.ratingSum = ratingSum;
+        this.ratingCount = ratingCount;
+    }
+
+    public void addRating(int rate) {
+        this.ratingSum += rate;
+        this.ratingCount++;
+    }
+
+    public void removeRating(int rate) {
+        if (ratingCount == 0) {
+            return;
+        }
+        this.ratingSum -= rate;
+        this.ratingCount--;
+    }
+
+    // Rounded to 1 decimal place, null when there are no ratings
+    public Double getAverage() {
+        if (ratingCount == 0) {
+            return null;
+        }
+        return Math.round((double) ratingSum / ratingCount * 10.0) / 10.0;
+    }
+}
@@ -0,0 +1,78 @@
+package tqs.backend.tqsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Stripe webhook delivery, stored verbatim before it is
+ * acknowledged. The unique Stripe event id makes redeliveries no-ops. An
+ * event that fails to apply stays RECEIVED with a later next attempt until
+ * it succeeds or runs out of attempts.
+ */
+@Entity
+@Table(name = "stripe_webhook_events", indexes = {
+        @Index(name = "idx_stripe_webhook_events_status", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class StripeWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true)
+    private String eventId;
+
+    @Column(nullable = false, length = 100)
+    private String type;
+
+    // Null for events that are not about a booking
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Column(nullable = false, length = 65536)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WebhookEventStatus status = WebhookEventStatus.RECEIVED;
+
+    // Failed attempts so far
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public StripeWebhookEvent(String eventId, String type, Long bookingId, String payload,
+            WebhookEventStatus status) {
+        this.eventId = eventId;
+        this.type = type;
+        this.bookingId = bookingId;
+        this.payload = payload;
+        this.status = status;
+    }
+
+    @PrePersist
+    public void onCreate() {
+        this.receivedAt = LocalDateTime.now();
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.receivedAt;
+        }
+    }
+}
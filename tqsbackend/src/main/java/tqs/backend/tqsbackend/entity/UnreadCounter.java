@@ -0,0 +1,43 @@
+package tqs.backend.tqsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of unread messages a user has across all conversations, kept up to
+ * date on send and mark-as-read so the unread badge is a single row read.
+ */
+@Entity
+@Table(name = "unread_counters", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_unread_counters_user", columnNames = { "user_id" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class UnreadCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    public UnreadCounter(Long userId, int unreadCount) {
+        this.userId = userId;
+        this.unreadCount = unreadCount;
+    }
+
+    public void increment() {
+        this.unreadCount++;
+    }
+
+    public void markRead(int count) {
+        this.unreadCount = Math.max(0, unreadCount - count);
+    }
+}
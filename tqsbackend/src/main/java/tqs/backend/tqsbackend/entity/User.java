@@ -43,6 +43,18 @@ public class User {
         this.isActive = true;
     }
 
+    /**
+     * Detached copy for the user cache, so callers never share an instance.
+     */
+    public User copy() {
+        User copy = new User(name, email, password, role);
+        copy.id = id;
+        copy.isActive = isActive;
+        copy.createdAt = createdAt;
+        copy.averageRating = averageRating;
+        return copy;
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = java.time.LocalDateTime.now();
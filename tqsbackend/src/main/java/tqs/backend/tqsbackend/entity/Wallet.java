@@ -8,6 +8,11 @@ import lombok.Setter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * An owner's wallet. The balances are a snapshot of the ledger entries marked
+ * as folded; unfolded entries are added on read and folded in periodically by
+ * the compactor, which tags them with the next {@code snapshotVersion}.
+ */
 @Entity
 @Table(name = "wallets")
 @Getter
@@ -29,6 +34,14 @@ public class Wallet {
     @Column(nullable = false, precision = 14, scale = 2)
     private BigDecimal pendingBalance = BigDecimal.ZERO;
 
+    // Bumped by every compaction; the entries it folds are tagged with the new value
+    @Column(name = "snapshot_version", nullable = false)
+    private Long snapshotVersion = 0L;
+
+    // Bumped by every withdrawal; one that finds it changed since its read retries
+    @Column(name = "withdrawal_version", nullable = false)
+    private Long withdrawalVersion = 0L;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -39,6 +52,8 @@ public class Wallet {
         this.owner = owner;
         this.balance = BigDecimal.ZERO;
         this.pendingBalance = BigDecimal.ZERO;
+        this.snapshotVersion = 0L;
+        this.withdrawalVersion = 0L;
     }
 
     @PrePersist
@@ -51,17 +66,4 @@ public class Wallet {
     public void onUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
-
-    public void addPendingFunds(BigDecimal amount) {
-        this.pendingBalance = this.pendingBalance.add(amount);
-    }
-
-    public void releasePendingFunds(BigDecimal amount) {
-        this.pendingBalance = this.pendingBalance.subtract(amount);
-        this.balance = this.balance.add(amount);
-    }
-
-    public void refundPendingFunds(BigDecimal amount) {
-        this.pendingBalance = this.pendingBalance.subtract(amount);
-    }
 }
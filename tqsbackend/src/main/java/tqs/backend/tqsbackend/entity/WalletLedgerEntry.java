@@ -0,0 +1,70 @@
+package tqs.backend.tqsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One append-only movement of funds in a wallet. Balances are the wallet's
+ * snapshot plus the deltas of every entry not yet folded into it, so writers
+ * only insert and never contend on the wallet row.
+ */
+@Entity
+@Immutable
+@Table(name = "wallet_ledger_entries", indexes = {
+        @Index(name = "idx_wallet_ledger_wallet_id", columnList = "wallet_id, id"),
+        @Index(name = "idx_wallet_ledger_snapshot", columnList = "wallet_id, snapshot_id")
+})
+@Getter
+@NoArgsConstructor
+public class WalletLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    // Null for withdrawals, which are not tied to a booking
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private LedgerEntryType type;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "available_delta", nullable = false, precision = 14, scale = 2)
+    private BigDecimal availableDelta;
+
+    @Column(name = "pending_delta", nullable = false, precision = 14, scale = 2)
+    private BigDecimal pendingDelta;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Snapshot version of the compaction that folded the entry; null until then
+    @Column(name = "snapshot_id")
+    private Long snapshotId;
+
+    public WalletLedgerEntry(Long walletId, Long bookingId, LedgerEntryType type, BigDecimal amount) {
+        this.walletId = walletId;
+        this.bookingId = bookingId;
+        this.type = type;
+        this.amount = amount;
+        this.availableDelta = type.availableDelta(amount);
+        this.pendingDelta = type.pendingDelta(amount);
+    }
+
+    @PrePersist
+    public void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
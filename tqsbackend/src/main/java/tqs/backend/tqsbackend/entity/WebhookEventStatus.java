@@ -0,0 +1,8 @@
+package tqs.backend.tqsbackend.entity;
+
+public enum WebhookEventStatus {
+    RECEIVED,   // Stored and acknowledged, waiting for a worker
+    PROCESSED,  // Applied to its booking
+    IGNORED,    // Not an event we act on
+    FAILED      // Gave up after the configured attempts; see last_error
+}
@@ -0,0 +1,12 @@
+package tqs.backend.tqsbackend.exception;
+
+/**
+ * The provider did not answer in time. Unlike other overload failures the
+ * request may still have been carried out.
+ */
+public class ProviderTimeoutException extends ServiceOverloadedException {
+
+    public ProviderTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package tqs.backend.tqsbackend.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
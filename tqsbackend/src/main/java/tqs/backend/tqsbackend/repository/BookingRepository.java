@@ -3,7 +3,12 @@ package tqs.backend.tqsbackend.repository;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,9 +18,20 @@ import tqs.backend.tqsbackend.entity.BookingStatus;
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
+    // Row lock so the payment redirect and the Stripe webhook confirm a booking one at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id = :id")
+    Optional<Booking> findByIdForUpdate(@Param("id") Long id);
+
     boolean existsByItemIdAndStatusInAndStartDateLessThanAndEndDateGreaterThan(Long itemId,
             Collection<BookingStatus> statuses, LocalDate endDate, LocalDate startDate);
 
+    // Statuses are inlined so Postgres can match the partial index on active
+    // bookings (see V3__Booking_overlap_indexes.sql)
+    @Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END FROM Booking b WHERE b.item.id = :itemId AND b.status IN ('REQUESTED', 'ACCEPTED') AND b.startDate < :endDate AND b.endDate > :startDate")
+    boolean existsActiveOverlap(@Param("itemId") Long itemId, @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
     List<Booking> findByRenterId(Long renterId);
 
     @Query("SELECT b FROM Booking b WHERE b.item.id = :itemId AND b.status IN ('REQUESTED', 'ACCEPTED')")
@@ -47,5 +63,7 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     List<Booking> findByStatus(BookingStatus status);
 
+    List<Booking> findByStatusIn(Collection<BookingStatus> statuses);
+
     List<Booking> findByItemId(Long itemId);
 }
@@ -0,0 +1,31 @@
+package tqs.backend.tqsbackend.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.entity.Conversation;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    // Row lock so concurrent sends in the same conversation keep consistent counters
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Conversation> findByUserAIdAndUserBId(Long userAId, Long userBId);
+
+    // Skips conversations whose first message was rolled back after the row was created
+    @Query("SELECT c FROM Conversation c WHERE (c.userAId = :userId OR c.userBId = :userId) "
+            + "AND c.lastMessageId IS NOT NULL ORDER BY c.lastSentAt DESC, c.id DESC")
+    List<Conversation> findForUser(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT SUM(CASE WHEN c.userAId = :userId THEN c.unreadA ELSE c.unreadB END) FROM Conversation c "
+            + "WHERE c.userAId = :userId OR c.userBId = :userId")
+    Long sumUnreadForUser(@Param("userId") Long userId);
+}
@@ -8,7 +8,7 @@ import tqs.backend.tqsbackend.entity.Item;
 import java.util.List;
 
 @Repository
-public interface ItemRepository extends JpaRepository<Item, Long>, JpaSpecificationExecutor<Item> {
+public interface ItemRepository extends JpaRepository<Item, Long>, JpaSpecificationExecutor<Item>, ItemRepositoryCustom {
     List<Item> findByNameContainingIgnoreCase(String name);
 
     List<Item> findByName(String name);
@@ -0,0 +1,10 @@
+package tqs.backend.tqsbackend.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.entity.Item;
+
+public interface ItemRepositoryCustom {
+
+    ItemFacets countFacets(Specification<Item> spec);
+}
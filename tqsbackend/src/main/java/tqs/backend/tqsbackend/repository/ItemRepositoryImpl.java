@@ -0,0 +1,123 @@
+package tqs.backend.tqsbackend.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.entity.Item;
+
+/**
+ * Facet counts for item search, computed with aggregate queries over the same
+ * {@link Specification} used to fetch the results.
+ */
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+
+    static final double[] PRICE_BOUNDARIES = { 25.0, 50.0, 100.0, 250.0 };
+    static final int[] MIN_RATINGS = { 4, 3, 2, 1 };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public ItemFacets countFacets(Specification<Item> spec) {
+        long[] buckets = countBuckets(spec);
+
+        List<ItemFacets.PriceRange> priceRanges = new ArrayList<>();
+        for (int i = 0; i <= PRICE_BOUNDARIES.length; i++) {
+            Double min = i > 0 ? PRICE_BOUNDARIES[i - 1] : 0.0;
+            Double max = i < PRICE_BOUNDARIES.length ? PRICE_BOUNDARIES[i] : null;
+            priceRanges.add(new ItemFacets.PriceRange(min, max, buckets[i]));
+        }
+
+        Map<Integer, Long> minRatings = new LinkedHashMap<>();
+        for (int i = 0; i < MIN_RATINGS.length; i++) {
+            minRatings.put(MIN_RATINGS[i], buckets[PRICE_BOUNDARIES.length + 1 + i]);
+        }
+
+        return new ItemFacets(countGroupedBy(spec, "category"), countGroupedBy(spec, "location"), priceRanges,
+                minRatings);
+    }
+
+    private Map<String, Long> countGroupedBy(Specification<Item> spec, String attribute) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Item> root = query.from(Item.class);
+
+        Path<String> key = "category".equals(attribute)
+                ? root.join("category").<String>get("name")
+                : root.<String>get(attribute);
+
+        query.multiselect(key, cb.count(root))
+                .where(cb.and(toPredicate(spec, root, query, cb), cb.isNotNull(key)))
+                .groupBy(key)
+                .orderBy(cb.desc(cb.count(root)), cb.asc(key));
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counts.put(row.get(0, String.class), row.get(1, Long.class));
+        }
+        return counts;
+    }
+
+    /**
+     * Price and rating buckets in a single pass using conditional sums, so no
+     * GROUP BY over computed expressions is needed.
+     */
+    private long[] countBuckets(Specification<Item> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Item> root = query.from(Item.class);
+        Path<Double> price = root.<Double>get("price");
+        Expression<Double> rating = cb.coalesce(root.<Double>get("averageRating"), 0.0);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (int i = 0; i <= PRICE_BOUNDARIES.length; i++) {
+            List<Predicate> range = new ArrayList<>();
+            if (i > 0) {
+                range.add(cb.greaterThanOrEqualTo(price, PRICE_BOUNDARIES[i - 1]));
+            }
+            if (i < PRICE_BOUNDARIES.length) {
+                range.add(cb.lessThan(price, PRICE_BOUNDARIES[i]));
+            }
+            selections.add(countWhere(cb, cb.and(range.toArray(Predicate[]::new))));
+        }
+        for (int stars : MIN_RATINGS) {
+            selections.add(countWhere(cb, cb.greaterThanOrEqualTo(rating, (double) stars)));
+        }
+
+        query.multiselect(selections).where(toPredicate(spec, root, query, cb));
+        Tuple row = entityManager.createQuery(query).getSingleResult();
+
+        long[] counts = new long[selections.size()];
+        for (int i = 0; i < counts.length; i++) {
+            Number value = (Number) row.get(i);
+            counts[i] = value == null ? 0L : value.longValue();
+        }
+        return counts;
+    }
+
+    private static Predicate toPredicate(Specification<Item> spec, Root<Item> root, CriteriaQuery<?> query,
+            CriteriaBuilder cb) {
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        return predicate != null ? predicate : cb.conjunction();
+    }
+
+    private static Expression<Long> countWhere(CriteriaBuilder cb, Predicate predicate) {
+        return cb.sum(cb.<Long>selectCase().when(predicate, 1L).otherwise(0L));
+    }
+}
@@ -1,7 +1,10 @@
 package tqs.backend.tqsbackend.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -18,6 +21,24 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
            "OR (m.senderId = :user2 AND m.receiverId = :user1) ORDER BY m.sentAt ASC")
     List<Message> findConversation(@Param("user1") Long userId1, @Param("user2") Long userId2);
 
+    // Pair predicates match idx_messages_pair_sent: (LEAST, GREATEST, sent_at, id)
+    @Query("SELECT m FROM Message m WHERE LEAST(m.senderId, m.receiverId) = :userA " +
+           "AND GREATEST(m.senderId, m.receiverId) = :userB ORDER BY m.sentAt DESC, m.id DESC")
+    List<Message> findLatestInConversation(@Param("userA") Long userA, @Param("userB") Long userB,
+            Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE LEAST(m.senderId, m.receiverId) = :userA " +
+           "AND GREATEST(m.senderId, m.receiverId) = :userB " +
+           "AND (m.sentAt < :sentAt OR (m.sentAt = :sentAt AND m.id < :id)) ORDER BY m.sentAt DESC, m.id DESC")
+    List<Message> findInConversationBefore(@Param("userA") Long userA, @Param("userB") Long userB,
+            @Param("sentAt") LocalDateTime sentAt, @Param("id") Long id, Pageable pageable);
+
     @Query("SELECT m FROM Message m WHERE m.senderId = :userId OR m.receiverId = :userId ORDER BY m.sentAt DESC")
     List<Message> findAllForUser(@Param("userId") Long userId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Message m SET m.isRead = true WHERE m.receiverId = :userId AND m.senderId = :otherUserId " +
+           "AND m.isRead = false AND m.id <= :upToMessageId")
+    int markReadUpTo(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId,
+            @Param("upToMessageId") Long upToMessageId);
 }
@@ -0,0 +1,47 @@
+package tqs.backend.tqsbackend.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.entity.OutboxEvent;
+import tqs.backend.tqsbackend.entity.OutboxEventType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    boolean existsByTypeAndBookingId(OutboxEventType type, Long bookingId);
+
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = tqs.backend.tqsbackend.entity.OutboxStatus.PENDING "
+            + "AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable page);
+
+    // Compare-and-set on the due time: once one dispatcher has pushed it past
+    // now, nobody else matches until the lease runs out
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil "
+            + "WHERE e.id = :id AND e.status = tqs.backend.tqsbackend.entity.OutboxStatus.PENDING "
+            + "AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = tqs.backend.tqsbackend.entity.OutboxStatus.DONE, "
+            + "e.processedAt = :now, e.lastError = NULL WHERE e.id = :id")
+    int markDone(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.nextAttemptAt = :nextAttemptAt, e.lastError = :error WHERE e.id = :id "
+            + "AND e.status = tqs.backend.tqsbackend.entity.OutboxStatus.PENDING")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = tqs.backend.tqsbackend.entity.OutboxStatus.FAILED, "
+            + "e.processedAt = :now, e.lastError = :error WHERE e.id = :id "
+            + "AND e.status = tqs.backend.tqsbackend.entity.OutboxStatus.PENDING")
+    int markFailed(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("error") String error);
+}
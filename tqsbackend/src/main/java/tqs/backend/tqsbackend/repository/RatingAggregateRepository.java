@@ -0,0 +1,19 @@
+package tqs.backend.tqsbackend.repository;
+
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.entity.RatingAggregate;
+import tqs.backend.tqsbackend.entity.RatingType;
+
+@Repository
+public interface RatingAggregateRepository extends JpaRepository<RatingAggregate, Long> {
+
+    // Row lock so concurrent ratings for the same target apply one after another
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RatingAggregate> findByRatingTypeAndRatedId(RatingType ratingType, Long ratedId);
+}
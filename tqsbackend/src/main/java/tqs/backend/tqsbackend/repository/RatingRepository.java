@@ -1,6 +1,8 @@
 package tqs.backend.tqsbackend.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tqs.backend.tqsbackend.entity.Rating;
 import tqs.backend.tqsbackend.entity.RatingType;
@@ -13,4 +15,10 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     List<Rating> findBySenderId(Long senderId);
     List<Rating> findByRatingTypeAndRatedId(RatingType ratingType, Long ratedId);
     Optional<Rating> findBySenderIdAndRatingTypeAndRatedId(Long senderId, RatingType ratingType, Long ratedId);
+
+    long countByRatingTypeAndRatedId(RatingType ratingType, Long ratedId);
+
+    // Null when the target has no ratings
+    @Query("SELECT SUM(r.rate) FROM Rating r WHERE r.ratingType = :ratingType AND r.ratedId = :ratedId")
+    Long sumRateByRatingTypeAndRatedId(@Param("ratingType") RatingType ratingType, @Param("ratedId") Long ratedId);
 }
@@ -0,0 +1,51 @@
+package tqs.backend.tqsbackend.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.entity.StripeWebhookEvent;
+import tqs.backend.tqsbackend.entity.WebhookEventStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, Long> {
+    boolean existsByEventId(String eventId);
+    Optional<StripeWebhookEvent> findByEventId(String eventId);
+
+    // Retries as soon as they are due; first attempts only once they have
+    // waited long enough that they cannot still be queued on a lane
+    @Query("SELECT e FROM StripeWebhookEvent e "
+            + "WHERE e.status = tqs.backend.tqsbackend.entity.WebhookEventStatus.RECEIVED "
+            + "AND e.nextAttemptAt <= :now AND (e.attempts > 0 OR e.receivedAt <= :staleBefore) ORDER BY e.id")
+    List<StripeWebhookEvent> findDue(@Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore,
+            Pageable page);
+
+    // Conditional on RECEIVED and due so an event is applied at most once,
+    // however many times it was handed to a worker, and never before its backoff
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.status = :status, e.processedAt = :now, e.lastError = :error "
+            + "WHERE e.id = :id AND e.status = tqs.backend.tqsbackend.entity.WebhookEventStatus.RECEIVED "
+            + "AND e.nextAttemptAt <= :now")
+    int complete(@Param("id") Long id, @Param("status") WebhookEventStatus status, @Param("now") LocalDateTime now,
+            @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :error "
+            + "WHERE e.id = :id AND e.status = tqs.backend.tqsbackend.entity.WebhookEventStatus.RECEIVED")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.attempts = e.attempts + 1, "
+            + "e.status = tqs.backend.tqsbackend.entity.WebhookEventStatus.FAILED, e.processedAt = :now, "
+            + "e.lastError = :error "
+            + "WHERE e.id = :id AND e.status = tqs.backend.tqsbackend.entity.WebhookEventStatus.RECEIVED")
+    int markFailed(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("error") String error);
+}
@@ -0,0 +1,23 @@
+package tqs.backend.tqsbackend.repository;
+
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.entity.UnreadCounter;
+
+@Repository
+public interface UnreadCounterRepository extends JpaRepository<UnreadCounter, Long> {
+
+    // Row lock so concurrent sends to the same user keep a consistent total
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<UnreadCounter> findByUserId(Long userId);
+
+    @Query("SELECT c.unreadCount FROM UnreadCounter c WHERE c.userId = :userId")
+    Optional<Integer> findUnreadCountByUserId(@Param("userId") Long userId);
+}
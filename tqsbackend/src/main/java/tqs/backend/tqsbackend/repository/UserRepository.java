@@ -2,13 +2,15 @@ package tqs.backend.tqsbackend.repository;
 
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
+import tqs.backend.tqsbackend.dto.UserSummaryDTO;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     boolean existsById(Long id);
 
     boolean existsByEmail(String email);
@@ -31,6 +33,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByNameContainingIgnoreCaseAndRoleAndIsActive(String name, UserRoles role, boolean isActive);
 
+    @org.springframework.data.jpa.repository.Query("SELECT new tqs.backend.tqsbackend.dto.UserSummaryDTO(u.id, u.name, u.role, u.averageRating) "
+            + "FROM User u WHERE u.id IN :ids")
+    List<UserSummaryDTO> findSummariesByIdIn(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
+
     @org.springframework.data.jpa.repository.Query("SELECT u FROM User u WHERE " +
             "(:keyword IS NULL OR LOWER(u.name) LIKE LOWER(CONCAT('%', CAST(:keyword AS string), '%')) OR LOWER(u.email) LIKE LOWER(CONCAT('%', CAST(:keyword AS string), '%'))) "
             +
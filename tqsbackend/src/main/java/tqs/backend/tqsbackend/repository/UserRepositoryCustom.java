@@ -0,0 +1,12 @@
+package tqs.backend.tqsbackend.repository;
+
+import tqs.backend.tqsbackend.dto.GlobalStatsDTO;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Platform-wide totals for the admin dashboard, computed by the database
+     * in a single round-trip.
+     */
+    GlobalStatsDTO aggregateGlobalStats();
+}
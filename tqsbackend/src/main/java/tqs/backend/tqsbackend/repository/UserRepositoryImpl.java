@@ -0,0 +1,45 @@
+package tqs.backend.tqsbackend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import tqs.backend.tqsbackend.dto.GlobalStatsDTO;
+
+/**
+ * Admin dashboard aggregates. Every table is reduced to a single row by the
+ * database, so the cost stays constant in memory as users and bookings grow.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    // One row per derived table, cross joined into a single result row
+    static final String GLOBAL_STATS_SQL = "SELECT u.total_users, u.average_rating, "
+            + "b.total_bookings, b.total_revenue, r.pending_reports FROM "
+            + "(SELECT COUNT(*) AS total_users, AVG(average_rating) AS average_rating FROM users) u "
+            + "CROSS JOIN (SELECT COUNT(*) AS total_bookings, "
+            + "SUM(total_price) FILTER (WHERE status = 'ACCEPTED') AS total_revenue FROM bookings) b "
+            + "CROSS JOIN (SELECT COUNT(*) FILTER (WHERE state = 'NEW') AS pending_reports FROM reports) r";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public GlobalStatsDTO aggregateGlobalStats() {
+        Object[] row = (Object[]) entityManager.createNativeQuery(GLOBAL_STATS_SQL).getSingleResult();
+        return GlobalStatsDTO.builder()
+                .totalUsers(toLong(row[0]))
+                .averageUserRating(toDouble(row[1]))
+                .totalBookings(toLong(row[2]))
+                .totalRevenue(toDouble(row[3]))
+                .pendingReports(toLong(row[4]))
+                .build();
+    }
+
+    // Drivers disagree on the numeric types of COUNT, SUM and AVG
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static double toDouble(Object value) {
+        return value == null ? 0.0 : ((Number) value).doubleValue();
+    }
+}
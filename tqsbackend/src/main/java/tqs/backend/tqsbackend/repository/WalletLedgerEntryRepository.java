@@ -0,0 +1,43 @@
+package tqs.backend.tqsbackend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.dto.WalletBalance;
+import tqs.backend.tqsbackend.entity.WalletLedgerEntry;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletLedgerEntryRepository extends JpaRepository<WalletLedgerEntry, Long> {
+
+    // Net movement of the entries not yet folded into the wallet's snapshot
+    @Query("SELECT new tqs.backend.tqsbackend.dto.WalletBalance("
+            + "COALESCE(SUM(e.availableDelta), 0), COALESCE(SUM(e.pendingDelta), 0)) "
+            + "FROM WalletLedgerEntry e WHERE e.walletId = :walletId AND e.snapshotId IS NULL")
+    WalletBalance sumUnfolded(@Param("walletId") Long walletId);
+
+    // Net movement of the entries folded by one compaction
+    @Query("SELECT new tqs.backend.tqsbackend.dto.WalletBalance("
+            + "COALESCE(SUM(e.availableDelta), 0), COALESCE(SUM(e.pendingDelta), 0)) "
+            + "FROM WalletLedgerEntry e WHERE e.walletId = :walletId AND e.snapshotId = :snapshotId")
+    WalletBalance sumFolded(@Param("walletId") Long walletId, @Param("snapshotId") Long snapshotId);
+
+    @Query("SELECT MAX(e.id) FROM WalletLedgerEntry e WHERE e.walletId = :walletId AND e.snapshotId IS NULL")
+    Optional<Long> findLastUnfoldedId(@Param("walletId") Long walletId);
+
+    @Query("SELECT DISTINCT e.walletId FROM WalletLedgerEntry e WHERE e.snapshotId IS NULL")
+    List<Long> findWalletIdsWithUnfoldedEntries();
+
+    // Tags the unfolded entries this statement can see; ones committed later
+    // stay unfolded whatever their id, so they are never skipped. Native
+    // because the entity is immutable to Hibernate.
+    @Modifying
+    @Query(value = "UPDATE wallet_ledger_entries SET snapshot_id = :snapshotId "
+            + "WHERE wallet_id = :walletId AND snapshot_id IS NULL AND id <= :throughId", nativeQuery = true)
+    int markFolded(@Param("walletId") Long walletId, @Param("throughId") Long throughId,
+            @Param("snapshotId") Long snapshotId);
+}
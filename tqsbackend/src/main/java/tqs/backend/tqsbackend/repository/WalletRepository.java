@@ -1,10 +1,16 @@
 package tqs.backend.tqsbackend.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tqs.backend.tqsbackend.dto.WalletBalance;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.Wallet;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +18,32 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByOwnerId(Long ownerId);
     Optional<Wallet> findByOwner(User owner);
     boolean existsByOwnerId(Long ownerId);
+
+    // Compare-and-set on the withdrawal version: matches no row when a
+    // concurrent withdrawal committed since the wallet was read
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Wallet w SET w.withdrawalVersion = w.withdrawalVersion + 1 "
+            + "WHERE w.id = :id AND w.withdrawalVersion = :version")
+    int claimForWithdrawal(@Param("id") Long id, @Param("version") Long version);
+
+    // Snapshot plus unfolded entries in one statement, so a compaction
+    // committing in between cannot make a read count entries twice or not at all
+    @Query("SELECT new tqs.backend.tqsbackend.dto.WalletBalance("
+            + "w.balance + COALESCE(SUM(e.availableDelta), 0), w.pendingBalance + COALESCE(SUM(e.pendingDelta), 0)) "
+            + "FROM Wallet w LEFT JOIN WalletLedgerEntry e ON e.walletId = w.id AND e.snapshotId IS NULL "
+            + "WHERE w.id = :id GROUP BY w.id, w.balance, w.pendingBalance")
+    Optional<WalletBalance> findBalance(@Param("id") Long id);
+
+    // Compare-and-set on the snapshot version; the winner holds the wallet row
+    // until it commits, so two compactions never fold the same wallet at once
+    @Modifying
+    @Query("UPDATE Wallet w SET w.snapshotVersion = w.snapshotVersion + 1 "
+            + "WHERE w.id = :id AND w.snapshotVersion = :version")
+    int claimSnapshot(@Param("id") Long id, @Param("version") Long version);
+
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :available, w.pendingBalance = w.pendingBalance + :pending, "
+            + "w.updatedAt = :now WHERE w.id = :id")
+    int addToSnapshot(@Param("id") Long id, @Param("available") BigDecimal available,
+            @Param("pending") BigDecimal pending, @Param("now") LocalDateTime now);
 }
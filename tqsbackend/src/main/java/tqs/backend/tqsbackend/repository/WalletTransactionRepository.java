@@ -1,12 +1,16 @@
 package tqs.backend.tqsbackend.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.TransactionStatus;
 import tqs.backend.tqsbackend.entity.Wallet;
 import tqs.backend.tqsbackend.entity.WalletTransaction;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +21,16 @@ public interface WalletTransactionRepository extends JpaRepository<WalletTransac
     List<WalletTransaction> findByWallet(Wallet wallet);
     List<WalletTransaction> findByWalletId(Long walletId);
     List<WalletTransaction> findByWalletIdAndStatus(Long walletId, TransactionStatus status);
+
+    // Conditional on PENDING so a transaction is settled at most once
+    @Modifying
+    @Query("UPDATE WalletTransaction t SET t.status = tqs.backend.tqsbackend.entity.TransactionStatus.RELEASED, "
+            + "t.releasedAt = :releasedAt WHERE t.id = :id "
+            + "AND t.status = tqs.backend.tqsbackend.entity.TransactionStatus.PENDING")
+    int markReleased(@Param("id") Long id, @Param("releasedAt") LocalDateTime releasedAt);
+
+    @Modifying
+    @Query("UPDATE WalletTransaction t SET t.status = tqs.backend.tqsbackend.entity.TransactionStatus.REFUNDED "
+            + "WHERE t.id = :id AND t.status = tqs.backend.tqsbackend.entity.TransactionStatus.PENDING")
+    int markRefunded(@Param("id") Long id);
 }
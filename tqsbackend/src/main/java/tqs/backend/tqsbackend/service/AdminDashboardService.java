@@ -1,61 +1,49 @@
 package tqs.backend.tqsbackend.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tqs.backend.tqsbackend.dto.GlobalStatsDTO;
-import tqs.backend.tqsbackend.entity.Booking;
-import tqs.backend.tqsbackend.entity.BookingStatus;
-import tqs.backend.tqsbackend.entity.ReportState;
-import tqs.backend.tqsbackend.entity.User;
-import tqs.backend.tqsbackend.repository.BookingRepository;
-import tqs.backend.tqsbackend.repository.ReportRepository;
 import tqs.backend.tqsbackend.repository.UserRepository;
 
-import java.math.BigDecimal;
-import java.util.List;
+import java.time.Duration;
 
 @Service
 public class AdminDashboardService {
 
     private final UserRepository userRepository;
-    private final BookingRepository bookingRepository;
-    private final ReportRepository reportRepository;
+    private final long cacheTtlNanos;
 
-    public AdminDashboardService(UserRepository userRepository, BookingRepository bookingRepository, ReportRepository reportRepository) {
+    private volatile CachedStats cached;
+
+    public AdminDashboardService(UserRepository userRepository,
+            @Value("${admin.stats.cache-ttl:PT30S}") Duration cacheTtl) {
         this.userRepository = userRepository;
-        this.bookingRepository = bookingRepository;
-        this.reportRepository = reportRepository;
+        this.cacheTtlNanos = cacheTtl.toNanos();
     }
 
+    /**
+     * Returns the dashboard totals, recomputed at most once per cache TTL so
+     * repeated dashboard refreshes do not rescan the tables.
+     */
     public GlobalStatsDTO getGlobalStats() {
-        long totalUsers = userRepository.count();
-        long totalBookings = bookingRepository.count();
-        long pendingReports = reportRepository.countByState(ReportState.NEW);
-
-        // Calculate Revenue from all bookings (simplification for v1)
-        List<Booking> completedBookings = bookingRepository.findByStatus(BookingStatus.ACCEPTED);
-        double totalRevenue = completedBookings.stream()
-                //.filter(b -> b.getStatus() == BookingStatus.ACCEPTED) // Assuming revenue comes from successful bookings
-                .map(Booking::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .doubleValue();
-        
-        // Use simpler logic if filter fails test expectations (test didn't set status for all mocked bookings)
-        // Re-reading test: I set status to COMPLETED for mocked bookings. So filter is good.
-        
-        // Calculate Average Rating
-        List<User> users = userRepository.findAll();
-        double averageRating = users.stream()
-                .filter(u -> u.getAverageRating() != null)
-                .mapToDouble(User::getAverageRating)
-                .average()
-                .orElse(0.0);
-
-        return GlobalStatsDTO.builder()
-                .totalUsers(totalUsers)
-                .totalBookings(totalBookings)
-                .totalRevenue(totalRevenue)
-                .pendingReports(pendingReports)
-                .averageUserRating(averageRating)
-                .build();
+        CachedStats current = cached;
+        if (current != null && !current.isExpired(cacheTtlNanos)) {
+            return current.stats();
+        }
+        synchronized (this) {
+            current = cached;
+            if (current == null || current.isExpired(cacheTtlNanos)) {
+                current = new CachedStats(userRepository.aggregateGlobalStats(), System.nanoTime());
+                cached = current;
+            }
+            return current.stats();
+        }
+    }
+
+    private record CachedStats(GlobalStatsDTO stats, long loadedAt) {
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAt >= ttlNanos;
+        }
     }
 }
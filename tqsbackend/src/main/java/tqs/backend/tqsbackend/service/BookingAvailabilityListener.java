@@ -0,0 +1,51 @@
+package tqs.backend.tqsbackend.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import tqs.backend.tqsbackend.entity.Booking;
+
+/**
+ * JPA entity listener that feeds booking status changes (create, cancel,
+ * accept, decline, counter-offer, payment) into {@link ItemAvailabilityIndex}
+ * once the surrounding transaction commits.
+ */
+public class BookingAvailabilityListener {
+
+    private final ObjectProvider<ItemAvailabilityIndex> availabilityIndex;
+
+    public BookingAvailabilityListener(ObjectProvider<ItemAvailabilityIndex> availabilityIndex) {
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Booking booking) {
+        afterCommit(() -> availabilityIndex.ifAvailable(index -> index.update(booking)));
+    }
+
+    @PostRemove
+    public void onDelete(Booking booking) {
+        Long itemId = booking.getItem() != null ? booking.getItem().getId() : null;
+        Long bookingId = booking.getId();
+        afterCommit(() -> availabilityIndex.ifAvailable(index -> index.remove(itemId, bookingId)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,17 +1,23 @@
 package tqs.backend.tqsbackend.service;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tqs.backend.tqsbackend.dto.BookingCreateRequest;
+import tqs.backend.tqsbackend.dto.BookingResponse;
 import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.BookingStatus;
 import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.OutboxEventType;
 import tqs.backend.tqsbackend.entity.PaymentStatus;
 import tqs.backend.tqsbackend.exception.AvailabilityException;
 import tqs.backend.tqsbackend.exception.BookingValidationException;
@@ -23,10 +29,21 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class BookingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
+
+    // Postgres SQLSTATE for exclusion constraint violations
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
     private final BookingRepository bookingRepository;
 
     private final ItemService itemService;
 
+    private final ItemReservationLocks reservationLocks;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final OutboxDispatcher outboxDispatcher;
+
     @Transactional
     public Booking createBooking(BookingCreateRequest request) {
         Item item = itemService.getItemById(request.getItemId());
@@ -37,7 +54,6 @@ public class BookingService {
         validateRenter(request.getRenterId(), item);
         validatePrice(item.getPrice());
         validateDates(request.getStartDate(), request.getEndDate());
-        ensureAvailability(item.getId(), request.getStartDate(), request.getEndDate());
 
         BigDecimal dailyPrice;
         if (request.getProposedPrice() != null) {
@@ -53,7 +69,40 @@ public class BookingService {
         Booking booking = new Booking(item, request.getRenterId(), request.getStartDate(), request.getEndDate(),
                 dailyPrice, totalPrice, BookingStatus.REQUESTED, PaymentStatus.PENDING);
 
-        return bookingRepository.save(booking);
+        return reserve(booking, BookingStatus.REQUESTED);
+    }
+
+    /**
+     * Checks availability and saves the booking in an active status while
+     * holding the item's reservation lock, so concurrent requests for the same
+     * item cannot both pass the check. The status is only set after the check
+     * so a managed booking is not flushed as active and matched against itself.
+     */
+    private Booking reserve(Booking booking, BookingStatus activeStatus) {
+        return reservationLocks.withItemLock(booking.getItem().getId(), () -> {
+            ensureAvailability(booking.getItem().getId(), booking.getStartDate(), booking.getEndDate());
+            booking.setStatus(activeStatus);
+            try {
+                // Flushed here so a bookings_no_overlap violation surfaces now, not at commit
+                return bookingRepository.saveAndFlush(booking);
+            } catch (DataIntegrityViolationException e) {
+                // Another node won the race, rejected by bookings_no_overlap
+                if (isOverlapViolation(e)) {
+                    throw new AvailabilityException("Item not available for the selected dates");
+                }
+                throw e;
+            }
+        });
+    }
+
+    private static boolean isOverlapViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Booking getBooking(Long id) {
@@ -86,9 +135,7 @@ public class BookingService {
     }
 
     private void ensureAvailability(Long itemId, LocalDate startDate, LocalDate endDate) {
-        boolean overlapping = bookingRepository.existsByItemIdAndStatusInAndStartDateLessThanAndEndDateGreaterThan(
-                itemId, Arrays.asList(BookingStatus.ACCEPTED, BookingStatus.REQUESTED), endDate, startDate);
-        if (overlapping) {
+        if (bookingRepository.existsActiveOverlap(itemId, startDate, endDate)) {
             throw new AvailabilityException("Item not available for the selected dates");
         }
     }
@@ -149,7 +196,9 @@ public class BookingService {
         }
 
         booking.setStatus(BookingStatus.ACCEPTED);
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        notifyStatusChange(saved, saved.getRenterId());
+        return saved;
     }
 
     @Transactional
@@ -162,7 +211,9 @@ public class BookingService {
         }
 
         booking.setStatus(BookingStatus.REJECTED);
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        notifyStatusChange(saved, saved.getRenterId());
+        return saved;
     }
 
     @Transactional
@@ -179,7 +230,9 @@ public class BookingService {
         booking.setDailyPrice(daily);
         booking.setTotalPrice(calculateTotalPrice(daily, booking.getStartDate(), booking.getEndDate()).setScale(2,
                 java.math.RoundingMode.HALF_UP));
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        notifyStatusChange(saved, saved.getRenterId());
+        return saved;
     }
 
     @Transactional
@@ -191,8 +244,8 @@ public class BookingService {
             throw new BookingValidationException("You can only accept counter-offers for your own bookings");
         }
 
-        booking.setStatus(BookingStatus.ACCEPTED);
-        return bookingRepository.save(booking);
+        // The dates were released while the counter-offer was pending
+        return reserve(booking, BookingStatus.ACCEPTED);
     }
 
     @Transactional
@@ -208,13 +261,51 @@ public class BookingService {
         return bookingRepository.save(booking);
     }
 
+    /**
+     * Records a payment for the booking. Only a booking still holding its
+     * dates is accepted; a payment arriving after it was cancelled, rejected
+     * or countered is refunded instead, since its dates may be taken by now.
+     */
     @Transactional
     public void confirmPayment(Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
+        // Locked so a confirmation racing this one waits and then sees the booking as paid
+        Booking booking = bookingRepository.findByIdForUpdate(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
+        if (booking.getPaymentStatus() == PaymentStatus.PAID && booking.getStatus() == BookingStatus.ACCEPTED) {
+            // Confirmed already, by the success redirect or the Stripe webhook
+            return;
+        }
+        if (booking.getStatus() != BookingStatus.REQUESTED && booking.getStatus() != BookingStatus.ACCEPTED) {
+            logger.warn("Payment for booking {} arrived while it is {}, refunding it", bookingId, booking.getStatus());
+            outboxDispatcher.enqueue(OutboxEventType.REFUND_PAYMENT, bookingId);
+            return;
+        }
 
-        booking.setPaymentStatus(PaymentStatus.PAID);
-        booking.setStatus(BookingStatus.ACCEPTED); // Auto-accept upon payment
-        bookingRepository.save(booking);
+        // Already holding its dates, so nothing to re-check; the item lock orders this with reserve()
+        Booking saved = reservationLocks.withItemLock(booking.getItem().getId(), () -> {
+            booking.setPaymentStatus(PaymentStatus.PAID);
+            booking.setStatus(BookingStatus.ACCEPTED); // Auto-accept upon payment
+            return bookingRepository.save(booking);
+        });
+        // Held by the outbox dispatcher once this commits, so a failed hold is retried rather than lost
+        outboxDispatcher.enqueue(OutboxEventType.HOLD_FUNDS, bookingId);
+        notifyStatusChange(saved, saved.getItem() != null ? saved.getItem().getOwnerId() : null);
+        notifyStatusChange(saved, saved.getRenterId());
+    }
+
+    private void notifyStatusChange(Booking booking, Long userId) {
+        if (userId == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new UserNotification(userId, UserNotification.BOOKING, new BookingResponse(
+                booking.getId(),
+                booking.getItem() != null ? booking.getItem().getId() : null,
+                booking.getRenterId(),
+                booking.getStartDate(),
+                booking.getEndDate(),
+                booking.getTotalPrice(),
+                booking.getStatus(),
+                booking.getPaymentStatus(),
+                booking.getPaymentReference())));
     }
 }
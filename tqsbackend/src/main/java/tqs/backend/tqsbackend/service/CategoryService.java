@@ -1,6 +1,8 @@
 package tqs.backend.tqsbackend.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.repository.CategoryRepository;
@@ -13,18 +15,24 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
 
+    public static final String CACHE = "categories";
+
+    @Cacheable(cacheNames = CACHE, key = "'all'")
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
+    @Cacheable(cacheNames = CACHE, key = "'name:' + #name", unless = "#result == null")
     public Category getCategoryByName(String name) {
         return categoryRepository.findByName(name);
     }
 
+    @Cacheable(cacheNames = CACHE, key = "'id:' + #id", unless = "#result == null")
     public Category getCategoryById(Long id) {
         return categoryRepository.findById(id).orElse(null);
     }
 
+    @CacheEvict(cacheNames = CACHE, allEntries = true)
     public Category createCategory(String name) {
         if (categoryRepository.findByName(name) != null) {
             throw new IllegalArgumentException("Category already exists");
@@ -0,0 +1,201 @@
+package tqs.backend.tqsbackend.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+
+/**
+ * Per-item occupancy calendar of active (REQUESTED or ACCEPTED) bookings.
+ *
+ * Each item keeps an immutable snapshot of its booked ranges sorted by start
+ * date together with the running maximum of their end dates. A range
+ * [start, end) is free when every booking starting before {@code end} also
+ * ends on or before {@code start}, which is a binary search plus one lookup.
+ *
+ * The index is built before the web server starts taking requests. Updates
+ * share a read lock among themselves and a rebuild takes the write lock, so
+ * an update committed while the bookings are loading is applied after the
+ * swap instead of being lost with the replaced map.
+ */
+@Component
+public class ItemAvailabilityIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemAvailabilityIndex.class);
+
+    static final Set<BookingStatus> ACTIVE_STATUSES = EnumSet.of(BookingStatus.REQUESTED, BookingStatus.ACCEPTED);
+
+    private final BookingRepository bookingRepository;
+
+    private volatile Map<Long, Occupancy> occupancyByItem = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public ItemAvailabilityIndex(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        List<Booking> active;
+        Map<Long, Occupancy> rebuilt = new ConcurrentHashMap<>();
+        rebuildLock.writeLock().lock();
+        try {
+            active = bookingRepository.findByStatusIn(ACTIVE_STATUSES);
+            Map<Long, Map<Long, Range>> rangesByItem = new HashMap<>();
+            for (Booking booking : active) {
+                rangesByItem.computeIfAbsent(booking.getItem().getId(), id -> new HashMap<>())
+                        .put(booking.getId(), new Range(booking.getStartDate(), booking.getEndDate()));
+            }
+            rangesByItem.forEach((itemId, ranges) -> rebuilt.put(itemId, new Occupancy(ranges)));
+            occupancyByItem = rebuilt;
+            ready = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        logger.info("Availability index built with {} active bookings over {} items", active.size(), rebuilt.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Applies the current state of a booking: active bookings occupy their
+     * range, any other status frees it.
+     */
+    public void update(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getItem() == null) {
+            return;
+        }
+        if (!ACTIVE_STATUSES.contains(booking.getStatus())) {
+            remove(booking.getItem().getId(), booking.getId());
+            return;
+        }
+        Range range = new Range(booking.getStartDate(), booking.getEndDate());
+        rebuildLock.readLock().lock();
+        try {
+            occupancyByItem.compute(booking.getItem().getId(),
+                    (itemId, current) -> (current == null ? Occupancy.EMPTY : current).with(booking.getId(), range));
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId, Long bookingId) {
+        if (itemId == null || bookingId == null) {
+            return;
+        }
+        rebuildLock.readLock().lock();
+        try {
+            occupancyByItem.computeIfPresent(itemId, (id, current) -> {
+                Occupancy updated = current.without(bookingId);
+                return updated.isEmpty() ? null : updated;
+            });
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public boolean isAvailable(Long itemId, LocalDate startDate, LocalDate endDate) {
+        Occupancy occupancy = occupancyByItem.get(itemId);
+        return occupancy == null || !occupancy.overlaps(startDate, endDate);
+    }
+
+    /**
+     * Returns the ids of all items with an active booking overlapping
+     * [startDate, endDate).
+     */
+    public Set<Long> findOccupiedItemIds(LocalDate startDate, LocalDate endDate) {
+        Set<Long> occupied = new HashSet<>();
+        occupancyByItem.forEach((itemId, occupancy) -> {
+            if (occupancy.overlaps(startDate, endDate)) {
+                occupied.add(itemId);
+            }
+        });
+        return occupied;
+    }
+
+    record Range(LocalDate start, LocalDate end) {
+    }
+
+    private static final class Occupancy {
+
+        static final Occupancy EMPTY = new Occupancy(Map.of());
+
+        private final Map<Long, Range> ranges;
+        private final LocalDate[] starts;
+        private final LocalDate[] maxEnds;
+
+        Occupancy(Map<Long, Range> ranges) {
+            this.ranges = Map.copyOf(ranges);
+            Range[] sorted = this.ranges.values().stream()
+                    .sorted(Comparator.comparing(Range::start))
+                    .toArray(Range[]::new);
+            this.starts = new LocalDate[sorted.length];
+            this.maxEnds = new LocalDate[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                starts[i] = sorted[i].start();
+                LocalDate end = sorted[i].end();
+                maxEnds[i] = i > 0 && maxEnds[i - 1].isAfter(end) ? maxEnds[i - 1] : end;
+            }
+        }
+
+        Occupancy with(Long bookingId, Range range) {
+            Map<Long, Range> copy = new HashMap<>(ranges);
+            copy.put(bookingId, range);
+            return new Occupancy(copy);
+        }
+
+        Occupancy without(Long bookingId) {
+            if (!ranges.containsKey(bookingId)) {
+                return this;
+            }
+            Map<Long, Range> copy = ranges.entrySet().stream()
+                    .filter(e -> !e.getKey().equals(bookingId))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            return new Occupancy(copy);
+        }
+
+        boolean isEmpty() {
+            return ranges.isEmpty();
+        }
+
+        boolean overlaps(LocalDate startDate, LocalDate endDate) {
+            // Index of the last booking that starts before endDate
+            int idx = Arrays.binarySearch(starts, endDate);
+            int last = idx >= 0 ? firstIndexOf(idx, endDate) - 1 : -idx - 2;
+            return last >= 0 && maxEnds[last].isAfter(startDate);
+        }
+
+        private int firstIndexOf(int idx, LocalDate value) {
+            while (idx > 0 && starts[idx - 1].equals(value)) {
+                idx--;
+            }
+            return idx;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package tqs.backend.tqsbackend.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Fixed pool of locks striped by item id, used to serialize the
+ * check-then-insert of a reservation for the same item while letting
+ * bookings for unrelated items proceed in parallel.
+ *
+ * Inside a transaction the lock is held until it completes, so the next
+ * request for the item only runs its availability check once the previous
+ * booking is committed (or rolled back).
+ */
+@Component
+public class ItemReservationLocks {
+
+    static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantLock[] stripes;
+
+    public ItemReservationLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    ItemReservationLocks(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withItemLock(Long itemId, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(itemId);
+        lock.lock();
+        boolean releaseOnCompletion = false;
+        try {
+            T result = action.get();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        lock.unlock();
+                    }
+                });
+                releaseOnCompletion = true;
+            }
+            return result;
+        } finally {
+            if (!releaseOnCompletion) {
+                lock.unlock();
+            }
+        }
+    }
+
+    ReentrantLock stripeFor(Long itemId) {
+        // Spread sequential ids across stripes
+        int hash = Long.hashCode(itemId) * 0x9E3779B9;
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+}
@@ -0,0 +1,57 @@
+package tqs.backend.tqsbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+import tqs.backend.tqsbackend.entity.Item;
+
+/**
+ * Position of the last item of a search page. Pages are ordered by
+ * (sort key, id), so the next page is everything strictly after this pair.
+ */
+public record ItemSearchCursor(Sort sort, Double price, Long id) {
+
+    public enum Sort {
+        ID,
+        PRICE;
+
+        public static Sort fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return Sort.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported sort: " + value);
+            }
+        }
+    }
+
+    public static ItemSearchCursor after(Sort sort, Item item) {
+        return new ItemSearchCursor(sort, sort == Sort.PRICE ? item.getPrice() : null, item.getId());
+    }
+
+    public String encode() {
+        String raw = sort.name() + ":" + (price == null ? "" : price.toString()) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ItemSearchCursor decode(String token, Sort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            Sort sort = Sort.valueOf(parts[0]);
+            if (parts.length != 3 || sort != expectedSort) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Double price = parts[1].isEmpty() ? null : Double.valueOf(parts[1]);
+            if (sort == Sort.PRICE && price == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ItemSearchCursor(sort, price, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package tqs.backend.tqsbackend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+
+/**
+ * In-memory inverted index over item names and descriptions.
+ *
+ * Every item is stored as one normalized text (lower-cased name and
+ * description) and posted under all of its 1, 2 and 3 character grams. A
+ * keyword lookup intersects the postings of the keyword grams and then
+ * verifies each candidate with a substring check, so results match the old
+ * {@code LIKE '%keyword%'} semantics without scanning the items table.
+ */
+@Component
+public class ItemSearchIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemSearchIndex.class);
+
+    static final int MAX_GRAM = 3;
+
+    // Separates name and description so a keyword never matches across them
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final ItemRepository itemRepository;
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, String> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    public ItemSearchIndex(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    /** Built before the web server starts taking requests. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Reloads every item. The items are read while holding the write lock, so
+     * a listener update committed meanwhile is either part of the load or
+     * applied after it, never overwritten by an older copy.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            List<Item> items = itemRepository.findAll();
+            postings.clear();
+            documents.clear();
+            for (Item item : items) {
+                addInternal(item);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Item search index built with {} items and {} grams", documents.size(), postings.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Item item) {
+        if (item == null || item.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(item.getId());
+            addInternal(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId) {
+        if (itemId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all indexed items whose name or description contains
+     * the keyword, ignoring case.
+     */
+    public Set<Long> search(String keyword) {
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : queryGrams(needle)) {
+                Set<Long> posting = postings.get(gram);
+                if (posting == null) {
+                    return Collections.emptySet();
+                }
+                lists.add(posting);
+            }
+            // Start from the rarest gram so the candidate set shrinks fastest
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            Set<Long> result = new HashSet<>();
+            for (Long id : lists.get(0)) {
+                if (containsInAll(lists, id) && matches(documents.get(id), needle)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addInternal(Item item) {
+        String text = normalize(item);
+        documents.put(item.getId(), text);
+        for (String gram : documentGrams(text)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(item.getId());
+        }
+    }
+
+    private void removeInternal(Long itemId) {
+        String text = documents.remove(itemId);
+        if (text == null) {
+            return;
+        }
+        for (String gram : documentGrams(text)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(itemId);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static boolean containsInAll(List<Set<Long>> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String text, String needle) {
+        if (text == null) {
+            return false;
+        }
+        int separator = text.indexOf(FIELD_SEPARATOR);
+        return text.substring(0, separator).contains(needle) || text.substring(separator + 1).contains(needle);
+    }
+
+    static String normalize(Item item) {
+        String name = item.getName() == null ? "" : item.getName().toLowerCase(Locale.ROOT);
+        String description = item.getDescription() == null ? "" : item.getDescription().toLowerCase(Locale.ROOT);
+        return name + FIELD_SEPARATOR + description;
+    }
+
+    static Set<String> documentGrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                String gram = text.substring(i, i + n);
+                if (gram.indexOf(FIELD_SEPARATOR) < 0) {
+                    grams.add(gram);
+                }
+            }
+        }
+        return grams;
+    }
+
+    static Set<String> queryGrams(String needle) {
+        if (needle.length() <= MAX_GRAM) {
+            return Set.of(needle);
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + MAX_GRAM <= needle.length(); i++) {
+            grams.add(needle.substring(i, i + MAX_GRAM));
+        }
+        return grams;
+    }
+}
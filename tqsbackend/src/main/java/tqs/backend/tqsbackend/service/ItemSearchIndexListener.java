@@ -0,0 +1,50 @@
+package tqs.backend.tqsbackend.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import tqs.backend.tqsbackend.entity.Item;
+
+/**
+ * JPA entity listener that keeps {@link ItemSearchIndex} in sync with item
+ * writes. Changes are applied after the surrounding transaction commits so a
+ * rolled back save never leaks into search results.
+ */
+public class ItemSearchIndexListener {
+
+    private final ObjectProvider<ItemSearchIndex> searchIndex;
+
+    public ItemSearchIndexListener(ObjectProvider<ItemSearchIndex> searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Item item) {
+        afterCommit(() -> searchIndex.ifAvailable(index -> index.index(item)));
+    }
+
+    @PostRemove
+    public void onDelete(Item item) {
+        Long itemId = item.getId();
+        afterCommit(() -> searchIndex.ifAvailable(index -> index.remove(itemId)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,61 +1,214 @@
 package tqs.backend.tqsbackend.service;
 
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
+import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.repository.ItemRepository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class ItemService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final String CACHE = "items";
+
+    // Larger id sets are filtered in SQL instead of bound as an IN list
+    static final int MAX_ID_FILTER_SIZE = 1000;
+
     private final ItemRepository itemRepository;
 
+    private final ItemSearchIndex itemSearchIndex;
+
+    private final ItemAvailabilityIndex itemAvailabilityIndex;
+
     public List<Item> searchItems(String keyword, Category category, Double minPrice, Double maxPrice, Double minRating,
             String location) {
+        return searchItems(new ItemSearchCriteria(keyword, category, minPrice, maxPrice, minRating, location));
+    }
+
+    public List<Item> searchItems(ItemSearchCriteria criteria) {
+        Specification<Item> spec = buildSearchSpecification(criteria);
+        if (spec == null) {
+            return List.of();
+        }
+        return itemRepository.findAll(spec);
+    }
+
+    /**
+     * Keyset-paginated search. Results are ordered by (sort key, id) and the
+     * next page starts strictly after the cursor, so deep pages cost the same
+     * as the first one.
+     */
+    public ItemSearchPage searchItemsPage(ItemSearchCriteria criteria, ItemSearchCursor.Sort sort, String after,
+            int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        Specification<Item> spec = buildSearchSpecification(criteria);
+        if (spec == null) {
+            return new ItemSearchPage(List.of(), null);
+        }
+
+        if (after != null && !after.isEmpty()) {
+            spec = spec.and(seekAfter(ItemSearchCursor.decode(after, sort)));
+        }
+
+        Sort order = sort == ItemSearchCursor.Sort.PRICE
+                ? Sort.by("price").ascending().and(Sort.by("id").ascending())
+                : Sort.by("id").ascending();
+
+        // Fetch one extra row to know whether another page exists
+        List<Item> rows = itemRepository.findBy(spec, query -> query.sortBy(order).limit(limit + 1).all());
+        if (rows.size() <= limit) {
+            return new ItemSearchPage(rows, null);
+        }
+
+        List<Item> page = rows.subList(0, limit);
+        return new ItemSearchPage(List.copyOf(page), ItemSearchCursor.after(sort, page.get(limit - 1)).encode());
+    }
+
+    /**
+     * Counts matching items per category, location, price range and minimum
+     * rating, using the same filters as {@link #searchItems(ItemSearchCriteria)}.
+     */
+    public ItemFacets getFacets(ItemSearchCriteria criteria) {
+        Specification<Item> spec = buildSearchSpecification(criteria);
+        if (spec == null) {
+            return new ItemFacets(Map.of(), Map.of(), List.of(), Map.of());
+        }
+        return itemRepository.countFacets(spec);
+    }
+
+    private static Specification<Item> seekAfter(ItemSearchCursor cursor) {
+        if (cursor.sort() == ItemSearchCursor.Sort.PRICE) {
+            return (root, query, cb) -> cb.or(
+                    cb.greaterThan(root.get("price"), cursor.price()),
+                    cb.and(cb.equal(root.get("price"), cursor.price()), cb.greaterThan(root.get("id"), cursor.id())));
+        }
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), cursor.id());
+    }
+
+    private Specification<Item> availableBetween(LocalDate startDate, LocalDate endDate) {
+        if (itemAvailabilityIndex.isReady()) {
+            Set<Long> occupiedIds = itemAvailabilityIndex.findOccupiedItemIds(startDate, endDate);
+            if (occupiedIds.isEmpty()) {
+                return (root, query, cb) -> cb.conjunction();
+            }
+            if (occupiedIds.size() <= MAX_ID_FILTER_SIZE) {
+                return (root, query, cb) -> cb.not(root.get("id").in(occupiedIds));
+            }
+        }
+
+        // Index not built yet, or too many items booked for a NOT IN list:
+        // exclude overlapping bookings with a subquery
+        return (root, query, cb) -> {
+            Subquery<Long> overlapping = query.subquery(Long.class);
+            Root<Booking> booking = overlapping.from(Booking.class);
+            overlapping.select(booking.get("id")).where(
+                    cb.equal(booking.get("item"), root),
+                    booking.get("status").in(ItemAvailabilityIndex.ACTIVE_STATUSES),
+                    cb.lessThan(booking.get("startDate"), endDate),
+                    cb.greaterThan(booking.get("endDate"), startDate));
+            return cb.not(cb.exists(overlapping));
+        };
+    }
+
+    private static Specification<Item> keywordLike(String keyword) {
+        String likePattern = "%" + keyword.toLowerCase() + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("name")), likePattern),
+                cb.like(cb.lower(root.get("description")), likePattern));
+    }
+
+    /**
+     * Builds the search predicate, or returns null when the keyword matches no
+     * item at all and the query can be skipped.
+     */
+    private Specification<Item> buildSearchSpecification(ItemSearchCriteria criteria) {
         Specification<Item> spec = (root, query, cb) -> cb.conjunction();
 
         // Only show active items
         spec = spec.and((root, query, cb) -> cb.equal(root.get("isActive"), true));
 
-        if (keyword != null && !keyword.isEmpty()) {
-            String likePattern = "%" + keyword.toLowerCase() + "%";
-            spec = spec.and((root, query, cb) -> cb.or(
-                    cb.like(cb.lower(root.get("name")), likePattern),
-                    cb.like(cb.lower(root.get("description")), likePattern)));
+        String keyword = criteria.getKeyword();
+        if (keyword != null && !keyword.isEmpty() && itemSearchIndex.isReady()) {
+            Set<Long> matchingIds = itemSearchIndex.search(keyword);
+            if (matchingIds.isEmpty()) {
+                return null;
+            }
+            // A broad keyword matches most items anyway, so scanning beats a huge IN list
+            spec = spec.and(matchingIds.size() <= MAX_ID_FILTER_SIZE
+                    ? (root, query, cb) -> root.get("id").in(matchingIds)
+                    : keywordLike(keyword));
+        } else if (keyword != null && !keyword.isEmpty()) {
+            // Index not built yet (application still starting), fall back to a table scan
+            spec = spec.and(keywordLike(keyword));
         }
 
+        Category category = criteria.getCategory();
         if (category != null) {
             spec = spec.and((root, query, cb) -> cb.equal(root.get("category"), category));
         }
 
+        Double minPrice = criteria.getMinPrice();
         if (minPrice != null) {
             spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice));
         }
 
+        Double maxPrice = criteria.getMaxPrice();
         if (maxPrice != null) {
             spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice));
         }
 
+        Double minRating = criteria.getMinRating();
         if (minRating != null) {
             spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("averageRating"), minRating));
         }
 
+        String location = criteria.getLocation();
         if (location != null && !location.isEmpty()) {
             spec = spec.and((root, query, cb) -> cb.equal(root.get("location"), location));
         }
 
-        return itemRepository.findAll(spec);
+        LocalDate startDate = criteria.getStartDate();
+        LocalDate endDate = criteria.getEndDate();
+        if (startDate != null || endDate != null) {
+            if (startDate == null || endDate == null) {
+                throw new IllegalArgumentException("Both start and end dates are required to filter by availability");
+            }
+            if (!endDate.isAfter(startDate)) {
+                throw new IllegalArgumentException("End date must be after start date");
+            }
+            spec = spec.and(availableBetween(startDate, endDate));
+        }
+
+        return spec;
     }
 
+    @Cacheable(cacheNames = CACHE, key = "#id", unless = "#result == null")
     public Item getItemById(Long id) {
         return itemRepository.findById(id).orElse(null);
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#item.id", condition = "#item.id != null")
     public Item saveItem(Item item) {
         return itemRepository.save(item);
     }
@@ -71,6 +224,7 @@ public class ItemService {
         return itemRepository.save(item);
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#itemId")
     public Item activateItem(Long itemId, Long ownerId) {
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found with id: " + itemId));
@@ -83,6 +237,7 @@ public class ItemService {
         return itemRepository.save(item);
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#itemId")
     public Item deactivateItem(Long itemId, Long ownerId) {
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found with id: " + itemId));
@@ -95,6 +250,7 @@ public class ItemService {
         return itemRepository.save(item);
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#itemId")
     public void deleteItem(Long itemId, Long ownerId) {
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found with id: " + itemId));
@@ -105,6 +261,7 @@ public class ItemService {
 
         itemRepository.deleteById(itemId);
     }
+    @CacheEvict(cacheNames = CACHE, key = "#itemId")
     public Item updateItem(Long itemId, Item updates, Long ownerId) {
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found with id: " + itemId));
@@ -0,0 +1,38 @@
+package tqs.backend.tqsbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import tqs.backend.tqsbackend.entity.Message;
+
+/**
+ * Position of the oldest message of a conversation page. Pages are ordered
+ * by (sentAt, id) descending, so older history is everything strictly
+ * before this pair.
+ */
+public record MessageCursor(LocalDateTime sentAt, Long id) {
+
+    public static MessageCursor before(Message message) {
+        return new MessageCursor(message.getSentAt(), message.getId());
+    }
+
+    public String encode() {
+        String raw = sentAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MessageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(",", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new MessageCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
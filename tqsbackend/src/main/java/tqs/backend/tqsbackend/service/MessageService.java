@@ -1,90 +1,242 @@
 package tqs.backend.tqsbackend.service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import lombok.RequiredArgsConstructor;
 import tqs.backend.tqsbackend.dto.ConversationSummaryDTO;
 import tqs.backend.tqsbackend.dto.MessageCreateRequest;
+import tqs.backend.tqsbackend.dto.MessageHistoryPage;
+import tqs.backend.tqsbackend.dto.MessageResponse;
+import tqs.backend.tqsbackend.entity.Conversation;
 import tqs.backend.tqsbackend.entity.Message;
+import tqs.backend.tqsbackend.entity.UnreadCounter;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.exception.BookingValidationException;
+import tqs.backend.tqsbackend.repository.ConversationRepository;
 import tqs.backend.tqsbackend.repository.MessageRepository;
+import tqs.backend.tqsbackend.repository.UnreadCounterRepository;
 import tqs.backend.tqsbackend.repository.UserRepository;
 
 @Service
-@RequiredArgsConstructor
 public class MessageService {
 
+    static final int CONVERSATIONS_PAGE_SIZE = 50;
+    static final int MAX_CONVERSATIONS_PAGE_SIZE = 100;
+    static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ConversationRepository conversationRepository;
+    private final UnreadCounterRepository unreadCounterRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactions;
+    private final RowSeeder seeder;
+
+    public MessageService(MessageRepository messageRepository, UserRepository userRepository,
+            ConversationRepository conversationRepository, UnreadCounterRepository unreadCounterRepository,
+            ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+        this.conversationRepository = conversationRepository;
+        this.unreadCounterRepository = unreadCounterRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.seeder = new RowSeeder(transactionManager);
+    }
 
-    @Transactional
     public Message sendMessage(Long senderId, MessageCreateRequest request) {
         if (senderId.equals(request.getReceiverId())) {
             throw new BookingValidationException("You cannot send message to yourself");
         }
 
-        Message message = new Message(senderId, request.getReceiverId(), request.getContent(), request.getItemId());
-        return messageRepository.save(message);
+        Long receiverId = request.getReceiverId();
+        seedUnreadCounter(receiverId);
+        startConversation(Math.min(senderId, receiverId), Math.max(senderId, receiverId));
+        return transactions.execute(status -> {
+            // Counter before conversation, the same lock order as markConversationRead
+            UnreadCounter unread = lockUnreadCounter(receiverId);
+
+            Message message = new Message(senderId, receiverId, request.getContent(), request.getItemId());
+            Message saved = messageRepository.save(message);
+            recordInConversation(saved);
+
+            unread.increment();
+            unreadCounterRepository.save(unread);
+            eventPublisher.publishEvent(new UserNotification(saved.getReceiverId(), UserNotification.MESSAGE,
+                    new MessageResponse(saved.getId(), saved.getSenderId(), saved.getReceiverId(),
+                            saved.getItemId(), saved.getContent(), saved.getSentAt(), saved.isRead())));
+            return saved;
+        });
     }
 
     public List<Message> getConversation(Long userId1, Long userId2) {
         return messageRepository.findConversation(userId1, userId2);
     }
 
+    /**
+     * Returns the latest {@code limit} messages between two users, optionally
+     * before a cursor from a previous page, so long threads open with a
+     * bounded index range scan instead of loading the whole history.
+     */
+    public MessageHistoryPage<Message> getConversationPage(Long userId1, Long userId2, String before, int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+
+        Long userA = Math.min(userId1, userId2);
+        Long userB = Math.max(userId1, userId2);
+        // Fetch one extra row to know whether older messages exist
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<Message> rows;
+        if (before != null && !before.isEmpty()) {
+            MessageCursor cursor = MessageCursor.decode(before);
+            rows = messageRepository.findInConversationBefore(userA, userB, cursor.sentAt(), cursor.id(),
+                    pageRequest);
+        } else {
+            rows = messageRepository.findLatestInConversation(userA, userB, pageRequest);
+        }
+
+        String olderCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            olderCursor = MessageCursor.before(rows.get(limit - 1)).encode();
+        }
+        List<Message> page = new ArrayList<>(rows);
+        Collections.reverse(page);
+        return new MessageHistoryPage<>(page, olderCursor);
+    }
+
+    /**
+     * Marks every unread message the other user sent up to and including
+     * {@code upToMessageId} as read with a single UPDATE, and takes them off
+     * the conversation and total unread counters. Returns how many were marked.
+     */
+    public int markConversationRead(Long userId, Long otherUserId, Long upToMessageId) {
+        seedUnreadCounter(userId);
+        return transactions.execute(status -> {
+            UnreadCounter unread = lockUnreadCounter(userId);
+
+            int marked = messageRepository.markReadUpTo(userId, otherUserId, upToMessageId);
+            if (marked == 0) {
+                return 0;
+            }
+
+            conversationRepository.findByUserAIdAndUserBId(Math.min(userId, otherUserId),
+                    Math.max(userId, otherUserId))
+                    .ifPresent(conversation -> {
+                        conversation.markRead(userId, marked);
+                        conversationRepository.save(conversation);
+                    });
+            unread.markRead(marked);
+            unreadCounterRepository.save(unread);
+            return marked;
+        });
+    }
+
+    /**
+     * Total unread messages for the nav badge, read from the user's counter
+     * row. Users without one yet are summed from their conversations.
+     */
+    public int getUnreadCount(Long userId) {
+        return unreadCounterRepository.findUnreadCountByUserId(userId)
+                .orElseGet(() -> sumConversationUnread(userId));
+    }
+
     public List<Message> getMessagesForUser(Long userId) {
         return messageRepository.findAllForUser(userId);
     }
 
     public List<ConversationSummaryDTO> getConversationsList(Long userId) {
-        List<Message> allMessages = messageRepository.findAllForUser(userId);
-
-        // Group messages by conversation partner
-        Map<Long, Message> latestMessageByPartner = new HashMap<>();
-
-        for (Message msg : allMessages) {
-            Long partnerId = msg.getSenderId().equals(userId) ? msg.getReceiverId() : msg.getSenderId();
+        return getConversationsList(userId, 0, CONVERSATIONS_PAGE_SIZE);
+    }
 
-            // Keep only the most recent message for each partner
-            if (!latestMessageByPartner.containsKey(partnerId) ||
-                    msg.getSentAt().isAfter(latestMessageByPartner.get(partnerId).getSentAt())) {
-                latestMessageByPartner.put(partnerId, msg);
-            }
+    /**
+     * Returns a page of the user's conversations, most recent first, read
+     * from the materialized conversation summaries.
+     */
+    public List<ConversationSummaryDTO> getConversationsList(Long userId, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_CONVERSATIONS_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid page request");
         }
 
-        // Build conversation summaries
         List<ConversationSummaryDTO> conversations = new ArrayList<>();
-        for (Map.Entry<Long, Message> entry : latestMessageByPartner.entrySet()) {
-            Long partnerId = entry.getKey();
-            Message lastMessage = entry.getValue();
-
-            // Fetch partner's name
-            String partnerName = userRepository.findById(partnerId)
-                    .map(User::getName)
-                    .orElse("Unknown User");
-
-            boolean lastMessageFromMe = lastMessage.getSenderId().equals(userId);
-
-            ConversationSummaryDTO summary = new ConversationSummaryDTO(
-                    partnerId,
-                    partnerName,
-                    lastMessage.getContent(),
-                    lastMessage.getSentAt(),
-                    lastMessageFromMe,
-                    lastMessage.getItemId());
-
-            conversations.add(summary);
+        for (Conversation conversation : conversationRepository.findForUser(userId, PageRequest.of(page, size))) {
+            String partnerName = conversation.getPartnerName(userId);
+            conversations.add(new ConversationSummaryDTO(
+                    conversation.getPartnerId(userId),
+                    partnerName != null ? partnerName : "Unknown User",
+                    conversation.getLastContent(),
+                    conversation.getLastSentAt(),
+                    userId.equals(conversation.getLastSenderId()),
+                    conversation.getLastItemId(),
+                    conversation.getUnreadCount(userId)));
         }
+        return conversations;
+    }
+
+    /**
+     * Loads the user's unread counter with a row lock; it is seeded before
+     * the transaction opens.
+     */
+    private UnreadCounter lockUnreadCounter(Long userId) {
+        return unreadCounterRepository.findByUserId(userId)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Unread counter of user " + userId + " could not be created"));
+    }
 
-        // Sort by most recent message first
-        conversations.sort((a, b) -> b.getLastMessageTime().compareTo(a.getLastMessageTime()));
+    /**
+     * Creates the counter of a user who has none yet, from their
+     * conversations.
+     */
+    private void seedUnreadCounter(Long userId) {
+        seeder.seed("Unread counter of user " + userId,
+                () -> unreadCounterRepository.findByUserId(userId),
+                () -> unreadCounterRepository.saveAndFlush(new UnreadCounter(userId, sumConversationUnread(userId))));
+    }
 
-        return conversations;
+    private int sumConversationUnread(Long userId) {
+        Long sum = conversationRepository.sumUnreadForUser(userId);
+        return sum == null ? 0 : sum.intValue();
+    }
+
+    /**
+     * Records the message in the pair's conversation under a row lock; the
+     * conversation is started before the transaction opens.
+     */
+    private void recordInConversation(Message message) {
+        Long userA = Math.min(message.getSenderId(), message.getReceiverId());
+        Long userB = Math.max(message.getSenderId(), message.getReceiverId());
+
+        Conversation conversation = conversationRepository.findByUserAIdAndUserBId(userA, userB)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Conversation of " + userA + " and " + userB + " could not be created"));
+        conversation.recordMessage(message);
+        conversationRepository.save(conversation);
+    }
+
+    /**
+     * Creates an empty conversation for a pair that has none yet, with the
+     * names the users have now.
+     */
+    private void startConversation(Long userA, Long userB) {
+        seeder.seed("Conversation of " + userA + " and " + userB,
+                () -> conversationRepository.findByUserAIdAndUserBId(userA, userB),
+                () -> {
+                    Conversation conversation = new Conversation(userA, userB);
+                    for (User user : userRepository.findAllById(List.of(userA, userB))) {
+                        conversation.setName(user.getId(), user.getName());
+                    }
+                    // Replaced by the first message's time once it is recorded
+                    conversation.setLastSentAt(LocalDateTime.now());
+                    conversationRepository.saveAndFlush(conversation);
+                });
     }
 }
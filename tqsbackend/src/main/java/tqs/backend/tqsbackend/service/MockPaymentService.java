@@ -1,16 +1,162 @@
 package tqs.backend.tqsbackend.service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.CardException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+
 import tqs.backend.tqsbackend.entity.Item;
 
+/**
+ * Payment provider stand-in. By default every charge succeeds at once; the
+ * payment-sim profile turns on simulated latency and faults so load tests
+ * exercise the same slow calls, declines, rate limits and hangs that the
+ * real provider produces.
+ */
 @Service
 public class MockPaymentService implements PaymentService {
 
+    public static final String DECLINED = "Card declined";
+    public static final String RATE_LIMITED = "Rate limited: too many requests";
+    public static final String TIMED_OUT = "Payment provider timed out";
+    public static final String INTERRUPTED = "Payment interrupted";
+
+    public enum Latency {
+        NONE,       // Instant
+        FIXED,      // Always the mean
+        NORMAL,     // Normal around the mean, cut at zero
+        LONG_TAIL   // Log-normal with the given mean; tail-sigma sets how heavy the tail is
+    }
+
+    /** How charges behave; rates are probabilities between 0 and 1. */
+    public record Simulation(Latency latency, Duration mean, Duration stdDev, double tailSigma,
+            double failureRate, double rateLimitRate, double timeoutRate, Duration timeout) {
+
+        public static final Simulation NONE = new Simulation(Latency.NONE, Duration.ZERO, Duration.ZERO, 1.0,
+                0, 0, 0, Duration.ofSeconds(30));
+
+        public Simulation {
+            if (failureRate < 0 || rateLimitRate < 0 || timeoutRate < 0 || rateLimitRate + timeoutRate > 1
+                    || failureRate > 1) {
+                throw new IllegalArgumentException("Simulated fault rates must be between 0 and 1");
+            }
+        }
+    }
+
+    private final Simulation simulation;
+
+    public MockPaymentService() {
+        this(Simulation.NONE);
+    }
+
+    @Autowired
+    public MockPaymentService(
+            @Value("${payment.mock.latency:NONE}") Latency latency,
+            @Value("${payment.mock.latency-mean:PT0S}") Duration mean,
+            @Value("${payment.mock.latency-stddev:PT0S}") Duration stdDev,
+            @Value("${payment.mock.latency-tail-sigma:1.0}") double tailSigma,
+            @Value("${payment.mock.failure-rate:0}") double failureRate,
+            @Value("${payment.mock.rate-limit-rate:0}") double rateLimitRate,
+            @Value("${payment.mock.timeout-rate:0}") double timeoutRate,
+            @Value("${payment.mock.timeout:PT30S}") Duration timeout) {
+        this(new Simulation(latency, mean, stdDev, tailSigma, failureRate, rateLimitRate, timeoutRate, timeout));
+    }
+
+    MockPaymentService(Simulation simulation) {
+        this.simulation = simulation;
+    }
+
     @Override
     public PaymentResult charge(Long renterId, Item item, BigDecimal amount, Long bookingId) {
+        try {
+            return simulateCharge(renterId, item, amount, bookingId);
+        } catch (StripeException e) {
+            return PaymentResult.failure(e.getMessage());
+        }
+    }
+
+    /**
+     * A charge that fails the way the real provider's client does: a decline
+     * is a card error, a rate limit a 429 and a hang a connection error once
+     * the provider gives up. Run through StripeGateway, the rate limits and
+     * hangs count toward its circuit breaker and declines do not.
+     */
+    public PaymentResult simulateCharge(Long renterId, Item item, BigDecimal amount, Long bookingId)
+            throws StripeException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double fault = random.nextDouble();
+        // No error codes: StripeException appends them to the message, which is shown as the reason
+        if (fault < simulation.rateLimitRate()) {
+            throw new RateLimitException(RATE_LIMITED, null, null, null, 429, null);
+        }
+        if (fault < simulation.rateLimitRate() + simulation.timeoutRate()) {
+            hang();
+        }
+
+        Duration latency = sampleLatency();
+        if (latency.compareTo(simulation.timeout()) >= 0) {
+            hang();
+        }
+        if (!pause(latency)) {
+            throw new ApiConnectionException(INTERRUPTED);
+        }
+        if (random.nextDouble() < simulation.failureRate()) {
+            throw new CardException(DECLINED, null, null, null, "generic_decline", null, 402, null);
+        }
+
         String reference = "PAY-" + bookingId + "-" + UUID.randomUUID();
         return PaymentResult.success(reference);
     }
+
+    @Override
+    public PaymentResult refund(Long bookingId) {
+        return PaymentResult.success("REFUND-" + bookingId + "-" + UUID.randomUUID());
+    }
+
+    Duration sampleLatency() {
+        long meanNanos = simulation.mean().toNanos();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long nanos = switch (simulation.latency()) {
+            case NONE -> 0;
+            case FIXED -> meanNanos;
+            case NORMAL -> Math.max(0, Math.round(meanNanos + simulation.stdDev().toNanos() * random.nextGaussian()));
+            case LONG_TAIL -> {
+                if (meanNanos <= 0) {
+                    yield 0;
+                }
+                // Log-normal with the configured mean: exp(mu + sigma^2 / 2) = mean
+                double sigma = simulation.tailSigma();
+                double mu = Math.log(meanNanos) - sigma * sigma / 2;
+                yield Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            }
+        };
+        return Duration.ofNanos(nanos);
+    }
+
+    /** A call that never answers: the caller hears back only when the provider gives up. */
+    private void hang() throws ApiConnectionException {
+        throw new ApiConnectionException(pause(simulation.timeout()) ? TIMED_OUT : INTERRUPTED);
+    }
+
+    private static boolean pause(Duration duration) {
+        if (duration.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 }
@@ -0,0 +1,113 @@
+package tqs.backend.tqsbackend.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Keeps the open server-sent event streams of each logged-in user and pushes
+ * {@link UserNotification}s to them after commit. Streams are async servlet
+ * responses, so idle connections hold no request thread; writes run on
+ * virtual threads so a slow client never blocks the publishing transaction.
+ */
+@Component
+public class NotificationBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBroadcaster.class);
+
+    // A user with more tabs open than this loses the oldest stream
+    static final int MAX_STREAMS_PER_USER = 5;
+
+    private final Map<Long, Deque<SseEmitter>> streams = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final long timeoutMillis;
+
+    public NotificationBroadcaster(@Value("${notifications.stream-timeout:PT30M}") Duration streamTimeout) {
+        this.timeoutMillis = streamTimeout.toMillis();
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+
+        Deque<SseEmitter> userStreams = streams.computeIfAbsent(userId, id -> new ConcurrentLinkedDeque<>());
+        userStreams.addLast(emitter);
+        while (userStreams.size() > MAX_STREAMS_PER_USER) {
+            SseEmitter oldest = userStreams.pollFirst();
+            if (oldest != null) {
+                oldest.complete();
+            }
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotification(UserNotification notification) {
+        Deque<SseEmitter> userStreams = streams.get(notification.userId());
+        if (userStreams == null) {
+            return;
+        }
+        for (SseEmitter emitter : userStreams) {
+            sender.execute(() -> send(notification.userId(), emitter,
+                    SseEmitter.event().name(notification.type()).data(notification.payload())));
+        }
+    }
+
+    /**
+     * Keeps idle streams open through proxies and drops the ones whose
+     * client has gone away.
+     */
+    @Scheduled(fixedDelayString = "${notifications.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        streams.forEach((userId, userStreams) -> {
+            for (SseEmitter emitter : userStreams) {
+                sender.execute(() -> send(userId, emitter, SseEmitter.event().comment("keepalive")));
+            }
+        });
+    }
+
+    int streamCount(Long userId) {
+        Deque<SseEmitter> userStreams = streams.get(userId);
+        return userStreams == null ? 0 : userStreams.size();
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping event stream of user {}: {}", userId, e.getMessage());
+            remove(userId, emitter);
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        streams.computeIfPresent(userId, (id, userStreams) -> {
+            userStreams.remove(emitter);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streams.values().forEach(userStreams -> userStreams.forEach(SseEmitter::complete));
+        streams.clear();
+        sender.shutdown();
+    }
+}
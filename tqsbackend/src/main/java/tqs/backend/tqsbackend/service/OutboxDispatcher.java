@@ -0,0 +1,215 @@
+package tqs.backend.tqsbackend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import tqs.backend.tqsbackend.entity.OutboxEvent;
+import tqs.backend.tqsbackend.entity.OutboxEventType;
+import tqs.backend.tqsbackend.repository.OutboxEventRepository;
+
+/**
+ * Applies outbox events on a small pool, off the request that recorded
+ * them. Each event is dispatched as soon as its transaction commits, and a
+ * poller picks up whatever that missed: events rejected by a full queue,
+ * failed attempts whose backoff has passed and attempts abandoned by a
+ * crash. An attempt first claims the event with a lease so it runs on one
+ * thread at a time, then applies the side effect and marks the event done
+ * in a single transaction.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxEventRepository outboxRepository;
+    private final WalletService walletService;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transactions;
+    private final Executor executor;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration lease;
+    private final int batchSize;
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventRepository outboxRepository, WalletService walletService,
+            PaymentService paymentService, PlatformTransactionManager transactionManager,
+            @Value("${outbox.threads:4}") int threads,
+            @Value("${outbox.queue-capacity:1000}") int queueCapacity,
+            @Value("${outbox.max-attempts:10}") int maxAttempts,
+            @Value("${outbox.retry-backoff:PT5S}") Duration retryBackoff,
+            @Value("${outbox.lease:PT1M}") Duration lease,
+            @Value("${outbox.batch-size:100}") int batchSize) {
+        this(outboxRepository, walletService, paymentService, transactionManager, newExecutor(threads, queueCapacity),
+                maxAttempts, retryBackoff, lease, batchSize);
+    }
+
+    OutboxDispatcher(OutboxEventRepository outboxRepository, WalletService walletService,
+            PaymentService paymentService, PlatformTransactionManager transactionManager, Executor executor,
+            int maxAttempts,
+            Duration retryBackoff, Duration lease, int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.walletService = walletService;
+        this.paymentService = paymentService;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.lease = lease;
+        this.batchSize = batchSize;
+    }
+
+    static ThreadPoolExecutor newExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DispatcherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Records an event in the caller's transaction. Nothing happens if the
+     * booking already has an event of this type.
+     */
+    public void enqueue(OutboxEventType type, Long bookingId) {
+        if (outboxRepository.existsByTypeAndBookingId(type, bookingId)) {
+            return;
+        }
+        Long id = outboxRepository.save(new OutboxEvent(type, bookingId)).getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(id);
+                }
+            });
+        } else {
+            submit(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:PT10S}")
+    public void dispatchDue() {
+        for (Long id : outboxRepository.findDueIds(LocalDateTime.now(), PageRequest.of(0, batchSize))) {
+            submit(id);
+        }
+    }
+
+    private void submit(Long id) {
+        try {
+            executor.execute(() -> process(id));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Outbox queue is full, leaving event {} for the next poll", id);
+        }
+    }
+
+    /**
+     * Makes one attempt at the event, unless it is done, failed or leased
+     * to another attempt.
+     */
+    void process(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event;
+        try {
+            event = transactions.execute(status -> outboxRepository.claim(id, now, now.plus(lease)) == 0
+                    ? null
+                    : outboxRepository.findById(id).orElse(null));
+        } catch (RuntimeException e) {
+            logger.warn("Could not claim outbox event {}: {}", id, e.getMessage());
+            return;
+        }
+        if (event == null) {
+            return;
+        }
+
+        try {
+            transactions.executeWithoutResult(status -> {
+                apply(event);
+                outboxRepository.markDone(id, LocalDateTime.now());
+            });
+            logger.debug("Applied outbox event {} ({} for booking {})", id, event.getType(), event.getBookingId());
+        } catch (RuntimeException e) {
+            handleFailure(event, e);
+        }
+    }
+
+    private void apply(OutboxEvent event) {
+        switch (event.getType()) {
+            case HOLD_FUNDS -> walletService.holdFunds(event.getBookingId());
+            case REFUND_PAYMENT -> paymentService.refund(event.getBookingId());
+        }
+    }
+
+    private void handleFailure(OutboxEvent event, RuntimeException failure) {
+        String error = failure.toString();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        String lastError = error;
+        try {
+            if (event.getAttempts() >= maxAttempts) {
+                transactions.executeWithoutResult(
+                        status -> outboxRepository.markFailed(event.getId(), LocalDateTime.now(), lastError));
+                logger.error("Giving up on outbox event {} ({} for booking {}) after {} attempts: {}",
+                        event.getId(), event.getType(), event.getBookingId(), event.getAttempts(), lastError);
+            } else {
+                Duration delay = backoff(event.getAttempts());
+                transactions.executeWithoutResult(status -> outboxRepository.reschedule(event.getId(),
+                        LocalDateTime.now().plus(delay), lastError));
+                logger.warn("Outbox event {} ({} for booking {}) failed, retrying in {}: {}", event.getId(),
+                        event.getType(), event.getBookingId(), delay, lastError);
+            }
+        } catch (RuntimeException e) {
+            // The lease runs out and the poller retries it
+            logger.warn("Could not record the failure of outbox event {}: {}", event.getId(), e.getMessage());
+        }
+    }
+
+    /** Doubles with every failed attempt, up to an hour. */
+    Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private static final class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "outbox-dispatcher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
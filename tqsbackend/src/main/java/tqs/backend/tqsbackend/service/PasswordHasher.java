@@ -0,0 +1,134 @@
+package tqs.backend.tqsbackend.service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
+
+/**
+ * Runs BCrypt on a small fixed pool so a burst of logins can only use as
+ * many cores as the pool has threads. Work beyond the queue capacity is
+ * rejected straight away instead of piling up behind the request threads.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final String OVERLOADED = "Too many login attempts right now, please retry shortly";
+
+    private final int cost;
+
+    private final Duration timeout;
+
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public PasswordHasher(
+            @Value("${security.password.bcrypt-cost:10}") int cost,
+            @Value("${security.password.pool-size:0}") int poolSize,
+            @Value("${security.password.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password.timeout:PT5S}") Duration timeout) {
+        this(cost, timeout, newExecutor(poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors(),
+                queueCapacity));
+    }
+
+    PasswordHasher(int cost, Duration timeout, ThreadPoolExecutor executor) {
+        if (cost < 4 || cost > 31) {
+            throw new IllegalArgumentException("BCrypt cost must be between 4 and 31");
+        }
+        this.cost = cost;
+        this.timeout = timeout;
+        this.executor = executor;
+    }
+
+    static ThreadPoolExecutor newExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HasherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String hash(String rawPassword) {
+        return run(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost)));
+    }
+
+    public boolean matches(String rawPassword, String hashedPassword) {
+        return run(() -> BCrypt.checkpw(rawPassword, hashedPassword));
+    }
+
+    /**
+     * True when the hash was produced with a different work factor than the
+     * configured one, so it should be replaced after the next successful login.
+     */
+    public boolean needsRehash(String hashedPassword) {
+        // $2a$10$... - the cost is the two digits after the version
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(6) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing queue is full, rejecting request");
+            throw new ServiceOverloadedException(OVERLOADED);
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("Password hashing did not finish within {}", timeout);
+            throw new ServiceOverloadedException(OVERLOADED);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(OVERLOADED);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class HasherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
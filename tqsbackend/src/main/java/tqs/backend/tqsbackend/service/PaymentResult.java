@@ -1,12 +1,20 @@
 package tqs.backend.tqsbackend.service;
 
-public record PaymentResult(boolean success, String reference, String reason) {
+/**
+ * Outcome of a charge. A pending result was sent to the provider but its
+ * answer never arrived; it is settled by the provider's webhook, not retried.
+ */
+public record PaymentResult(boolean success, boolean pending, String reference, String reason) {
 
     public static PaymentResult success(String reference) {
-        return new PaymentResult(true, reference, null);
+        return new PaymentResult(true, false, reference, null);
+    }
+
+    public static PaymentResult pending(String reference) {
+        return new PaymentResult(false, true, reference, "Payment is being confirmed by the provider");
     }
 
     public static PaymentResult failure(String reason) {
-        return new PaymentResult(false, null, reason);
+        return new PaymentResult(false, false, null, reason);
     }
 }
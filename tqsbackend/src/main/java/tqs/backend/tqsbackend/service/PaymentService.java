@@ -6,4 +6,10 @@ import tqs.backend.tqsbackend.entity.Item;
 public interface PaymentService {
 
     PaymentResult charge(Long renterId, Item item, BigDecimal amount, Long bookingId);
+
+    /**
+     * Returns every payment taken for the booking. Throws when that could not
+     * be done, so the caller retries later.
+     */
+    PaymentResult refund(Long bookingId);
 }
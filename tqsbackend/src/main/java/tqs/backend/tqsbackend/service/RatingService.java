@@ -6,16 +6,20 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tqs.backend.tqsbackend.entity.BookingStatus;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.entity.Rating;
+import tqs.backend.tqsbackend.entity.RatingAggregate;
 import tqs.backend.tqsbackend.entity.RatingType;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.RatingAggregateRepository;
 import tqs.backend.tqsbackend.repository.RatingRepository;
 
 @Service
@@ -26,14 +30,21 @@ public class RatingService {
     private final UserService userService;
     private final ItemService itemService;
     private final BookingRepository bookingRepository;
+    private final RatingAggregateRepository ratingAggregateRepository;
+    private final TransactionTemplate transactions;
+    private final RowSeeder seeder;
 
     @Autowired
     public RatingService(RatingRepository ratingRepository, UserService userService, ItemService itemService,
-            BookingRepository bookingRepository) {
+            BookingRepository bookingRepository, RatingAggregateRepository ratingAggregateRepository,
+            PlatformTransactionManager transactionManager) {
         this.ratingRepository = ratingRepository;
         this.userService = userService;
         this.itemService = itemService;
         this.bookingRepository = bookingRepository;
+        this.ratingAggregateRepository = ratingAggregateRepository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.seeder = new RowSeeder(transactionManager);
     }
 
     public Rating createRating(Long senderId, RatingType ratingType, Long ratedId, Integer rate, String comment) {
@@ -41,57 +52,69 @@ public class RatingService {
         validateRatedEntity(ratingType, ratedId, senderId);
         validateRatingDetails(rate, comment);
 
-        Rating rating = new Rating(senderId, ratingType, ratedId, rate, comment);
-        Rating savedRating = ratingRepository.save(rating);
+        seedAggregate(ratingType, ratedId);
+        return transactions.execute(status -> {
+            // Locked before the insert so the totals never count the new rating twice
+            RatingAggregate aggregate = lockAggregate(ratingType, ratedId);
 
-        if (ratingType == RatingType.PRODUCT) {
-            updateItemAverageRating(ratedId);
-        } else if (ratingType == RatingType.OWNER) {
-            updateOwnerAverageRating(ratedId);
-        } else if (ratingType == RatingType.RENTER) {
-            updateRenterAverageRating(ratedId);
-        }
+            Rating rating = new Rating(senderId, ratingType, ratedId, rate, comment);
+            Rating savedRating = ratingRepository.save(rating);
 
-        logger.info("Rating created successfully with ID {}", savedRating.getId());
-        return savedRating;
+            aggregate.addRating(rate);
+            ratingAggregateRepository.save(aggregate);
+            updateAverageRating(ratingType, ratedId, aggregate.getAverage());
+
+            logger.info("Rating created successfully with ID {}", savedRating.getId());
+            return savedRating;
+        });
     }
 
-    private void updateItemAverageRating(Long itemId) {
-        List<Rating> ratings = ratingRepository.findByRatingTypeAndRatedId(RatingType.PRODUCT, itemId);
-        if (ratings.isEmpty()) {
-            return;
-        }
+    /**
+     * Loads the running totals for a rating target with a row lock; they are
+     * seeded before the transaction opens.
+     */
+    private RatingAggregate lockAggregate(RatingType ratingType, Long ratedId) {
+        return ratingAggregateRepository.findByRatingTypeAndRatedId(ratingType, ratedId)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Rating totals for " + ratingType + " " + ratedId + " could not be created"));
+    }
 
-        double average = ratings.stream()
-                .mapToInt(Rating::getRate)
-                .average()
-                .orElse(0.0);
+    /**
+     * Creates the totals of a target that has none yet, from the ratings
+     * stored before they existed.
+     */
+    private void seedAggregate(RatingType ratingType, Long ratedId) {
+        seeder.seed("Rating totals for " + ratingType + " " + ratedId,
+                () -> ratingAggregateRepository.findByRatingTypeAndRatedId(ratingType, ratedId),
+                () -> {
+                    Long sum = ratingRepository.sumRateByRatingTypeAndRatedId(ratingType, ratedId);
+                    long count = ratingRepository.countByRatingTypeAndRatedId(ratingType, ratedId);
+                    ratingAggregateRepository.saveAndFlush(
+                            new RatingAggregate(ratingType, ratedId, sum == null ? 0L : sum, count));
+                });
+    }
 
-        // Round to 1 decimal place
-        average = Math.round(average * 10.0) / 10.0;
+    private void updateAverageRating(RatingType ratingType, Long ratedId, Double average) {
+        if (ratingType == RatingType.PRODUCT) {
+            updateItemAverageRating(ratedId, average);
+        } else if (ratingType == RatingType.OWNER) {
+            updateOwnerAverageRating(ratedId, average);
+        } else if (ratingType == RatingType.RENTER) {
+            updateRenterAverageRating(ratedId, average);
+        }
+    }
 
+    private void updateItemAverageRating(Long itemId, Double average) {
         Item item = itemService.getItemById(itemId);
         if (item != null) {
-            item.setAverageRating(average);
+            // Items without ratings keep the 0.0 default used at creation
+            item.setAverageRating(average != null ? average : 0.0);
             itemService.saveItem(item);
             logger.info("Updated average rating for item {} to {}", itemId, average);
         }
     }
 
-    private void updateOwnerAverageRating(Long ownerId) {
-        List<Rating> ratings = ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId);
-        if (ratings.isEmpty()) {
-            return;
-        }
-
-        double average = ratings.stream()
-                .mapToInt(Rating::getRate)
-                .average()
-                .orElse(0.0);
-
-        // Round to 1 decimal place
-        average = Math.round(average * 10.0) / 10.0;
-
+    private void updateOwnerAverageRating(Long ownerId, Double average) {
         Optional<User> userOpt = userService.getUserById(ownerId);
         if (userOpt.isPresent()) {
             User owner = userOpt.get();
@@ -219,20 +242,7 @@ public class RatingService {
                 renterId, ownerId, BookingStatus.ACCEPTED, LocalDate.now());
     }
 
-    private void updateRenterAverageRating(Long renterId) {
-        List<Rating> ratings = ratingRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId);
-        if (ratings.isEmpty()) {
-            return;
-        }
-
-        double average = ratings.stream()
-                .mapToInt(Rating::getRate)
-                .average()
-                .orElse(0.0);
-
-        // Round to 1 decimal place
-        average = Math.round(average * 10.0) / 10.0;
-
+    private void updateRenterAverageRating(Long renterId, Double average) {
         Optional<User> userOpt = userService.getUserById(renterId);
         if (userOpt.isPresent()) {
             User renter = userOpt.get();
@@ -263,13 +273,26 @@ public class RatingService {
     }
 
     public boolean deleteRating(Long id) {
-        if (ratingRepository.existsById(id)) {
-            ratingRepository.deleteById(id);
-            logger.info("Deleted rating {}", id);
-            return true;
+        Optional<Rating> optRating = ratingRepository.findById(id);
+        if (optRating.isEmpty()) {
+            logger.warn("Failed to delete rating: Rating with ID {} not found.", id);
+            return false;
         }
-        logger.warn("Failed to delete rating: Rating with ID {} not found.", id);
-        return false;
+
+        Rating rating = optRating.get();
+        seedAggregate(rating.getRatingType(), rating.getRatedId());
+        transactions.executeWithoutResult(status -> {
+            RatingAggregate aggregate = lockAggregate(rating.getRatingType(), rating.getRatedId());
+
+            ratingRepository.deleteById(id);
+
+            aggregate.removeRating(rating.getRate());
+            ratingAggregateRepository.save(aggregate);
+            updateAverageRating(rating.getRatingType(), rating.getRatedId(), aggregate.getAverage());
+        });
+
+        logger.info("Deleted rating {}", id);
+        return true;
     }
 
 }
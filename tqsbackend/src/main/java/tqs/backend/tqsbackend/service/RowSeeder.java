@@ -0,0 +1,47 @@
+package tqs.backend.tqsbackend.service;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates a row that a service is about to read with a lock. A locking read
+ * of a missing row locks nothing, so the first writer inserts it here, in a
+ * short transaction of its own. Callers seed before opening the transaction
+ * that takes the lock: a write on a second connection while that
+ * transaction holds a read would wait on it under SQLite's single writer.
+ */
+final class RowSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowSeeder.class);
+
+    private final TransactionTemplate transactions;
+
+    RowSeeder(PlatformTransactionManager transactionManager) {
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs {@code insert} unless {@code lookup} finds the row. When a
+     * concurrent seed wins the unique key, theirs is kept and this insert
+     * dropped.
+     */
+    void seed(String row, Supplier<? extends Optional<?>> lookup, Runnable insert) {
+        try {
+            transactions.executeWithoutResult(status -> {
+                if (lookup.get().isEmpty()) {
+                    insert.run();
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("{} was created concurrently", row);
+        }
+    }
+}
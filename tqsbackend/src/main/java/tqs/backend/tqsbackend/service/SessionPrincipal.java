@@ -0,0 +1,50 @@
+package tqs.backend.tqsbackend.service;
+
+import java.io.Serializable;
+
+import jakarta.servlet.http.HttpSession;
+import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
+
+/**
+ * Snapshot of the logged-in user kept in the session so role checks do not
+ * load the user on every request. The version is bumped whenever the
+ * snapshot is rewritten after a state change (see {@link SessionPrincipalRegistry}).
+ */
+public record SessionPrincipal(Long id, UserRoles role, boolean active, long version) implements Serializable {
+
+    public static final String ATTRIBUTE = "principal";
+
+    public static SessionPrincipal of(User user) {
+        return new SessionPrincipal(user.getId(), user.getRole(), user.isActive(), 0);
+    }
+
+    public boolean hasRole(UserRoles expected) {
+        return active && role == expected;
+    }
+
+    public SessionPrincipal withActive(boolean newActive) {
+        return new SessionPrincipal(id, role, newActive, version + 1);
+    }
+
+    /**
+     * Returns the principal stored at login. Sessions created before the
+     * principal existed only carry "userId"; the user is loaded once and the
+     * principal stored so later requests skip the lookup.
+     */
+    public static SessionPrincipal resolve(HttpSession session, UserService userService) {
+        if (session.getAttribute(ATTRIBUTE) instanceof SessionPrincipal principal) {
+            return principal;
+        }
+        if (!(session.getAttribute("userId") instanceof Long userId)) {
+            return null;
+        }
+        SessionPrincipal principal = userService.getUserById(userId)
+                .map(user -> new SessionPrincipal(userId, user.getRole(), user.isActive(), 0))
+                .orElse(null);
+        if (principal != null) {
+            session.setAttribute(ATTRIBUTE, principal);
+        }
+        return principal;
+    }
+}
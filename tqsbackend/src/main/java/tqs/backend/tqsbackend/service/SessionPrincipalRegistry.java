@@ -0,0 +1,94 @@
+package tqs.backend.tqsbackend.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionAttributeListener;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+
+/**
+ * Tracks which sessions hold a principal for each user, so an activation
+ * change can rewrite those principals in place instead of every request
+ * re-reading the user. Sessions register themselves when the principal
+ * attribute is set and are dropped when they are destroyed.
+ */
+@Component
+public class SessionPrincipalRegistry implements HttpSessionListener, HttpSessionAttributeListener {
+
+    private final Map<Long, Set<HttpSession>> sessionsByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public void attributeAdded(HttpSessionBindingEvent event) {
+        if (event.getValue() instanceof SessionPrincipal principal) {
+            track(principal.id(), event.getSession());
+        }
+    }
+
+    @Override
+    public void attributeReplaced(HttpSessionBindingEvent event) {
+        // getValue() is the old value here; the session stays tracked under the same user
+        attributeAdded(event);
+    }
+
+    @Override
+    public void attributeRemoved(HttpSessionBindingEvent event) {
+        if (event.getValue() instanceof SessionPrincipal principal) {
+            untrack(principal.id(), event.getSession());
+        }
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        if (event.getSession().getAttribute(SessionPrincipal.ATTRIBUTE) instanceof SessionPrincipal principal) {
+            untrack(principal.id(), event.getSession());
+        }
+    }
+
+    /**
+     * Rewrites the principal of every live session of the user with the new
+     * activation state.
+     */
+    public void updateActive(Long userId, boolean active) {
+        Set<HttpSession> sessions = sessionsByUser.get(userId);
+        if (sessions == null) {
+            return;
+        }
+        for (HttpSession session : sessions) {
+            try {
+                if (session.getAttribute(SessionPrincipal.ATTRIBUTE) instanceof SessionPrincipal principal) {
+                    session.setAttribute(SessionPrincipal.ATTRIBUTE, principal.withActive(active));
+                }
+            } catch (IllegalStateException e) {
+                // Invalidated between lookup and update
+                sessions.remove(session);
+            }
+        }
+    }
+
+    int sessionCount(Long userId) {
+        Set<HttpSession> sessions = sessionsByUser.get(userId);
+        return sessions == null ? 0 : sessions.size();
+    }
+
+    private void track(Long userId, HttpSession session) {
+        if (userId != null) {
+            sessionsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(session);
+        }
+    }
+
+    private void untrack(Long userId, HttpSession session) {
+        if (userId == null) {
+            return;
+        }
+        sessionsByUser.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -0,0 +1,292 @@
+package tqs.backend.tqsbackend.service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.RequestOptions;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import tqs.backend.tqsbackend.exception.ProviderTimeoutException;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
+
+/**
+ * Every call to Stripe goes through here. Calls run on a small bounded
+ * pool so a slow Stripe ties up those threads rather than the request
+ * threads. The caller waits at most the connect and read timeouts plus a
+ * short grace, counted from when the call starts running, so the HTTP
+ * client's own timeouts fire first; waiting for a free thread gets the
+ * same budget on its own. After a run
+ * of failures (timeouts, connection errors, 5xx and 429 answers) the
+ * circuit opens and calls fail at once until a single trial call after the
+ * open duration succeeds. Declines and other client errors don't count.
+ *
+ * <p>The API key travels in each call's RequestOptions instead of the
+ * global Stripe.apiKey. Call outcomes are published as the stripe.calls
+ * timer, the circuit as the stripe.circuit.state gauge (0 closed, 1 open,
+ * 2 half open) and the pool as stripe.bulkhead.active and .queued.
+ */
+@Component
+public class StripeGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeGateway.class);
+
+    private static final String UNAVAILABLE = "Payment provider is unavailable, please try again shortly";
+
+    private static final Duration RESPONSE_GRACE = Duration.ofMillis(250);
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T run(RequestOptions options) throws StripeException;
+    }
+
+    enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String secretKey;
+    private final Duration connectTimeout;
+    private final Duration timeout;
+    private final RequestOptions options;
+    private final long callTimeoutMillis;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    @Autowired
+    public StripeGateway(
+            @Value("${stripe.api.secret-key:}") String secretKey,
+            @Value("${stripe.client.pool-size:8}") int poolSize,
+            @Value("${stripe.client.queue-capacity:16}") int queueCapacity,
+            @Value("${stripe.client.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${stripe.client.timeout:PT10S}") Duration timeout,
+            @Value("${stripe.client.failure-threshold:5}") int failureThreshold,
+            @Value("${stripe.client.open-duration:PT30S}") Duration openDuration,
+            MeterRegistry meterRegistry) {
+        this(secretKey, newExecutor(poolSize, queueCapacity), connectTimeout, timeout, failureThreshold,
+                openDuration, meterRegistry, System::nanoTime);
+    }
+
+    StripeGateway(String secretKey, ThreadPoolExecutor executor, Duration connectTimeout, Duration timeout,
+            int failureThreshold, Duration openDuration, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.secretKey = secretKey;
+        this.connectTimeout = connectTimeout;
+        this.timeout = timeout;
+        this.options = optionsBuilder().build();
+        this.callTimeoutMillis = connectTimeout.plus(timeout).plus(RESPONSE_GRACE).toMillis();
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("stripe.circuit.state", this, gateway -> gateway.state().ordinal())
+                .description("0 closed, 1 open, 2 half open").register(meterRegistry);
+        Gauge.builder("stripe.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("stripe.bulkhead.queued", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+    static ThreadPoolExecutor newExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new StripeThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean isConfigured() {
+        return secretKey != null && !secretKey.isBlank();
+    }
+
+    private RequestOptions.RequestOptionsBuilder optionsBuilder() {
+        RequestOptions.RequestOptionsBuilder builder = RequestOptions.builder()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setReadTimeout((int) timeout.toMillis());
+        if (isConfigured()) {
+            // The builder rejects blank keys; without one Stripe answers with an authentication error
+            builder.setApiKey(secretKey);
+        }
+        return builder;
+    }
+
+    /**
+     * Runs one Stripe call under an idempotency key, so repeating a call
+     * whose answer was lost returns the original result instead of acting
+     * twice.
+     */
+    public <T> T call(String operation, String idempotencyKey, StripeCall<T> call) throws StripeException {
+        return call(operation, optionsBuilder().setIdempotencyKey(idempotencyKey).build(), call);
+    }
+
+    /**
+     * Runs one Stripe call. Stripe's own errors are rethrown as they are;
+     * an open circuit or a full pool throw ServiceOverloadedException, and a
+     * call without an answer in time ProviderTimeoutException.
+     */
+    public <T> T call(String operation, StripeCall<T> call) throws StripeException {
+        return call(operation, options, call);
+    }
+
+    private <T> T call(String operation, RequestOptions requestOptions, StripeCall<T> call) throws StripeException {
+        long start = nanoClock.getAsLong();
+        if (!tryAcquire(start)) {
+            record(operation, "short_circuited", start);
+            throw new ServiceOverloadedException(UNAVAILABLE);
+        }
+
+        CountDownLatch started = new CountDownLatch(1);
+        Callable<T> task = () -> {
+            started.countDown();
+            return call.run(requestOptions);
+        };
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            releaseTrial();
+            record(operation, "rejected", start);
+            logger.warn("Stripe call pool is full, rejecting {}", operation);
+            throw new ServiceOverloadedException(UNAVAILABLE);
+        }
+
+        try {
+            // Queue wait and the call itself each get the full budget
+            if (!started.await(callTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException();
+            }
+            T result = future.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            onSuccess();
+            record(operation, "success", start);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            onFailure();
+            record(operation, "timeout", start);
+            logger.warn("Stripe {} did not answer within {} ms", operation, callTimeoutMillis);
+            throw new ProviderTimeoutException("Payment provider timed out, please try again");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            releaseTrial();
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(UNAVAILABLE);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StripeException stripeException) {
+                if (isProviderFailure(stripeException)) {
+                    onFailure();
+                    record(operation, "failure", start);
+                } else {
+                    onSuccess();
+                    record(operation, "client_error", start);
+                }
+                throw stripeException;
+            }
+            onFailure();
+            record(operation, "failure", start);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static boolean isProviderFailure(StripeException e) {
+        Integer status = e.getStatusCode();
+        return e instanceof ApiConnectionException || (status != null && (status >= 500 || status == 429));
+    }
+
+    private void record(String operation, String outcome, long start) {
+        Timer.builder("stripe.calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized CircuitState state() {
+        return state;
+    }
+
+    private synchronized boolean tryAcquire(long now) {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (now - openedAt < openNanos) {
+                    yield false;
+                }
+                // Let one trial call through; everyone else keeps failing fast
+                state = CircuitState.HALF_OPEN;
+                yield true;
+            }
+            case HALF_OPEN -> false;
+        };
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != CircuitState.CLOSED) {
+            logger.info("Stripe circuit closed");
+        }
+        state = CircuitState.CLOSED;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == CircuitState.HALF_OPEN || (state == CircuitState.CLOSED
+                && consecutiveFailures >= failureThreshold)) {
+            state = CircuitState.OPEN;
+            openedAt = nanoClock.getAsLong();
+            logger.warn("Stripe circuit opened after {} consecutive failures", consecutiveFailures);
+        }
+    }
+
+    /** A trial call that never reached Stripe leaves the next caller to try. */
+    private synchronized void releaseTrial() {
+        if (state == CircuitState.HALF_OPEN) {
+            state = CircuitState.OPEN;
+            openedAt = nanoClock.getAsLong() - openNanos;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class StripeThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "stripe-client-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
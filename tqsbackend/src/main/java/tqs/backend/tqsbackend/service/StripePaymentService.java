@@ -1,36 +1,47 @@
 package tqs.backend.tqsbackend.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
-import com.stripe.Stripe;
+import com.stripe.exception.ApiConnectionException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentIntentSearchResult;
+import com.stripe.model.Refund;
 
 import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.exception.ProviderTimeoutException;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 
 @Service
 @Primary
 @Profile("stripe")
 public class StripePaymentService implements PaymentService {
 
-    @Value("${stripe.api.secret-key}")
-    private String secretKey;
+    private final StripeGateway stripe;
+
+    public StripePaymentService(StripeGateway stripe) {
+        this.stripe = stripe;
+    }
 
     @Override
     public PaymentResult charge(Long renterId, Item item, BigDecimal amount, Long bookingId) {
+        // Stripe expects amount in cents
+        long amountInCents = amount.multiply(BigDecimal.valueOf(100)).longValue();
+        if (!stripe.isConfigured()) {
+            return PaymentResult.failure("Stripe is not configured");
+        }
         try {
-            Stripe.apiKey = secretKey;
-
             Map<String, Object> params = new HashMap<>();
-            // Stripe expects amount in cents
-            params.put("amount", amount.multiply(BigDecimal.valueOf(100)).longValue());
+            params.put("amount", amountInCents);
             params.put("currency", "eur");
             params.put("description", "Booking #" + bookingId + " - " + item.getName());
             params.put("automatic_payment_methods", Map.of(
@@ -45,12 +56,24 @@ public class StripePaymentService implements PaymentService {
             metadata.put("item_name", item.getName());
             params.put("metadata", metadata);
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            // Keyed per attempt: Stripe replays a key's first answer for a day, so a
+            // new attempt (after a decline, or at a counter-offer's new amount) must
+            // not reuse one. Only the client's own retries of a request share its key.
+            String attempt = UUID.randomUUID().toString();
+            PaymentIntent created = stripe.call("payment_intent.create", idempotencyKey(bookingId, attempt + "-create"),
+                    options -> PaymentIntent.create(params, options));
             
             // For sandbox testing, we'll confirm immediately with a test payment method
             Map<String, Object> confirmParams = new HashMap<>();
             confirmParams.put("payment_method", "pm_card_visa");
-            paymentIntent = paymentIntent.confirm(confirmParams);
+            PaymentIntent paymentIntent;
+            try {
+                paymentIntent = stripe.call("payment_intent.confirm", idempotencyKey(bookingId, attempt + "-confirm"),
+                        options -> created.confirm(confirmParams, options));
+            } catch (ProviderTimeoutException | ApiConnectionException e) {
+                // The confirmation may have gone through; the payment_intent.succeeded webhook settles it
+                return PaymentResult.pending(created.getId());
+            }
 
             if ("succeeded".equals(paymentIntent.getStatus())) {
                 return PaymentResult.success(paymentIntent.getId());
@@ -61,8 +84,40 @@ public class StripePaymentService implements PaymentService {
                 return PaymentResult.failure("Payment status: " + paymentIntent.getStatus());
             }
 
-        } catch (StripeException e) {
+        } catch (StripeException | ServiceOverloadedException e) {
             return PaymentResult.failure(e.getMessage());
         }
     }
+
+    @Override
+    public PaymentResult refund(Long bookingId) {
+        if (!stripe.isConfigured()) {
+            throw new IllegalStateException("Stripe is not configured");
+        }
+        Map<String, Object> search = Map.of("query",
+                "metadata['booking_id']:'" + bookingId + "' AND status:'succeeded'");
+        try {
+            PaymentIntentSearchResult intents = stripe.call("payment_intent.search",
+                    options -> PaymentIntent.search(search, options));
+            if (intents.getData().isEmpty()) {
+                // Search lags behind writes by up to a minute; retried until the payment shows up
+                throw new IllegalStateException("No payment found yet for booking " + bookingId);
+            }
+            List<String> refunds = new ArrayList<>();
+            for (PaymentIntent intent : intents.getData()) {
+                Map<String, Object> params = Map.of("payment_intent", intent.getId());
+                // One refund per payment, however often this is retried
+                Refund refund = stripe.call("refund.create", idempotencyKey(bookingId, "refund-" + intent.getId()),
+                        options -> Refund.create(params, options));
+                refunds.add(refund.getId());
+            }
+            return PaymentResult.success(String.join(",", refunds));
+        } catch (StripeException e) {
+            throw new IllegalStateException("Refund for booking " + bookingId + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String idempotencyKey(Long bookingId, String step) {
+        return "booking-" + bookingId + "-" + step;
+    }
 }
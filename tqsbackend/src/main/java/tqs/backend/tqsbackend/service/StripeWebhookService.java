@@ -0,0 +1,266 @@
+package tqs.backend.tqsbackend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.gson.JsonParseException;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+
+import jakarta.annotation.PreDestroy;
+import tqs.backend.tqsbackend.entity.StripeWebhookEvent;
+import tqs.backend.tqsbackend.entity.WebhookEventStatus;
+import tqs.backend.tqsbackend.repository.StripeWebhookEventRepository;
+
+/**
+ * Takes Stripe webhook deliveries off the request thread. A delivery is
+ * verified and stored, then acknowledged; a worker applies it afterwards.
+ * Workers are single-threaded lanes picked by booking id, so events for
+ * one booking are applied in the order they arrived while different
+ * bookings proceed in parallel. Events that never reached a worker (full
+ * lane, restart) are picked up by a periodic recovery pass, which also
+ * retries failed events with exponential backoff until they run out of
+ * attempts.
+ */
+@Service
+public class StripeWebhookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeWebhookService.class);
+
+    static final String CHECKOUT_COMPLETED = "checkout.session.completed";
+
+    // Settles direct charges whose confirmation timed out on our side
+    static final String PAYMENT_INTENT_SUCCEEDED = "payment_intent.succeeded";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    public enum Receipt {
+        ACCEPTED,   // Stored and queued for a worker
+        DUPLICATE,  // Event id seen before
+        IGNORED     // Stored for the record, nothing to apply
+    }
+
+    private final StripeWebhookEventRepository eventRepository;
+    private final BookingService bookingService;
+    private final TransactionTemplate transactions;
+    private final String secret;
+    private final ThreadPoolExecutor[] lanes;
+    private final Duration recoveryAge;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    @Autowired
+    public StripeWebhookService(StripeWebhookEventRepository eventRepository, BookingService bookingService,
+            PlatformTransactionManager transactionManager,
+            @Value("${stripe.webhook.secret:}") String secret,
+            @Value("${stripe.webhook.workers:4}") int workers,
+            @Value("${stripe.webhook.queue-capacity:1000}") int queueCapacity,
+            @Value("${stripe.webhook.recovery-age:PT1M}") Duration recoveryAge,
+            @Value("${stripe.webhook.max-attempts:10}") int maxAttempts,
+            @Value("${stripe.webhook.retry-backoff:PT30S}") Duration retryBackoff) {
+        this.eventRepository = eventRepository;
+        this.bookingService = bookingService;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.secret = secret;
+        this.recoveryAge = recoveryAge;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "stripe-webhook-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.lanes = new ThreadPoolExecutor[workers];
+        for (int i = 0; i < workers; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity / workers)), threadFactory,
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * Verifies and stores one delivery. Throws IllegalArgumentException when
+     * the signature does not check out, in which case nothing is stored.
+     */
+    public Receipt receive(String payload, String signature) {
+        Event event = verify(payload, signature);
+        if (eventRepository.existsByEventId(event.getId())) {
+            return Receipt.DUPLICATE;
+        }
+
+        Long bookingId = CHECKOUT_COMPLETED.equals(event.getType()) || PAYMENT_INTENT_SUCCEEDED.equals(event.getType())
+                ? paidBookingId(event)
+                : null;
+        WebhookEventStatus status = bookingId != null ? WebhookEventStatus.RECEIVED : WebhookEventStatus.IGNORED;
+        StripeWebhookEvent stored;
+        try {
+            stored = eventRepository.save(new StripeWebhookEvent(event.getId(), event.getType(), bookingId, payload,
+                    status));
+        } catch (DataIntegrityViolationException e) {
+            // The same event delivered twice at once; the other delivery stored it
+            return Receipt.DUPLICATE;
+        }
+        if (status == WebhookEventStatus.IGNORED) {
+            return Receipt.IGNORED;
+        }
+        submit(stored.getId(), bookingId);
+        return Receipt.ACCEPTED;
+    }
+
+    private Event verify(String payload, String signature) {
+        if (secret == null || secret.isBlank()) {
+            logger.warn("Rejecting Stripe webhook: no webhook secret configured");
+            throw new IllegalArgumentException("Webhooks are not configured");
+        }
+        if (payload == null || signature == null) {
+            throw new IllegalArgumentException("Invalid webhook signature");
+        }
+        try {
+            return Webhook.constructEvent(payload, signature, secret);
+        } catch (SignatureVerificationException | JsonParseException e) {
+            logger.warn("Rejecting Stripe webhook: {}", e.getMessage());
+            throw new IllegalArgumentException("Invalid webhook signature");
+        }
+    }
+
+    /** The booking a completed checkout or payment intent paid for, or null if it is not paid or not ours. */
+    private static Long paidBookingId(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object == null) {
+            // Sent with a different API version than the library's; the fields we read are stable
+            try {
+                object = event.getDataObjectDeserializer().deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                logger.warn("Could not read Stripe event {}: {}", event.getId(), e.getMessage());
+                return null;
+            }
+        }
+        Map<String, String> metadata;
+        if (object instanceof Session session && "paid".equals(session.getPaymentStatus())) {
+            metadata = session.getMetadata();
+        } else if (object instanceof PaymentIntent intent && "succeeded".equals(intent.getStatus())) {
+            metadata = intent.getMetadata();
+        } else {
+            return null;
+        }
+        String bookingId = metadata != null ? metadata.get("booking_id") : null;
+        if (bookingId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(bookingId);
+        } catch (NumberFormatException e) {
+            logger.warn("Stripe event {} has an invalid booking id {}", event.getId(), bookingId);
+            return null;
+        }
+    }
+
+    private void submit(Long id, Long bookingId) {
+        ThreadPoolExecutor lane = lanes[Math.floorMod(Long.hashCode(bookingId), lanes.length)];
+        try {
+            lane.execute(() -> process(id, bookingId));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Webhook lane is full, leaving event {} for recovery", id);
+        }
+    }
+
+    /**
+     * Applies a stored event. Marking it processed and confirming the
+     * payment commit together, so a failure leaves nothing half done and
+     * the event is retried later.
+     */
+    void process(Long id, Long bookingId) {
+        try {
+            transactions.executeWithoutResult(status -> {
+                if (eventRepository.complete(id, WebhookEventStatus.PROCESSED, LocalDateTime.now(), null) == 0) {
+                    return;
+                }
+                bookingService.confirmPayment(bookingId);
+            });
+        } catch (RuntimeException e) {
+            handleFailure(id, bookingId, e);
+        }
+    }
+
+    private void handleFailure(Long id, Long bookingId, RuntimeException failure) {
+        String error = failure.toString();
+        String lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        try {
+            int attempts = eventRepository.findById(id).map(StripeWebhookEvent::getAttempts).orElse(0) + 1;
+            if (attempts >= maxAttempts) {
+                transactions.executeWithoutResult(status ->
+                        eventRepository.markFailed(id, LocalDateTime.now(), lastError));
+                logger.error("Giving up on Stripe webhook event {} for booking {} after {} attempts: {}", id,
+                        bookingId, attempts, lastError);
+            } else {
+                Duration delay = backoff(attempts);
+                transactions.executeWithoutResult(status ->
+                        eventRepository.reschedule(id, LocalDateTime.now().plus(delay), lastError));
+                logger.warn("Could not apply Stripe webhook event {} for booking {}, retrying in {}: {}", id,
+                        bookingId, delay, lastError);
+            }
+        } catch (RuntimeException recordFailure) {
+            // Still RECEIVED and due, so the recovery pass tries it again
+            logger.warn("Could not record the failure of webhook event {}: {}", id, recordFailure.getMessage());
+        }
+    }
+
+    /** Doubles with every failed attempt, up to an hour. */
+    Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.recovery-interval:PT1M}")
+    public void recover() {
+        LocalDateTime now = LocalDateTime.now();
+        for (StripeWebhookEvent event : eventRepository.findDue(now, now.minus(recoveryAge),
+                PageRequest.of(0, 500))) {
+            submit(event.getId(), event.getBookingId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /** After shutdown, waits for the lanes to drain. */
+    boolean awaitTermination(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
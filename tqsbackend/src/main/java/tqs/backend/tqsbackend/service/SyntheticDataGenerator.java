@@ -0,0 +1,387 @@
+package tqs.backend.tqsbackend.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tqs.backend.tqsbackend.entity.RatingAggregate;
+import tqs.backend.tqsbackend.entity.RatingType;
+
+/**
+ * Bulk-loads a large, reproducible data set for load tests and benchmarks
+ * (the "synthetic" profile). Where MockAddingItemService saves a handful of
+ * entities one by one, this writes straight through JDBC batches: entities
+ * use IDENTITY keys, which stops Hibernate from batching its inserts. The
+ * same seed and volumes always produce the same rows.
+ *
+ * Runs once per database; it is skipped when synthetic users already exist.
+ */
+@Component
+@Profile("synthetic")
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    public static final String EMAIL_DOMAIN = "@synthetic.partyshare";
+
+    public static final String[] ITEM_WORDS = { "Party", "Lamp", "Speaker", "Tent", "Table", "Chair", "Grill",
+            "Projector", "Balloon", "Karaoke", "Disco", "Fog", "Heater", "Cooler", "Stage", "Banner", "Garland",
+            "Mixer", "Microphone", "Screen" };
+
+    private static final String[] CATEGORIES = { "Electronics", "Lighting", "Furniture", "Audio", "Outdoor",
+            "Catering", "Decoration", "Games" };
+
+    private static final String[] LOCATIONS = { "Aveiro", "Lisboa", "Porto", "Coimbra", "Braga", "Faro" };
+
+    private static final String IMAGE_URL = "https://placehold.co/600x400?text=No+Image";
+
+    /** How many rows of each kind to generate. Owners and renters split the users evenly. */
+    public record Volumes(int users, int items, int bookings, int ratings, int messages, int walletTransactions) {
+    }
+
+    private final JdbcTemplate jdbc;
+
+    private final TransactionTemplate transactions;
+
+    private final PasswordHasher passwordHasher;
+
+    private final String password;
+
+    private final Volumes volumes;
+
+    private final long seed;
+
+    private final int batchSize;
+
+    private final Runnable reindex;
+
+    @Autowired
+    public SyntheticDataGenerator(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+            PasswordHasher passwordHasher,
+            @Value("${MOCK_USER_PASSWORD:testPassword123}") String password,
+            @Value("${synthetic.users:50000}") int users,
+            @Value("${synthetic.items:100000}") int items,
+            @Value("${synthetic.bookings:1000000}") int bookings,
+            @Value("${synthetic.ratings:100000}") int ratings,
+            @Value("${synthetic.messages:500000}") int messages,
+            @Value("${synthetic.wallet-transactions:200000}") int walletTransactions,
+            @Value("${synthetic.seed:42}") long seed,
+            @Value("${synthetic.batch-size:5000}") int batchSize,
+            ObjectProvider<ItemSearchIndex> searchIndex,
+            ObjectProvider<ItemAvailabilityIndex> availabilityIndex) {
+        this(jdbc, transactionManager, passwordHasher, password,
+                new Volumes(users, items, bookings, ratings, messages, walletTransactions), seed, batchSize, () -> {
+                    searchIndex.ifAvailable(ItemSearchIndex::rebuild);
+                    availabilityIndex.ifAvailable(ItemAvailabilityIndex::rebuild);
+                });
+    }
+
+    SyntheticDataGenerator(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+            PasswordHasher passwordHasher, String password, Volumes volumes, long seed, int batchSize,
+            Runnable reindex) {
+        if (volumes.users() < 2 || volumes.items() < 1) {
+            throw new IllegalArgumentException("Synthetic data needs at least two users and one item");
+        }
+        this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.passwordHasher = passwordHasher;
+        this.password = password;
+        this.volumes = volumes;
+        this.seed = seed;
+        this.batchSize = batchSize;
+        this.reindex = reindex;
+    }
+
+    @Override
+    public void run(String... args) {
+        Integer existing = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE email LIKE ?", Integer.class,
+                "%" + EMAIL_DOMAIN);
+        if (existing != null && existing > 0) {
+            logger.info("Synthetic data already present ({} users), skipping generation", existing);
+            return;
+        }
+        long started = System.nanoTime();
+        transactions.executeWithoutResult(status -> generate());
+        logger.info("Generated synthetic data {} in {} ms", volumes, (System.nanoTime() - started) / 1_000_000);
+        // The indexes were built at startup and plain JDBC inserts bypass the listeners that keep them current
+        reindex.run();
+    }
+
+    private void generate() {
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime now = LocalDateTime.now();
+        // Every synthetic user can log in with the same password
+        String passwordHash = passwordHasher.hash(password);
+
+        int ownerCount = volumes.users() / 2;
+        List<Long> owners = insertUsers("owner", ownerCount, "OWNER", passwordHash, now);
+        List<Long> renters = insertUsers("renter", volumes.users() - ownerCount, "RENTER", passwordHash, now);
+        List<Long> categories = insertCategories();
+        List<Long> items = insertItems(owners, categories, random);
+        Long lastBookingId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM bookings", Long.class);
+        BigDecimal[][] walletTotals = insertBookings(items, owners, renters, now.toLocalDate(), random);
+        insertWallets(owners, walletTotals, now);
+        insertWalletTransactions(lastBookingId, now.toLocalDate());
+        insertLedgerEntries(lastBookingId);
+        insertRatings(items, renters, random);
+        insertConversations(owners, renters, items, now, random);
+    }
+
+    private List<Long> insertUsers(String kind, int count, String role, String passwordHash, LocalDateTime now) {
+        batch("INSERT INTO users (name, email, password_hash, role, is_active, created_at, average_rating) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", range(count), (ps, i) -> {
+                    ps.setString(1, "Synthetic " + kind + " " + i);
+                    ps.setString(2, kind + i + EMAIL_DOMAIN);
+                    ps.setString(3, passwordHash);
+                    ps.setString(4, role);
+                    ps.setBoolean(5, true);
+                    ps.setTimestamp(6, Timestamp.valueOf(now));
+                    ps.setDouble(7, 0.0);
+                });
+        return jdbc.queryForList("SELECT id FROM users WHERE role = ? AND email LIKE ? ORDER BY id", Long.class,
+                role, "%" + EMAIL_DOMAIN);
+    }
+
+    private List<Long> insertCategories() {
+        List<Long> ids = new ArrayList<>();
+        for (String name : CATEGORIES) {
+            List<Long> existing = jdbc.queryForList("SELECT id FROM categories WHERE name = ?", Long.class, name);
+            if (existing.isEmpty()) {
+                jdbc.update("INSERT INTO categories (name) VALUES (?)", name);
+                existing = jdbc.queryForList("SELECT id FROM categories WHERE name = ?", Long.class, name);
+            }
+            ids.add(existing.get(0));
+        }
+        return ids;
+    }
+
+    private List<Long> insertItems(List<Long> owners, List<Long> categories, SplittableRandom random) {
+        Long lastId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM items", Long.class);
+        batch("INSERT INTO items (name, description, price, owner_id, category_id, average_rating, location, "
+                + "is_active, image_url) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", range(volumes.items()), (ps, i) -> {
+                    String first = ITEM_WORDS[random.nextInt(ITEM_WORDS.length)];
+                    String second = ITEM_WORDS[random.nextInt(ITEM_WORDS.length)];
+                    ps.setString(1, first + " " + second + " " + i);
+                    ps.setString(2, "Synthetic " + first.toLowerCase(Locale.ROOT) + " for "
+                            + second.toLowerCase(Locale.ROOT) + " events");
+                    ps.setDouble(3, 5 + random.nextInt(200));
+                    ps.setLong(4, owners.get(i % owners.size()));
+                    ps.setLong(5, categories.get(random.nextInt(categories.size())));
+                    // Set from the generated ratings, see insertRatings
+                    ps.setDouble(6, 0.0);
+                    ps.setString(7, LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                    ps.setBoolean(8, random.nextInt(10) != 0);
+                    ps.setString(9, IMAGE_URL);
+                });
+        return jdbc.queryForList("SELECT id FROM items WHERE id > ? ORDER BY id", Long.class, lastId);
+    }
+
+    /**
+     * Bookings of an item follow each other in four-day slots starting twenty
+     * days ago, so none overlap and the earliest ones have already ended.
+     * Returns the released and pending totals per owner for the paid bookings
+     * that get a wallet transaction, in the order they are inserted.
+     */
+    private BigDecimal[][] insertBookings(List<Long> items, List<Long> owners, List<Long> renters, LocalDate today,
+            SplittableRandom random) {
+        BigDecimal[][] totals = new BigDecimal[owners.size()][2];
+        for (BigDecimal[] ownerTotals : totals) {
+            ownerTotals[0] = BigDecimal.ZERO;
+            ownerTotals[1] = BigDecimal.ZERO;
+        }
+        int[] paid = { 0 };
+        Timestamp createdAt = Timestamp.valueOf(today.minusDays(30).atStartOfDay());
+        batch("INSERT INTO bookings (item_id, renter_id, start_date, end_date, daily_price, total_price, status, "
+                + "payment_status, created_at, updated_at, renter_confirmed, owner_confirmed) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", range(volumes.bookings()), (ps, i) -> {
+                    int itemIndex = i % items.size();
+                    LocalDate start = today.minusDays(20).plusDays(4L * (i / items.size()));
+                    LocalDate end = start.plusDays(3);
+                    boolean ended = end.isBefore(today);
+                    boolean accepted = ended || i % 2 == 0;
+                    BigDecimal daily = BigDecimal.valueOf(5 + random.nextInt(200)).setScale(2);
+                    BigDecimal total = daily.multiply(BigDecimal.valueOf(3));
+                    ps.setLong(1, items.get(itemIndex));
+                    ps.setLong(2, renters.get(random.nextInt(renters.size())));
+                    ps.setDate(3, Date.valueOf(start));
+                    ps.setDate(4, Date.valueOf(end));
+                    ps.setBigDecimal(5, daily);
+                    ps.setBigDecimal(6, total);
+                    ps.setString(7, accepted ? "ACCEPTED" : "REQUESTED");
+                    ps.setString(8, accepted ? "PAID" : "PENDING");
+                    ps.setTimestamp(9, createdAt);
+                    ps.setTimestamp(10, createdAt);
+                    ps.setBoolean(11, ended);
+                    ps.setBoolean(12, ended);
+                    if (accepted && paid[0] < volumes.walletTransactions()) {
+                        paid[0]++;
+                        // Items are assigned to owners round-robin, see insertItems
+                        BigDecimal[] ownerTotals = totals[itemIndex % owners.size()];
+                        int slot = ended ? 0 : 1;
+                        ownerTotals[slot] = ownerTotals[slot].add(total);
+                    }
+                });
+        return totals;
+    }
+
+    private void insertWallets(List<Long> owners, BigDecimal[][] totals, LocalDateTime now) {
+        batch("INSERT INTO wallets (owner_id, balance, pending_balance, snapshot_version, withdrawal_version, "
+                + "created_at, updated_at) VALUES (?, ?, ?, 1, 0, ?, ?)", range(owners.size()), (ps, i) -> {
+                    ps.setLong(1, owners.get(i));
+                    ps.setBigDecimal(2, totals[i][0]);
+                    ps.setBigDecimal(3, totals[i][1]);
+                    ps.setTimestamp(4, Timestamp.valueOf(now));
+                    ps.setTimestamp(5, Timestamp.valueOf(now));
+                });
+    }
+
+    /**
+     * One transaction per paid booking, up to the configured volume, written
+     * with a single INSERT ... SELECT instead of reading the bookings back.
+     * Ended bookings are released, the rest still pending.
+     */
+    private void insertWalletTransactions(Long lastBookingId, LocalDate today) {
+        Date cutoff = Date.valueOf(today);
+        jdbc.update("INSERT INTO wallet_transactions (wallet_id, booking_id, amount, status, created_at, released_at) "
+                + "SELECT w.id, b.id, b.total_price, "
+                + "CASE WHEN b.end_date < ? THEN 'RELEASED' ELSE 'PENDING' END, b.created_at, "
+                + "CASE WHEN b.end_date < ? THEN b.updated_at ELSE NULL END "
+                + "FROM bookings b JOIN items i ON i.id = b.item_id JOIN wallets w ON w.owner_id = i.owner_id "
+                + "WHERE b.id > ? AND b.payment_status = 'PAID' ORDER BY b.id LIMIT ?",
+                cutoff, cutoff, lastBookingId, volumes.walletTransactions());
+    }
+
+    /**
+     * A hold for every wallet transaction and a release for the released ones.
+     * The wallet balances already include them, so the entries are written
+     * as folded into each wallet's first snapshot.
+     */
+    private void insertLedgerEntries(Long lastBookingId) {
+        jdbc.update("INSERT INTO wallet_ledger_entries (wallet_id, booking_id, type, amount, available_delta, "
+                + "pending_delta, created_at, snapshot_id) SELECT wallet_id, booking_id, 'HOLD', amount, 0, amount, "
+                + "created_at, 1 FROM wallet_transactions WHERE booking_id > ? ORDER BY id", lastBookingId);
+        jdbc.update("INSERT INTO wallet_ledger_entries (wallet_id, booking_id, type, amount, available_delta, "
+                + "pending_delta, created_at, snapshot_id) SELECT wallet_id, booking_id, 'RELEASE', amount, amount, "
+                + "-amount, released_at, 1 FROM wallet_transactions WHERE booking_id > ? AND status = 'RELEASED' "
+                + "ORDER BY id", lastBookingId);
+    }
+
+    /**
+     * Product ratings for random items. Their running totals and the items'
+     * averages are written from the same ratings, so the first real rating of
+     * an item moves its average from where the generated ones left it.
+     */
+    private void insertRatings(List<Long> items, List<Long> renters, SplittableRandom random) {
+        long[] sums = new long[items.size()];
+        long[] counts = new long[items.size()];
+        batch("INSERT INTO ratings (sender_id, rating_type, rated_id, rate, comment) VALUES (?, ?, ?, ?, ?)",
+                range(volumes.ratings()), (ps, i) -> {
+                    ps.setLong(1, renters.get(random.nextInt(renters.size())));
+                    int itemIndex = random.nextInt(items.size());
+                    int rate = 1 + random.nextInt(5);
+                    sums[itemIndex] += rate;
+                    counts[itemIndex]++;
+                    ps.setString(2, RatingType.PRODUCT.name());
+                    ps.setLong(3, items.get(itemIndex));
+                    ps.setInt(4, rate);
+                    ps.setString(5, "Synthetic rating " + i);
+                });
+
+        List<RatingAggregate> aggregates = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (counts[i] > 0) {
+                aggregates.add(new RatingAggregate(RatingType.PRODUCT, items.get(i), sums[i], counts[i]));
+            }
+        }
+        batch("INSERT INTO rating_aggregates (rating_type, rated_id, rating_sum, rating_count) VALUES (?, ?, ?, ?)",
+                aggregates, (ps, aggregate) -> {
+                    ps.setString(1, aggregate.getRatingType().name());
+                    ps.setLong(2, aggregate.getRatedId());
+                    ps.setLong(3, aggregate.getRatingSum());
+                    ps.setLong(4, aggregate.getRatingCount());
+                });
+        // Rounded the way RatingService rounds them
+        batch("UPDATE items SET average_rating = ? WHERE id = ?", aggregates, (ps, aggregate) -> {
+            ps.setDouble(1, aggregate.getAverage());
+            ps.setLong(2, aggregate.getRatedId());
+        });
+    }
+
+    /**
+     * Messages go back and forth between distinct renter/owner pairs, ten per
+     * conversation, and each conversation row mirrors its last message. Only
+     * that last message is unread.
+     */
+    private void insertConversations(List<Long> owners, List<Long> renters, List<Long> items, LocalDateTime now,
+            SplittableRandom random) {
+        if (volumes.messages() == 0) {
+            return;
+        }
+        int pairs = (int) Math.min(Math.max(1, volumes.messages() / 10), (long) owners.size() * renters.size());
+        int perPair = Math.max(1, volumes.messages() / pairs);
+        batch("INSERT INTO messages (sender_id, receiver_id, item_id, content, sent_at, is_read) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", range(pairs * perPair), (ps, i) -> {
+                    int pair = i / perPair;
+                    int position = i % perPair;
+                    long renter = renters.get(pair % renters.size());
+                    long owner = owners.get(pair / renters.size());
+                    boolean fromRenter = position % 2 == 0;
+                    ps.setLong(1, fromRenter ? renter : owner);
+                    ps.setLong(2, fromRenter ? owner : renter);
+                    ps.setLong(3, items.get(random.nextInt(items.size())));
+                    ps.setString(4, "Synthetic message " + position);
+                    ps.setTimestamp(5, Timestamp.valueOf(sentAt(now, pair, position)));
+                    ps.setBoolean(6, position < perPair - 1);
+                });
+        int last = perPair - 1;
+        batch("INSERT INTO conversations (user_a_id, user_b_id, last_sender_id, last_content, last_sent_at, "
+                + "unread_a, unread_b) VALUES (?, ?, ?, ?, ?, ?, ?)", range(pairs), (ps, pair) -> {
+                    long renter = renters.get(pair % renters.size());
+                    long owner = owners.get(pair / renters.size());
+                    long lastSender = last % 2 == 0 ? renter : owner;
+                    long userA = Math.min(renter, owner);
+                    ps.setLong(1, userA);
+                    ps.setLong(2, Math.max(renter, owner));
+                    ps.setLong(3, lastSender);
+                    ps.setString(4, "Synthetic message " + last);
+                    ps.setTimestamp(5, Timestamp.valueOf(sentAt(now, pair, last)));
+                    ps.setInt(6, lastSender == userA ? 0 : 1);
+                    ps.setInt(7, lastSender == userA ? 1 : 0);
+                });
+    }
+
+    private static LocalDateTime sentAt(LocalDateTime now, int pair, int position) {
+        return now.minusMinutes(pair + 1L).plusSeconds(position);
+    }
+
+    private <T> void batch(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        jdbc.batchUpdate(sql, rows, batchSize, setter);
+    }
+
+    private static List<Integer> range(int count) {
+        List<Integer> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(i);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,12 @@
+package tqs.backend.tqsbackend.service;
+
+/**
+ * Something a user should see without reloading the page. Published by the
+ * services and pushed to the user's open event streams by
+ * {@link NotificationBroadcaster} once the surrounding transaction commits.
+ */
+public record UserNotification(Long userId, String type, Object payload) {
+
+    public static final String MESSAGE = "message";
+    public static final String BOOKING = "booking";
+}
@@ -1,16 +1,24 @@
 package tqs.backend.tqsbackend.service;
 
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.mindrot.jbcrypt.BCrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import tqs.backend.tqsbackend.dto.UserSummaryDTO;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 import tqs.backend.tqsbackend.repository.UserRepository;
 
 @Service
@@ -21,6 +29,14 @@ public class UserService {
 
     private final UserRepository userRepository;
 
+    private final SessionPrincipalRegistry sessionPrincipals;
+
+    private final PasswordHasher passwordHasher;
+
+    private final CacheManager cacheManager;
+
+    public static final String CACHE = "users";
+
     private static final EnumSet<UserRoles> SELF_REGISTER_ROLES = EnumSet.of(UserRoles.RENTER, UserRoles.OWNER);
 
     public User registerUser(String name, String email, String password, UserRoles role) {
@@ -46,7 +62,7 @@ public class UserService {
         }
 
         UserRoles sanitizedRole = resolveSelfServiceRole(role);
-        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
+        String hashedPassword = passwordHasher.hash(password);
         User user = new User(name, email, hashedPassword, sanitizedRole);
         User savedUser = userRepository.save(user);
 
@@ -77,8 +93,9 @@ public class UserService {
             logger.warn("Authentication failed: User with email {} is deactivated.", safeEmail);
             return false;
         }
-        if (BCrypt.checkpw(password, user.getPassword())) {
+        if (passwordHasher.matches(password, user.getPassword())) {
             logger.info("User with email {} authenticated successfully.", safeEmail);
+            rehashIfNeeded(user, password);
             return true;
         } else {
             logger.warn("Authentication failed: Incorrect password for email {}.", safeEmail);
@@ -86,14 +103,50 @@ public class UserService {
         }
     }
 
+    // The plain password is only available here, so a changed work factor is applied on login
+    private void rehashIfNeeded(User user, String password) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordHasher.hash(password));
+            saveUser(user);
+            // Called from inside this class, so saveUser's @CacheEvict proxy is skipped
+            Cache users = cacheManager.getCache(CACHE);
+            if (users != null) {
+                users.evict(user.getId());
+            }
+            logger.info("Rehashed password for user with ID {} with the current work factor.", user.getId());
+        } catch (ServiceOverloadedException e) {
+            // Login already succeeded; the hash is upgraded on a later login
+            logger.warn("Skipped password rehash for user with ID {}: {}", user.getId(), e.getMessage());
+        }
+    }
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    // Most callers only need the role; entries are evicted on every write below
+    @Cacheable(cacheNames = CACHE, key = "#id", unless = "#result == null")
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
 
+    /**
+     * Loads id, name, role and rating for all given users in a single query.
+     */
+    public Map<Long, UserSummaryDTO> getUserSummaries(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, UserSummaryDTO> summaries = new HashMap<>();
+        for (UserSummaryDTO summary : userRepository.findSummariesByIdIn(ids)) {
+            summaries.put(summary.getId(), summary);
+        }
+        return summaries;
+    }
+
     public List<User> getUsersByName(String name) {
         return userRepository.findByNameContainingIgnoreCase(name);
     }
@@ -126,6 +179,7 @@ public class UserService {
         return userRepository.findByNameContainingIgnoreCaseAndRoleAndIsActive(name, role, isActive);
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#id")
     public boolean deactivateUser(Long id) {
         Optional<User> userOpt = userRepository.findById(id);
         if (userOpt.isEmpty()) {
@@ -139,10 +193,12 @@ public class UserService {
         }
         user.setActive(false);
         userRepository.save(user);
+        sessionPrincipals.updateActive(id, false);
         logger.info("User with ID {} deactivated successfully.", id);
         return true;
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#id")
     public boolean activateUser(Long id) {
         Optional<User> userOpt = userRepository.findById(id);
         if (userOpt.isEmpty()) {
@@ -156,6 +212,7 @@ public class UserService {
         }
         user.setActive(true);
         userRepository.save(user);
+        sessionPrincipals.updateActive(id, true);
         logger.info("User with ID {} activated successfully.", id);
         return true;
     }
@@ -165,6 +222,7 @@ public class UserService {
         return userRepository.searchUsers(keyword, role, startDate, endDate);
     }
 
+    @CacheEvict(cacheNames = CACHE, key = "#user.id", condition = "#user.id != null")
     public User saveUser(User user) {
         return userRepository.save(user);
     }
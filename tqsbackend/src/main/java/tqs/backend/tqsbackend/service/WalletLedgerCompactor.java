@@ -0,0 +1,45 @@
+package tqs.backend.tqsbackend.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
+
+/**
+ * Periodically folds ledger entries into their wallet's snapshot so balance
+ * reads only sum the recent tail. Folding marks the entries it consumes, so
+ * an entry still in flight is left for the next run rather than relying on
+ * ids or timestamps to tell what has been folded.
+ */
+@Component
+public class WalletLedgerCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLedgerCompactor.class);
+
+    private final WalletLedgerEntryRepository ledgerRepository;
+    private final WalletService walletService;
+
+    public WalletLedgerCompactor(WalletLedgerEntryRepository ledgerRepository, WalletService walletService) {
+        this.ledgerRepository = ledgerRepository;
+        this.walletService = walletService;
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.ledger.compaction-interval:PT5M}")
+    public void compact() {
+        List<Long> walletIds = ledgerRepository.findWalletIdsWithUnfoldedEntries();
+        int compacted = 0;
+        for (Long walletId : walletIds) {
+            // One short transaction per wallet keeps the row lock brief
+            if (walletService.compactLedger(walletId)) {
+                compacted++;
+            }
+        }
+        if (compacted > 0) {
+            logger.info("Compacted the ledger of {} wallets", compacted);
+        }
+    }
+}
@@ -2,17 +2,32 @@ package tqs.backend.tqsbackend.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tqs.backend.tqsbackend.dto.WalletBalance;
 import tqs.backend.tqsbackend.entity.*;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
 import tqs.backend.tqsbackend.repository.WalletRepository;
 import tqs.backend.tqsbackend.repository.WalletTransactionRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Escrow for booking payments. Every movement of funds is appended to the
+ * wallet ledger; balances are the wallet's snapshot plus the entries not yet
+ * folded into it.
+ */
 @Service
 public class WalletService {
 
@@ -20,17 +35,26 @@ public class WalletService {
 
     private final WalletRepository walletRepository;
     private final WalletTransactionRepository transactionRepository;
+    private final WalletLedgerEntryRepository ledgerRepository;
     private final BookingRepository bookingRepository;
     private final UserService userService;
+    private final TransactionTemplate transactions;
+    private final int withdrawMaxAttempts;
 
     public WalletService(WalletRepository walletRepository, 
                          WalletTransactionRepository transactionRepository,
+                         WalletLedgerEntryRepository ledgerRepository,
                          BookingRepository bookingRepository,
-                         UserService userService) {
+                         UserService userService,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${wallet.withdraw.max-attempts:10}") int withdrawMaxAttempts) {
         this.walletRepository = walletRepository;
         this.transactionRepository = transactionRepository;
+        this.ledgerRepository = ledgerRepository;
         this.bookingRepository = bookingRepository;
         this.userService = userService;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.withdrawMaxAttempts = withdrawMaxAttempts;
     }
 
     @Transactional
@@ -62,8 +86,19 @@ public class WalletService {
         return walletRepository.findByOwnerId(ownerId);
     }
 
+    public WalletBalance getBalance(Wallet wallet) {
+        return walletRepository.findBalance(wallet.getId()).orElse(WalletBalance.ZERO);
+    }
+
     @Transactional
     public WalletTransaction holdFunds(Long bookingId) {
+        // Retried by the outbox dispatcher, so holding twice returns the first hold
+        Optional<WalletTransaction> existing = transactionRepository.findByBookingId(bookingId);
+        if (existing.isPresent()) {
+            logger.info("Funds for booking {} are already held", bookingId);
+            return existing.get();
+        }
+
         Optional<Booking> bookingOpt = bookingRepository.findById(bookingId);
         if (bookingOpt.isEmpty()) {
             logger.warn("Cannot hold funds: Booking {} not found", bookingId);
@@ -81,11 +116,9 @@ public class WalletService {
                 });
 
         BigDecimal amount = booking.getTotalPrice();
-        wallet.addPendingFunds(amount);
-        walletRepository.save(wallet);
-
         WalletTransaction transaction = new WalletTransaction(wallet, booking, amount);
         transaction = transactionRepository.save(transaction);
+        record(wallet, bookingId, LedgerEntryType.HOLD, amount);
 
         logger.info("Held {} in wallet {} for booking {}", amount, wallet.getId(), bookingId);
         return transaction;
@@ -114,11 +147,11 @@ public class WalletService {
         Wallet wallet = transaction.getWallet();
         BigDecimal amount = transaction.getAmount();
 
-        wallet.releasePendingFunds(amount);
-        walletRepository.save(wallet);
-
-        transaction.release();
-        transactionRepository.save(transaction);
+        if (transactionRepository.markReleased(transaction.getId(), LocalDateTime.now()) == 0) {
+            logger.warn("Cannot release funds: Transaction {} was settled concurrently", transaction.getId());
+            return false;
+        }
+        record(wallet, bookingId, LedgerEntryType.RELEASE, amount);
 
         logger.info("Released {} from pending to available for wallet {}", amount, wallet.getId());
         return true;
@@ -141,11 +174,11 @@ public class WalletService {
         Wallet wallet = transaction.getWallet();
         BigDecimal amount = transaction.getAmount();
 
-        wallet.refundPendingFunds(amount);
-        walletRepository.save(wallet);
-
-        transaction.refund();
-        transactionRepository.save(transaction);
+        if (transactionRepository.markRefunded(transaction.getId()) == 0) {
+            logger.warn("Cannot refund: Transaction {} was settled concurrently", transaction.getId());
+            return false;
+        }
+        record(wallet, bookingId, LedgerEntryType.REFUND, amount);
 
         logger.info("Refunded {} for booking {}", amount, bookingId);
         return true;
@@ -159,59 +192,124 @@ public class WalletService {
         return transactionRepository.findByWalletId(walletOpt.get().getId());
     }
 
-    @Transactional
     public BigDecimal withdraw(Long ownerId, BigDecimal amount) {
-        Optional<Wallet> walletOpt = walletRepository.findByOwnerId(ownerId);
-        if (walletOpt.isEmpty()) {
-            logger.warn("Cannot withdraw: Wallet for owner {} not found", ownerId);
-            throw new IllegalArgumentException("Wallet not found");
-        }
+        return withdrawWithRetry(ownerId, wallet -> {
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                logger.warn("Cannot withdraw: Invalid amount {}", amount);
+                throw new IllegalArgumentException("Amount must be positive");
+            }
+
+            BigDecimal available = getBalance(wallet).available();
+            if (available.compareTo(amount) < 0) {
+                logger.warn("Cannot withdraw: Insufficient balance. Available: {}, Requested: {}", 
+                           available, amount);
+                throw new IllegalArgumentException("Insufficient balance");
+            }
+
+            record(wallet, null, LedgerEntryType.WITHDRAW, amount);
+            BigDecimal newBalance = available.subtract(amount);
+
+            logger.info("Withdrawn {} from wallet {}. New balance: {}", 
+                       amount, wallet.getId(), newBalance);
+            
+            // In a real implementation, this would trigger a Stripe payout
+            // For now, we just reduce the balance (simulating bank transfer)
+            return newBalance;
+        });
+    }
 
-        Wallet wallet = walletOpt.get();
-        
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            logger.warn("Cannot withdraw: Invalid amount {}", amount);
-            throw new IllegalArgumentException("Amount must be positive");
-        }
+    public BigDecimal withdrawAll(Long ownerId) {
+        return withdrawWithRetry(ownerId, wallet -> {
+            BigDecimal amount = getBalance(wallet).available();
+            
+            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+                logger.warn("Cannot withdraw: No available balance");
+                throw new IllegalArgumentException("No available balance to withdraw");
+            }
+
+            record(wallet, null, LedgerEntryType.WITHDRAW, amount);
+
+            logger.info("Withdrawn all {} from wallet {}", amount, wallet.getId());
+            return amount;
+        });
+    }
 
-        if (wallet.getBalance().compareTo(amount) < 0) {
-            logger.warn("Cannot withdraw: Insufficient balance. Available: {}, Requested: {}", 
-                       wallet.getBalance(), amount);
-            throw new IllegalArgumentException("Insufficient balance");
+    /**
+     * Runs a withdrawal in its own transaction after claiming the wallet with
+     * a compare-and-set on its withdrawal version, so two withdrawals can never
+     * both spend the same balance. A claim that misses means another
+     * withdrawal committed first; the attempt is retried from a fresh read
+     * after a short random pause, up to the configured number of attempts.
+     */
+    private BigDecimal withdrawWithRetry(Long ownerId, Function<Wallet, BigDecimal> withdrawal) {
+        for (int attempt = 1; attempt <= withdrawMaxAttempts; attempt++) {
+            BigDecimal result;
+            try {
+                result = transactions.execute(status -> {
+                    Wallet wallet = walletRepository.findByOwnerId(ownerId).orElseThrow(() -> {
+                        logger.warn("Cannot withdraw: Wallet for owner {} not found", ownerId);
+                        return new IllegalArgumentException("Wallet not found");
+                    });
+                    if (walletRepository.claimForWithdrawal(wallet.getId(), wallet.getWithdrawalVersion()) == 0) {
+                        return null;
+                    }
+                    return withdrawal.apply(wallet);
+                });
+            } catch (ConcurrencyFailureException e) {
+                // Lock timeout or deadlock on the wallet row; same as a missed claim
+                result = null;
+            }
+            if (result != null) {
+                return result;
+            }
+            pauseBeforeRetry(attempt);
         }
+        logger.warn("Cannot withdraw: Wallet of owner {} still contended after {} attempts", ownerId,
+                withdrawMaxAttempts);
+        throw new ServiceOverloadedException("Wallet is busy, please try again");
+    }
 
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        walletRepository.save(wallet);
-
-        logger.info("Withdrawn {} from wallet {}. New balance: {}", 
-                   amount, wallet.getId(), wallet.getBalance());
-        
-        // In a real implementation, this would trigger a Stripe payout
-        // For now, we just reduce the balance (simulating bank transfer)
-        return wallet.getBalance();
+    private static void pauseBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 2L + 2L * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while waiting to retry a withdrawal");
+        }
     }
 
+    /**
+     * Folds the wallet's unfolded ledger entries into its snapshot. The entries
+     * are tagged with the new snapshot version by the same statement that
+     * decides what gets folded, and the snapshot grows by exactly the tagged
+     * rows, so an entry whose transaction commits late is simply folded by a
+     * later run. Returns false when there was nothing to fold.
+     */
     @Transactional
-    public BigDecimal withdrawAll(Long ownerId) {
-        Optional<Wallet> walletOpt = walletRepository.findByOwnerId(ownerId);
-        if (walletOpt.isEmpty()) {
-            logger.warn("Cannot withdraw: Wallet for owner {} not found", ownerId);
-            throw new IllegalArgumentException("Wallet not found");
+    public boolean compactLedger(Long walletId) {
+        Optional<Wallet> walletOpt = walletRepository.findById(walletId);
+        Optional<Long> through = ledgerRepository.findLastUnfoldedId(walletId);
+        if (walletOpt.isEmpty() || through.isEmpty()) {
+            return false;
         }
-
-        Wallet wallet = walletOpt.get();
-        BigDecimal amount = wallet.getBalance();
-        
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            logger.warn("Cannot withdraw: No available balance");
-            throw new IllegalArgumentException("No available balance to withdraw");
+        Long version = walletOpt.get().getSnapshotVersion();
+        if (walletRepository.claimSnapshot(walletId, version) == 0) {
+            // Another compaction of this wallet committed since it was read
+            return false;
         }
 
-        wallet.setBalance(BigDecimal.ZERO);
-        walletRepository.save(wallet);
+        Long snapshotId = version + 1;
+        if (ledgerRepository.markFolded(walletId, through.get(), snapshotId) == 0) {
+            return false;
+        }
+        WalletBalance delta = ledgerRepository.sumFolded(walletId, snapshotId);
+        walletRepository.addToSnapshot(walletId, delta.available(), delta.pending(), LocalDateTime.now());
+        logger.debug("Folded ledger of wallet {} into snapshot {}", walletId, snapshotId);
+        return true;
+    }
 
-        logger.info("Withdrawn all {} from wallet {}", amount, wallet.getId());
-        return amount;
+    private void record(Wallet wallet, Long bookingId, LedgerEntryType type, BigDecimal amount) {
+        ledgerRepository.save(new WalletLedgerEntry(wallet.getId(), bookingId, type, amount));
     }
 
     private Wallet createWalletInternal(Long ownerId) {
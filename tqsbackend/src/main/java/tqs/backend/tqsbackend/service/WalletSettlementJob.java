@@ -0,0 +1,168 @@
+package tqs.backend.tqsbackend.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tqs.backend.tqsbackend.entity.LedgerEntryType;
+import tqs.backend.tqsbackend.entity.WalletLedgerEntry;
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
+
+/**
+ * Releases held funds for paid bookings that ended more than the grace
+ * period ago, whether or not both parties confirmed the return. Pending
+ * transactions are scanned in id order, one batch per transaction; each
+ * batch settles its rows with one batched conditional update and writes a
+ * RELEASE ledger entry for each booking it settled.
+ */
+@Component
+public class WalletSettlementJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletSettlementJob.class);
+
+    private static final String CANDIDATES = "SELECT t.id, t.wallet_id, t.booking_id, t.amount "
+            + "FROM wallet_transactions t "
+            + "JOIN bookings b ON b.id = t.booking_id "
+            + "WHERE t.status = 'PENDING' AND t.id > ? AND b.end_date < ? "
+            + "AND b.status = 'ACCEPTED' AND b.payment_status = 'PAID' ORDER BY t.id LIMIT ?";
+
+    // Conditional on PENDING: a release by dual confirmation may win the race
+    private static final String SETTLE = "UPDATE wallet_transactions SET status = 'RELEASED', released_at = ? "
+            + "WHERE id = ? AND status = 'PENDING'";
+
+    private static final String RELEASED_BY_BATCH = "SELECT id FROM wallet_transactions "
+            + "WHERE status = 'RELEASED' AND released_at = ? AND id IN (%s)";
+
+    private record Candidate(long id, long walletId, long bookingId, BigDecimal amount) {
+    }
+
+    private record BatchResult(int scanned, int settled, long lastId) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final WalletLedgerEntryRepository ledgerRepository;
+    private final TransactionTemplate transactions;
+    private final Period gracePeriod;
+    private final int batchSize;
+
+    public WalletSettlementJob(JdbcTemplate jdbc, WalletLedgerEntryRepository ledgerRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${wallet.settlement.grace-period:P3D}") Period gracePeriod,
+            @Value("${wallet.settlement.batch-size:500}") int batchSize) {
+        this.jdbc = jdbc;
+        this.ledgerRepository = ledgerRepository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.settlement.interval:PT15M}")
+    public void run() {
+        settle(LocalDate.now());
+    }
+
+    /**
+     * Settles every eligible transaction as of the given day and returns how
+     * many were released.
+     */
+    int settle(LocalDate today) {
+        Date cutoff = Date.valueOf(today.minus(gracePeriod));
+        long afterId = 0;
+        int settled = 0;
+        int batches = 0;
+        while (true) {
+            long from = afterId;
+            BatchResult result = transactions.execute(status -> settleBatch(from, cutoff));
+            settled += result.settled();
+            batches++;
+            if (result.scanned() < batchSize) {
+                break;
+            }
+            afterId = result.lastId();
+        }
+        if (settled > 0) {
+            logger.info("Settled {} wallet transactions in {} batches", settled, batches);
+        }
+        return settled;
+    }
+
+    private BatchResult settleBatch(long afterId, Date cutoff) {
+        List<Candidate> candidates = jdbc.query(CANDIDATES,
+                (rs, rowNum) -> new Candidate(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4)),
+                afterId, cutoff, batchSize);
+        if (candidates.isEmpty()) {
+            return new BatchResult(0, 0, afterId);
+        }
+
+        // Millisecond precision survives every driver's round trip, so the stamp can be matched on re-read
+        Timestamp releasedAt = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        int[][] counts = jdbc.batchUpdate(SETTLE, candidates, candidates.size(), (ps, candidate) -> {
+            ps.setTimestamp(1, releasedAt);
+            ps.setLong(2, candidate.id());
+        });
+
+        List<Candidate> settled = settledBy(candidates, counts, releasedAt);
+        List<WalletLedgerEntry> entries = new ArrayList<>(settled.size());
+        for (Candidate candidate : settled) {
+            entries.add(new WalletLedgerEntry(candidate.walletId(), candidate.bookingId(), LedgerEntryType.RELEASE,
+                    candidate.amount()));
+        }
+        ledgerRepository.saveAll(entries);
+
+        return new BatchResult(candidates.size(), settled.size(), candidates.get(candidates.size() - 1).id());
+    }
+
+    /**
+     * The candidates this batch actually flipped; rows a dual confirmation
+     * released first are left out. A driver may report SUCCESS_NO_INFO instead
+     * of a row count, in which case the rows carrying this batch's release
+     * stamp are read back.
+     */
+    private List<Candidate> settledBy(List<Candidate> candidates, int[][] counts, Timestamp releasedAt) {
+        int[] perRow = Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+        boolean counted = perRow.length == candidates.size()
+                && Arrays.stream(perRow).noneMatch(count -> count == Statement.SUCCESS_NO_INFO);
+        List<Candidate> settled = new ArrayList<>(candidates.size());
+        if (counted) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (perRow[i] > 0) {
+                    settled.add(candidates.get(i));
+                }
+            }
+            return settled;
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(candidates.size(), "?"));
+        List<Object> args = new ArrayList<>(candidates.size() + 1);
+        args.add(releasedAt);
+        candidates.forEach(candidate -> args.add(candidate.id()));
+        Set<Long> released = new HashSet<>(
+                jdbc.queryForList(RELEASED_BY_BATCH.formatted(placeholders), Long.class, args.toArray()));
+        for (Candidate candidate : candidates) {
+            if (released.contains(candidate.id())) {
+                settled.add(candidate);
+            }
+        }
+        return settled;
+    }
+}
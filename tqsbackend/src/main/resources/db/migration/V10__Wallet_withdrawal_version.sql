@@ -0,0 +1,6 @@
+-- Flyway V10: Wallet withdrawal version
+-- Withdrawals claim the wallet with a compare-and-set on this counter instead
+-- of a row lock held while the balance is read; a withdrawal whose claim
+-- misses retries.
+
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS withdrawal_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Flyway V11: Pending wallet transactions index
+-- The settlement job walks pending transactions in id order; a partial index
+-- keeps each batch a short range scan however many have already settled.
+
+CREATE INDEX IF NOT EXISTS idx_wallet_transactions_pending
+    ON wallet_transactions(id) WHERE status = 'PENDING';
@@ -0,0 +1,20 @@
+-- Flyway V12: Outbox events
+-- Side effects of a payment confirmation (holding the funds in the owner's
+-- wallet) are recorded here in the confirming transaction and applied by a
+-- background dispatcher, so none is lost when the request thread fails.
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    type VARCHAR(30) NOT NULL,
+    booking_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP,
+    CONSTRAINT uk_outbox_events_type_booking UNIQUE (type, booking_id)
+);
+
+-- The dispatcher polls pending events whose next attempt is due
+CREATE INDEX IF NOT EXISTS idx_outbox_events_due ON outbox_events(status, next_attempt_at);
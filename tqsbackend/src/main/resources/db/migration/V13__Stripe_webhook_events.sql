@@ -0,0 +1,23 @@
+-- Flyway V13: Stripe webhook events
+-- Every verified webhook delivery is stored before it is acknowledged and
+-- applied by a worker afterwards; the Stripe event id deduplicates retries.
+-- An event that fails to apply counts its attempts and carries the time of
+-- the next one; the recovery pass retries it with backoff up to a limit.
+
+CREATE TABLE IF NOT EXISTS stripe_webhook_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_id VARCHAR(255) NOT NULL,
+    type VARCHAR(100) NOT NULL,
+    booking_id BIGINT,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RECEIVED',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500),
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP,
+    CONSTRAINT uk_stripe_webhook_events_event_id UNIQUE (event_id)
+);
+
+-- The recovery poll looks for events whose next attempt is due
+CREATE INDEX IF NOT EXISTS idx_stripe_webhook_events_status ON stripe_webhook_events(status, next_attempt_at);
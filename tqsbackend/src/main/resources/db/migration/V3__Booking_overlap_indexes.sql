@@ -0,0 +1,14 @@
+-- Flyway V3: Booking overlap indexes
+-- Serves the availability check run on every booking request from the index alone
+
+-- Covering index for the overlap predicate (item, status, date range)
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_dates ON bookings(item_id, status, start_date, end_date);
+
+-- Only REQUESTED and ACCEPTED bookings block a date range, so keep a small
+-- index over the active rows; it stays compact as cancelled and rejected
+-- bookings accumulate
+CREATE INDEX IF NOT EXISTS idx_bookings_active_item_dates ON bookings(item_id, start_date, end_date)
+    WHERE status IN ('REQUESTED', 'ACCEPTED');
+
+-- item_id is the leading column of the composite index, the single column one is redundant
+DROP INDEX IF EXISTS idx_bookings_item;
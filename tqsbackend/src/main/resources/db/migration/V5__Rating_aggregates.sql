@@ -0,0 +1,18 @@
+-- Flyway V5: Rating aggregates
+-- Running totals per rated item, owner or renter so averages update in constant time
+
+CREATE TABLE IF NOT EXISTS rating_aggregates (
+    id BIGSERIAL PRIMARY KEY,
+    rating_type VARCHAR(50) NOT NULL,
+    rated_id BIGINT NOT NULL,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_rating_aggregates_target UNIQUE (rating_type, rated_id)
+);
+
+-- Backfill from the ratings recorded so far
+INSERT INTO rating_aggregates (rating_type, rated_id, rating_sum, rating_count)
+SELECT rating_type, rated_id, SUM(rate), COUNT(*)
+FROM ratings
+GROUP BY rating_type, rated_id
+ON CONFLICT (rating_type, rated_id) DO NOTHING;
@@ -0,0 +1,50 @@
+-- Flyway V6: Conversations
+-- One summary row per pair of users, updated on every message so the inbox
+-- is an indexed read instead of a scan over all of a user's messages.
+-- Existing messages are folded in below, in one set-based pass.
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id BIGSERIAL PRIMARY KEY,
+    user_a_id BIGINT NOT NULL,
+    user_b_id BIGINT NOT NULL,
+    user_a_name VARCHAR(255),
+    user_b_name VARCHAR(255),
+    last_message_id BIGINT,
+    last_sender_id BIGINT,
+    last_content VARCHAR(2000),
+    last_item_id BIGINT,
+    last_sent_at TIMESTAMP NOT NULL,
+    unread_a INTEGER NOT NULL DEFAULT 0,
+    unread_b INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT uk_conversations_users UNIQUE (user_a_id, user_b_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_conversations_user_a_last ON conversations(user_a_id, last_sent_at);
+CREATE INDEX IF NOT EXISTS idx_conversations_user_b_last ON conversations(user_b_id, last_sent_at);
+
+-- One summary per pair that has exchanged messages, with the newest message
+-- and each side's unread count
+INSERT INTO conversations (user_a_id, user_b_id, user_a_name, user_b_name, last_message_id, last_sender_id,
+                           last_content, last_item_id, last_sent_at, unread_a, unread_b)
+SELECT pairs.user_a_id, pairs.user_b_id, user_a.name, user_b.name, latest.id, latest.sender_id,
+       latest.content, latest.item_id, latest.sent_at, pairs.unread_a, pairs.unread_b
+FROM (
+    SELECT LEAST(sender_id, receiver_id) AS user_a_id,
+           GREATEST(sender_id, receiver_id) AS user_b_id,
+           COUNT(*) FILTER (WHERE NOT is_read AND receiver_id = LEAST(sender_id, receiver_id)) AS unread_a,
+           COUNT(*) FILTER (WHERE NOT is_read AND receiver_id = GREATEST(sender_id, receiver_id)) AS unread_b
+    FROM messages
+    GROUP BY LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id)
+) pairs
+JOIN (
+    -- Newest message of each pair
+    SELECT DISTINCT ON (LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id))
+           LEAST(sender_id, receiver_id) AS user_a_id,
+           GREATEST(sender_id, receiver_id) AS user_b_id,
+           id, sender_id, content, item_id, sent_at
+    FROM messages
+    ORDER BY LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id), sent_at DESC, id DESC
+) latest ON latest.user_a_id = pairs.user_a_id AND latest.user_b_id = pairs.user_b_id
+LEFT JOIN users user_a ON user_a.id = pairs.user_a_id
+LEFT JOIN users user_b ON user_b.id = pairs.user_b_id
+ON CONFLICT (user_a_id, user_b_id) DO NOTHING;
@@ -0,0 +1,7 @@
+-- Flyway V7: Conversation history index
+-- Matches the LEAST/GREATEST pair predicates used by the paged history
+-- queries, so opening a thread reads only the latest rows of that pair.
+-- id is the tiebreaker of the (sent_at, id) cursor.
+
+CREATE INDEX IF NOT EXISTS idx_messages_pair_sent
+    ON messages (LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id), sent_at, id);
@@ -0,0 +1,22 @@
+-- Flyway V8: Unread counters
+-- Total unread messages per user, updated on send and mark-as-read so the
+-- nav badge is a single row read. Users missing a row are seeded lazily
+-- from their conversations.
+
+CREATE TABLE IF NOT EXISTS unread_counters (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    unread_count INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT uk_unread_counters_user UNIQUE (user_id)
+);
+
+-- Backfill from the conversation summaries, including those V6 built from older messages
+INSERT INTO unread_counters (user_id, unread_count)
+SELECT user_id, SUM(unread)
+FROM (
+    SELECT user_a_id AS user_id, unread_a AS unread FROM conversations
+    UNION ALL
+    SELECT user_b_id AS user_id, unread_b AS unread FROM conversations
+) per_side
+GROUP BY user_id
+ON CONFLICT (user_id) DO NOTHING;
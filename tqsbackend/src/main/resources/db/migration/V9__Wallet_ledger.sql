@@ -0,0 +1,28 @@
+-- Flyway V9: Wallet ledger
+-- Funds movements are appended to wallet_ledger_entries instead of updating
+-- the wallet row. Wallet balances become a snapshot of the ledger plus the
+-- entries not folded into it yet; existing balances are the opening snapshot.
+-- Compaction tags the entries it folds with the snapshot version, since ids
+-- are assigned at insert and an entry committing late can sit below one
+-- already folded.
+
+CREATE TABLE IF NOT EXISTS wallet_ledger_entries (
+    id BIGSERIAL PRIMARY KEY,
+    wallet_id BIGINT NOT NULL,
+    booking_id BIGINT,
+    type VARCHAR(20) NOT NULL,
+    amount DECIMAL(14,2) NOT NULL,
+    available_delta DECIMAL(14,2) NOT NULL,
+    pending_delta DECIMAL(14,2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    snapshot_id BIGINT,
+    CONSTRAINT fk_wallet_ledger_entries_wallet FOREIGN KEY (wallet_id) REFERENCES wallets(id)
+);
+
+-- A wallet's history in order
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_wallet_id ON wallet_ledger_entries(wallet_id, id);
+
+-- Balance reads and compaction only touch the unfolded tail of a wallet
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_snapshot ON wallet_ledger_entries(wallet_id, snapshot_id);
+
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS snapshot_version BIGINT NOT NULL DEFAULT 0;
@@ -3,6 +3,7 @@ package tqs.backend.tqsbackend.controller;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -25,6 +26,7 @@ import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 import tqs.backend.tqsbackend.service.BookingService;
+import tqs.backend.tqsbackend.service.SessionPrincipal;
 import tqs.backend.tqsbackend.service.UserService;
 
 @WebMvcTest(BookingController.class)
@@ -68,6 +70,28 @@ public class BookingControllerTest {
                 .andExpect(redirectedUrl("/items/search"));
     }
 
+    @Test
+    void getBookingRequests_SessionPrincipal_SkipsUserLookup() throws Exception {
+        given(bookingService.getPendingBookingsByOwner(1L)).willReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/bookings/requests")
+                .sessionAttr("userId", 1L)
+                .sessionAttr(SessionPrincipal.ATTRIBUTE, new SessionPrincipal(1L, UserRoles.OWNER, true, 0)))
+                .andExpect(status().isOk())
+                .andExpect(view().name("bookings/requests"));
+
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    void getBookingRequests_DeactivatedOwner_Redirects() throws Exception {
+        mockMvc.perform(get("/bookings/requests")
+                .sessionAttr("userId", 1L)
+                .sessionAttr(SessionPrincipal.ATTRIBUTE, new SessionPrincipal(1L, UserRoles.OWNER, false, 1)))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/items/search"));
+    }
+
     @Test
     void createBooking_WithOffer_Success() throws Exception {
         BookingCreateRequest request = new BookingCreateRequest();
@@ -22,7 +22,7 @@ import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.entity.PaymentStatus;
 import tqs.backend.tqsbackend.repository.BookingRepository;
 import tqs.backend.tqsbackend.repository.ItemRepository;
-import tqs.backend.tqsbackend.service.PaymentService;
+import tqs.backend.tqsbackend.service.MockPaymentService;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -39,7 +39,7 @@ class BookingRestControllerIntegrationTest {
   private BookingRepository bookingRepository;
 
   @MockitoBean
-  private PaymentService paymentService;
+  private MockPaymentService paymentService;
 
   @Test
   void shouldCreateBookingViaApi() throws Exception {
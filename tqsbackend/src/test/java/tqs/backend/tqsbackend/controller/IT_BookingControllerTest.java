@@ -25,7 +25,7 @@ import tqs.backend.tqsbackend.repository.BookingRepository;
 import tqs.backend.tqsbackend.repository.CategoryRepository;
 import tqs.backend.tqsbackend.repository.ItemRepository;
 import tqs.backend.tqsbackend.repository.UserRepository;
-import tqs.backend.tqsbackend.service.PaymentService;
+import tqs.backend.tqsbackend.service.MockPaymentService;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -48,7 +48,7 @@ class IT_BookingControllerTest {
     private BookingRepository bookingRepository;
 
     @MockitoBean
-    private PaymentService paymentService;
+    private MockPaymentService paymentService;
 
     @Test
     void createBooking_WithOffer_CreatesBookingWithRequestedStatus() throws Exception {
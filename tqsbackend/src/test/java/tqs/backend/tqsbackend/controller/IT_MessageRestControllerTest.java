@@ -123,7 +123,7 @@ class IT_MessageRestControllerTest {
         ConversationSummaryDTO conv2 = new ConversationSummaryDTO(
                 3L, "Jane Smith", "Thanks", LocalDateTime.now().minusHours(1), false, null);
 
-        when(messageService.getConversationsList(userId)).thenReturn(Arrays.asList(conv1, conv2));
+        when(messageService.getConversationsList(userId, 0, 50)).thenReturn(Arrays.asList(conv1, conv2));
 
         mockMvc.perform(get("/api/messages/conversations")
                 .param("userId", userId.toString()))
@@ -138,6 +138,6 @@ class IT_MessageRestControllerTest {
                 .andExpect(jsonPath("$[1].otherUserName").value("Jane Smith"))
                 .andExpect(jsonPath("$[1].lastMessageFromMe").value(false));
 
-        verify(messageService).getConversationsList(userId);
+        verify(messageService).getConversationsList(userId, 0, 50);
     }
 }
@@ -4,6 +4,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -18,9 +19,14 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
+import tqs.backend.tqsbackend.dto.UserSummaryDTO;
+import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.service.CategoryService;
 import tqs.backend.tqsbackend.service.ItemService;
+import tqs.backend.tqsbackend.service.MessageService;
 
 @WebMvcTest(ItemController.class)
 
@@ -38,6 +44,9 @@ public class ItemControllerTest {
         @MockitoBean
         private tqs.backend.tqsbackend.service.UserService userService;
 
+        @MockitoBean
+        private MessageService messageService;
+
         @Test
         public void testGetItemDetails() throws Exception {
                 Item item = new Item();
@@ -175,9 +184,8 @@ public class ItemControllerTest {
         @Test
         void searchItems_ReturnsViewAndModel() throws Exception {
                 given(categoryService.getAllCategories()).willReturn(Collections.emptyList());
-                given(itemService.searchItems(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
-                                Mockito.any()))
-                                .willReturn(Collections.emptyList());
+                given(itemService.searchItemsPage(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                                .willReturn(new ItemSearchPage(Collections.emptyList(), null));
 
                 mockMvc.perform(get("/items/search"))
                                 .andExpect(status().isOk())
@@ -188,13 +196,11 @@ public class ItemControllerTest {
         @Test
         void searchItems_LoggedIn_ReturnsViewAndModelWithUserRole() throws Exception {
                 given(categoryService.getAllCategories()).willReturn(Collections.emptyList());
-                given(itemService.searchItems(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
-                                Mockito.any()))
-                                .willReturn(Collections.emptyList());
+                given(itemService.searchItemsPage(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                                .willReturn(new ItemSearchPage(Collections.emptyList(), null));
 
-                tqs.backend.tqsbackend.entity.User user = new tqs.backend.tqsbackend.entity.User();
-                user.setRole(tqs.backend.tqsbackend.entity.UserRoles.RENTER);
-                given(userService.getUserById(1L)).willReturn(java.util.Optional.of(user));
+                given(userService.getUserSummaries(java.util.Set.of(1L))).willReturn(java.util.Map.of(1L,
+                                new UserSummaryDTO(1L, "Renter", tqs.backend.tqsbackend.entity.UserRoles.RENTER, null)));
 
                 mockMvc.perform(get("/items/search")
                                 .sessionAttr("userId", 1L))
@@ -204,6 +210,75 @@ public class ItemControllerTest {
                                 .andExpect(model().attribute("userRole", "RENTER"));
         }
 
+        @Test
+        void searchItems_LoadsOwnersInOneBatch() throws Exception {
+                Item first = new Item();
+                first.setId(1L);
+                first.setName("Lamp");
+                first.setOwnerId(5L);
+                Item second = new Item();
+                second.setId(2L);
+                second.setName("Table");
+                second.setOwnerId(6L);
+                given(categoryService.getAllCategories()).willReturn(Collections.emptyList());
+                given(itemService.searchItemsPage(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                                .willReturn(new ItemSearchPage(java.util.List.of(first, second), null));
+                given(userService.getUserSummaries(java.util.Set.of(5L, 6L))).willReturn(java.util.Map.of(
+                                5L, new UserSummaryDTO(5L, "Maria", tqs.backend.tqsbackend.entity.UserRoles.OWNER, 4.0),
+                                6L, new UserSummaryDTO(6L, "Joao", tqs.backend.tqsbackend.entity.UserRoles.OWNER, null)));
+
+                mockMvc.perform(get("/items/search"))
+                                .andExpect(status().isOk())
+                                .andExpect(model().attribute("ownerMap",
+                                                org.hamcrest.Matchers.aMapWithSize(2)));
+
+                verify(userService).getUserSummaries(java.util.Set.of(5L, 6L));
+                verify(userService, Mockito.never()).getUserById(Mockito.any());
+        }
+
+        @Test
+        void searchItems_WithMoreResults_ExposesNextCursor() throws Exception {
+                given(categoryService.getAllCategories()).willReturn(Collections.emptyList());
+                given(itemService.searchItemsPage(Mockito.any(), Mockito.any(), Mockito.eq("abc"), Mockito.anyInt()))
+                                .willReturn(new ItemSearchPage(Collections.emptyList(), "def"));
+
+                mockMvc.perform(get("/items/search").param("after", "abc"))
+                                .andExpect(status().isOk())
+                                .andExpect(model().attribute("nextCursor", "def"))
+                                .andExpect(model().attribute("isFirstPage", false));
+        }
+
+        @Test
+        void searchItems_RendersFacetCounts() throws Exception {
+                Category category = new Category("Lighting");
+                given(categoryService.getAllCategories()).willReturn(java.util.List.of(category));
+                given(itemService.searchItemsPage(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                                .willReturn(new ItemSearchPage(Collections.emptyList(), null));
+                given(itemService.getFacets(Mockito.any())).willReturn(new ItemFacets(
+                                java.util.Map.of("Lighting", 3L), java.util.Map.of("Lisbon", 2L),
+                                java.util.List.of(new ItemFacets.PriceRange(0.0, 25.0, 3L)), java.util.Map.of(4, 1L)));
+
+                mockMvc.perform(get("/items/search"))
+                                .andExpect(status().isOk())
+                                .andExpect(model().attributeExists("facets"))
+                                .andExpect(content().string(org.hamcrest.Matchers.containsString("Lighting (3)")))
+                                .andExpect(content().string(org.hamcrest.Matchers.containsString("Lisbon (2)")))
+                                // The maxPrice filter is inclusive, so the link stops a cent below the next range
+                                .andExpect(content().string(org.hamcrest.Matchers.containsString("maxPrice=24.99")))
+                                .andExpect(content().string(org.hamcrest.Matchers.containsString("24.99 (3)")));
+        }
+
+        @Test
+        void searchItems_LoggedIn_RendersUnreadBadge() throws Exception {
+                given(itemService.searchItemsPage(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                                .willReturn(new ItemSearchPage(Collections.emptyList(), null));
+                given(messageService.getUnreadCount(1L)).willReturn(4);
+
+                mockMvc.perform(get("/items/search").sessionAttr("userId", 1L))
+                                .andExpect(status().isOk())
+                                .andExpect(model().attribute("unreadMessages", 4));
+        }
+
         @Test
         void showNewItemForm_LoggedInButNotOwner_RedirectsToSearch() throws Exception {
                 tqs.backend.tqsbackend.entity.User renter = new tqs.backend.tqsbackend.entity.User();
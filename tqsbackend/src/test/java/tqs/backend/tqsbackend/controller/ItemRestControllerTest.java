@@ -5,17 +5,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.service.CategoryService;
+import tqs.backend.tqsbackend.service.ItemSearchCursor;
 import tqs.backend.tqsbackend.service.ItemService;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyDouble;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,7 +41,7 @@ class ItemRestControllerTest {
     @Test
     void searchItems_WithNoParams_ReturnsAllItems() throws Exception {
         Item item = createTestItem();
-        when(itemService.searchItems(any(), any(), any(), any(), any(), any()))
+        when(itemService.searchItems(any(ItemSearchCriteria.class)))
                 .thenReturn(List.of(item));
 
         mockMvc.perform(get("/api/items/search"))
@@ -46,7 +52,7 @@ class ItemRestControllerTest {
     @Test
     void searchItems_WithQuery_ReturnsFilteredItems() throws Exception {
         Item item = createTestItem();
-        when(itemService.searchItems(anyString(), any(), any(), any(), any(), any()))
+        when(itemService.searchItems(argThat((ItemSearchCriteria c) -> "Test".equals(c.getKeyword()))))
                 .thenReturn(List.of(item));
 
         mockMvc.perform(get("/api/items/search")
@@ -65,7 +71,7 @@ class ItemRestControllerTest {
         item.setCategory(category);
 
         when(categoryService.getCategoryByName("Electronics")).thenReturn(category);
-        when(itemService.searchItems(any(), any(), any(), any(), any(), any()))
+        when(itemService.searchItems(any(ItemSearchCriteria.class)))
                 .thenReturn(List.of(item));
 
         mockMvc.perform(get("/api/items/search")
@@ -77,7 +83,7 @@ class ItemRestControllerTest {
     @Test
     void searchItems_WithPriceRange_ReturnsFilteredItems() throws Exception {
         Item item = createTestItem();
-        when(itemService.searchItems(any(), any(), anyDouble(), anyDouble(), any(), any()))
+        when(itemService.searchItems(argThat((ItemSearchCriteria c) -> c.getMinPrice() != null && c.getMaxPrice() != null)))
                 .thenReturn(List.of(item));
 
         mockMvc.perform(get("/api/items/search")
@@ -90,7 +96,7 @@ class ItemRestControllerTest {
     @Test
     void searchItems_WithLocation_ReturnsFilteredItems() throws Exception {
         Item item = createTestItem();
-        when(itemService.searchItems(any(), any(), any(), any(), any(), anyString()))
+        when(itemService.searchItems(argThat((ItemSearchCriteria c) -> "Porto".equals(c.getLocation()))))
                 .thenReturn(List.of(item));
 
         mockMvc.perform(get("/api/items/search")
@@ -109,7 +115,7 @@ class ItemRestControllerTest {
         item.setCategory(category);
 
         when(categoryService.getCategoryByName("Electronics")).thenReturn(category);
-        when(itemService.searchItems(anyString(), any(), anyDouble(), anyDouble(), anyDouble(), anyString()))
+        when(itemService.searchItems(argThat((ItemSearchCriteria c) -> c.getCategory() != null && c.getMinRating() != null)))
                 .thenReturn(List.of(item));
 
         mockMvc.perform(get("/api/items/search")
@@ -122,6 +128,73 @@ class ItemRestControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void searchItems_WithLimit_ReturnsCursorPage() throws Exception {
+        Item item = createTestItem();
+        when(itemService.searchItemsPage(any(), eq(ItemSearchCursor.Sort.PRICE), eq("abc"), eq(10)))
+                .thenReturn(new ItemSearchPage(List.of(item), "def"));
+
+        mockMvc.perform(get("/api/items/search")
+                        .param("limit", "10")
+                        .param("after", "abc")
+                        .param("sort", "price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Test Item"))
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    @Test
+    void searchItems_WithFacets_ReturnsCountsAlongsidePage() throws Exception {
+        Item item = createTestItem();
+        when(itemService.searchItemsPage(any(), eq(ItemSearchCursor.Sort.ID), eq(null), eq(10)))
+                .thenReturn(new ItemSearchPage(List.of(item), null));
+        when(itemService.getFacets(any(ItemSearchCriteria.class))).thenReturn(new ItemFacets(
+                Map.of("Electronics", 3L), Map.of("Porto", 2L),
+                List.of(new ItemFacets.PriceRange(0.0, 25.0, 1L)), Map.of(4, 1L)));
+
+        mockMvc.perform(get("/api/items/search")
+                        .param("limit", "10")
+                        .param("facets", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Test Item"))
+                .andExpect(jsonPath("$.facets.categories.Electronics").value(3))
+                .andExpect(jsonPath("$.facets.locations.Porto").value(2))
+                .andExpect(jsonPath("$.facets.priceRanges[0].count").value(1));
+    }
+
+    @Test
+    void searchItems_WithUnknownSort_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/items/search")
+                        .param("limit", "10")
+                        .param("sort", "popularity"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchItems_WithDateRange_PassesAvailabilityWindow() throws Exception {
+        Item item = createTestItem();
+        when(itemService.searchItems(argThat((ItemSearchCriteria c) ->
+                LocalDate.of(2030, 1, 10).equals(c.getStartDate()) && LocalDate.of(2030, 1, 12).equals(c.getEndDate()))))
+                .thenReturn(List.of(item));
+
+        mockMvc.perform(get("/api/items/search")
+                        .param("startDate", "2030-01-10")
+                        .param("endDate", "2030-01-12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Item"));
+    }
+
+    @Test
+    void searchItems_WithInvalidDateRange_ReturnsBadRequest() throws Exception {
+        when(itemService.searchItems(any(ItemSearchCriteria.class)))
+                .thenThrow(new IllegalArgumentException("End date must be after start date"));
+
+        mockMvc.perform(get("/api/items/search")
+                        .param("startDate", "2030-01-12")
+                        .param("endDate", "2030-01-10"))
+                .andExpect(status().isBadRequest());
+    }
+
     private Item createTestItem() {
         Item item = new Item();
         item.setId(1L);
@@ -2,6 +2,7 @@ package tqs.backend.tqsbackend.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -12,6 +13,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import tqs.backend.tqsbackend.dto.MessageCreateRequest;
+import tqs.backend.tqsbackend.dto.MessageHistoryPage;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.entity.Message;
@@ -64,7 +67,7 @@ class MessageControllerTest {
         Item item = createTestItem();
 
         when(itemService.getItemById(1L)).thenReturn(item);
-        when(messageService.getConversation(1L, 2L)).thenReturn(Collections.emptyList());
+        when(messageService.getConversationPage(1L, 2L, null, 50)).thenReturn(new MessageHistoryPage<>(Collections.emptyList(), null));
 
         mockMvc.perform(get("/messages/new")
                 .sessionAttr("userId", 1L)
@@ -77,7 +80,7 @@ class MessageControllerTest {
 
     @Test
     void showMessageForm_WithoutItem_ReturnsForm() throws Exception {
-        when(messageService.getConversation(1L, 2L)).thenReturn(Collections.emptyList());
+        when(messageService.getConversationPage(1L, 2L, null, 50)).thenReturn(new MessageHistoryPage<>(Collections.emptyList(), null));
 
         mockMvc.perform(get("/messages/new")
                 .sessionAttr("userId", 1L)
@@ -87,6 +90,34 @@ class MessageControllerTest {
                 .andExpect(model().attributeExists("messages"));
     }
 
+    @Test
+    void showMessageForm_WithCursor_LoadsOlderPage() throws Exception {
+        when(messageService.getConversationPage(1L, 2L, "cursor", 50))
+                .thenReturn(new MessageHistoryPage<>(Collections.emptyList(), "older"));
+
+        mockMvc.perform(get("/messages/new")
+                .sessionAttr("userId", 1L)
+                .param("receiverId", "2")
+                .param("before", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("olderCursor", "older"));
+    }
+
+    @Test
+    void showMessageForm_LatestPage_MarksShownMessagesRead() throws Exception {
+        Message message = new Message(2L, 1L, "Hi");
+        message.setId(9L);
+        when(messageService.getConversationPage(1L, 2L, null, 50))
+                .thenReturn(new MessageHistoryPage<>(List.of(message), null));
+
+        mockMvc.perform(get("/messages/new")
+                .sessionAttr("userId", 1L)
+                .param("receiverId", "2"))
+                .andExpect(status().isOk());
+
+        verify(messageService).markConversationRead(1L, 2L, 9L);
+    }
+
     @Test
     void sendMessage_NotLoggedIn_RedirectsToLogin() throws Exception {
         mockMvc.perform(post("/messages")
@@ -8,6 +8,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import tqs.backend.tqsbackend.dto.ConversationSummaryDTO;
 import tqs.backend.tqsbackend.dto.MessageCreateRequest;
+import tqs.backend.tqsbackend.dto.MessageHistoryPage;
 import tqs.backend.tqsbackend.entity.Message;
 import tqs.backend.tqsbackend.service.MessageService;
 
@@ -76,12 +77,47 @@ class MessageRestControllerTest {
                 .andExpect(jsonPath("$[0].id").value(1));
     }
 
+    @Test
+    void getConversationPage_ReturnsMessagesAndCursor() throws Exception {
+        Message message = createTestMessage();
+        when(messageService.getConversationPage(1L, 2L, null, 20))
+                .thenReturn(new MessageHistoryPage<>(List.of(message), "older"));
+
+        mockMvc.perform(get("/api/messages/conversation/2")
+                        .param("userId", "1")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].id").value(1))
+                .andExpect(jsonPath("$.olderCursor").value("older"));
+    }
+
+    @Test
+    void markConversationRead_ReturnsMarkedCount() throws Exception {
+        when(messageService.markConversationRead(1L, 2L, 10L)).thenReturn(3);
+
+        mockMvc.perform(post("/api/messages/conversation/2/read")
+                        .param("userId", "1")
+                        .param("upToMessageId", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.marked").value(3));
+    }
+
+    @Test
+    void getUnreadCount_ReturnsTotal() throws Exception {
+        when(messageService.getUnreadCount(1L)).thenReturn(5);
+
+        mockMvc.perform(get("/api/messages/unread-count")
+                        .param("userId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unreadCount").value(5));
+    }
+
     @Test
     void getConversationsList_ReturnsConversations() throws Exception {
         ConversationSummaryDTO summary = new ConversationSummaryDTO(
                 2L, "Other User", "Last message", LocalDateTime.now(), false, 1L
         );
-        when(messageService.getConversationsList(1L)).thenReturn(List.of(summary));
+        when(messageService.getConversationsList(1L, 0, 50)).thenReturn(List.of(summary));
 
         mockMvc.perform(get("/api/messages/conversations")
                         .param("userId", "1"))
@@ -91,7 +127,7 @@ class MessageRestControllerTest {
 
     @Test
     void getConversationsList_Empty_ReturnsEmpty() throws Exception {
-        when(messageService.getConversationsList(1L)).thenReturn(List.of());
+        when(messageService.getConversationsList(1L, 0, 50)).thenReturn(List.of());
 
         mockMvc.perform(get("/api/messages/conversations")
                         .param("userId", "1"))
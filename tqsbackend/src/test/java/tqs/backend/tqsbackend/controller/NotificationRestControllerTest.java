@@ -0,0 +1,42 @@
+package tqs.backend.tqsbackend.controller;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import tqs.backend.tqsbackend.service.NotificationBroadcaster;
+
+@WebMvcTest(NotificationRestController.class)
+class NotificationRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private NotificationBroadcaster notificationBroadcaster;
+
+    @Test
+    void stream_NotLoggedIn_ReturnsUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/notifications/stream"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void stream_LoggedIn_OpensEventStream() throws Exception {
+        when(notificationBroadcaster.subscribe(1L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/notifications/stream").sessionAttr("userId", 1L))
+                .andExpect(request().asyncStarted());
+
+        verify(notificationBroadcaster).subscribe(1L);
+    }
+}
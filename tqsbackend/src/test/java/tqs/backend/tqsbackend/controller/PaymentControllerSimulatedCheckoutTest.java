@@ -0,0 +1,99 @@
+package tqs.backend.tqsbackend.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.stripe.exception.CardException;
+
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
+import tqs.backend.tqsbackend.service.BookingService;
+import tqs.backend.tqsbackend.service.MockPaymentService;
+import tqs.backend.tqsbackend.service.PaymentResult;
+import tqs.backend.tqsbackend.service.StripeGateway;
+import tqs.backend.tqsbackend.service.StripeWebhookService;
+
+/**
+ * Checkout under the payment-sim profile, where the simulator is charged
+ * through the Stripe gateway instead of opening a Checkout session.
+ */
+@WebMvcTest(controllers = PaymentController.class, properties = "payment.simulated-checkout=true")
+class PaymentControllerSimulatedCheckoutTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BookingService bookingService;
+
+    @MockitoBean
+    private StripeWebhookService webhookService;
+
+    @MockitoBean
+    private StripeGateway stripe;
+
+    @MockitoBean
+    private MockPaymentService paymentSimulator;
+
+    private final Item item = new Item();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        item.setId(3L);
+        item.setName("Speaker");
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setItem(item);
+        booking.setRenterId(7L);
+        booking.setTotalPrice(new BigDecimal("20.00"));
+        when(bookingService.getBooking(1L)).thenReturn(booking);
+        // The gateway runs the call as given
+        when(stripe.call(eq("payment.charge"), any()))
+                .thenAnswer(inv -> inv.<StripeGateway.StripeCall<?>>getArgument(1).run(null));
+    }
+
+    @Test
+    void createCheckoutSession_ChargeSucceeds_RedirectsToSuccessPage() throws Exception {
+        when(paymentSimulator.simulateCharge(7L, item, new BigDecimal("20.00"), 1L))
+                .thenReturn(PaymentResult.success("PAY-1"));
+
+        mockMvc.perform(post("/payment/create-checkout-session/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost:80/payment/success/1"));
+    }
+
+    @Test
+    void createCheckoutSession_ChargeDeclined_ReturnsBadRequest() throws Exception {
+        when(paymentSimulator.simulateCharge(7L, item, new BigDecimal("20.00"), 1L))
+                .thenThrow(new CardException(MockPaymentService.DECLINED, null, null, null, "generic_decline", null,
+                        402, null));
+
+        mockMvc.perform(post("/payment/create-checkout-session/1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(MockPaymentService.DECLINED));
+    }
+
+    @Test
+    void createCheckoutSession_GatewayTimesOut_ReturnsServiceUnavailable() throws Exception {
+        doThrow(new ServiceOverloadedException("Payment provider timed out, please try again"))
+                .when(stripe).call(eq("payment.charge"), any());
+
+        mockMvc.perform(post("/payment/create-checkout-session/1"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
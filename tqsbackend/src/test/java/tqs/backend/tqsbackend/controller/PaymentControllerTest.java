@@ -1,9 +1,12 @@
 package tqs.backend.tqsbackend.controller;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -18,13 +21,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.stripe.model.checkout.Session;
+
 import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.BookingStatus;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 import tqs.backend.tqsbackend.service.BookingService;
-import tqs.backend.tqsbackend.service.WalletService;
+import tqs.backend.tqsbackend.service.MockPaymentService;
+import tqs.backend.tqsbackend.service.StripeGateway;
+import tqs.backend.tqsbackend.service.StripeWebhookService;
 
 @WebMvcTest(PaymentController.class)
 class PaymentControllerTest {
@@ -36,7 +44,13 @@ class PaymentControllerTest {
     private BookingService bookingService;
 
     @MockitoBean
-    private WalletService walletService;
+    private StripeWebhookService webhookService;
+
+    @MockitoBean
+    private StripeGateway stripe;
+
+    @MockitoBean
+    private MockPaymentService paymentSimulator;
 
     private Booking createTestBooking() {
         Category category = new Category();
@@ -95,9 +109,8 @@ class PaymentControllerTest {
                 .andExpect(view().name("payment/success"))
                 .andExpect(model().attributeExists("booking"));
         
-        // Verify confirmPayment and holdFunds were called
+        // Funds are held by the outbox dispatcher, not on the redirect
         org.mockito.Mockito.verify(bookingService).confirmPayment(1L);
-        org.mockito.Mockito.verify(walletService).holdFunds(1L);
     }
 
     @Test
@@ -128,4 +141,53 @@ class PaymentControllerTest {
         mockMvc.perform(post("/payment/create-checkout-session/1"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void createCheckoutSession_ReturnsSessionUrl() throws Exception {
+        Booking booking = createTestBooking();
+        when(bookingService.getBooking(1L)).thenReturn(booking);
+        when(stripe.isConfigured()).thenReturn(true);
+        Session session = new Session();
+        session.setUrl("https://checkout.stripe.test/cs_1");
+        when(stripe.call(eq("checkout.session.create"), any())).thenReturn(session);
+
+        mockMvc.perform(post("/payment/create-checkout-session/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("https://checkout.stripe.test/cs_1"));
+    }
+
+    @Test
+    void createCheckoutSession_WhenStripeUnavailable_ReturnsServiceUnavailable() throws Exception {
+        Booking booking = createTestBooking();
+        when(bookingService.getBooking(1L)).thenReturn(booking);
+        when(stripe.isConfigured()).thenReturn(true);
+        when(stripe.call(eq("checkout.session.create"), any()))
+                .thenThrow(new ServiceOverloadedException("Payment provider is unavailable, please try again shortly"));
+
+        mockMvc.perform(post("/payment/create-checkout-session/1"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void webhook_AcknowledgesStoredEvent() throws Exception {
+        when(webhookService.receive("{}", "t=1,v1=abc")).thenReturn(StripeWebhookService.Receipt.ACCEPTED);
+
+        mockMvc.perform(post("/payment/webhook")
+                        .contentType("application/json")
+                        .header("Stripe-Signature", "t=1,v1=abc")
+                        .content("{}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void webhook_WithInvalidSignature_ReturnsBadRequest() throws Exception {
+        when(webhookService.receive("{}", "t=1,v1=forged"))
+                .thenThrow(new IllegalArgumentException("Invalid webhook signature"));
+
+        mockMvc.perform(post("/payment/webhook")
+                        .contentType("application/json")
+                        .header("Stripe-Signature", "t=1,v1=forged")
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import tqs.backend.tqsbackend.dto.UserRegistrationDto;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.service.SessionPrincipal;
 import tqs.backend.tqsbackend.service.UserService;
 
 import static org.hamcrest.Matchers.instanceOf;
@@ -21,6 +22,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
@@ -53,7 +55,9 @@ class UserControllerTest {
                 .param("password", "password"))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/items/search"))
-                .andExpect(flash().attribute("success", "Login successful!"));
+                .andExpect(flash().attribute("success", "Login successful!"))
+                .andExpect(request().sessionAttribute(SessionPrincipal.ATTRIBUTE,
+                        new SessionPrincipal(1L, UserRoles.RENTER, true, 0)));
     }
 
     @Test
@@ -6,6 +6,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import tqs.backend.tqsbackend.dto.WalletBalance;
 import tqs.backend.tqsbackend.entity.*;
 import tqs.backend.tqsbackend.service.WalletService;
 
@@ -39,6 +40,8 @@ class WalletControllerTest {
         wallet.setCreatedAt(LocalDateTime.now());
 
         when(walletService.getWalletByOwnerId(1L)).thenReturn(Optional.of(wallet));
+        when(walletService.getBalance(wallet))
+                .thenReturn(new WalletBalance(new BigDecimal("550.00"), new BigDecimal("100.00")));
 
         MockHttpSession session = new MockHttpSession();
         session.setAttribute("userId", 1L);
@@ -47,7 +50,7 @@ class WalletControllerTest {
         mockMvc.perform(get("/api/wallet").session(session))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.balance").value(500.00))
+                .andExpect(jsonPath("$.balance").value(550.00))
                 .andExpect(jsonPath("$.pendingBalance").value(100.00));
     }
 
@@ -0,0 +1,33 @@
+package tqs.backend.tqsbackend.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class RatingAggregateTest {
+
+    @Test
+    void addAndRemoveRating_KeepRunningTotals() {
+        RatingAggregate aggregate = new RatingAggregate(RatingType.PRODUCT, 1L, 0, 0);
+
+        aggregate.addRating(5);
+        aggregate.addRating(4);
+        aggregate.addRating(4);
+        assertThat(aggregate.getRatingSum()).isEqualTo(13);
+        assertThat(aggregate.getRatingCount()).isEqualTo(3);
+        assertThat(aggregate.getAverage()).isEqualTo(4.3);
+
+        aggregate.removeRating(5);
+        assertThat(aggregate.getAverage()).isEqualTo(4.0);
+    }
+
+    @Test
+    void getAverage_WithoutRatings_IsNull() {
+        RatingAggregate aggregate = new RatingAggregate(RatingType.OWNER, 1L, 0, 0);
+
+        aggregate.removeRating(3);
+
+        assertThat(aggregate.getRatingCount()).isZero();
+        assertThat(aggregate.getAverage()).isNull();
+    }
+}
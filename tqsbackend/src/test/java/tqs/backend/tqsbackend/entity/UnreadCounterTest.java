@@ -0,0 +1,30 @@
+package tqs.backend.tqsbackend.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class UnreadCounterTest {
+
+    @Test
+    void incrementAndMarkRead_KeepRunningTotal() {
+        UnreadCounter counter = new UnreadCounter(1L, 0);
+
+        counter.increment();
+        counter.increment();
+        counter.increment();
+        assertThat(counter.getUnreadCount()).isEqualTo(3);
+
+        counter.markRead(2);
+        assertThat(counter.getUnreadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void markRead_NeverGoesNegative() {
+        UnreadCounter counter = new UnreadCounter(1L, 1);
+
+        counter.markRead(5);
+
+        assertThat(counter.getUnreadCount()).isZero();
+    }
+}
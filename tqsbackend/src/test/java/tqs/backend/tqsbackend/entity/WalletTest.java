@@ -24,34 +24,8 @@ class WalletTest {
         assertThat(wallet.getOwner()).isEqualTo(owner);
         assertThat(wallet.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
         assertThat(wallet.getPendingBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-    }
-
-    @Test
-    void testAddPendingFunds() {
-        wallet.addPendingFunds(new BigDecimal("100.00"));
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(new BigDecimal("100.00"));
-        assertThat(wallet.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-
-        wallet.addPendingFunds(new BigDecimal("50.00"));
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(new BigDecimal("150.00"));
-    }
-
-    @Test
-    void testReleasePendingFunds() {
-        wallet.addPendingFunds(new BigDecimal("100.00"));
-        wallet.releasePendingFunds(new BigDecimal("60.00"));
-
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(new BigDecimal("40.00"));
-        assertThat(wallet.getBalance()).isEqualByComparingTo(new BigDecimal("60.00"));
-    }
-
-    @Test
-    void testRefundPendingFunds() {
-        wallet.addPendingFunds(new BigDecimal("100.00"));
-        wallet.refundPendingFunds(new BigDecimal("100.00"));
-
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-        assertThat(wallet.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(wallet.getSnapshotVersion()).isZero();
+        assertThat(wallet.getWithdrawalVersion()).isZero();
     }
 
     @Test
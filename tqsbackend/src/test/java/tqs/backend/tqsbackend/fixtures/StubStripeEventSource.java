@@ -0,0 +1,98 @@
+package tqs.backend.tqsbackend.fixtures;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.stripe.Stripe;
+
+/**
+ * Stands in for Stripe when testing /payment/webhook: builds event payloads
+ * the way Stripe sends them and signs them with a local secret, so
+ * deliveries can be produced offline in any volume. Redeliveries of an
+ * earlier event can be mixed in, as Stripe does when an ACK is slow.
+ */
+public final class StubStripeEventSource {
+
+    public static final String SECRET = "whsec_stub_secret";
+
+    public record Delivery(String eventId, long bookingId, String payload, String signature) {
+    }
+
+    private final String eventPrefix;
+    private final SplittableRandom random;
+    private final long[] bookingIds;
+    private final double redeliveryRate;
+    private final List<Delivery> sent = new ArrayList<>();
+    private long sequence;
+
+    public StubStripeEventSource(long seed, long[] bookingIds, double redeliveryRate) {
+        this("evt_stub_", seed, bookingIds, redeliveryRate);
+    }
+
+    /** Event ids start with the prefix, so sources against a kept database never collide. */
+    public StubStripeEventSource(String eventPrefix, long seed, long[] bookingIds, double redeliveryRate) {
+        this.eventPrefix = eventPrefix;
+        this.random = new SplittableRandom(seed);
+        this.bookingIds = bookingIds;
+        this.redeliveryRate = redeliveryRate;
+    }
+
+    /** A completed checkout for one of the bookings, or a redelivery of an earlier one. */
+    public synchronized Delivery next() {
+        if (!sent.isEmpty() && random.nextDouble() < redeliveryRate) {
+            Delivery earlier = sent.get(random.nextInt(sent.size()));
+            // Stripe signs every delivery attempt afresh
+            return new Delivery(earlier.eventId(), earlier.bookingId(), earlier.payload(), sign(earlier.payload()));
+        }
+        String eventId = eventPrefix + (++sequence);
+        long bookingId = bookingIds[random.nextInt(bookingIds.length)];
+        String payload = checkoutCompleted(eventId, bookingId, "paid");
+        Delivery delivery = new Delivery(eventId, bookingId, payload, sign(payload));
+        sent.add(delivery);
+        return delivery;
+    }
+
+    public static String checkoutCompleted(String eventId, long bookingId, String paymentStatus) {
+        return event(eventId, "checkout.session.completed", """
+                {"id":"cs_stub_%s","object":"checkout.session","mode":"payment","status":"complete",\
+                "payment_status":"%s","amount_total":10000,"currency":"eur","metadata":{"booking_id":"%d"}}"""
+                .formatted(eventId, paymentStatus, bookingId));
+    }
+
+    public static String paymentIntentSucceeded(String eventId, long bookingId) {
+        return event(eventId, "payment_intent.succeeded", """
+                {"id":"pi_stub_%s","object":"payment_intent","status":"succeeded","amount":10000,\
+                "currency":"eur","metadata":{"booking_id":"%d"}}"""
+                .formatted(eventId, bookingId));
+    }
+
+    public static String event(String eventId, String type, String object) {
+        return """
+                {"id":"%s","object":"event","api_version":"%s","created":%d,"livemode":false,\
+                "pending_webhooks":1,"type":"%s","data":{"object":%s}}"""
+                .formatted(eventId, Stripe.API_VERSION, System.currentTimeMillis() / 1000, type, object);
+    }
+
+    /** A Stripe-Signature header for the payload, signed now with the stub secret. */
+    public static String sign(String payload) {
+        return sign(payload, SECRET, System.currentTimeMillis() / 1000);
+    }
+
+    public static String sign(String payload, String secret, long timestamp) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package tqs.backend.tqsbackend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+
+/**
+ * Seeds a large bookings table, checks that the overlap lookup agrees with
+ * the seeded bookings and that H2 plans it through the composite
+ * idx_bookings_item_status_dates declared on Booking. The plan is H2's only:
+ * the partial idx_bookings_active_item_dates exists in the PostgreSQL
+ * migrations alone and is not checked here.
+ *
+ * The row count defaults to a size that keeps the build fast; run with
+ * -Dbookings.benchmark.rows=2000000 to reproduce production volumes.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class BookingOverlapQueryPlanTest {
+
+        private static final Logger logger = LoggerFactory.getLogger(BookingOverlapQueryPlanTest.class);
+
+        private static final int ROWS = Integer.getInteger("bookings.benchmark.rows", 20_000);
+        private static final int ITEMS = 200;
+        private static final int LOOKUPS = 1_000;
+
+        private static final BookingStatus[] STATUSES = BookingStatus.values();
+
+        @Autowired
+        private BookingRepository bookingRepository;
+
+        @Autowired
+        private ItemRepository itemRepository;
+
+        @Autowired
+        private CategoryRepository categoryRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private DataSource dataSource;
+
+        private final List<Long> itemIds = new ArrayList<>();
+
+        // Seeded active bookings per item, as (start, end) day offsets from origin
+        private final Map<Long, List<int[]>> activeByItem = new HashMap<>();
+
+        private final LocalDate origin = LocalDate.of(2020, 1, 1);
+
+        @BeforeEach
+        void seed() {
+                Category category = categoryRepository.save(new Category("Benchmark"));
+                for (int i = 0; i < ITEMS; i++) {
+                        Item item = itemRepository.save(
+                                        new Item("Item " + i, "Seeded", 10.0, category, 0.0, "Lisbon", 1L));
+                        itemIds.add(item.getId());
+                }
+                itemRepository.flush();
+
+                // JdbcTemplate joins the test transaction through DataSourceUtils
+                Random random = new Random(42);
+                List<Object[]> batch = new ArrayList<>();
+                for (int i = 0; i < ROWS; i++) {
+                        int startDay = random.nextInt(3_000);
+                        int endDay = startDay + 1 + random.nextInt(7);
+                        Long itemId = itemIds.get(random.nextInt(ITEMS));
+                        BookingStatus status = STATUSES[random.nextInt(STATUSES.length)];
+                        batch.add(new Object[] { itemId, 1L, Date.valueOf(origin.plusDays(startDay)),
+                                        Date.valueOf(origin.plusDays(endDay)), 10, 10, status.name(), "PENDING" });
+                        if (status == BookingStatus.REQUESTED || status == BookingStatus.ACCEPTED) {
+                                activeByItem.computeIfAbsent(itemId, id -> new ArrayList<>())
+                                                .add(new int[] { startDay, endDay });
+                        }
+                }
+                new JdbcTemplate(dataSource).batchUpdate(
+                                "INSERT INTO bookings (item_id, renter_id, start_date, end_date, daily_price, total_price, "
+                                                + "status, payment_status, renter_confirmed, owner_confirmed) "
+                                                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, FALSE, FALSE)",
+                                batch);
+                entityManager.createNativeQuery("ANALYZE").executeUpdate();
+        }
+
+        @Test
+        void overlapQuery_UsesCompositeIndexOnH2() {
+                String plan = String.valueOf(entityManager.createNativeQuery(
+                                "EXPLAIN SELECT COUNT(*) FROM bookings b WHERE b.item_id = " + itemIds.get(0)
+                                                + " AND b.status IN ('REQUESTED', 'ACCEPTED')"
+                                                + " AND b.start_date < DATE '2022-06-10' AND b.end_date > DATE '2022-06-01'")
+                                .getSingleResult()).toUpperCase();
+
+                logger.info("Overlap query plan over {} bookings: {}", ROWS, plan);
+                assertThat(plan).contains("IDX_BOOKINGS_ITEM_STATUS_DATES");
+                assertThat(plan).doesNotContain("TABLESCAN");
+        }
+
+        @Test
+        void existsActiveOverlap_MatchesSeededBookings() {
+                Random random = new Random(7);
+                int overlaps = 0;
+                int expected = 0;
+                for (int i = 0; i < LOOKUPS; i++) {
+                        int startDay = random.nextInt(3_000);
+                        Long itemId = itemIds.get(random.nextInt(ITEMS));
+                        LocalDate start = origin.plusDays(startDay);
+                        if (bookingRepository.existsActiveOverlap(itemId, start, start.plusDays(3))) {
+                                overlaps++;
+                        }
+                        if (overlapsSeeded(itemId, startDay, startDay + 3)) {
+                                expected++;
+                        }
+                }
+                logger.info("{} overlap checks over {} bookings, {} overlapping", LOOKUPS, ROWS, overlaps);
+                // Some lookups must hit and some miss, or the comparison proves nothing
+                assertThat(expected).isBetween(1, LOOKUPS - 1);
+                assertThat(overlaps).isEqualTo(expected);
+        }
+
+        // Half-open ranges, like the query: a booking ending on startDay does not overlap
+        private boolean overlapsSeeded(Long itemId, int startDay, int endDay) {
+                for (int[] booking : activeByItem.getOrDefault(itemId, List.of())) {
+                        if (booking[0] < endDay && booking[1] > startDay) {
+                                return true;
+                        }
+                }
+                return false;
+        }
+}
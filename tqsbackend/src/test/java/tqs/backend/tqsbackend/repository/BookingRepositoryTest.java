@@ -84,4 +84,24 @@ class BookingRepositoryTest {
                 assertThat(pastRentals.get(0).getId()).isEqualTo(pastBooking.getId());
                 assertThat(pastRentals.get(0).getEndDate()).isBefore(LocalDate.now());
         }
+
+        @Test
+        void existsActiveOverlapIgnoresInactiveBookings() {
+                Category category = categoryRepository.save(new Category("Audio"));
+                Item item = itemRepository.save(new Item("Speaker", "Loud", 30.0, category, 4.0, "Porto", 100L));
+
+                LocalDate start = LocalDate.now().plusDays(5);
+                LocalDate end = LocalDate.now().plusDays(8);
+                bookingRepository.save(new Booking(item, 200L, start, end, BigDecimal.valueOf(30.0),
+                                BigDecimal.valueOf(90.0), BookingStatus.CANCELLED, PaymentStatus.PENDING));
+
+                assertThat(bookingRepository.existsActiveOverlap(item.getId(), start, end)).isFalse();
+
+                bookingRepository.save(new Booking(item, 300L, start, end, BigDecimal.valueOf(30.0),
+                                BigDecimal.valueOf(90.0), BookingStatus.REQUESTED, PaymentStatus.PENDING));
+
+                assertThat(bookingRepository.existsActiveOverlap(item.getId(), start.plusDays(1), end.plusDays(2)))
+                                .isTrue();
+                assertThat(bookingRepository.existsActiveOverlap(item.getId(), end, end.plusDays(2))).isFalse();
+        }
 }
@@ -0,0 +1,78 @@
+package tqs.backend.tqsbackend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import tqs.backend.tqsbackend.entity.Conversation;
+import tqs.backend.tqsbackend.entity.Message;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class ConversationRepositoryTest {
+
+        @Autowired
+        private ConversationRepository conversationRepository;
+
+        private long nextMessageId = 1;
+
+        @Test
+        void findForUserReturnsMostRecentFirstFromEitherSide() {
+                LocalDateTime now = LocalDateTime.now();
+                conversationRepository.save(conversation(1L, 2L, now.minusHours(2)));
+                conversationRepository.save(conversation(3L, 1L, now.minusHours(1)));
+                conversationRepository.save(conversation(2L, 3L, now));
+
+                List<Conversation> page = conversationRepository.findForUser(1L, PageRequest.of(0, 10));
+
+                assertThat(page).extracting(c -> c.getPartnerId(1L)).containsExactly(3L, 2L);
+                assertThat(conversationRepository.findForUser(1L, PageRequest.of(1, 1)))
+                                .extracting(c -> c.getPartnerId(1L)).containsExactly(2L);
+        }
+
+        @Test
+        void findForUserSkipsConversationsWithoutMessages() {
+                conversationRepository.save(conversation(1L, 2L, LocalDateTime.now()));
+                // Created for a first message whose transaction then rolled back
+                Conversation empty = new Conversation(1L, 3L);
+                empty.setLastSentAt(LocalDateTime.now());
+                conversationRepository.save(empty);
+
+                assertThat(conversationRepository.findForUser(1L, PageRequest.of(0, 10)))
+                                .extracting(c -> c.getPartnerId(1L)).containsExactly(2L);
+        }
+
+        @Test
+        void findByUserAIdAndUserBIdUsesOrderedPair() {
+                conversationRepository.save(conversation(5L, 4L, LocalDateTime.now()));
+
+                assertThat(conversationRepository.findByUserAIdAndUserBId(4L, 5L)).isPresent();
+                assertThat(conversationRepository.findByUserAIdAndUserBId(5L, 4L)).isEmpty();
+        }
+
+        @Test
+        void sumUnreadForUserAddsTheUsersSideOfEachConversation() {
+                Conversation withTwo = conversation(2L, 1L, LocalDateTime.now());
+                withTwo.recordMessage(new Message(2L, 1L, "Again"));
+                conversationRepository.save(withTwo);
+                conversationRepository.save(conversation(3L, 1L, LocalDateTime.now()));
+                conversationRepository.save(conversation(1L, 4L, LocalDateTime.now()));
+
+                assertThat(conversationRepository.sumUnreadForUser(1L)).isEqualTo(3L);
+                assertThat(conversationRepository.sumUnreadForUser(9L)).isNull();
+        }
+
+        private Conversation conversation(Long senderId, Long receiverId, LocalDateTime sentAt) {
+                Message message = new Message(senderId, receiverId, "Hello");
+                message.setId(nextMessageId++);
+                message.setSentAt(sentAt);
+                Conversation conversation = new Conversation(senderId, receiverId);
+                conversation.recordMessage(message);
+                return conversation;
+        }
+}
@@ -0,0 +1,53 @@
+package tqs.backend.tqsbackend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class ItemRepositoryTest {
+
+        @Autowired
+        private ItemRepository itemRepository;
+
+        @Autowired
+        private CategoryRepository categoryRepository;
+
+        @Test
+        void countFacetsGroupsAndBucketsMatchingItems() {
+                Category lighting = categoryRepository.save(new Category("Lighting"));
+                Category audio = categoryRepository.save(new Category("Audio"));
+                itemRepository.save(new Item("Lamp", "Desk lamp", 20.0, lighting, 4.5, "Lisbon", 1L));
+                itemRepository.save(new Item("Spotlight", "Stage light", 60.0, lighting, 3.2, "Porto", 1L));
+                itemRepository.save(new Item("Speaker", "Loud", 300.0, audio, null, "Lisbon", 2L));
+
+                ItemFacets facets = itemRepository.countFacets((root, query, cb) -> cb.conjunction());
+
+                assertThat(facets.getCategories()).containsEntry("Lighting", 2L).containsEntry("Audio", 1L);
+                assertThat(facets.getLocations()).containsEntry("Lisbon", 2L).containsEntry("Porto", 1L);
+                assertThat(facets.getPriceRanges()).extracting(ItemFacets.PriceRange::count)
+                                .containsExactly(1L, 0L, 1L, 0L, 1L);
+                assertThat(facets.getMinRatings()).containsEntry(4, 1L).containsEntry(3, 2L).containsEntry(1, 2L);
+        }
+
+        @Test
+        void countFacetsAppliesSpecification() {
+                Category lighting = categoryRepository.save(new Category("Lighting"));
+                itemRepository.save(new Item("Lamp", "Desk lamp", 20.0, lighting, 4.5, "Lisbon", 1L));
+                itemRepository.save(new Item("Spotlight", "Stage light", 60.0, lighting, 3.2, "Porto", 1L));
+
+                Specification<Item> inPorto = (root, query, cb) -> cb.equal(root.get("location"), "Porto");
+                ItemFacets facets = itemRepository.countFacets(inPorto);
+
+                assertThat(facets.getLocations()).containsOnlyKeys("Porto");
+                assertThat(facets.getCategories()).containsEntry("Lighting", 1L);
+        }
+}
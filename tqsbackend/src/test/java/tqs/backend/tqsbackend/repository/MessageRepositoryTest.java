@@ -0,0 +1,75 @@
+package tqs.backend.tqsbackend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import tqs.backend.tqsbackend.entity.Message;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class MessageRepositoryTest {
+
+        @Autowired
+        private MessageRepository messageRepository;
+
+        @Test
+        void findLatestInConversationMatchesBothDirectionsNewestFirst() {
+                LocalDateTime now = LocalDateTime.now().withNano(0);
+                Message first = messageRepository.save(message(1L, 2L, now.minusMinutes(2)));
+                Message second = messageRepository.save(message(2L, 1L, now.minusMinutes(1)));
+                Message third = messageRepository.save(message(1L, 2L, now));
+                messageRepository.save(message(1L, 3L, now));
+
+                List<Message> latest = messageRepository.findLatestInConversation(1L, 2L, PageRequest.of(0, 2));
+
+                assertThat(latest).extracting(Message::getId).containsExactly(third.getId(), second.getId());
+                assertThat(messageRepository.findLatestInConversation(1L, 2L, PageRequest.of(0, 10)))
+                                .extracting(Message::getId)
+                                .containsExactly(third.getId(), second.getId(), first.getId());
+        }
+
+        @Test
+        void findInConversationBeforeBreaksTiesOnId() {
+                LocalDateTime sentAt = LocalDateTime.now().withNano(0);
+                Message older = messageRepository.save(message(1L, 2L, sentAt.minusMinutes(1)));
+                Message sameTimeFirst = messageRepository.save(message(2L, 1L, sentAt));
+                Message sameTimeSecond = messageRepository.save(message(1L, 2L, sentAt));
+
+                List<Message> before = messageRepository.findInConversationBefore(1L, 2L, sentAt,
+                                sameTimeSecond.getId(), PageRequest.of(0, 10));
+
+                assertThat(before).extracting(Message::getId).containsExactly(sameTimeFirst.getId(), older.getId());
+        }
+
+        private Message message(Long senderId, Long receiverId, LocalDateTime sentAt) {
+                Message message = new Message(senderId, receiverId, "Hello");
+                message.setSentAt(sentAt);
+                return message;
+        }
+
+        @Test
+        void markReadUpToOnlyTouchesIncomingUnreadMessages() {
+                LocalDateTime now = LocalDateTime.now().withNano(0);
+                Message first = messageRepository.save(message(2L, 1L, now.minusMinutes(3)));
+                Message mine = messageRepository.save(message(1L, 2L, now.minusMinutes(2)));
+                Message second = messageRepository.save(message(2L, 1L, now.minusMinutes(1)));
+                Message later = messageRepository.save(message(2L, 1L, now));
+
+                int marked = messageRepository.markReadUpTo(1L, 2L, second.getId());
+
+                assertThat(marked).isEqualTo(2);
+                assertThat(messageRepository.findById(first.getId())).get().extracting(Message::isRead)
+                                .isEqualTo(true);
+                assertThat(messageRepository.findById(mine.getId())).get().extracting(Message::isRead)
+                                .isEqualTo(false);
+                assertThat(messageRepository.findById(later.getId())).get().extracting(Message::isRead)
+                                .isEqualTo(false);
+                assertThat(messageRepository.markReadUpTo(1L, 2L, second.getId())).isZero();
+        }
+}
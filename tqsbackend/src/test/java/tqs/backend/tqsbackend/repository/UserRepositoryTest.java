@@ -4,9 +4,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import tqs.backend.tqsbackend.dto.GlobalStatsDTO;
+import tqs.backend.tqsbackend.dto.UserSummaryDTO;
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.entity.Report;
+import tqs.backend.tqsbackend.entity.ReportState;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -88,4 +99,71 @@ class UserRepositoryTest {
         List<User> found = userRepository.searchUsers("Target", UserRoles.RENTER, now.minusDays(1), now.plusDays(1));
         assertThat(found).extracting(User::getName).containsOnly("Target User");
     }
+
+    @Test
+    void whenFindSummariesByIds_thenReturnOnlyRequestedUsers() {
+        User owner = new User("Owner", "owner@example.com", "pass", UserRoles.OWNER);
+        owner.setAverageRating(4.5);
+        User renter = new User("Renter", "renter@example.com", "pass", UserRoles.RENTER);
+        User other = new User("Other", "other@example.com", "pass", UserRoles.RENTER);
+        entityManager.persist(owner);
+        entityManager.persist(renter);
+        entityManager.persist(other);
+        entityManager.flush();
+
+        List<UserSummaryDTO> found = userRepository.findSummariesByIdIn(List.of(owner.getId(), renter.getId()));
+
+        assertThat(found).extracting(UserSummaryDTO::getName).containsExactlyInAnyOrder("Owner", "Renter");
+        assertThat(found).filteredOn(s -> s.getId().equals(owner.getId()))
+                .singleElement()
+                .satisfies(s -> {
+                    assertThat(s.getRole()).isEqualTo(UserRoles.OWNER);
+                    assertThat(s.getAverageRating()).isEqualTo(4.5);
+                });
+    }
+
+    @Test
+    void whenAggregateGlobalStats_thenComputeTotalsInDatabase() {
+        User owner = new User("Owner", "owner@example.com", "pass", UserRoles.OWNER);
+        owner.setAverageRating(4.0);
+        User renter = new User("Renter", "renter@example.com", "pass", UserRoles.RENTER);
+        renter.setAverageRating(5.0);
+        User unrated = new User("Unrated", "unrated@example.com", "pass", UserRoles.RENTER);
+        entityManager.persist(owner);
+        entityManager.persist(renter);
+        entityManager.persist(unrated);
+
+        Category category = entityManager.persist(new Category("Audio"));
+        Item item = entityManager.persist(new Item("Speaker", "Loud", 50.0, category, 0.0, "Porto", owner.getId()));
+        LocalDate start = LocalDate.now().plusDays(1);
+        entityManager.persist(new Booking(item, renter.getId(), start, start.plusDays(2), new BigDecimal("50.00"),
+                new BigDecimal("100.50"), BookingStatus.ACCEPTED, PaymentStatus.PAID));
+        entityManager.persist(new Booking(item, renter.getId(), start.plusDays(5), start.plusDays(6),
+                new BigDecimal("50.00"), new BigDecimal("50.25"), BookingStatus.ACCEPTED, PaymentStatus.PAID));
+        entityManager.persist(new Booking(item, renter.getId(), start.plusDays(10), start.plusDays(11),
+                new BigDecimal("50.00"), new BigDecimal("999.00"), BookingStatus.REJECTED, PaymentStatus.PENDING));
+
+        entityManager.persist(new Report(renter.getId(), "Broken", "Arrived broken"));
+        Report resolved = new Report(renter.getId(), "Late", "Arrived late");
+        resolved.setState(ReportState.CLOSED);
+        entityManager.persist(resolved);
+        entityManager.flush();
+
+        GlobalStatsDTO stats = userRepository.aggregateGlobalStats();
+
+        assertThat(stats.getTotalUsers()).isEqualTo(3);
+        assertThat(stats.getAverageUserRating()).isEqualTo(4.5);
+        assertThat(stats.getTotalBookings()).isEqualTo(3);
+        assertThat(stats.getTotalRevenue()).isEqualTo(150.75);
+        assertThat(stats.getPendingReports()).isEqualTo(1);
+    }
+
+    @Test
+    void whenAggregateGlobalStatsOnEmptyTables_thenReturnZeros() {
+        GlobalStatsDTO stats = userRepository.aggregateGlobalStats();
+
+        assertThat(stats.getTotalUsers()).isZero();
+        assertThat(stats.getTotalRevenue()).isZero();
+        assertThat(stats.getAverageUserRating()).isZero();
+    }
 }
@@ -0,0 +1,102 @@
+package tqs.backend.tqsbackend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import tqs.backend.tqsbackend.dto.WalletBalance;
+import tqs.backend.tqsbackend.entity.LedgerEntryType;
+import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.entity.Wallet;
+import tqs.backend.tqsbackend.entity.WalletLedgerEntry;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class WalletLedgerEntryRepositoryTest {
+
+    @Autowired
+    private WalletLedgerEntryRepository ledgerRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(new User("Owner", "ledger-owner@test.com", "hash", UserRoles.OWNER));
+        wallet = walletRepository.save(new Wallet(owner));
+    }
+
+    private WalletLedgerEntry record(LedgerEntryType type, String amount) {
+        return ledgerRepository.save(new WalletLedgerEntry(wallet.getId(), 1L, type, new BigDecimal(amount)));
+    }
+
+    @Test
+    void sumUnfoldedAddsDeltasNotYetFolded() {
+        WalletLedgerEntry hold = record(LedgerEntryType.HOLD, "100.00");
+        record(LedgerEntryType.RELEASE, "100.00");
+        record(LedgerEntryType.WITHDRAW, "30.00");
+
+        WalletBalance all = ledgerRepository.sumUnfolded(wallet.getId());
+        ledgerRepository.markFolded(wallet.getId(), hold.getId(), 1L);
+        WalletBalance afterHold = ledgerRepository.sumUnfolded(wallet.getId());
+
+        assertThat(all.available()).isEqualByComparingTo("70.00");
+        assertThat(all.pending()).isEqualByComparingTo("0.00");
+        assertThat(afterHold.available()).isEqualByComparingTo("70.00");
+        assertThat(afterHold.pending()).isEqualByComparingTo("-100.00");
+        assertThat(ledgerRepository.sumFolded(wallet.getId(), 1L).pending()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void sumUnfoldedWithoutEntriesIsZero() {
+        WalletBalance balance = ledgerRepository.sumUnfolded(wallet.getId());
+
+        assertThat(balance.available()).isEqualByComparingTo("0");
+        assertThat(balance.pending()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void markFoldedOnlyTagsUnfoldedEntriesUpToTheBound() {
+        WalletLedgerEntry first = record(LedgerEntryType.HOLD, "40.00");
+        WalletLedgerEntry second = record(LedgerEntryType.HOLD, "10.00");
+
+        assertThat(ledgerRepository.findWalletIdsWithUnfoldedEntries()).containsExactly(wallet.getId());
+        assertThat(ledgerRepository.findLastUnfoldedId(wallet.getId())).contains(second.getId());
+
+        assertThat(ledgerRepository.markFolded(wallet.getId(), first.getId(), 1L)).isEqualTo(1);
+        // Entries already folded are never tagged again
+        assertThat(ledgerRepository.markFolded(wallet.getId(), second.getId(), 2L)).isEqualTo(1);
+
+        assertThat(ledgerRepository.sumFolded(wallet.getId(), 1L).pending()).isEqualByComparingTo("40.00");
+        assertThat(ledgerRepository.sumFolded(wallet.getId(), 2L).pending()).isEqualByComparingTo("10.00");
+        assertThat(ledgerRepository.findWalletIdsWithUnfoldedEntries()).isEmpty();
+    }
+
+    @Test
+    void findBalanceAddsUnfoldedEntriesToTheSnapshot() {
+        WalletLedgerEntry hold = record(LedgerEntryType.HOLD, "40.00");
+        record(LedgerEntryType.RELEASE, "40.00");
+
+        assertThat(walletRepository.claimSnapshot(wallet.getId(), 0L)).isEqualTo(1);
+        // Claiming from a stale version is a no-op
+        assertThat(walletRepository.claimSnapshot(wallet.getId(), 0L)).isZero();
+        ledgerRepository.markFolded(wallet.getId(), hold.getId(), 1L);
+        walletRepository.addToSnapshot(wallet.getId(), BigDecimal.ZERO, new BigDecimal("40.00"), LocalDateTime.now());
+
+        WalletBalance balance = walletRepository.findBalance(wallet.getId()).orElseThrow();
+        assertThat(balance.available()).isEqualByComparingTo("40.00");
+        assertThat(balance.pending()).isEqualByComparingTo("0.00");
+    }
+}
@@ -1,23 +1,17 @@
 package tqs.backend.tqsbackend.service;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import tqs.backend.tqsbackend.dto.GlobalStatsDTO;
-import tqs.backend.tqsbackend.entity.Booking;
-import tqs.backend.tqsbackend.entity.BookingStatus;
-import tqs.backend.tqsbackend.entity.ReportState;
-import tqs.backend.tqsbackend.repository.BookingRepository;
-import tqs.backend.tqsbackend.repository.ReportRepository;
 import tqs.backend.tqsbackend.repository.UserRepository;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
+import java.time.Duration;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,112 +20,51 @@ class AdminDashboardServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @Mock
-    private BookingRepository bookingRepository;
-
-    @Mock
-    private ReportRepository reportRepository;
-
-    @InjectMocks
-    private AdminDashboardService adminDashboardService;
-
-    @BeforeEach
-    void setUp() {
+    private GlobalStatsDTO stats(long totalUsers) {
+        return GlobalStatsDTO.builder()
+                .totalUsers(totalUsers)
+                .totalBookings(120)
+                .totalRevenue(150.75)
+                .pendingReports(5)
+                .averageUserRating(4.5)
+                .build();
     }
 
     @Test
     void getGlobalStats_shouldReturnCorrectStats() {
-        // Arrange
-        when(userRepository.count()).thenReturn(50L);
-        when(bookingRepository.count()).thenReturn(120L);
-        when(reportRepository.countByState(ReportState.NEW)).thenReturn(5L);
+        when(userRepository.aggregateGlobalStats()).thenReturn(stats(50));
+        AdminDashboardService adminDashboardService = new AdminDashboardService(userRepository, Duration.ofSeconds(30));
 
-        // Mock revenue calculation
-        Booking b1 = new Booking();
-        b1.setTotalPrice(new BigDecimal("100.50"));
-        b1.setStatus(BookingStatus.ACCEPTED);
-        Booking b2 = new Booking();
-        b2.setTotalPrice(new BigDecimal("50.25"));
-        b2.setStatus(BookingStatus.ACCEPTED);
-        // Assuming the service filters by status or sums all. Let's assume it sums
-        // COMPLETED bookings for revenue.
-        // Or if the requirements are simpler, just all bookings.
-        // For a sophisticated dashboard, we usually sum revenue of *paid/completed*
-        // bookings.
-        // I will implement the service to sum only completed/accepted bookings if
-        // possible, or assume simple sum for now.
-        // Let's refine the test to expect revenue from ALL bookings for now, or Mock a
-        // specific repository method.
-        // Ideally we should have a custom query in repository for revenue relative to
-        // status.
-        // Checking repositories capabilities...
-        // For this iteration, I'll assume the service fetches all bookings and sums
-        // them up, or uses a repo method.
-        // Let's assume the service calculates it from a list or a count.
-        // Better: Mock a custom query
-        // `bookingRepository.sumTotalPriceByStatus(BookingStatus.COMPLETED)`
-        // But likely that method doesn't exist yet.
-        // I'll stick to simple mocks for now:
-
-        // Let's pretend we just count for now, and for revenue I'll mock a behavior.
-        // Actually, TDD says I should write the test for the behavior I want.
-        // I want total revenue.
-        // I will assume the service calls `bookingRepository.findAll()` and sums up,
-        // OR `bookingRepository.findTotalRevenue()` (which I might need to create).
-
-        // Let's go with findAll() for simplicity unless performance is key (it is, but
-        // let's start simple).
-        when(bookingRepository.findByStatus(BookingStatus.ACCEPTED)).thenReturn(Arrays.asList(b1, b2));
+        GlobalStatsDTO stats = adminDashboardService.getGlobalStats();
 
-        // Average User Rating
-        // Mocking behavior for user ratings?
-        // Assuming `userRepository.findAll()` or `userRepository.getAverageRating()`.
-        // Let's Mock `userRepository.getAverageRating()` which I'll likely need to add.
-        // Wait, User entity has `averageRating`.
-        // Let's assume we fetch all users or use a query.
-        // I'll Mock `userRepository.findAverageRating()` which returns Double.
+        assertThat(stats.getTotalUsers()).isEqualTo(50);
+        assertThat(stats.getTotalBookings()).isEqualTo(120);
+        assertThat(stats.getTotalRevenue()).isEqualTo(150.75);
+        assertThat(stats.getPendingReports()).isEqualTo(5);
+        assertThat(stats.getAverageUserRating()).isEqualTo(4.5);
+    }
 
-        // To make it compile without changing Repo interfaces yet, I'll use standard
-        // JPA methods if possible,
-        // or accept I need to add methods to Repos.
-        // Adding methods to Repos is standard.
-        // So I will Mock `bookingRepository.sumTotalRevenue()` and
-        // `userRepository.findAverageUserRating()`.
+    @Test
+    void getGlobalStats_withinTtl_shouldReuseCachedStats() {
+        when(userRepository.aggregateGlobalStats()).thenReturn(stats(50), stats(51));
+        AdminDashboardService adminDashboardService = new AdminDashboardService(userRepository, Duration.ofMinutes(5));
 
-        // Since I can't easily mock methods that don't exist in the interface class
-        // literal in the test without casting or using spies on interfaces (complex),
-        // I will assume standard methods or that I will add them.
-        // For the sake of this test compiling *now* (strict TDD), I should probably
-        // rely on existing methods or `findAll`.
+        adminDashboardService.getGlobalStats();
+        GlobalStatsDTO second = adminDashboardService.getGlobalStats();
 
-        // when(bookingRepository.findAll()).thenReturn(Arrays.asList(b1, b2));
-        // Note: Logic in service will have to filter for revenue.
+        assertThat(second.getTotalUsers()).isEqualTo(50);
+        verify(userRepository, times(1)).aggregateGlobalStats();
+    }
 
-        // Users for average rating
-        // User u1 = new User(); u1.setAverageRating(4.5);
-        // User u2 = new User(); u2.setAverageRating(3.5);
-        // when(userRepository.findAll()).thenReturn(Arrays.asList(u1, u2));
-        // Use a mocked Double for the average directly if possible via custom query
-        // later.
-        // For now, let's assume service calculates from findAll users.
-        /*
-         * This is getting complex for "simple" TDD start.
-         * Let's refine:
-         * - Total Users: count()
-         * - Total Bookings: count()
-         * - Pending Reports: countByState(NEW) - This likely exists or is easy.
-         * - Revenue: Sum of all bookings (simplified) or filtered. I'll simply sum all
-         * bookings in the test.
-         * - Avg Rating: Simple average of a list.
-         */
+    @Test
+    void getGlobalStats_afterTtl_shouldRecompute() {
+        when(userRepository.aggregateGlobalStats()).thenReturn(stats(50), stats(51));
+        AdminDashboardService adminDashboardService = new AdminDashboardService(userRepository, Duration.ZERO);
 
-        // Act
-        GlobalStatsDTO stats = adminDashboardService.getGlobalStats();
+        adminDashboardService.getGlobalStats();
+        GlobalStatsDTO second = adminDashboardService.getGlobalStats();
 
-        // Assert
-        assertThat(stats.getTotalUsers()).isEqualTo(50);
-        assertThat(stats.getTotalBookings()).isEqualTo(120);
-        assertThat(stats.getPendingReports()).isEqualTo(5);
-        // Revenue logic validation in service
+        assertThat(second.getTotalUsers()).isEqualTo(51);
+        verify(userRepository, times(2)).aggregateGlobalStats();
     }
 }
@@ -0,0 +1,136 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.OutboxEventType;
+import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.CategoryRepository;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+import tqs.backend.tqsbackend.repository.OutboxEventRepository;
+
+/**
+ * The success redirect and the Stripe webhook confirming the same booking at
+ * once, against a real database. Each confirmation commits on its own, so the
+ * test runs outside a transaction and cleans up after itself.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+@Import({ BookingService.class, OutboxDispatcher.class, ItemReservationLocks.class,
+        BookingPaymentConfirmationTest.NotificationRecorder.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingPaymentConfirmationTest {
+
+    private static final int ROUNDS = 20;
+
+    @MockitoBean
+    private ItemService itemService;
+
+    @MockitoBean
+    private WalletService walletService;
+
+    @MockitoBean
+    private PaymentService paymentService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private NotificationRecorder notifications;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        outboxRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentConfirmations_EnqueueAndNotifyOnce() throws Exception {
+        Category category = categoryRepository.save(new Category("Audio"));
+        Item item = itemRepository.save(new Item("Speaker", "Loud", 20.0, category, 0.0, "Lisbon", 3L));
+        LocalDate start = LocalDate.now().plusDays(1);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Long bookingId = bookingRepository.save(new Booking(item, 7L, start.plusDays(2L * round),
+                    start.plusDays(2L * round + 1), new BigDecimal("20.00"), new BigDecimal("20.00"),
+                    BookingStatus.REQUESTED, PaymentStatus.PENDING)).getId();
+
+            CountDownLatch go = new CountDownLatch(1);
+            Future<?> redirect = executor.submit(() -> {
+                go.await();
+                bookingService.confirmPayment(bookingId);
+                return null;
+            });
+            Future<?> webhook = executor.submit(() -> {
+                go.await();
+                bookingService.confirmPayment(bookingId);
+                return null;
+            });
+            go.countDown();
+            // Neither confirmation may fail on the outbox's unique key
+            redirect.get(10, TimeUnit.SECONDS);
+            webhook.get(10, TimeUnit.SECONDS);
+
+            Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+            assertThat(booking.getPaymentStatus()).isEqualTo(PaymentStatus.PAID);
+            assertThat(booking.getStatus()).isEqualTo(BookingStatus.ACCEPTED);
+            assertThat(outboxRepository.existsByTypeAndBookingId(OutboxEventType.HOLD_FUNDS, bookingId)).isTrue();
+        }
+
+        assertThat(outboxRepository.count()).isEqualTo(ROUNDS);
+        // Owner and renter are told once per booking
+        assertThat(notifications.received).hasSize(2 * ROUNDS);
+    }
+
+    static class NotificationRecorder {
+
+        final List<UserNotification> received = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void on(UserNotification notification) {
+            received.add(notification);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.math.BigDecimal;
@@ -13,15 +15,22 @@ import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import tqs.backend.tqsbackend.dto.BookingCreateRequest;
+import tqs.backend.tqsbackend.dto.BookingResponse;
 import tqs.backend.tqsbackend.entity.Booking;
 import tqs.backend.tqsbackend.entity.BookingStatus;
 import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.OutboxEventType;
 import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.exception.AvailabilityException;
 import tqs.backend.tqsbackend.repository.BookingRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +45,15 @@ class BookingServiceTest {
     @Mock
     private PaymentService paymentService;
 
+    @Spy
+    private ItemReservationLocks reservationLocks = new ItemReservationLocks();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private OutboxDispatcher outboxDispatcher;
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -76,6 +94,28 @@ class BookingServiceTest {
         verify(bookingRepository).save(booking);
     }
 
+    @Test
+    void acceptBooking_NotifiesRenter() {
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setRenterId(7L);
+        booking.setStatus(BookingStatus.REQUESTED);
+        Item item = new Item();
+        item.setOwnerId(1L);
+        booking.setItem(item);
+
+        given(bookingRepository.findById(1L)).willReturn(Optional.of(booking));
+        given(bookingRepository.save(any(Booking.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.acceptBooking(1L, 1L);
+
+        ArgumentCaptor<UserNotification> captor = ArgumentCaptor.forClass(UserNotification.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().userId()).isEqualTo(7L);
+        assertThat(captor.getValue().type()).isEqualTo(UserNotification.BOOKING);
+        assertThat(((BookingResponse) captor.getValue().payload()).getStatus()).isEqualTo(BookingStatus.ACCEPTED);
+    }
+
     @Test
     void declineBooking_ValidId_UpdatesStatus() {
         Booking booking = new Booking();
@@ -138,7 +178,7 @@ class BookingServiceTest {
         item.setOwnerId(1L);
 
         given(itemService.getItemById(1L)).willReturn(item);
-        given(bookingRepository.save(any(Booking.class))).willAnswer(invocation -> {
+        given(bookingRepository.saveAndFlush(any(Booking.class))).willAnswer(invocation -> {
             Booking b = invocation.getArgument(0);
             b.setId(1L);
             return b;
@@ -150,6 +190,27 @@ class BookingServiceTest {
         assertThat(result.getStatus()).isEqualTo(BookingStatus.REQUESTED); // Should be REQUESTED even if paid
     }
 
+    @Test
+    void createBooking_OverlappingActiveBooking_ThrowsAvailabilityException() {
+        BookingCreateRequest request = new BookingCreateRequest();
+        request.setItemId(1L);
+        request.setRenterId(2L);
+        request.setStartDate(java.time.LocalDate.now().plusDays(1));
+        request.setEndDate(java.time.LocalDate.now().plusDays(3));
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(20.0);
+        item.setOwnerId(1L);
+
+        given(itemService.getItemById(1L)).willReturn(item);
+        given(bookingRepository.existsActiveOverlap(1L, request.getStartDate(), request.getEndDate()))
+                .willReturn(true);
+
+        assertThrows(AvailabilityException.class, () -> bookingService.createBooking(request));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
     @Test
     void createBooking_NoOffer_UsesItemPrice() {
         BookingCreateRequest request = new BookingCreateRequest();
@@ -165,7 +226,7 @@ class BookingServiceTest {
         item.setOwnerId(1L);
 
         given(itemService.getItemById(1L)).willReturn(item);
-        given(bookingRepository.save(any(Booking.class))).willAnswer(invocation -> {
+        given(bookingRepository.saveAndFlush(any(Booking.class))).willAnswer(invocation -> {
             Booking b = invocation.getArgument(0);
             b.setId(1L);
             return b;
@@ -183,14 +244,58 @@ class BookingServiceTest {
         booking.setId(1L);
         booking.setRenterId(2L);
         booking.setStatus(BookingStatus.COUNTER_OFFER);
+        Item item = new Item();
+        item.setId(3L);
+        booking.setItem(item);
 
         given(bookingRepository.findById(1L)).willReturn(Optional.of(booking));
-        given(bookingRepository.save(any(Booking.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(bookingRepository.saveAndFlush(any(Booking.class))).willAnswer(invocation -> invocation.getArgument(0));
 
         Booking result = bookingService.acceptCounterOffer(1L, 2L);
 
         assertThat(result.getStatus()).isEqualTo(BookingStatus.ACCEPTED);
-        verify(bookingRepository).save(booking);
+        verify(bookingRepository).saveAndFlush(booking);
+    }
+
+    @Test
+    void acceptCounterOffer_DatesTakenMeanwhile_ThrowsAvailabilityException() {
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setRenterId(2L);
+        booking.setStatus(BookingStatus.COUNTER_OFFER);
+        booking.setStartDate(java.time.LocalDate.now().plusDays(1));
+        booking.setEndDate(java.time.LocalDate.now().plusDays(3));
+        Item item = new Item();
+        item.setId(3L);
+        booking.setItem(item);
+
+        given(bookingRepository.findById(1L)).willReturn(Optional.of(booking));
+        given(bookingRepository.existsActiveOverlap(3L, booking.getStartDate(), booking.getEndDate()))
+                .willReturn(true);
+
+        assertThrows(AvailabilityException.class, () -> bookingService.acceptCounterOffer(1L, 2L));
+        assertThat(booking.getStatus()).isEqualTo(BookingStatus.COUNTER_OFFER);
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void createBooking_ExclusionConstraintViolation_ThrowsAvailabilityException() {
+        BookingCreateRequest request = new BookingCreateRequest();
+        request.setItemId(1L);
+        request.setRenterId(2L);
+        request.setStartDate(java.time.LocalDate.now().plusDays(1));
+        request.setEndDate(java.time.LocalDate.now().plusDays(3));
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(20.0);
+        item.setOwnerId(1L);
+
+        given(itemService.getItemById(1L)).willReturn(item);
+        given(bookingRepository.saveAndFlush(any(Booking.class))).willThrow(new DataIntegrityViolationException("overlap",
+                new java.sql.SQLException("conflicting key value violates exclusion constraint", "23P01")));
+
+        assertThrows(AvailabilityException.class, () -> bookingService.createBooking(request));
     }
 
     @Test
@@ -216,8 +321,11 @@ class BookingServiceTest {
         booking.setId(1L);
         booking.setStatus(BookingStatus.REQUESTED);
         booking.setPaymentStatus(PaymentStatus.PENDING);
+        Item item = new Item();
+        item.setId(5L);
+        booking.setItem(item);
 
-        given(bookingRepository.findById(1L)).willReturn(Optional.of(booking));
+        given(bookingRepository.findByIdForUpdate(1L)).willReturn(Optional.of(booking));
         given(bookingRepository.save(any(Booking.class))).willAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -227,14 +335,75 @@ class BookingServiceTest {
         assertThat(booking.getPaymentStatus()).isEqualTo(PaymentStatus.PAID);
         assertThat(booking.getStatus()).isEqualTo(BookingStatus.ACCEPTED);
         verify(bookingRepository).save(booking);
+        verify(outboxDispatcher).enqueue(OutboxEventType.HOLD_FUNDS, 1L);
+    }
+
+    @Test
+    void confirmPayment_NotifiesOwnerAndRenter() {
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setRenterId(7L);
+        booking.setStatus(BookingStatus.REQUESTED);
+        booking.setPaymentStatus(PaymentStatus.PENDING);
+        Item item = new Item();
+        item.setId(5L);
+        item.setOwnerId(3L);
+        booking.setItem(item);
+
+        given(bookingRepository.findByIdForUpdate(1L)).willReturn(Optional.of(booking));
+        given(bookingRepository.save(any(Booking.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.confirmPayment(1L);
+
+        ArgumentCaptor<UserNotification> captor = ArgumentCaptor.forClass(UserNotification.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertThat(captor.getAllValues()).extracting(UserNotification::userId).containsExactly(3L, 7L);
+    }
+
+    @Test
+    void confirmPayment_AlreadyConfirmed_DoesNothing() {
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setStatus(BookingStatus.ACCEPTED);
+        booking.setPaymentStatus(PaymentStatus.PAID);
+
+        given(bookingRepository.findByIdForUpdate(1L)).willReturn(Optional.of(booking));
+
+        bookingService.confirmPayment(1L);
+
+        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(outboxDispatcher, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void confirmPayment_BookingNoLongerActive_RefundsInsteadOfAccepting() {
+        for (BookingStatus status : new BookingStatus[] { BookingStatus.CANCELLED, BookingStatus.REJECTED,
+                BookingStatus.COUNTER_OFFER }) {
+            Booking booking = new Booking();
+            booking.setId(1L);
+            booking.setStatus(status);
+            booking.setPaymentStatus(PaymentStatus.PENDING);
+
+            given(bookingRepository.findByIdForUpdate(1L)).willReturn(Optional.of(booking));
+
+            bookingService.confirmPayment(1L);
+
+            // A late webhook must not bring the booking back and take dates it gave up
+            assertThat(booking.getStatus()).isEqualTo(status);
+            assertThat(booking.getPaymentStatus()).isEqualTo(PaymentStatus.PENDING);
+        }
+        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(outboxDispatcher, times(3)).enqueue(OutboxEventType.REFUND_PAYMENT, 1L);
+        verify(outboxDispatcher, never()).enqueue(OutboxEventType.HOLD_FUNDS, 1L);
     }
 
     @Test
     void confirmPayment_BookingNotFound_ThrowsException() {
         // Arrange
-        given(bookingRepository.findById(99L)).willReturn(Optional.empty());
+        given(bookingRepository.findByIdForUpdate(99L)).willReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> bookingService.confirmPayment(99L));
+        verify(outboxDispatcher, never()).enqueue(any(), any());
     }
 }
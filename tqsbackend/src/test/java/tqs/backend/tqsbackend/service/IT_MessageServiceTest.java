@@ -3,28 +3,44 @@ package tqs.backend.tqsbackend.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import tqs.backend.tqsbackend.dto.ConversationSummaryDTO;
 import tqs.backend.tqsbackend.dto.MessageCreateRequest;
+import tqs.backend.tqsbackend.dto.MessageHistoryPage;
+import tqs.backend.tqsbackend.dto.MessageResponse;
+import tqs.backend.tqsbackend.entity.Conversation;
 import tqs.backend.tqsbackend.entity.Message;
+import tqs.backend.tqsbackend.entity.UnreadCounter;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 import tqs.backend.tqsbackend.exception.BookingValidationException;
+import tqs.backend.tqsbackend.repository.ConversationRepository;
 import tqs.backend.tqsbackend.repository.MessageRepository;
+import tqs.backend.tqsbackend.repository.UnreadCounterRepository;
 import tqs.backend.tqsbackend.repository.UserRepository;
 
 /**
@@ -39,9 +55,45 @@ class IT_MessageServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private UnreadCounterRepository unreadCounterRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private MessageService messageService;
 
+    // Rows seeded before the send's transaction are read back with the lock
+    private final Map<List<Long>, Conversation> storedConversations = new HashMap<>();
+    private final Map<Long, UnreadCounter> storedCounters = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(conversationRepository.saveAndFlush(any(Conversation.class))).thenAnswer(inv -> {
+            Conversation conversation = inv.getArgument(0);
+            storedConversations.put(List.of(conversation.getUserAId(), conversation.getUserBId()), conversation);
+            return conversation;
+        });
+        lenient().when(conversationRepository.findByUserAIdAndUserBId(any(), any())).thenAnswer(inv -> {
+            List<Long> pair = List.of(inv.getArgument(0), inv.getArgument(1));
+            return Optional.ofNullable(storedConversations.get(pair));
+        });
+        lenient().when(unreadCounterRepository.saveAndFlush(any(UnreadCounter.class))).thenAnswer(inv -> {
+            UnreadCounter counter = inv.getArgument(0);
+            storedCounters.put(counter.getUserId(), counter);
+            return counter;
+        });
+        lenient().when(unreadCounterRepository.findByUserId(any()))
+                .thenAnswer(inv -> Optional.ofNullable(storedCounters.get(inv.<Long>getArgument(0))));
+    }
+
     @Test
     @DisplayName("Send message successfully")
     void sendMessage_success() {
@@ -66,6 +118,24 @@ class IT_MessageServiceTest {
         verify(messageRepository).save(any(Message.class));
     }
 
+    @Test
+    @DisplayName("Send message notifies the receiver")
+    void sendMessage_notifiesReceiver() {
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
+            Message m = inv.getArgument(0);
+            m.setId(1L);
+            return m;
+        });
+
+        messageService.sendMessage(1L, new MessageCreateRequest(2L, "Hello"));
+
+        ArgumentCaptor<UserNotification> captor = ArgumentCaptor.forClass(UserNotification.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().userId()).isEqualTo(2L);
+        assertThat(captor.getValue().type()).isEqualTo(UserNotification.MESSAGE);
+        assertThat(((MessageResponse) captor.getValue().payload()).getContent()).isEqualTo("Hello");
+    }
+
     @Test
     @DisplayName("Send message with item context")
     void sendMessage_withItemContext() {
@@ -121,6 +191,46 @@ class IT_MessageServiceTest {
         verify(messageRepository).findConversation(userId1, userId2);
     }
 
+    @Test
+    @DisplayName("Get conversation page returns the latest messages oldest first")
+    void getConversationPage_latest() {
+        LocalDateTime now = LocalDateTime.now();
+        Message newest = message(3L, 2L, 1L, now);
+        Message middle = message(2L, 1L, 2L, now.minusMinutes(1));
+        Message oldest = message(1L, 2L, 1L, now.minusMinutes(2));
+        when(messageRepository.findLatestInConversation(1L, 2L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(newest, middle, oldest));
+
+        MessageHistoryPage<Message> page = messageService.getConversationPage(2L, 1L, null, 2);
+
+        assertThat(page.getMessages()).extracting(Message::getId).containsExactly(2L, 3L);
+        assertThat(page.getOlderCursor()).isEqualTo(MessageCursor.before(middle).encode());
+    }
+
+    @Test
+    @DisplayName("Get conversation page continues before the cursor")
+    void getConversationPage_beforeCursor() {
+        LocalDateTime sentAt = LocalDateTime.now().minusMinutes(1);
+        Message oldest = message(1L, 2L, 1L, sentAt.minusMinutes(1));
+        when(messageRepository.findInConversationBefore(1L, 2L, sentAt, 2L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(oldest));
+
+        MessageHistoryPage<Message> page = messageService.getConversationPage(1L, 2L,
+                new MessageCursor(sentAt, 2L).encode(), 2);
+
+        assertThat(page.getMessages()).containsExactly(oldest);
+        assertThat(page.getOlderCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Get conversation page rejects bad limits and cursors")
+    void getConversationPage_invalidRequest() {
+        assertThatThrownBy(() -> messageService.getConversationPage(1L, 2L, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> messageService.getConversationPage(1L, 2L, "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     @DisplayName("Get all messages for user")
     void getMessagesForUser_success() {
@@ -140,49 +250,197 @@ class IT_MessageServiceTest {
     }
 
     @Test
-    @DisplayName("Get conversations list with multiple partners")
-    void getConversationsList_multiplePartners() {
-        Long userId = 1L;
-        Long partner1Id = 2L;
-        Long partner2Id = 3L;
+    @DisplayName("Send message starts a conversation with name snapshots")
+    void sendMessage_startsConversation() {
+        Long senderId = 1L;
+        Long receiverId = 2L;
+        MessageCreateRequest request = new MessageCreateRequest(receiverId, "Hi", 10L);
 
-        // Create messages with different partners
-        Message msg1 = new Message(userId, partner1Id, "Hello partner 1");
-        msg1.setId(1L);
-        msg1.setSentAt(LocalDateTime.now().minusHours(2));
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
+            Message m = inv.getArgument(0);
+            m.setId(5L);
+            return m;
+        });
+        User sender = new User("Renter", "renter@example.com", "pass", UserRoles.RENTER);
+        sender.setId(senderId);
+        User receiver = new User("Owner", "owner@example.com", "pass", UserRoles.OWNER);
+        receiver.setId(receiverId);
+        when(userRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(sender, receiver));
+
+        messageService.sendMessage(senderId, request);
+
+        ArgumentCaptor<Conversation> captor = ArgumentCaptor.forClass(Conversation.class);
+        verify(conversationRepository).saveAndFlush(any(Conversation.class));
+        verify(conversationRepository).save(captor.capture());
+        Conversation conversation = captor.getValue();
+        assertThat(conversation.getPartnerName(senderId)).isEqualTo("Owner");
+        assertThat(conversation.getLastMessageId()).isEqualTo(5L);
+        assertThat(conversation.getLastItemId()).isEqualTo(10L);
+        assertThat(conversation.getUnreadCount(receiverId)).isEqualTo(1);
+        assertThat(conversation.getUnreadCount(senderId)).isZero();
+    }
 
-        Message msg2 = new Message(partner1Id, userId, "Reply from partner 1");
-        msg2.setId(2L);
-        msg2.setSentAt(LocalDateTime.now().minusHours(1));
+    @Test
+    @DisplayName("Send message uses a conversation started concurrently")
+    void sendMessage_conversationStartedConcurrently() {
+        Conversation theirs = conversation(2L, 1L, "Theirs", LocalDateTime.now());
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(conversationRepository.findByUserAIdAndUserBId(1L, 2L))
+                .thenReturn(Optional.empty(), Optional.of(theirs));
+        when(conversationRepository.saveAndFlush(any(Conversation.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_conversations_users"));
+
+        messageService.sendMessage(1L, new MessageCreateRequest(2L, "Mine"));
+
+        assertThat(theirs.getLastContent()).isEqualTo("Mine");
+        assertThat(theirs.getUnreadCount(2L)).isEqualTo(1);
+        verify(conversationRepository).save(theirs);
+    }
+
+    @Test
+    @DisplayName("Send message updates the existing conversation")
+    void sendMessage_updatesExistingConversation() {
+        Conversation existing = conversation(2L, 1L, "Old message", LocalDateTime.now().minusDays(1));
+        when(conversationRepository.findByUserAIdAndUserBId(1L, 2L)).thenReturn(Optional.of(existing));
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        messageService.sendMessage(2L, new MessageCreateRequest(1L, "Recent message"));
+
+        assertThat(existing.getLastContent()).isEqualTo("Recent message");
+        assertThat(existing.getUnreadCount(1L)).isEqualTo(2);
+        verify(userRepository, never()).findAllById(any());
+        verify(conversationRepository).save(existing);
+    }
+
+    @Test
+    @DisplayName("Send message increments the receiver's unread counter")
+    void sendMessage_incrementsUnreadCounter() {
+        UnreadCounter counter = new UnreadCounter(2L, 3);
+        when(unreadCounterRepository.findByUserId(2L)).thenReturn(Optional.of(counter));
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        messageService.sendMessage(1L, new MessageCreateRequest(2L, "Hello"));
+
+        assertThat(counter.getUnreadCount()).isEqualTo(4);
+        verify(unreadCounterRepository).save(counter);
+    }
+
+    @Test
+    @DisplayName("Send message seeds a missing unread counter from conversations")
+    void sendMessage_seedsUnreadCounter() {
+        when(conversationRepository.sumUnreadForUser(2L)).thenReturn(6L);
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        messageService.sendMessage(1L, new MessageCreateRequest(2L, "Hello"));
+
+        ArgumentCaptor<UnreadCounter> captor = ArgumentCaptor.forClass(UnreadCounter.class);
+        verify(unreadCounterRepository).saveAndFlush(any(UnreadCounter.class));
+        verify(unreadCounterRepository).save(captor.capture());
+        assertThat(captor.getValue().getUserId()).isEqualTo(2L);
+        assertThat(captor.getValue().getUnreadCount()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Send message uses an unread counter seeded concurrently")
+    void sendMessage_unreadCounterSeededConcurrently() {
+        UnreadCounter theirs = new UnreadCounter(2L, 1);
+        when(unreadCounterRepository.findByUserId(2L)).thenReturn(Optional.empty(), Optional.of(theirs));
+        when(unreadCounterRepository.saveAndFlush(any(UnreadCounter.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_unread_counters_user"));
+        when(messageRepository.save(any(Message.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        messageService.sendMessage(1L, new MessageCreateRequest(2L, "Hello"));
+
+        assertThat(theirs.getUnreadCount()).isEqualTo(2);
+        verify(unreadCounterRepository).save(theirs);
+    }
+
+    @Test
+    @DisplayName("Mark conversation read seeds a missing unread counter")
+    void markConversationRead_seedsUnreadCounter() {
+        when(conversationRepository.sumUnreadForUser(1L)).thenReturn(3L);
+        when(messageRepository.markReadUpTo(1L, 2L, 10L)).thenReturn(3);
+
+        assertThat(messageService.markConversationRead(1L, 2L, 10L)).isEqualTo(3);
+
+        ArgumentCaptor<UnreadCounter> captor = ArgumentCaptor.forClass(UnreadCounter.class);
+        verify(unreadCounterRepository).save(captor.capture());
+        assertThat(captor.getValue().getUnreadCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Mark conversation read updates messages once and decrements counters")
+    void markConversationRead_decrementsCounters() {
+        UnreadCounter counter = new UnreadCounter(1L, 5);
+        Conversation existing = conversation(2L, 1L, "Hi", LocalDateTime.now());
+        existing.recordMessage(new Message(2L, 1L, "Again"));
+        when(unreadCounterRepository.findByUserId(1L)).thenReturn(Optional.of(counter));
+        when(messageRepository.markReadUpTo(1L, 2L, 10L)).thenReturn(2);
+        when(conversationRepository.findByUserAIdAndUserBId(1L, 2L)).thenReturn(Optional.of(existing));
+
+        int marked = messageService.markConversationRead(1L, 2L, 10L);
+
+        assertThat(marked).isEqualTo(2);
+        assertThat(existing.getUnreadCount(1L)).isZero();
+        assertThat(counter.getUnreadCount()).isEqualTo(3);
+        verify(unreadCounterRepository).save(counter);
+    }
+
+    @Test
+    @DisplayName("Mark conversation read with nothing unread leaves counters alone")
+    void markConversationRead_nothingUnread() {
+        when(unreadCounterRepository.findByUserId(1L)).thenReturn(Optional.of(new UnreadCounter(1L, 0)));
+
+        assertThat(messageService.markConversationRead(1L, 2L, 10L)).isZero();
+        verify(conversationRepository, never()).findByUserAIdAndUserBId(any(), any());
+        verify(unreadCounterRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Unread count reads the counter row")
+    void getUnreadCount_readsCounter() {
+        when(unreadCounterRepository.findUnreadCountByUserId(1L)).thenReturn(Optional.of(4));
 
-        Message msg3 = new Message(userId, partner2Id, "Hello partner 2");
-        msg3.setId(3L);
-        msg3.setSentAt(LocalDateTime.now().minusMinutes(30));
+        assertThat(messageService.getUnreadCount(1L)).isEqualTo(4);
+        verify(conversationRepository, never()).sumUnreadForUser(any());
+    }
+
+    @Test
+    @DisplayName("Unread count falls back to conversations without a counter")
+    void getUnreadCount_withoutCounter() {
+        when(conversationRepository.sumUnreadForUser(1L)).thenReturn(2L);
 
-        when(messageRepository.findAllForUser(userId)).thenReturn(Arrays.asList(msg1, msg2, msg3));
+        assertThat(messageService.getUnreadCount(1L)).isEqualTo(2);
+    }
 
-        User partner1 = new User("Partner One", "partner1@example.com", "pass", UserRoles.OWNER);
-        partner1.setId(partner1Id);
-        User partner2 = new User("Partner Two", "partner2@example.com", "pass", UserRoles.OWNER);
-        partner2.setId(partner2Id);
+    @Test
+    @DisplayName("Get conversations list with multiple partners")
+    void getConversationsList_multiplePartners() {
+        Long userId = 1L;
+        Conversation withPartner2 = conversation(userId, 3L, "Hello partner 2", LocalDateTime.now().minusMinutes(30));
+        withPartner2.setName(3L, "Partner Two");
+        Conversation withPartner1 = conversation(2L, userId, "Reply from partner 1", LocalDateTime.now().minusHours(1));
+        withPartner1.setName(2L, "Partner One");
 
-        when(userRepository.findById(partner1Id)).thenReturn(Optional.of(partner1));
-        when(userRepository.findById(partner2Id)).thenReturn(Optional.of(partner2));
+        when(conversationRepository.findForUser(userId, PageRequest.of(0, 50)))
+                .thenReturn(Arrays.asList(withPartner2, withPartner1));
 
         List<ConversationSummaryDTO> result = messageService.getConversationsList(userId);
 
         assertThat(result).hasSize(2);
 
-        // Should be ordered by most recent
-        assertThat(result.get(0).getOtherUserId()).isEqualTo(partner2Id);
+        assertThat(result.get(0).getOtherUserId()).isEqualTo(3L);
         assertThat(result.get(0).getOtherUserName()).isEqualTo("Partner Two");
         assertThat(result.get(0).getLastMessageContent()).isEqualTo("Hello partner 2");
         assertThat(result.get(0).isLastMessageFromMe()).isTrue();
+        assertThat(result.get(0).getUnreadCount()).isZero();
 
-        assertThat(result.get(1).getOtherUserId()).isEqualTo(partner1Id);
+        assertThat(result.get(1).getOtherUserId()).isEqualTo(2L);
         assertThat(result.get(1).getOtherUserName()).isEqualTo("Partner One");
         assertThat(result.get(1).getLastMessageContent()).isEqualTo("Reply from partner 1");
         assertThat(result.get(1).isLastMessageFromMe()).isFalse();
+        assertThat(result.get(1).getUnreadCount()).isEqualTo(1);
+        verify(messageRepository, never()).findAllForUser(any());
     }
 
     @Test
@@ -190,7 +448,7 @@ class IT_MessageServiceTest {
     void getConversationsList_noMessages() {
         Long userId = 1L;
 
-        when(messageRepository.findAllForUser(userId)).thenReturn(Arrays.asList());
+        when(conversationRepository.findForUser(userId, PageRequest.of(0, 50))).thenReturn(Arrays.asList());
 
         List<ConversationSummaryDTO> result = messageService.getConversationsList(userId);
 
@@ -198,31 +456,13 @@ class IT_MessageServiceTest {
     }
 
     @Test
-    @DisplayName("Get conversations list keeps only most recent message per partner")
-    void getConversationsList_onlyMostRecentPerPartner() {
-        Long userId = 1L;
-        Long partnerId = 2L;
+    @DisplayName("Get conversations list requests the given page")
+    void getConversationsList_paged() {
+        when(conversationRepository.findForUser(1L, PageRequest.of(2, 10))).thenReturn(List.of());
 
-        // Multiple messages with same partner
-        Message oldMsg = new Message(userId, partnerId, "Old message");
-        oldMsg.setId(1L);
-        oldMsg.setSentAt(LocalDateTime.now().minusDays(1));
-
-        Message recentMsg = new Message(partnerId, userId, "Recent message");
-        recentMsg.setId(2L);
-        recentMsg.setSentAt(LocalDateTime.now());
-
-        when(messageRepository.findAllForUser(userId)).thenReturn(Arrays.asList(oldMsg, recentMsg));
-
-        User partner = new User("Partner", "partner@example.com", "pass", UserRoles.OWNER);
-        partner.setId(partnerId);
-        when(userRepository.findById(partnerId)).thenReturn(Optional.of(partner));
-
-        List<ConversationSummaryDTO> result = messageService.getConversationsList(userId);
-
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getLastMessageContent()).isEqualTo("Recent message");
-        assertThat(result.get(0).isLastMessageFromMe()).isFalse();
+        assertThat(messageService.getConversationsList(1L, 2, 10)).isEmpty();
+        assertThatThrownBy(() -> messageService.getConversationsList(1L, 0, 500))
+                .isInstanceOf(IllegalArgumentException.class);
     }
 
     @Test
@@ -231,16 +471,28 @@ class IT_MessageServiceTest {
         Long userId = 1L;
         Long unknownPartnerId = 999L;
 
-        Message msg = new Message(userId, unknownPartnerId, "Hello");
-        msg.setId(1L);
-        msg.setSentAt(LocalDateTime.now());
-
-        when(messageRepository.findAllForUser(userId)).thenReturn(Arrays.asList(msg));
-        when(userRepository.findById(unknownPartnerId)).thenReturn(Optional.empty());
+        when(conversationRepository.findForUser(userId, PageRequest.of(0, 50)))
+                .thenReturn(List.of(conversation(userId, unknownPartnerId, "Hello", LocalDateTime.now())));
 
         List<ConversationSummaryDTO> result = messageService.getConversationsList(userId);
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getOtherUserName()).isEqualTo("Unknown User");
     }
+
+    private Message message(Long id, Long senderId, Long receiverId, LocalDateTime sentAt) {
+        Message message = new Message(senderId, receiverId, "Message " + id);
+        message.setId(id);
+        message.setSentAt(sentAt);
+        return message;
+    }
+
+    private Conversation conversation(Long senderId, Long receiverId, String content, LocalDateTime sentAt) {
+        Message message = new Message(senderId, receiverId, content);
+        message.setId(1L);
+        message.setSentAt(sentAt);
+        Conversation conversation = new Conversation(senderId, receiverId);
+        conversation.recordMessage(message);
+        return conversation;
+    }
 }
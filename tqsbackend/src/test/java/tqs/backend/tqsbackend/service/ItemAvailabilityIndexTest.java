@@ -0,0 +1,118 @@
+package tqs.backend.tqsbackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemAvailabilityIndexTest {
+
+    private static final LocalDate BASE = LocalDate.of(2030, 1, 1);
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private ItemAvailabilityIndex index;
+
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemAvailabilityIndex(bookingRepository);
+        item = new Item("Lamp", "Desk Lamp", 20.0, new Category("Lighting"), 0.0, "Lisbon", 1L);
+        item.setId(10L);
+    }
+
+    private Booking booking(Long id, int startDay, int endDay, BookingStatus status) {
+        Booking booking = new Booking(item, 2L, BASE.plusDays(startDay), BASE.plusDays(endDay),
+                BigDecimal.TEN, BigDecimal.TEN, status, PaymentStatus.PENDING);
+        booking.setId(id);
+        return booking;
+    }
+
+    @Test
+    void rebuild_KeepsUpdatesMadeWhileLoading() throws Exception {
+        Thread[] listener = new Thread[1];
+        when(bookingRepository.findByStatusIn(any())).thenAnswer(inv -> {
+            // A booking committed while the rows are being read
+            listener[0] = new Thread(() -> index.update(booking(2L, 20, 22, BookingStatus.REQUESTED)));
+            listener[0].start();
+            listener[0].join(200);
+            return List.of(booking(1L, 5, 8, BookingStatus.ACCEPTED));
+        });
+
+        index.rebuild();
+        listener[0].join();
+
+        assertThat(index.isAvailable(10L, BASE.plusDays(6), BASE.plusDays(7))).isFalse();
+        assertThat(index.isAvailable(10L, BASE.plusDays(21), BASE.plusDays(22))).isFalse();
+    }
+
+    @Test
+    void rebuild_LoadsActiveBookings() {
+        when(bookingRepository.findByStatusIn(any())).thenReturn(List.of(booking(1L, 5, 8, BookingStatus.ACCEPTED)));
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.isAvailable(10L, BASE.plusDays(6), BASE.plusDays(7))).isFalse();
+        assertThat(index.isAvailable(10L, BASE.plusDays(8), BASE.plusDays(10))).isTrue();
+    }
+
+    @Test
+    void isAvailable_UsesHalfOpenRanges() {
+        index.update(booking(1L, 5, 8, BookingStatus.REQUESTED));
+
+        assertThat(index.isAvailable(10L, BASE.plusDays(1), BASE.plusDays(5))).isTrue();
+        assertThat(index.isAvailable(10L, BASE.plusDays(8), BASE.plusDays(9))).isTrue();
+        assertThat(index.isAvailable(10L, BASE.plusDays(4), BASE.plusDays(6))).isFalse();
+        assertThat(index.isAvailable(10L, BASE.plusDays(7), BASE.plusDays(12))).isFalse();
+        assertThat(index.isAvailable(10L, BASE, BASE.plusDays(20))).isFalse();
+    }
+
+    @Test
+    void isAvailable_DetectsLongBookingHiddenBehindShorterOnes() {
+        index.update(booking(1L, 0, 30, BookingStatus.ACCEPTED));
+        index.update(booking(2L, 2, 3, BookingStatus.ACCEPTED));
+
+        assertThat(index.isAvailable(10L, BASE.plusDays(10), BASE.plusDays(12))).isFalse();
+    }
+
+    @Test
+    void update_InactiveStatusFreesRange() {
+        Booking booking = booking(1L, 5, 8, BookingStatus.REQUESTED);
+        index.update(booking);
+
+        booking.setStatus(BookingStatus.CANCELLED);
+        index.update(booking);
+
+        assertThat(index.isAvailable(10L, BASE.plusDays(5), BASE.plusDays(8))).isTrue();
+        assertThat(index.findOccupiedItemIds(BASE, BASE.plusDays(30))).isEmpty();
+    }
+
+    @Test
+    void findOccupiedItemIds_ReturnsOnlyOverlappingItems() {
+        index.update(booking(1L, 5, 8, BookingStatus.ACCEPTED));
+        index.remove(10L, 99L);
+
+        assertThat(index.findOccupiedItemIds(BASE.plusDays(6), BASE.plusDays(7))).containsExactly(10L);
+        assertThat(index.findOccupiedItemIds(BASE.plusDays(9), BASE.plusDays(10))).isEmpty();
+        assertThat(index.isAvailable(11L, BASE.plusDays(6), BASE.plusDays(7))).isTrue();
+    }
+}
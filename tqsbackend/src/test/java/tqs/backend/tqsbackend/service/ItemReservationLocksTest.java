@@ -0,0 +1,98 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ItemReservationLocksTest {
+
+    private final ItemReservationLocks locks = new ItemReservationLocks();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void withItemLock_SameItem_RunsOneAtATime() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+
+        Future<?>[] futures = new Future<?>[50];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(() -> locks.withItemLock(7L, () -> {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                Thread.onSpinWait();
+                return inside.decrementAndGet();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxInside.get()).isEqualTo(1);
+    }
+
+    @Test
+    void withItemLock_DifferentItems_RunInParallel() throws Exception {
+        Long first = 1L;
+        Long second = 2L;
+        assertThat(locks.stripeFor(first)).isNotSameAs(locks.stripeFor(second));
+
+        CountDownLatch bothInside = new CountDownLatch(2);
+        Future<Boolean> a = executor.submit(() -> locks.withItemLock(first, () -> await(bothInside)));
+        Future<Boolean> b = executor.submit(() -> locks.withItemLock(second, () -> await(bothInside)));
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(b.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void withItemLock_InTransaction_HoldsLockUntilCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            locks.withItemLock(3L, () -> "booked");
+            assertThat(locks.stripeFor(3L).isHeldByCurrentThread()).isTrue();
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager
+                    .getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            assertThat(locks.stripeFor(3L).isLocked()).isFalse();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void withItemLock_ActionFails_ReleasesLock() {
+        assertThrows(IllegalStateException.class, () -> locks.withItemLock(3L, () -> {
+            throw new IllegalStateException("taken");
+        }));
+
+        assertThat(locks.stripeFor(3L).isLocked()).isFalse();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
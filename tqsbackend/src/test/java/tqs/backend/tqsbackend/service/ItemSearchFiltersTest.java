@@ -0,0 +1,82 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.CategoryRepository;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+
+/**
+ * Runs the search filters against a real database, including the SQL
+ * fallbacks used when the in-memory indexes return too many ids to bind.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+@Import(ItemService.class)
+class ItemSearchFiltersTest {
+
+    @MockitoBean
+    private ItemSearchIndex itemSearchIndex;
+
+    @MockitoBean
+    private ItemAvailabilityIndex itemAvailabilityIndex;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Test
+    void searchItems_ManyOccupiedItems_ExcludesBookedItemsWithSubquery() {
+        Category lighting = categoryRepository.save(new Category("Lighting"));
+        Item booked = itemRepository.save(new Item("Lamp", "Desk lamp", 20.0, lighting, 0.0, "Lisbon", 1L));
+        Item free = itemRepository.save(new Item("Spotlight", "Stage light", 60.0, lighting, 0.0, "Porto", 1L));
+        LocalDate start = LocalDate.now().plusDays(3);
+        LocalDate end = start.plusDays(2);
+        bookingRepository.save(new Booking(booked, 7L, start, end, new BigDecimal("20.00"),
+                new BigDecimal("40.00"), BookingStatus.ACCEPTED, PaymentStatus.PAID));
+
+        when(itemAvailabilityIndex.isReady()).thenReturn(true);
+        when(itemAvailabilityIndex.findOccupiedItemIds(start, end)).thenReturn(idsAbove(free.getId()));
+
+        ItemSearchCriteria criteria = new ItemSearchCriteria(null, null, null, null, null, null, start, end);
+
+        // The oversized id set is not bound, the bookings table decides instead
+        assertThat(itemService.searchItems(criteria)).extracting(Item::getId).containsExactly(free.getId());
+    }
+
+    // More ids than ItemService binds in a list, none of them a stored item
+    private static Set<Long> idsAbove(Long id) {
+        Set<Long> ids = new HashSet<>();
+        for (long i = 1; i <= ItemService.MAX_ID_FILTER_SIZE + 1; i++) {
+            ids.add(id + i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,105 @@
+package tqs.backend.tqsbackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSearchIndexTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemSearchIndex(itemRepository);
+    }
+
+    private Item item(Long id, String name, String description) {
+        Item item = new Item(name, description, 10.0, new Category("Lighting"), 0.0, "Lisbon");
+        item.setId(id);
+        return item;
+    }
+
+    @Test
+    void rebuild_IndexesAllItemsAndMarksReady() {
+        when(itemRepository.findAll()).thenReturn(List.of(
+                item(1L, "Party Lights", "Colorful lights"),
+                item(2L, "Meal Table", "Foldable table")));
+
+        assertThat(index.isReady()).isFalse();
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("party")).containsExactly(1L);
+    }
+
+    @Test
+    void rebuild_KeepsUpdatesMadeWhileLoading() throws Exception {
+        Thread[] listener = new Thread[1];
+        when(itemRepository.findAll()).thenAnswer(inv -> {
+            // An item saved while the rows are being read
+            listener[0] = new Thread(() -> index.index(item(2L, "Meal Table", "Foldable table")));
+            listener[0].start();
+            listener[0].join(200);
+            return List.of(item(1L, "Party Lights", "Colorful lights"));
+        });
+
+        index.rebuild();
+        listener[0].join();
+
+        assertThat(index.search("table")).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void search_MatchesSubstringsIgnoringCase() {
+        index.index(item(1L, "Party Lights", "Colorful lights"));
+        index.index(item(2L, "Bluetooth Speaker", "Portable speaker"));
+
+        assertThat(index.search("ARTY")).containsExactly(1L);
+        assertThat(index.search("table")).containsExactly(2L);
+        assertThat(index.search("o")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("lights colorful")).isEmpty();
+    }
+
+    @Test
+    void search_DoesNotMatchAcrossNameAndDescription() {
+        index.index(item(1L, "Lamp", "Desk"));
+
+        assertThat(index.search("lampdesk")).isEmpty();
+        assertThat(index.search("desk")).containsExactly(1L);
+    }
+
+    @Test
+    void index_ReplacesPreviousPostingsOnUpdate() {
+        index.index(item(1L, "Old Name", null));
+        index.index(item(1L, "New Name", null));
+
+        assertThat(index.search("old")).isEmpty();
+        assertThat(index.search("new")).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remove_DropsItemFromResults() {
+        index.index(item(1L, "Speaker", "Loud"));
+        index.remove(1L);
+
+        assertThat(index.search("speaker")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+}
@@ -6,16 +6,23 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.jpa.domain.Specification;
+import tqs.backend.tqsbackend.dto.ItemFacets;
+import tqs.backend.tqsbackend.dto.ItemSearchCriteria;
+import tqs.backend.tqsbackend.dto.ItemSearchPage;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
 import tqs.backend.tqsbackend.repository.ItemRepository;
 
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import org.mockito.Mockito;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,6 +32,12 @@ public class ItemServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private ItemSearchIndex itemSearchIndex;
+
+    @Mock
+    private ItemAvailabilityIndex itemAvailabilityIndex;
+
     @InjectMocks
     private ItemService itemService;
 
@@ -64,6 +77,127 @@ public class ItemServiceTest {
         verify(itemRepository).findAll(Mockito.<Specification<Item>>any());
     }
 
+    @Test
+    public void testSearchItems_UsesIndexWhenReady() {
+        // Arrange
+        Item item = new Item("Lamp", "Desk Lamp", 20.0, new Category("Lighting"), 4.5, "Lisbon");
+        item.setId(1L);
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.search("lamp")).thenReturn(Set.of(1L));
+        when(itemRepository.findAll(Mockito.<Specification<Item>>any())).thenReturn(List.of(item));
+
+        // Act
+        List<Item> result = itemService.searchItems("lamp", null, null, null, null, null);
+
+        // Assert
+        assertThat(result).containsExactly(item);
+        verify(itemSearchIndex).search("lamp");
+    }
+
+    @Test
+    public void testSearchItems_IndexHasNoMatches_SkipsQuery() {
+        // Arrange
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.search("missing")).thenReturn(Set.of());
+
+        // Act
+        List<Item> result = itemService.searchItems("missing", null, null, null, null, null);
+
+        // Assert
+        assertThat(result).isEmpty();
+        verify(itemRepository, never()).findAll(Mockito.<Specification<Item>>any());
+    }
+
+    @Test
+    public void testSearchItemsPage_ReturnsCursorWhenMoreRowsExist() {
+        // Arrange
+        Item item1 = new Item("Lamp", "Desk Lamp", 20.0, new Category("Lighting"), 4.5, "Lisbon");
+        item1.setId(1L);
+        Item item2 = new Item("Chair", "Office Chair", 50.0, new Category("Furniture"), 4.0, "Porto");
+        item2.setId(2L);
+        when(itemRepository.findBy(Mockito.<Specification<Item>>any(), Mockito.any()))
+                .thenReturn(List.of(item1, item2));
+
+        // Act
+        ItemSearchPage page = itemService.searchItemsPage(new ItemSearchCriteria(), ItemSearchCursor.Sort.PRICE,
+                null, 1);
+
+        // Assert
+        assertThat(page.getItems()).containsExactly(item1);
+        assertThat(page.getNextCursor()).isNotNull();
+        ItemSearchCursor cursor = ItemSearchCursor.decode(page.getNextCursor(), ItemSearchCursor.Sort.PRICE);
+        assertThat(cursor.id()).isEqualTo(1L);
+        assertThat(cursor.price()).isEqualTo(20.0);
+    }
+
+    @Test
+    public void testSearchItemsPage_LastPageHasNoCursor() {
+        // Arrange
+        Item item = new Item("Lamp", "Desk Lamp", 20.0, new Category("Lighting"), 4.5, "Lisbon");
+        item.setId(1L);
+        String after = new ItemSearchCursor(ItemSearchCursor.Sort.ID, null, 0L).encode();
+        when(itemRepository.findBy(Mockito.<Specification<Item>>any(), Mockito.any())).thenReturn(List.of(item));
+
+        // Act
+        ItemSearchPage page = itemService.searchItemsPage(new ItemSearchCriteria(), ItemSearchCursor.Sort.ID,
+                after, 10);
+
+        // Assert
+        assertThat(page.getItems()).containsExactly(item);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void testSearchItemsPage_CursorForOtherSort_ThrowsException() {
+        String after = new ItemSearchCursor(ItemSearchCursor.Sort.ID, null, 5L).encode();
+
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> itemService.searchItemsPage(new ItemSearchCriteria(), ItemSearchCursor.Sort.PRICE, after, 10));
+    }
+
+    @Test
+    public void testSearchItemsPage_InvalidLimit_ThrowsException() {
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> itemService.searchItemsPage(new ItemSearchCriteria(), ItemSearchCursor.Sort.ID, null, 0));
+    }
+
+    @Test
+    public void testSearchItems_WithDateRange_UsesAvailabilityIndex() {
+        // Arrange
+        LocalDate start = LocalDate.now().plusDays(3);
+        LocalDate end = LocalDate.now().plusDays(5);
+        Item item = new Item("Lamp", "Desk Lamp", 20.0, new Category("Lighting"), 4.5, "Lisbon");
+        when(itemAvailabilityIndex.isReady()).thenReturn(true);
+        when(itemAvailabilityIndex.findOccupiedItemIds(start, end)).thenReturn(Set.of(7L));
+        when(itemRepository.findAll(Mockito.<Specification<Item>>any())).thenReturn(List.of(item));
+
+        // Act
+        ItemSearchCriteria criteria = new ItemSearchCriteria(null, null, null, null, null, null, start, end);
+        List<Item> result = itemService.searchItems(criteria);
+
+        // Assert
+        assertThat(result).containsExactly(item);
+        verify(itemAvailabilityIndex).findOccupiedItemIds(start, end);
+    }
+
+    @Test
+    public void testSearchItems_WithOnlyStartDate_ThrowsException() {
+        ItemSearchCriteria criteria = new ItemSearchCriteria(null, null, null, null, null, null,
+                LocalDate.now(), null);
+
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> itemService.searchItems(criteria));
+    }
+
+    @Test
+    public void testSearchItems_WithEndBeforeStart_ThrowsException() {
+        ItemSearchCriteria criteria = new ItemSearchCriteria(null, null, null, null, null, null,
+                LocalDate.now().plusDays(5), LocalDate.now().plusDays(2));
+
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> itemService.searchItems(criteria));
+    }
+
     @Test
     public void testGetItemById() {
         // Arrange
@@ -356,4 +490,32 @@ public class ItemServiceTest {
         assertThat(result).isEqualTo(item);
         verify(itemRepository).save(item);
     }
+
+    @Test
+    public void testGetFacets_DelegatesToRepository() {
+        // Arrange
+        ItemFacets facets = new ItemFacets(Map.of("Lighting", 2L), Map.of("Lisbon", 2L), List.of(), Map.of(4, 1L));
+        when(itemRepository.countFacets(Mockito.<Specification<Item>>any())).thenReturn(facets);
+
+        // Act
+        ItemFacets result = itemService.getFacets(new ItemSearchCriteria(null, null, null, 100.0, null, null));
+
+        // Assert
+        assertThat(result).isSameAs(facets);
+    }
+
+    @Test
+    public void testGetFacets_NoKeywordMatch_ReturnsEmptyCounts() {
+        // Arrange
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.search("nothing")).thenReturn(Set.of());
+
+        // Act
+        ItemFacets result = itemService.getFacets(new ItemSearchCriteria("nothing", null, null, null, null, null));
+
+        // Assert
+        assertThat(result.getCategories()).isEmpty();
+        assertThat(result.getPriceRanges()).isEmpty();
+        verify(itemRepository, never()).countFacets(Mockito.<Specification<Item>>any());
+    }
 }
@@ -1,15 +1,58 @@
 package tqs.backend.tqsbackend.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+
 import org.junit.jupiter.api.Test;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.CardException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+
 import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.service.MockPaymentService.Latency;
+import tqs.backend.tqsbackend.service.MockPaymentService.Simulation;
 
 class MockPaymentServiceTest {
 
     private final MockPaymentService paymentService = new MockPaymentService();
 
+    private static Simulation latency(Latency latency, Duration mean, Duration stdDev, double tailSigma) {
+        return new Simulation(latency, mean, stdDev, tailSigma, 0, 0, 0, Duration.ofSeconds(30));
+    }
+
+    private static Simulation faults(double failureRate, double rateLimitRate, double timeoutRate) {
+        return new Simulation(Latency.NONE, Duration.ZERO, Duration.ZERO, 1.0, failureRate, rateLimitRate,
+                timeoutRate, Duration.ofMillis(20));
+    }
+
+    private static PaymentResult charge(MockPaymentService service) {
+        Item item = new Item();
+        item.setId(15L);
+        return service.charge(70L, item, BigDecimal.valueOf(50), 88L);
+    }
+
+    private static PaymentResult simulateCharge(MockPaymentService service) throws StripeException {
+        Item item = new Item();
+        item.setId(15L);
+        return service.simulateCharge(70L, item, BigDecimal.valueOf(50), 88L);
+    }
+
+    private static double[] samplesInMillis(MockPaymentService service, int count) {
+        double[] samples = new double[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = service.sampleLatency().toNanos() / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
     @Test
     void charge_returnsSuccessfulPaymentWithReference() {
         Item item = new Item();
@@ -23,4 +66,106 @@ class MockPaymentServiceTest {
         assertThat(result.reference()).contains("PAY-88");
         assertThat(result.reason()).isNull();
     }
+
+    @Test
+    void charge_WithFailureRate_Declines() {
+        PaymentResult result = charge(new MockPaymentService(faults(1, 0, 0)));
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.reason()).isEqualTo(MockPaymentService.DECLINED);
+    }
+
+    @Test
+    void charge_WithRateLimitRate_IsRateLimited() {
+        PaymentResult result = charge(new MockPaymentService(faults(0, 1, 0)));
+
+        assertThat(result.reason()).isEqualTo(MockPaymentService.RATE_LIMITED);
+    }
+
+    @Test
+    void charge_WithTimeoutRate_HangsUntilTimeout() {
+        long start = System.nanoTime();
+        PaymentResult result = charge(new MockPaymentService(faults(0, 0, 1)));
+
+        assertThat(result.reason()).isEqualTo(MockPaymentService.TIMED_OUT);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+    }
+
+    @Test
+    void simulateCharge_ThrowsWhatTheGatewayCountsAsProviderFailures() {
+        assertThatThrownBy(() -> simulateCharge(new MockPaymentService(faults(0, 1, 0))))
+                .isInstanceOf(RateLimitException.class)
+                .hasFieldOrPropertyWithValue("statusCode", 429);
+        assertThatThrownBy(() -> simulateCharge(new MockPaymentService(faults(0, 0, 1))))
+                .isInstanceOf(ApiConnectionException.class)
+                .hasMessage(MockPaymentService.TIMED_OUT);
+    }
+
+    @Test
+    void simulateCharge_Decline_IsACardError() {
+        assertThatThrownBy(() -> simulateCharge(new MockPaymentService(faults(1, 0, 0))))
+                .isInstanceOf(CardException.class)
+                .hasMessage(MockPaymentService.DECLINED);
+    }
+
+    @Test
+    void charge_SlowerThanTimeout_TimesOut() {
+        MockPaymentService service = new MockPaymentService(new Simulation(Latency.FIXED, Duration.ofSeconds(5),
+                Duration.ZERO, 1.0, 0, 0, 0, Duration.ofMillis(20)));
+
+        assertThat(charge(service).reason()).isEqualTo(MockPaymentService.TIMED_OUT);
+    }
+
+    @Test
+    void charge_InterruptedWhileWaiting_FailsAndKeepsInterrupt() {
+        MockPaymentService service = new MockPaymentService(latency(Latency.FIXED, Duration.ofSeconds(5),
+                Duration.ZERO, 1.0));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(charge(service).reason()).isEqualTo(MockPaymentService.INTERRUPTED);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void sampleLatency_Fixed_IsTheMean() {
+        MockPaymentService service = new MockPaymentService(latency(Latency.FIXED, Duration.ofMillis(250),
+                Duration.ZERO, 1.0));
+
+        assertThat(service.sampleLatency()).isEqualTo(Duration.ofMillis(250));
+    }
+
+    @Test
+    void sampleLatency_Normal_CentresOnTheMeanAndNeverGoesNegative() {
+        MockPaymentService service = new MockPaymentService(latency(Latency.NORMAL, Duration.ofMillis(100),
+                Duration.ofMillis(60), 1.0));
+
+        double[] samples = samplesInMillis(service, 50_000);
+
+        assertThat(samples[0]).isGreaterThanOrEqualTo(0);
+        assertThat(samples[samples.length / 2]).isCloseTo(100, within(5.0));
+    }
+
+    @Test
+    void sampleLatency_LongTail_KeepsTheMeanWithAHeavyTail() {
+        MockPaymentService service = new MockPaymentService(latency(Latency.LONG_TAIL, Duration.ofMillis(100),
+                Duration.ZERO, 1.0));
+
+        double[] samples = samplesInMillis(service, 200_000);
+
+        assertThat(Arrays.stream(samples).average().orElseThrow()).isCloseTo(100, within(10.0));
+        double median = samples[samples.length / 2];
+        double p99 = samples[samples.length * 99 / 100];
+        // exp(sigma * 2.326) for sigma 1: the 99th percentile is about ten times the median
+        assertThat(p99 / median).isGreaterThan(8);
+    }
+
+    @Test
+    void simulation_RejectsRatesOutsideZeroToOne() {
+        assertThatThrownBy(() -> faults(1.5, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> faults(0, 0.6, 0.6)).isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,51 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class NotificationBroadcasterTest {
+
+    private final NotificationBroadcaster broadcaster = new NotificationBroadcaster(Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void subscribe_TracksStreamsPerUser() {
+        SseEmitter first = broadcaster.subscribe(1L);
+        SseEmitter second = broadcaster.subscribe(1L);
+        broadcaster.subscribe(2L);
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.getTimeout()).isEqualTo(60_000L);
+        assertThat(broadcaster.streamCount(1L)).isEqualTo(2);
+        assertThat(broadcaster.streamCount(2L)).isEqualTo(1);
+        assertThat(broadcaster.streamCount(3L)).isZero();
+    }
+
+    @Test
+    void subscribe_BeyondLimit_DropsOldestStream() {
+        for (int i = 0; i < NotificationBroadcaster.MAX_STREAMS_PER_USER + 2; i++) {
+            broadcaster.subscribe(1L);
+        }
+
+        assertThat(broadcaster.streamCount(1L)).isEqualTo(NotificationBroadcaster.MAX_STREAMS_PER_USER);
+    }
+
+    @Test
+    void onNotification_WithoutSubscribers_IsNoOp() {
+        broadcaster.subscribe(2L);
+
+        assertThatCode(() -> broadcaster.onNotification(new UserNotification(1L, UserNotification.MESSAGE, "hi")))
+                .doesNotThrowAnyException();
+        assertThat(broadcaster.streamCount(2L)).isEqualTo(1);
+    }
+}
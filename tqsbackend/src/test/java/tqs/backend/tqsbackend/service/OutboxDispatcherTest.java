@@ -0,0 +1,198 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tqs.backend.tqsbackend.entity.OutboxEvent;
+import tqs.backend.tqsbackend.entity.OutboxEventType;
+import tqs.backend.tqsbackend.entity.OutboxStatus;
+import tqs.backend.tqsbackend.repository.OutboxEventRepository;
+
+/**
+ * The dispatcher commits each step on its own, so the test runs outside a
+ * transaction and clears the table afterwards.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxDispatcherTest {
+
+    private static final Duration BACKOFF = Duration.ofSeconds(5);
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final WalletService walletService = mock(WalletService.class);
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+    }
+
+    private OutboxDispatcher dispatcher(Executor executor, int maxAttempts) {
+        return new OutboxDispatcher(outboxRepository, walletService, paymentService, transactionManager, executor,
+                maxAttempts, BACKOFF, Duration.ofMinutes(1), 100);
+    }
+
+    private OutboxEvent event(Long bookingId) {
+        return outboxRepository.save(new OutboxEvent(OutboxEventType.HOLD_FUNDS, bookingId));
+    }
+
+    private OutboxEvent reload(OutboxEvent event) {
+        return outboxRepository.findById(event.getId()).orElseThrow();
+    }
+
+    @Test
+    void process_HoldsFundsAndMarksDone() {
+        OutboxEvent event = event(1L);
+
+        dispatcher(Runnable::run, 3).process(event.getId());
+
+        verify(walletService).holdFunds(1L);
+        OutboxEvent done = reload(event);
+        assertThat(done.getStatus()).isEqualTo(OutboxStatus.DONE);
+        assertThat(done.getAttempts()).isEqualTo(1);
+        assertThat(done.getProcessedAt()).isNotNull();
+    }
+
+    @Test
+    void process_RefundPayment_RefundsAndMarksDone() {
+        OutboxEvent event = outboxRepository.save(new OutboxEvent(OutboxEventType.REFUND_PAYMENT, 1L));
+
+        dispatcher(Runnable::run, 3).process(event.getId());
+
+        verify(paymentService).refund(1L);
+        verify(walletService, never()).holdFunds(1L);
+        assertThat(reload(event).getStatus()).isEqualTo(OutboxStatus.DONE);
+    }
+
+    @Test
+    void process_Failure_RetriesAfterBackoff() {
+        OutboxEvent event = event(1L);
+        when(walletService.holdFunds(1L)).thenThrow(new IllegalArgumentException("Booking not found"));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher(Runnable::run, 3).process(event.getId());
+
+        OutboxEvent retried = reload(event);
+        assertThat(retried.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(retried.getAttempts()).isEqualTo(1);
+        assertThat(retried.getNextAttemptAt()).isAfterOrEqualTo(before.plus(BACKOFF));
+        assertThat(retried.getLastError()).contains("Booking not found");
+    }
+
+    @Test
+    void process_LastAttemptFails_MarksFailed() {
+        OutboxEvent event = event(1L);
+        when(walletService.holdFunds(1L)).thenThrow(new IllegalStateException("boom"));
+
+        dispatcher(Runnable::run, 1).process(event.getId());
+
+        OutboxEvent failed = reload(event);
+        assertThat(failed.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(failed.getLastError()).contains("boom");
+    }
+
+    @Test
+    void process_LeasedEvent_IsSkipped() {
+        OutboxEvent event = new OutboxEvent(OutboxEventType.HOLD_FUNDS, 1L);
+        event.setNextAttemptAt(LocalDateTime.now().plusMinutes(1));
+        event = outboxRepository.save(event);
+
+        dispatcher(Runnable::run, 3).process(event.getId());
+
+        verify(walletService, never()).holdFunds(1L);
+        assertThat(reload(event).getAttempts()).isZero();
+    }
+
+    @Test
+    void enqueue_DispatchesOnlyAfterCommit() {
+        OutboxDispatcher dispatcher = dispatcher(Runnable::run, 3);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            dispatcher.enqueue(OutboxEventType.HOLD_FUNDS, 1L);
+            dispatcher.enqueue(OutboxEventType.HOLD_FUNDS, 1L);
+            verify(walletService, never()).holdFunds(1L);
+        });
+
+        verify(walletService).holdFunds(1L);
+        assertThat(outboxRepository.findAll()).singleElement()
+                .extracting(OutboxEvent::getStatus).isEqualTo(OutboxStatus.DONE);
+    }
+
+    @Test
+    void enqueue_RolledBack_RecordsNothing() {
+        OutboxDispatcher dispatcher = dispatcher(Runnable::run, 3);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            dispatcher.enqueue(OutboxEventType.HOLD_FUNDS, 1L);
+            status.setRollbackOnly();
+        });
+
+        verify(walletService, never()).holdFunds(1L);
+        assertThat(outboxRepository.count()).isZero();
+    }
+
+    @Test
+    void dispatchDue_ConcurrentPollsApplyEachEventOnce() throws Exception {
+        List<Long> bookingIds = new ArrayList<>();
+        for (long bookingId = 1; bookingId <= 40; bookingId++) {
+            event(bookingId);
+            bookingIds.add(bookingId);
+        }
+        ThreadPoolExecutor pool = OutboxDispatcher.newExecutor(4, 1000);
+        OutboxDispatcher dispatcher = dispatcher(pool, 3);
+
+        // Three pollers race for the same due events
+        ExecutorService pollers = Executors.newFixedThreadPool(3);
+        for (int i = 0; i < 3; i++) {
+            pollers.execute(dispatcher::dispatchDue);
+        }
+        pollers.shutdown();
+        assertThat(pollers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        for (Long bookingId : bookingIds) {
+            verify(walletService).holdFunds(bookingId);
+        }
+        assertThat(outboxRepository.findAll()).extracting(OutboxEvent::getStatus).containsOnly(OutboxStatus.DONE);
+    }
+
+    @Test
+    void backoff_DoublesUpToAnHour() {
+        OutboxDispatcher dispatcher = dispatcher(Runnable::run, 3);
+
+        assertThat(dispatcher.backoff(1)).isEqualTo(BACKOFF);
+        assertThat(dispatcher.backoff(3)).isEqualTo(BACKOFF.multipliedBy(4));
+        assertThat(dispatcher.backoff(30)).isEqualTo(Duration.ofHours(1));
+    }
+}
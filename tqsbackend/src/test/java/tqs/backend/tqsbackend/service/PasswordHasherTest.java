@@ -0,0 +1,85 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
+
+class PasswordHasherTest {
+
+    private final ThreadPoolExecutor executor = PasswordHasher.newExecutor(1, 1);
+
+    private final PasswordHasher hasher = new PasswordHasher(4, Duration.ofSeconds(5), executor);
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void hash_UsesConfiguredCostAndMatches() {
+        String hash = hasher.hash("password1");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(hasher.matches("password1", hash)).isTrue();
+        assertThat(hasher.matches("wrong", hash)).isFalse();
+    }
+
+    @Test
+    void needsRehash_ComparesCostWithConfigured() {
+        assertThat(hasher.needsRehash(BCrypt.hashpw("password1", BCrypt.gensalt(4)))).isFalse();
+        assertThat(hasher.needsRehash(BCrypt.hashpw("password1", BCrypt.gensalt(5)))).isTrue();
+        assertThat(hasher.needsRehash("not-a-hash")).isFalse();
+        assertThat(hasher.needsRehash(null)).isFalse();
+    }
+
+    @Test
+    void hash_PoolAndQueueFull_RejectsImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        started.await();
+        executor.execute(() -> awaitQuietly(release));
+
+        try {
+            assertThrows(ServiceOverloadedException.class, () -> hasher.hash("password1"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void matches_QueuedPastTimeout_RejectsAsOverloaded() throws Exception {
+        ThreadPoolExecutor slowExecutor = PasswordHasher.newExecutor(1, 4);
+        PasswordHasher impatient = new PasswordHasher(4, Duration.ofMillis(50), slowExecutor);
+        String hash = BCrypt.hashpw("password1", BCrypt.gensalt(4));
+        CountDownLatch release = new CountDownLatch(1);
+        // Occupy the only worker so the check waits in the queue
+        slowExecutor.execute(() -> awaitQuietly(release));
+        try {
+            assertThrows(ServiceOverloadedException.class, () -> impatient.matches("password1", hash));
+        } finally {
+            release.countDown();
+            impatient.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
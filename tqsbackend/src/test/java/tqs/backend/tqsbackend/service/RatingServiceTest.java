@@ -17,13 +17,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import tqs.backend.tqsbackend.entity.Rating;
+import tqs.backend.tqsbackend.entity.RatingAggregate;
 import tqs.backend.tqsbackend.entity.RatingType;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
 import tqs.backend.tqsbackend.entity.BookingStatus;
 import tqs.backend.tqsbackend.fixtures.RatingTestFixtures;
+import tqs.backend.tqsbackend.repository.RatingAggregateRepository;
 import tqs.backend.tqsbackend.repository.RatingRepository;
 import tqs.backend.tqsbackend.repository.BookingRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 import java.time.LocalDate;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,9 +45,20 @@ class RatingServiceTest {
         @Mock
         private BookingRepository bookingRepository;
 
+        @Mock
+        private RatingAggregateRepository ratingAggregateRepository;
+
+        @Mock
+        private PlatformTransactionManager transactionManager;
+
         @InjectMocks
         private RatingService ratingService;
 
+        private void givenAggregate(RatingType ratingType, Long ratedId, long sum, long count) {
+                when(ratingAggregateRepository.findByRatingTypeAndRatedId(ratingType, ratedId))
+                                .thenReturn(Optional.of(new RatingAggregate(ratingType, ratedId, sum, count)));
+        }
+
         @Test
         void createRating_Success() {
                 Long senderId = 1L;
@@ -64,6 +79,7 @@ class RatingServiceTest {
 
                 Rating rating = RatingTestFixtures.sampleRating(senderId, ratedId);
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
+                givenAggregate(RatingType.OWNER, ratedId, 0, 0);
 
                 Rating created = ratingService.createRating(senderId, RatingType.OWNER, ratedId, 5, "Great service!");
 
@@ -92,10 +108,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.PRODUCT, itemId, 5, "Great item!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                Rating r1 = new Rating(senderId, RatingType.PRODUCT, itemId, 5, "Great!");
-                Rating r2 = new Rating(senderId, RatingType.PRODUCT, itemId, 3, "Okay.");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.PRODUCT, itemId))
-                                .thenReturn(Arrays.asList(r1, r2));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.PRODUCT, itemId, 3, 1);
 
                 ratingService.createRating(senderId, RatingType.PRODUCT, itemId, 5, "Great item!");
 
@@ -214,7 +229,9 @@ class RatingServiceTest {
 
         @Test
         void deleteRating_Success() {
-                when(ratingRepository.existsById(1L)).thenReturn(true);
+                Rating rating = new Rating(1L, RatingType.OWNER, 2L, 5, "Great!");
+                when(ratingRepository.findById(1L)).thenReturn(Optional.of(rating));
+                givenAggregate(RatingType.OWNER, 2L, 5, 1);
 
                 boolean result = ratingService.deleteRating(1L);
 
@@ -222,9 +239,42 @@ class RatingServiceTest {
                 verify(ratingRepository).deleteById(1L);
         }
 
+        @Test
+        void deleteRating_RecomputesAverageFromTotals() {
+                Rating rating = new Rating(1L, RatingType.PRODUCT, 10L, 1, "Bad");
+                when(ratingRepository.findById(1L)).thenReturn(Optional.of(rating));
+                givenAggregate(RatingType.PRODUCT, 10L, 9, 3);
+                tqs.backend.tqsbackend.entity.Item item = new tqs.backend.tqsbackend.entity.Item();
+                item.setId(10L);
+                item.setAverageRating(3.0);
+                when(itemService.getItemById(10L)).thenReturn(item);
+
+                ratingService.deleteRating(1L);
+
+                // (9 - 1) / 2 = 4.0
+                assertThat(item.getAverageRating()).isEqualTo(4.0);
+                verify(itemService).saveItem(item);
+        }
+
+        @Test
+        void deleteRating_LastRating_ClearsOwnerAverage() {
+                Rating rating = new Rating(1L, RatingType.OWNER, 2L, 4, "Good");
+                when(ratingRepository.findById(1L)).thenReturn(Optional.of(rating));
+                givenAggregate(RatingType.OWNER, 2L, 4, 1);
+                User owner = new User();
+                owner.setId(2L);
+                owner.setAverageRating(4.0);
+                when(userService.getUserById(2L)).thenReturn(Optional.of(owner));
+
+                ratingService.deleteRating(1L);
+
+                assertThat(owner.getAverageRating()).isNull();
+                verify(userService).saveUser(owner);
+        }
+
         @Test
         void deleteRating_NotFound() {
-                when(ratingRepository.existsById(1L)).thenReturn(false);
+                when(ratingRepository.findById(1L)).thenReturn(Optional.empty());
 
                 boolean result = ratingService.deleteRating(1L);
 
@@ -298,11 +348,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Great owner!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Create existing ratings for the owner
-                Rating r1 = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
-                Rating r2 = new Rating(senderId, RatingType.OWNER, ownerId, 3, "Okay.");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
-                                .thenReturn(Arrays.asList(r1, r2));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.OWNER, ownerId, 3, 1);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.OWNER, ownerId, 5, "Great owner!");
@@ -334,12 +382,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.OWNER, ownerId, 4, "Good!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Create multiple ratings with different values
-                Rating r1 = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Excellent!");
-                Rating r2 = new Rating(senderId, RatingType.OWNER, ownerId, 3, "Average");
-                Rating r3 = new Rating(senderId, RatingType.OWNER, ownerId, 4, "Good");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
-                                .thenReturn(Arrays.asList(r1, r2, r3));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.OWNER, ownerId, 8, 2);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.OWNER, ownerId, 4, "Good!");
@@ -371,12 +416,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.OWNER, ownerId, 4, "Good!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Create ratings that result in a value needing rounding
-                Rating r1 = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Excellent!");
-                Rating r2 = new Rating(senderId, RatingType.OWNER, ownerId, 4, "Good");
-                Rating r3 = new Rating(senderId, RatingType.OWNER, ownerId, 4, "Good");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
-                                .thenReturn(Arrays.asList(r1, r2, r3));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.OWNER, ownerId, 9, 2);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.OWNER, ownerId, 4, "Good!");
@@ -408,10 +450,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Perfect!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Only one rating
-                Rating r1 = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Perfect!");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
-                                .thenReturn(Arrays.asList(r1));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.OWNER, ownerId, 0, 0);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.OWNER, ownerId, 5, "Perfect!");
@@ -422,7 +463,7 @@ class RatingServiceTest {
         }
 
         @Test
-        void updateOwnerAverageRating_WithEmptyRatings_DoesNotUpdateOwner() {
+        void updateOwnerAverageRating_WithoutAggregate_SeedsFromStoredRatings() {
                 // Arrange
                 Long senderId = 1L;
                 Long ownerId = 2L;
@@ -443,15 +484,58 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Empty ratings list
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
-                                .thenReturn(Arrays.asList());
+                // No running totals yet, two ratings stored before they existed; the seeded
+                // row is read back with the lock
+                when(ratingRepository.sumRateByRatingTypeAndRatedId(RatingType.OWNER, ownerId)).thenReturn(5L);
+                when(ratingRepository.countByRatingTypeAndRatedId(RatingType.OWNER, ownerId)).thenReturn(2L);
+                when(ratingAggregateRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
+                                .thenReturn(Optional.empty(),
+                                                Optional.of(new RatingAggregate(RatingType.OWNER, ownerId, 5L, 2L)));
 
                 // Act
                 ratingService.createRating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
 
-                // Assert - saveUser should not be called when ratings list is empty
-                verify(userService, org.mockito.Mockito.never()).saveUser(any(User.class));
+                // Assert - Average should be (5 stored + 5 new) / 3 = 3.3 and the totals persisted
+                verify(userService).saveUser(any(User.class));
+                assertThat(owner.getAverageRating()).isEqualTo(3.3);
+                verify(ratingAggregateRepository).saveAndFlush(org.mockito.ArgumentMatchers.argThat(
+                                a -> a.getRatingSum() == 5L && a.getRatingCount() == 2L));
+                verify(ratingAggregateRepository).save(org.mockito.ArgumentMatchers.argThat(
+                                a -> a.getRatingSum() == 10L && a.getRatingCount() == 3L));
+        }
+
+        @Test
+        void createRating_TotalsCreatedConcurrently_UsesTheirRow() {
+                Long senderId = 1L;
+                Long ownerId = 2L;
+                User sender = new User();
+                sender.setId(senderId);
+                sender.setRole(UserRoles.RENTER);
+
+                User owner = new User();
+                owner.setId(ownerId);
+                owner.setRole(UserRoles.OWNER);
+
+                when(userService.getUserById(senderId)).thenReturn(Optional.of(sender));
+                when(userService.getUserById(ownerId)).thenReturn(Optional.of(owner));
+                when(bookingRepository.existsByRenterIdAndItem_OwnerIdAndStatusAndEndDateBefore(
+                                any(Long.class), any(Long.class), any(BookingStatus.class), any(LocalDate.class)))
+                                .thenReturn(true);
+                when(ratingRepository.save(any(Rating.class)))
+                                .thenReturn(new Rating(senderId, RatingType.OWNER, ownerId, 5, "Great!"));
+
+                // Another first rating inserted the totals between the lookup and the seed
+                when(ratingAggregateRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
+                                .thenReturn(Optional.empty(),
+                                                Optional.of(new RatingAggregate(RatingType.OWNER, ownerId, 3L, 1L)));
+                when(ratingAggregateRepository.saveAndFlush(any(RatingAggregate.class)))
+                                .thenThrow(new DataIntegrityViolationException("uk_rating_aggregates_target"));
+
+                ratingService.createRating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
+
+                assertThat(owner.getAverageRating()).isEqualTo(4.0);
+                verify(ratingAggregateRepository).save(org.mockito.ArgumentMatchers.argThat(
+                                a -> a.getRatingSum() == 8L && a.getRatingCount() == 2L));
         }
 
         @Test
@@ -480,10 +564,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Ratings exist
-                Rating r1 = new Rating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.OWNER, ownerId))
-                                .thenReturn(Arrays.asList(r1));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.OWNER, ownerId, 0, 0);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.OWNER, ownerId, 5, "Great!");
@@ -651,10 +734,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.RENTER, renterId, 5, "Perfect!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Only one rating
-                Rating r1 = new Rating(senderId, RatingType.RENTER, renterId, 5, "Perfect!");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId))
-                                .thenReturn(Arrays.asList(r1));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.RENTER, renterId, 0, 0);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.RENTER, renterId, 5, "Perfect!");
@@ -685,12 +767,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.RENTER, renterId, 4, "Good!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Multiple ratings: 5, 3, 4
-                Rating r1 = new Rating(senderId, RatingType.RENTER, renterId, 5, "Great");
-                Rating r2 = new Rating(senderId, RatingType.RENTER, renterId, 3, "Average");
-                Rating r3 = new Rating(senderId, RatingType.RENTER, renterId, 4, "Good");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId))
-                                .thenReturn(Arrays.asList(r1, r2, r3));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.RENTER, renterId, 8, 2);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.RENTER, renterId, 4, "Good!");
@@ -701,7 +780,7 @@ class RatingServiceTest {
         }
 
         @Test
-        void updateRenterAverageRating_WithEmptyRatings_DoesNotUpdateRenter() {
+        void updateRenterAverageRating_WithoutAggregate_SeedsFromStoredRatings() {
                 // Arrange
                 Long senderId = 1L;
                 Long renterId = 2L;
@@ -721,15 +800,24 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.RENTER, renterId, 5, "Great!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Empty ratings list
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId))
-                                .thenReturn(Arrays.asList());
+                // No running totals yet, two ratings stored before they existed; the seeded
+                // row is read back with the lock
+                when(ratingRepository.sumRateByRatingTypeAndRatedId(RatingType.RENTER, renterId)).thenReturn(5L);
+                when(ratingRepository.countByRatingTypeAndRatedId(RatingType.RENTER, renterId)).thenReturn(2L);
+                when(ratingAggregateRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId))
+                                .thenReturn(Optional.empty(),
+                                                Optional.of(new RatingAggregate(RatingType.RENTER, renterId, 5L, 2L)));
 
                 // Act
                 ratingService.createRating(senderId, RatingType.RENTER, renterId, 5, "Great!");
 
-                // Assert - saveUser should not be called when ratings list is empty
-                verify(userService, org.mockito.Mockito.never()).saveUser(any(User.class));
+                // Assert - Average should be (5 stored + 5 new) / 3 = 3.3 and the totals persisted
+                verify(userService).saveUser(any(User.class));
+                assertThat(renter.getAverageRating()).isEqualTo(3.3);
+                verify(ratingAggregateRepository).saveAndFlush(org.mockito.ArgumentMatchers.argThat(
+                                a -> a.getRatingSum() == 5L && a.getRatingCount() == 2L));
+                verify(ratingAggregateRepository).save(org.mockito.ArgumentMatchers.argThat(
+                                a -> a.getRatingSum() == 10L && a.getRatingCount() == 3L));
         }
 
         @Test
@@ -758,10 +846,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.RENTER, renterId, 5, "Great!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Ratings exist
-                Rating r1 = new Rating(senderId, RatingType.RENTER, renterId, 5, "Great!");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId))
-                                .thenReturn(Arrays.asList(r1));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.RENTER, renterId, 0, 0);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.RENTER, renterId, 5, "Great!");
@@ -791,12 +878,9 @@ class RatingServiceTest {
                 Rating rating = new Rating(senderId, RatingType.RENTER, renterId, 4, "Good!");
                 when(ratingRepository.save(any(Rating.class))).thenReturn(rating);
 
-                // Multiple ratings: 5, 4, 4
-                Rating r1 = new Rating(senderId, RatingType.RENTER, renterId, 5, "Great");
-                Rating r2 = new Rating(senderId, RatingType.RENTER, renterId, 4, "Good");
-                Rating r3 = new Rating(senderId, RatingType.RENTER, renterId, 4, "Good");
-                when(ratingRepository.findByRatingTypeAndRatedId(RatingType.RENTER, renterId))
-                                .thenReturn(Arrays.asList(r1, r2, r3));
+
+                // Ratings received before this one
+                givenAggregate(RatingType.RENTER, renterId, 9, 2);
 
                 // Act
                 ratingService.createRating(senderId, RatingType.RENTER, renterId, 4, "Good!");
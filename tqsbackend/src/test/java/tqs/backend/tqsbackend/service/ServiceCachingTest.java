@@ -0,0 +1,207 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import tqs.backend.tqsbackend.CacheConfig;
+
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.repository.CategoryRepository;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+import tqs.backend.tqsbackend.repository.UserRepository;
+
+/**
+ * Checks the cache annotations on the services through real Spring proxies:
+ * repeated lookups are served from the cache and writes evict them.
+ */
+@SpringJUnitConfig(ServiceCachingTest.CachingConfig.class)
+class ServiceCachingTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({ CacheConfig.class, UserService.class, ItemService.class, CategoryService.class })
+    static class CachingConfig {
+    }
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private ItemRepository itemRepository;
+
+    @MockitoBean
+    private CategoryRepository categoryRepository;
+
+    @MockitoBean
+    private ItemSearchIndex itemSearchIndex;
+
+    @MockitoBean
+    private ItemAvailabilityIndex itemAvailabilityIndex;
+
+    @MockitoBean
+    private SessionPrincipalRegistry sessionPrincipalRegistry;
+
+    @MockitoBean
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getUserById_IsCachedUntilDeactivated() {
+        User user = new User("Owner", "owner@example.com", "pass", UserRoles.OWNER);
+        user.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        userService.getUserById(1L);
+        assertThat(userService.getUserById(1L)).get().extracting(User::getId).isEqualTo(1L);
+        verify(userRepository, times(1)).findById(1L);
+
+        userService.deactivateUser(1L);
+        clearInvocations(userRepository);
+        userService.getUserById(1L);
+        verify(userRepository).findById(1L);
+    }
+
+    @Test
+    void getUserById_IsEvictedOnSave() {
+        User user = new User("Owner", "owner@example.com", "pass", UserRoles.OWNER);
+        user.setId(2L);
+        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
+
+        userService.getUserById(2L);
+        userService.saveUser(user);
+        userService.getUserById(2L);
+
+        verify(userRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void getUserById_IsEvictedAfterCommit() {
+        User user = new User("Owner", "owner@example.com", "pass", UserRoles.OWNER);
+        user.setId(4L);
+        when(userRepository.findById(4L)).thenReturn(Optional.of(user));
+        userService.getUserById(4L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.saveUser(user);
+            // Until the write commits, lookups keep seeing the committed row
+            assertThat(cacheManager.getCache(UserService.CACHE).get(4L)).isNotNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(cacheManager.getCache(UserService.CACHE).get(4L)).isNull();
+    }
+
+    @Test
+    void getUserById_IsEvictedWhenLoginRehashesPassword() {
+        User user = new User("Owner", "owner@example.com", "old-hash", UserRoles.OWNER);
+        user.setId(5L);
+        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+        when(userRepository.findByEmail("owner@example.com")).thenReturn(Optional.of(user));
+        when(passwordHasher.matches("password1", "old-hash")).thenReturn(true);
+        when(passwordHasher.needsRehash("old-hash")).thenReturn(true);
+        when(passwordHasher.hash("password1")).thenReturn("new-hash");
+
+        userService.getUserById(5L);
+        userService.authenticate("owner@example.com", "password1");
+
+        assertThat(userService.getUserById(5L)).get().extracting(User::getPassword).isEqualTo("new-hash");
+        verify(userRepository, times(2)).findById(5L);
+    }
+
+    @Test
+    void getUserById_UnknownUserIsNotCached() {
+        userService.getUserById(3L);
+        userService.getUserById(3L);
+
+        verify(userRepository, times(2)).findById(3L);
+    }
+
+    @Test
+    void getItemById_IsCachedUntilUpdated() {
+        Item item = new Item("Lamp", "Bright", 10.0, null, 0.0, "Porto", 5L);
+        item.setId(1L);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRepository.save(any(Item.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        itemService.getItemById(1L);
+        itemService.getItemById(1L);
+        verify(itemRepository, times(1)).findById(1L);
+
+        itemService.updateItem(1L, new Item("Lamp", "Brighter", 12.0, null, 0.0, "Porto"), 5L);
+        clearInvocations(itemRepository);
+        assertThat(itemService.getItemById(1L).getDescription()).isEqualTo("Brighter");
+        verify(itemRepository).findById(1L);
+    }
+
+    @Test
+    void getItemById_HandsOutCopies() {
+        Item item = new Item("Lamp", "Bright", 10.0, new Category("Lighting"), 0.0, "Porto", 5L);
+        item.setId(2L);
+        when(itemRepository.findById(2L)).thenReturn(Optional.of(item));
+
+        itemService.getItemById(2L).setAverageRating(5.0);
+        item.setDescription("Changed after caching");
+
+        Item cached = itemService.getItemById(2L);
+        assertThat(cached).isNotSameAs(item);
+        assertThat(cached.getAverageRating()).isZero();
+        assertThat(cached.getDescription()).isEqualTo("Bright");
+        assertThat(cached.getCategory().getName()).isEqualTo("Lighting");
+        verify(itemRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void getAllCategories_IsCachedUntilCategoryCreated() {
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category("Audio")));
+        when(categoryRepository.save(any(Category.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        categoryService.getAllCategories();
+        categoryService.getAllCategories();
+        verify(categoryRepository, times(1)).findAll();
+
+        categoryService.createCategory("Lighting");
+        categoryService.getAllCategories();
+        verify(categoryRepository, times(2)).findAll();
+    }
+}
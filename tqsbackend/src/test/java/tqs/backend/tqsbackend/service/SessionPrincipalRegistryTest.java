@@ -0,0 +1,106 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionEvent;
+import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
+
+class SessionPrincipalRegistryTest {
+
+    private final SessionPrincipalRegistry registry = new SessionPrincipalRegistry();
+
+    private MockHttpSession loginAs(Long userId, UserRoles role) {
+        MockHttpSession session = new MockHttpSession();
+        SessionPrincipal principal = new SessionPrincipal(userId, role, true, 0);
+        session.setAttribute(SessionPrincipal.ATTRIBUTE, principal);
+        registry.attributeAdded(new HttpSessionBindingEvent(session, SessionPrincipal.ATTRIBUTE, principal));
+        return session;
+    }
+
+    private static SessionPrincipal principalOf(MockHttpSession session) {
+        return (SessionPrincipal) session.getAttribute(SessionPrincipal.ATTRIBUTE);
+    }
+
+    @Test
+    void updateActive_RewritesEverySessionOfTheUser() {
+        MockHttpSession first = loginAs(1L, UserRoles.OWNER);
+        MockHttpSession second = loginAs(1L, UserRoles.OWNER);
+        MockHttpSession other = loginAs(2L, UserRoles.OWNER);
+
+        registry.updateActive(1L, false);
+
+        assertThat(principalOf(first).active()).isFalse();
+        assertThat(principalOf(first).version()).isEqualTo(1);
+        assertThat(principalOf(first).hasRole(UserRoles.OWNER)).isFalse();
+        assertThat(principalOf(second).active()).isFalse();
+        assertThat(principalOf(other).active()).isTrue();
+        assertThat(principalOf(other).version()).isZero();
+    }
+
+    @Test
+    void updateActive_SkipsInvalidatedSessions() {
+        MockHttpSession live = loginAs(1L, UserRoles.RENTER);
+        MockHttpSession expired = loginAs(1L, UserRoles.RENTER);
+        expired.invalidate();
+
+        registry.updateActive(1L, false);
+
+        assertThat(principalOf(live).active()).isFalse();
+        assertThat(registry.sessionCount(1L)).isEqualTo(1);
+    }
+
+    @Test
+    void sessionDestroyed_StopsTracking() {
+        MockHttpSession session = loginAs(1L, UserRoles.OWNER);
+
+        registry.sessionDestroyed(new HttpSessionEvent(session));
+
+        assertThat(registry.sessionCount(1L)).isZero();
+    }
+
+    @Test
+    void resolve_UsesStoredPrincipalWithoutLookup() {
+        UserService userService = mock(UserService.class);
+        MockHttpSession session = loginAs(1L, UserRoles.OWNER);
+        session.setAttribute("userId", 1L);
+
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+
+        assertThat(principal.hasRole(UserRoles.OWNER)).isTrue();
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    void resolve_LoadsUserOnceForSessionsWithoutPrincipal() {
+        UserService userService = mock(UserService.class);
+        User owner = new User("Owner", "owner@example.com", "password", UserRoles.OWNER);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(owner));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("userId", 1L);
+
+        SessionPrincipal principal = SessionPrincipal.resolve(session, userService);
+
+        assertThat(principal).isEqualTo(new SessionPrincipal(1L, UserRoles.OWNER, true, 0));
+        assertThat(principalOf(session)).isEqualTo(principal);
+    }
+
+    @Test
+    void resolve_AnonymousSession_ReturnsNull() {
+        UserService userService = mock(UserService.class);
+
+        assertThat(SessionPrincipal.resolve(new MockHttpSession(), userService)).isNull();
+        verify(userService, never()).getUserById(any());
+    }
+}
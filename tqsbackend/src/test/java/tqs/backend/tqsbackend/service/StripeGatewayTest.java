@@ -0,0 +1,245 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.StripeException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import tqs.backend.tqsbackend.exception.ProviderTimeoutException;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
+
+class StripeGatewayTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private StripeGateway gateway = gateway("sk_test_key", 2, 2, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        gateway.shutdown();
+    }
+
+    private StripeGateway gateway(String key, int threads, int queueCapacity, Duration timeout) {
+        return new StripeGateway(key, StripeGateway.newExecutor(threads, queueCapacity), Duration.ofMillis(100),
+                timeout, 3, OPEN_DURATION, meterRegistry, clock::get);
+    }
+
+    // Each gateway registers its own gauges, so a replacement gets a fresh registry
+    private void replaceGateway(String key, int threads, int queueCapacity, Duration timeout) {
+        gateway.shutdown();
+        meterRegistry = new SimpleMeterRegistry();
+        gateway = gateway(key, threads, queueCapacity, timeout);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String succeed() throws StripeException {
+        return gateway.call("test", options -> {
+            calls.incrementAndGet();
+            return "ok";
+        });
+    }
+
+    private void failWith(StripeException failure) {
+        assertThatThrownBy(() -> gateway.call("test", options -> {
+            calls.incrementAndGet();
+            throw failure;
+        })).isSameAs(failure);
+    }
+
+    private long outcomes(String outcome) {
+        var timer = meterRegistry.find("stripe.calls").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double circuitState() {
+        return meterRegistry.get("stripe.circuit.state").gauge().value();
+    }
+
+    @Test
+    void call_PassesTheKeyPerRequest() throws Exception {
+        assertThat(gateway.isConfigured()).isTrue();
+        assertThat(gateway.call("test", options -> options.getApiKey())).isEqualTo("sk_test_key");
+
+        replaceGateway("", 1, 1, Duration.ofSeconds(1));
+        assertThat(gateway.isConfigured()).isFalse();
+    }
+
+    @Test
+    void call_WithIdempotencyKey_SetsItOnThatCallOnly() throws Exception {
+        assertThat(gateway.call("test", "booking-1-create", options -> options.getIdempotencyKey()))
+                .isEqualTo("booking-1-create");
+        assertThat(gateway.call("test", "booking-1-create", options -> options.getApiKey()))
+                .isEqualTo("sk_test_key");
+        assertThat(gateway.call("test", options -> options.getIdempotencyKey())).isNull();
+    }
+
+    @Test
+    void call_Success_IsRecorded() throws Exception {
+        assertThat(succeed()).isEqualTo("ok");
+
+        assertThat(outcomes("success")).isEqualTo(1);
+        assertThat(gateway.state()).isEqualTo(StripeGateway.CircuitState.CLOSED);
+    }
+
+    @Test
+    void call_SlowerThanTimeout_FailsFast() {
+        replaceGateway("sk_test_key", 1, 1, Duration.ofMillis(50));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> gateway.call("test", options -> {
+            // Returns early when the timed-out call is cancelled
+            LockSupport.parkNanos(Duration.ofSeconds(5).toNanos());
+            return "late";
+        })).isInstanceOf(ProviderTimeoutException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(outcomes("timeout")).isEqualTo(1);
+    }
+
+    @Test
+    void call_WaitingForAThread_DoesNotCountAgainstTheCall() throws Exception {
+        // Each call may take up to connect + read + grace, 1.35s here
+        replaceGateway("sk_test_key", 1, 1, Duration.ofSeconds(1));
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            callers.execute(() -> {
+                try {
+                    gateway.call("test", options -> {
+                        started.countDown();
+                        LockSupport.parkNanos(Duration.ofSeconds(1).toNanos());
+                        return "done";
+                    });
+                } catch (StripeException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Queued for about a second, then runs for another: past the budget in total, within it for each
+            assertThat(gateway.call("test", options -> {
+                LockSupport.parkNanos(Duration.ofSeconds(1).toNanos());
+                return "ok";
+            })).isEqualTo("ok");
+            assertThat(outcomes("timeout")).isZero();
+        } finally {
+            callers.shutdown();
+            assertThat(callers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void call_ProviderFailures_OpenTheCircuit() {
+        failWith(new ApiConnectionException("connection reset"));
+        failWith(new ApiException("internal error", "req_1", null, 500, null));
+        failWith(new InvalidRequestException("slow down", null, "req_2", null, 429, null));
+
+        assertThat(gateway.state()).isEqualTo(StripeGateway.CircuitState.OPEN);
+        assertThat(circuitState()).isEqualTo(1.0);
+        assertThatThrownBy(this::succeed).isInstanceOf(ServiceOverloadedException.class);
+        // The short-circuited call never reached Stripe
+        assertThat(calls).hasValue(3);
+        assertThat(outcomes("short_circuited")).isEqualTo(1);
+    }
+
+    @Test
+    void call_ClientErrors_KeepTheCircuitClosed() {
+        for (int i = 0; i < 5; i++) {
+            failWith(new InvalidRequestException("No such customer", "customer", "req_" + i, null, 400, null));
+        }
+
+        assertThat(gateway.state()).isEqualTo(StripeGateway.CircuitState.CLOSED);
+        assertThat(outcomes("client_error")).isEqualTo(5);
+    }
+
+    @Test
+    void call_AfterOpenDuration_SuccessfulTrialClosesTheCircuit() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            failWith(new ApiConnectionException("connection reset"));
+        }
+
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        assertThat(succeed()).isEqualTo("ok");
+
+        assertThat(gateway.state()).isEqualTo(StripeGateway.CircuitState.CLOSED);
+        assertThat(circuitState()).isZero();
+    }
+
+    @Test
+    void call_AfterOpenDuration_FailedTrialReopensTheCircuit() {
+        for (int i = 0; i < 3; i++) {
+            failWith(new ApiConnectionException("connection reset"));
+        }
+
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        failWith(new ApiConnectionException("still down"));
+
+        assertThat(gateway.state()).isEqualTo(StripeGateway.CircuitState.OPEN);
+        assertThatThrownBy(this::succeed).isInstanceOf(ServiceOverloadedException.class);
+    }
+
+    @Test
+    void call_PoolFull_RejectsWithoutWaiting() throws Exception {
+        replaceGateway("sk_test_key", 1, 1, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // One call running, one queued behind it
+            callers.execute(() -> blockingCall(started, release));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            callers.execute(() -> blockingCall(new CountDownLatch(1), release));
+            while (meterRegistry.get("stripe.bulkhead.queued").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(this::succeed).isInstanceOf(ServiceOverloadedException.class);
+            assertThat(outcomes("rejected")).isEqualTo(1);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            assertThat(callers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    private void blockingCall(CountDownLatch started, CountDownLatch release) {
+        try {
+            gateway.call("test", options -> {
+                started.countDown();
+                await(release);
+                return "done";
+            });
+        } catch (StripeException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
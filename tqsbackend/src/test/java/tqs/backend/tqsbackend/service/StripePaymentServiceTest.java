@@ -2,22 +2,49 @@ package tqs.backend.tqsbackend.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.PaymentIntent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import tqs.backend.tqsbackend.entity.Category;
 import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.exception.ProviderTimeoutException;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 
 class StripePaymentServiceTest {
 
+    private StripeGateway gateway;
+
     private StripePaymentService stripePaymentService;
 
     @BeforeEach
     void setUp() {
-        stripePaymentService = new StripePaymentService();
+        // No API key configured
+        gateway = new StripeGateway("", StripeGateway.newExecutor(1, 1), Duration.ofSeconds(1),
+                Duration.ofSeconds(1), 5, Duration.ofSeconds(30), new SimpleMeterRegistry(), System::nanoTime);
+        stripePaymentService = new StripePaymentService(gateway);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.shutdown();
     }
 
     private Item createTestItem() {
@@ -66,4 +93,89 @@ class StripePaymentServiceTest {
         assertThat(result.success()).isFalse();
         assertThat(result.reason()).isNotEmpty();
     }
+
+    @Test
+    void charge_WhenStripeUnavailable_ReturnsFailure() throws Exception {
+        StripeGateway unavailable = mock(StripeGateway.class);
+        when(unavailable.isConfigured()).thenReturn(true);
+        when(unavailable.call(eq("payment_intent.create"), argThat(attemptKey(3, "create")), any()))
+                .thenThrow(new ServiceOverloadedException("Payment provider is unavailable, please try again shortly"));
+
+        PaymentResult result = new StripePaymentService(unavailable).charge(1L, createTestItem(),
+                BigDecimal.valueOf(20.0), 3L);
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.pending()).isFalse();
+        assertThat(result.reason()).contains("unavailable");
+    }
+
+    @Test
+    void charge_ConfirmTimesOut_IsPendingNotFailed() throws Exception {
+        StripeGateway slow = mock(StripeGateway.class);
+        PaymentIntent created = new PaymentIntent();
+        created.setId("pi_1");
+        when(slow.isConfigured()).thenReturn(true);
+        when(slow.call(eq("payment_intent.create"), argThat(attemptKey(4, "create")), any())).thenReturn(created);
+        when(slow.call(eq("payment_intent.confirm"), argThat(attemptKey(4, "confirm")), any()))
+                .thenThrow(new ProviderTimeoutException("Payment provider timed out, please try again"));
+
+        PaymentResult result = new StripePaymentService(slow).charge(1L, createTestItem(), BigDecimal.valueOf(20.0),
+                4L);
+
+        // Left for the payment_intent.succeeded webhook to settle
+        assertThat(result.success()).isFalse();
+        assertThat(result.pending()).isTrue();
+        assertThat(result.reference()).isEqualTo("pi_1");
+    }
+
+    @Test
+    void charge_ConfirmConnectionLost_IsPendingNotFailed() throws Exception {
+        StripeGateway flaky = mock(StripeGateway.class);
+        PaymentIntent created = new PaymentIntent();
+        created.setId("pi_2");
+        when(flaky.isConfigured()).thenReturn(true);
+        when(flaky.call(eq("payment_intent.create"), argThat(attemptKey(5, "create")), any())).thenReturn(created);
+        when(flaky.call(eq("payment_intent.confirm"), argThat(attemptKey(5, "confirm")), any()))
+                .thenThrow(new ApiConnectionException("Read timed out"));
+
+        PaymentResult result = new StripePaymentService(flaky).charge(1L, createTestItem(), BigDecimal.valueOf(20.0),
+                5L);
+
+        assertThat(result.pending()).isTrue();
+        assertThat(result.reference()).isEqualTo("pi_2");
+    }
+
+    @Test
+    void charge_EachAttemptUsesItsOwnIdempotencyKeys() throws Exception {
+        StripeGateway stripe = mock(StripeGateway.class);
+        PaymentIntent created = new PaymentIntent();
+        created.setId("pi_3");
+        PaymentIntent confirmed = new PaymentIntent();
+        confirmed.setId("pi_3");
+        confirmed.setStatus("succeeded");
+        when(stripe.isConfigured()).thenReturn(true);
+        when(stripe.call(eq("payment_intent.create"), argThat(attemptKey(6, "create")), any())).thenReturn(created);
+        when(stripe.call(eq("payment_intent.confirm"), argThat(attemptKey(6, "confirm")), any()))
+                .thenReturn(confirmed);
+
+        StripePaymentService service = new StripePaymentService(stripe);
+        assertThat(service.charge(1L, createTestItem(), BigDecimal.valueOf(20.0), 6L).success()).isTrue();
+        assertThat(service.charge(1L, createTestItem(), BigDecimal.valueOf(25.0), 6L).success()).isTrue();
+
+        ArgumentCaptor<String> createKeys = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> confirmKeys = ArgumentCaptor.forClass(String.class);
+        verify(stripe, times(2)).call(eq("payment_intent.create"), createKeys.capture(), any());
+        verify(stripe, times(2)).call(eq("payment_intent.confirm"), confirmKeys.capture(), any());
+        // A second attempt, say at a counter-offer's price, must not replay the first one's answer
+        assertThat(createKeys.getAllValues()).doesNotHaveDuplicates();
+        for (int i = 0; i < 2; i++) {
+            assertThat(confirmKeys.getAllValues().get(i).replace("-confirm", ""))
+                    .isEqualTo(createKeys.getAllValues().get(i).replace("-create", ""));
+        }
+    }
+
+    // One step of a payment attempt for the booking, keyed by that attempt
+    private static ArgumentMatcher<String> attemptKey(long bookingId, String step) {
+        return key -> key != null && key.matches("booking-" + bookingId + "-[0-9a-f-]{36}-" + step);
+    }
 }
@@ -0,0 +1,304 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import tqs.backend.tqsbackend.entity.StripeWebhookEvent;
+import tqs.backend.tqsbackend.entity.WebhookEventStatus;
+import tqs.backend.tqsbackend.fixtures.StubStripeEventSource;
+import tqs.backend.tqsbackend.fixtures.StubStripeEventSource.Delivery;
+import tqs.backend.tqsbackend.repository.StripeWebhookEventRepository;
+
+/**
+ * Deliveries from the stub event source against a real database. Workers
+ * commit on their own threads, so the test runs outside a transaction and
+ * clears the table afterwards.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("dev")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StripeWebhookServiceTest {
+
+    @Autowired
+    private StripeWebhookEventRepository eventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final BookingService bookingService = mock(BookingService.class);
+
+    private StripeWebhookService webhookService;
+
+    @BeforeEach
+    void setUp() {
+        webhookService = service(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        webhookService.shutdown();
+        eventRepository.deleteAll();
+    }
+
+    private StripeWebhookService service(Duration recoveryAge) {
+        return service(recoveryAge, 10, Duration.ofMinutes(1));
+    }
+
+    private StripeWebhookService service(Duration recoveryAge, int maxAttempts, Duration retryBackoff) {
+        return new StripeWebhookService(eventRepository, bookingService, transactionManager,
+                StubStripeEventSource.SECRET, 4, 1000, recoveryAge, maxAttempts, retryBackoff);
+    }
+
+    private void drain() throws InterruptedException {
+        webhookService.shutdown();
+        assertThat(webhookService.awaitTermination(Duration.ofSeconds(30))).isTrue();
+    }
+
+    private StripeWebhookEvent stored(String eventId) {
+        return eventRepository.findByEventId(eventId).orElseThrow();
+    }
+
+    @Test
+    void receive_PaidCheckout_ConfirmsBooking() throws Exception {
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+
+        assertThat(webhookService.receive(payload, StubStripeEventSource.sign(payload)))
+                .isEqualTo(StripeWebhookService.Receipt.ACCEPTED);
+        drain();
+
+        verify(bookingService).confirmPayment(7L);
+        StripeWebhookEvent event = stored("evt_1");
+        assertThat(event.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+        assertThat(event.getBookingId()).isEqualTo(7L);
+        assertThat(event.getPayload()).isEqualTo(payload);
+    }
+
+    @Test
+    void receive_SucceededPaymentIntent_ConfirmsBooking() throws Exception {
+        String payload = StubStripeEventSource.paymentIntentSucceeded("evt_1", 7L);
+
+        assertThat(webhookService.receive(payload, StubStripeEventSource.sign(payload)))
+                .isEqualTo(StripeWebhookService.Receipt.ACCEPTED);
+        drain();
+
+        verify(bookingService).confirmPayment(7L);
+        assertThat(stored("evt_1").getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+    }
+
+    @Test
+    void receive_BadSignature_StoresNothing() {
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+        String forged = StubStripeEventSource.sign(payload, "whsec_someone_else", System.currentTimeMillis() / 1000);
+
+        assertThatThrownBy(() -> webhookService.receive(payload, forged))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> webhookService.receive(payload, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(eventRepository.count()).isZero();
+    }
+
+    @Test
+    void receive_WithoutSecret_Rejects() {
+        webhookService.shutdown();
+        webhookService = new StripeWebhookService(eventRepository, bookingService, transactionManager, "", 1, 10,
+                Duration.ofMinutes(1), 10, Duration.ofMinutes(1));
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+
+        assertThatThrownBy(() -> webhookService.receive(payload, StubStripeEventSource.sign(payload)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void receive_Redelivery_AppliedOnce() throws Exception {
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+
+        webhookService.receive(payload, StubStripeEventSource.sign(payload));
+        assertThat(webhookService.receive(payload, StubStripeEventSource.sign(payload)))
+                .isEqualTo(StripeWebhookService.Receipt.DUPLICATE);
+        drain();
+
+        verify(bookingService).confirmPayment(7L);
+        assertThat(eventRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void receive_OtherEvents_AreStoredButIgnored() throws Exception {
+        String refund = StubStripeEventSource.event("evt_1", "charge.refunded",
+                "{\"id\":\"ch_1\",\"object\":\"charge\"}");
+        String unpaid = StubStripeEventSource.checkoutCompleted("evt_2", 7L, "unpaid");
+
+        assertThat(webhookService.receive(refund, StubStripeEventSource.sign(refund)))
+                .isEqualTo(StripeWebhookService.Receipt.IGNORED);
+        assertThat(webhookService.receive(unpaid, StubStripeEventSource.sign(unpaid)))
+                .isEqualTo(StripeWebhookService.Receipt.IGNORED);
+        drain();
+
+        verify(bookingService, never()).confirmPayment(anyLong());
+        assertThat(stored("evt_1").getStatus()).isEqualTo(WebhookEventStatus.IGNORED);
+        assertThat(stored("evt_2").getStatus()).isEqualTo(WebhookEventStatus.IGNORED);
+    }
+
+    @Test
+    void process_ConfirmationFails_SchedulesRetry() throws Exception {
+        doThrow(new RuntimeException("Booking not found")).when(bookingService).confirmPayment(7L);
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+
+        webhookService.receive(payload, StubStripeEventSource.sign(payload));
+        drain();
+
+        StripeWebhookEvent event = stored("evt_1");
+        assertThat(event.getStatus()).isEqualTo(WebhookEventStatus.RECEIVED);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getNextAttemptAt()).isAfter(event.getReceivedAt().plusSeconds(30));
+        assertThat(event.getLastError()).contains("Booking not found");
+
+        // Not due yet, so recovery leaves it alone
+        webhookService = service(Duration.ZERO);
+        webhookService.recover();
+        drain();
+        verify(bookingService, times(1)).confirmPayment(7L);
+    }
+
+    @Test
+    void recover_TransientFailure_AppliedOnRetry() throws Exception {
+        doThrow(new RuntimeException("Connection reset")).doNothing().when(bookingService).confirmPayment(7L);
+        webhookService.shutdown();
+        webhookService = service(Duration.ofMinutes(1), 3, Duration.ZERO);
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+
+        webhookService.receive(payload, StubStripeEventSource.sign(payload));
+        drain();
+        assertThat(stored("evt_1").getStatus()).isEqualTo(WebhookEventStatus.RECEIVED);
+
+        webhookService = service(Duration.ofMinutes(1), 3, Duration.ZERO);
+        Thread.sleep(5);
+        webhookService.recover();
+        drain();
+
+        verify(bookingService, times(2)).confirmPayment(7L);
+        StripeWebhookEvent event = stored("evt_1");
+        assertThat(event.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+        assertThat(event.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void recover_FailsEveryAttempt_GivesUpAfterMaxAttempts() throws Exception {
+        doThrow(new RuntimeException("Booking not found")).when(bookingService).confirmPayment(7L);
+        webhookService.shutdown();
+        webhookService = service(Duration.ofMinutes(1), 2, Duration.ZERO);
+        String payload = StubStripeEventSource.checkoutCompleted("evt_1", 7L, "paid");
+
+        webhookService.receive(payload, StubStripeEventSource.sign(payload));
+        drain();
+        for (int i = 0; i < 2; i++) {
+            webhookService = service(Duration.ofMinutes(1), 2, Duration.ZERO);
+            Thread.sleep(5);
+            webhookService.recover();
+            drain();
+        }
+
+        // The second attempt is the last; recovery no longer picks the event up
+        verify(bookingService, times(2)).confirmPayment(7L);
+        StripeWebhookEvent event = stored("evt_1");
+        assertThat(event.getStatus()).isEqualTo(WebhookEventStatus.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(2);
+        assertThat(event.getLastError()).contains("Booking not found");
+    }
+
+    @Test
+    void backoff_DoublesUpToAnHour() {
+        StripeWebhookService service = service(Duration.ofMinutes(1), 10, Duration.ofSeconds(30));
+        try {
+            assertThat(service.backoff(1)).isEqualTo(Duration.ofSeconds(30));
+            assertThat(service.backoff(3)).isEqualTo(Duration.ofMinutes(2));
+            assertThat(service.backoff(30)).isEqualTo(Duration.ofHours(1));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void recover_RequeuesEventsThatNeverReachedAWorker() throws Exception {
+        StripeWebhookEvent waiting = eventRepository.save(new StripeWebhookEvent("evt_1",
+                StripeWebhookService.CHECKOUT_COMPLETED, 7L, "{}", WebhookEventStatus.RECEIVED));
+        webhookService.shutdown();
+        webhookService = service(Duration.ZERO);
+        Thread.sleep(5);
+
+        webhookService.recover();
+        drain();
+
+        verify(bookingService).confirmPayment(7L);
+        assertThat(stored(waiting.getEventId()).getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+    }
+
+    @Test
+    void receive_ConcurrentBurst_AppliesEveryEventOnceInLaneOrder() throws Exception {
+        long[] bookingIds = new long[25];
+        for (int i = 0; i < bookingIds.length; i++) {
+            bookingIds[i] = i + 1;
+        }
+        StubStripeEventSource source = new StubStripeEventSource(11L, bookingIds, 0.2);
+        Map<Long, Set<String>> threadsPerBooking = new ConcurrentHashMap<>();
+        Map<Long, Integer> confirmations = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            Long bookingId = invocation.getArgument(0);
+            threadsPerBooking.computeIfAbsent(bookingId, id -> ConcurrentHashMap.newKeySet())
+                    .add(Thread.currentThread().getName());
+            confirmations.merge(bookingId, 1, Integer::sum);
+            return null;
+        }).when(bookingService).confirmPayment(anyLong());
+
+        Map<String, Long> unique = new ConcurrentHashMap<>();
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            senders.execute(() -> {
+                Delivery delivery = source.next();
+                unique.put(delivery.eventId(), delivery.bookingId());
+                webhookService.receive(delivery.payload(), delivery.signature());
+            });
+        }
+        senders.shutdown();
+        assertThat(senders.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        drain();
+
+        Map<Long, Integer> expected = new HashMap<>();
+        unique.values().forEach(bookingId -> expected.merge(bookingId, 1, Integer::sum));
+        assertThat(confirmations).isEqualTo(expected);
+        assertThat(eventRepository.count()).isEqualTo(unique.size());
+        // Every booking is handled by a single lane
+        assertThat(threadsPerBooking.values()).allSatisfy(threads -> assertThat(threads).hasSize(1));
+        assertThat(new HashSet<>(eventRepository.findAll().stream().map(StripeWebhookEvent::getStatus).toList()))
+                .containsExactly(WebhookEventStatus.PROCESSED);
+    }
+}
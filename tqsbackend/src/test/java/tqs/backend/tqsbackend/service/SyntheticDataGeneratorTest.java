@@ -0,0 +1,148 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class SyntheticDataGeneratorTest {
+
+    private static final SyntheticDataGenerator.Volumes VOLUMES = new SyntheticDataGenerator.Volumes(
+            20, 30, 200, 25, 60, 170);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(4, 1, 4, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    private SyntheticDataGenerator generator(long seed) {
+        return new SyntheticDataGenerator(jdbc, transactionManager, passwordHasher, "password1", VOLUMES, seed, 16,
+                () -> {
+                });
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    @Test
+    void run_GeneratesConfiguredVolumes() {
+        generator(42L).run();
+
+        assertThat(count("users")).isEqualTo(20);
+        assertThat(count("items")).isEqualTo(30);
+        assertThat(count("bookings")).isEqualTo(200);
+        assertThat(count("ratings")).isEqualTo(25);
+        assertThat(count("messages")).isEqualTo(60);
+        assertThat(count("conversations")).isEqualTo(6);
+        assertThat(count("wallets")).isEqualTo(10);
+        assertThat(count("wallet_transactions")).isEqualTo(170);
+    }
+
+    @Test
+    void run_WalletBalancesMatchTransactions() {
+        generator(42L).run();
+
+        BigDecimal released = jdbc.queryForObject(
+                "SELECT SUM(amount) FROM wallet_transactions WHERE status = 'RELEASED'", BigDecimal.class);
+        BigDecimal pending = jdbc.queryForObject(
+                "SELECT SUM(amount) FROM wallet_transactions WHERE status = 'PENDING'", BigDecimal.class);
+
+        assertThat(jdbc.queryForObject("SELECT SUM(balance) FROM wallets", BigDecimal.class))
+                .isEqualByComparingTo(released);
+        assertThat(jdbc.queryForObject("SELECT SUM(pending_balance) FROM wallets", BigDecimal.class))
+                .isEqualByComparingTo(pending);
+        // The ledger holds the same history, already folded into the snapshots
+        assertThat(jdbc.queryForObject("SELECT SUM(available_delta) FROM wallet_ledger_entries", BigDecimal.class))
+                .isEqualByComparingTo(released);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM wallet_ledger_entries WHERE snapshot_id IS NULL",
+                Integer.class)).isZero();
+    }
+
+    @Test
+    void run_GeneratedBookingsNeverOverlap() {
+        generator(42L).run();
+
+        Integer overlaps = jdbc.queryForObject("SELECT COUNT(*) FROM bookings a JOIN bookings b "
+                + "ON a.item_id = b.item_id AND a.id < b.id AND a.start_date < b.end_date AND a.end_date > b.start_date",
+                Integer.class);
+        assertThat(overlaps).isZero();
+    }
+
+    @Test
+    void run_ItemAveragesMatchGeneratedRatings() {
+        generator(42L).run();
+
+        // Totals per rated item agree with its ratings, and unrated items stay at zero
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM rating_aggregates a WHERE a.rating_count <> "
+                + "(SELECT COUNT(*) FROM ratings r WHERE r.rated_id = a.rated_id) OR a.rating_sum <> "
+                + "(SELECT SUM(rate) FROM ratings r WHERE r.rated_id = a.rated_id)", Integer.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM items i LEFT JOIN rating_aggregates a "
+                + "ON a.rated_id = i.id WHERE (a.id IS NULL AND i.average_rating <> 0) "
+                + "OR (a.id IS NOT NULL AND ABS(i.average_rating - a.rating_sum * 1.0 / a.rating_count) > 0.05)",
+                Integer.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT COALESCE(SUM(rating_count), 0) FROM rating_aggregates",
+                Integer.class)).isEqualTo(25);
+    }
+
+    @Test
+    void run_UsersCanLogInWithConfiguredPassword() {
+        generator(42L).run();
+
+        String hash = jdbc.queryForObject("SELECT password_hash FROM users WHERE email = ?", String.class,
+                "owner0" + SyntheticDataGenerator.EMAIL_DOMAIN);
+        assertThat(BCrypt.checkpw("password1", hash)).isTrue();
+    }
+
+    @Test
+    void run_SameSeedProducesSameItems() {
+        generator(7L).run();
+        List<String> first = jdbc.queryForList("SELECT name || ':' || price || ':' || location FROM items ORDER BY id",
+                String.class);
+
+        jdbc.update("DELETE FROM wallet_ledger_entries");
+        jdbc.update("DELETE FROM wallet_transactions");
+        jdbc.update("DELETE FROM wallets");
+        jdbc.update("DELETE FROM conversations");
+        jdbc.update("DELETE FROM messages");
+        jdbc.update("DELETE FROM rating_aggregates");
+        jdbc.update("DELETE FROM ratings");
+        jdbc.update("DELETE FROM bookings");
+        jdbc.update("DELETE FROM items");
+        jdbc.update("DELETE FROM users");
+        generator(7L).run();
+        List<String> second = jdbc.queryForList("SELECT name || ':' || price || ':' || location FROM items ORDER BY id",
+                String.class);
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void run_SkipsWhenSyntheticDataExists() {
+        generator(42L).run();
+        generator(43L).run();
+
+        assertThat(count("users")).isEqualTo(20);
+        assertThat(count("bookings")).isEqualTo(200);
+    }
+}
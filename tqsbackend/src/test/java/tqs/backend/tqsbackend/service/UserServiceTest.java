@@ -5,20 +5,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.cache.CacheManager;
+import tqs.backend.tqsbackend.dto.UserSummaryDTO;
 import tqs.backend.tqsbackend.entity.User;
 import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 import tqs.backend.tqsbackend.repository.UserRepository;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +36,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private SessionPrincipalRegistry sessionPrincipals;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Spy
+    private PasswordHasher passwordHasher = new PasswordHasher(10, 2, 16, Duration.ofSeconds(5));
+
     @InjectMocks
     private UserService userService;
 
@@ -193,6 +210,52 @@ class UserServiceTest {
         assertThat(actNotFound).isFalse();
     }
 
+    @Test
+    void testAuthenticateRehashesOutdatedWorkFactor() {
+        User legacyUser = new User("Legacy", "legacy@ua.pt", BCrypt.hashpw(plainPassword, BCrypt.gensalt(4)),
+                UserRoles.RENTER);
+        when(userRepository.findByEmail("legacy@ua.pt")).thenReturn(Optional.of(legacyUser));
+
+        assertThat(userService.authenticate("legacy@ua.pt", plainPassword)).isTrue();
+
+        assertThat(legacyUser.getPassword()).startsWith("$2a$10$");
+        assertThat(BCrypt.checkpw(plainPassword, legacyUser.getPassword())).isTrue();
+        verify(userRepository).save(legacyUser);
+    }
+
+    @Test
+    void testAuthenticateCurrentWorkFactorIsNotRehashed() {
+        when(userRepository.findByEmail("john@ua.pt")).thenReturn(Optional.of(validUser));
+
+        assertThat(userService.authenticate("john@ua.pt", plainPassword)).isTrue();
+
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testRegisterUserWhenHasherOverloaded() {
+        doThrow(new ServiceOverloadedException("busy")).when(passwordHasher).hash(any());
+
+        assertThrows(ServiceOverloadedException.class,
+                () -> userService.registerUser("John Doe", "new@ua.pt", plainPassword, UserRoles.RENTER));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testStateChangeUpdatesSessionPrincipals() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(validUser));
+
+        userService.deactivateUser(1L);
+        verify(sessionPrincipals).updateActive(1L, false);
+
+        userService.activateUser(1L);
+        verify(sessionPrincipals).updateActive(1L, true);
+
+        // Already active, so the sessions are left alone
+        userService.activateUser(1L);
+        verify(sessionPrincipals).updateActive(1L, true);
+    }
+
     @Test
     void testSearchUsers() {
         java.time.LocalDateTime now = java.time.LocalDateTime.now();
@@ -202,4 +265,20 @@ class UserServiceTest {
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getName()).isEqualTo("John Doe");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUserSummaries_MapsSummariesById() {
+        UserSummaryDTO summary = new UserSummaryDTO(1L, "John Doe", UserRoles.RENTER, null);
+        when(userRepository.findSummariesByIdIn(java.util.Set.of(1L))).thenReturn(List.of(summary));
+
+        java.util.Map<Long, UserSummaryDTO> result = userService.getUserSummaries(java.util.Set.of(1L));
+
+        assertThat(result).containsEntry(1L, summary);
+    }
+
+    @Test
+    void getUserSummaries_EmptyIds_SkipsQuery() {
+        assertThat(userService.getUserSummaries(java.util.Set.of())).isEmpty();
+        org.mockito.Mockito.verifyNoInteractions(userRepository);
+    }
+}
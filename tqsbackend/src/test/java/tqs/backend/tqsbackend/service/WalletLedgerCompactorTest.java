@@ -0,0 +1,52 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
+
+@ExtendWith(MockitoExtension.class)
+class WalletLedgerCompactorTest {
+
+    @Mock
+    private WalletLedgerEntryRepository ledgerRepository;
+
+    @Mock
+    private WalletService walletService;
+
+    private WalletLedgerCompactor compactor;
+
+    @BeforeEach
+    void setUp() {
+        compactor = new WalletLedgerCompactor(ledgerRepository, walletService);
+    }
+
+    @Test
+    void compact_FoldsEachWalletWithUnfoldedEntries() {
+        when(ledgerRepository.findWalletIdsWithUnfoldedEntries()).thenReturn(List.of(1L, 2L));
+
+        compactor.compact();
+
+        verify(walletService).compactLedger(1L);
+        verify(walletService).compactLedger(2L);
+    }
+
+    @Test
+    void compact_NothingToFold_TouchesNoWallet() {
+        when(ledgerRepository.findWalletIdsWithUnfoldedEntries()).thenReturn(List.of());
+
+        compactor.compact();
+
+        verify(walletService, never()).compactLedger(any());
+    }
+}
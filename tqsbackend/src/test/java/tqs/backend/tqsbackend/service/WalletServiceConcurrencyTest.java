@@ -0,0 +1,261 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tqs.backend.tqsbackend.dto.WalletBalance;
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.LedgerEntryType;
+import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.entity.Wallet;
+import tqs.backend.tqsbackend.entity.WalletLedgerEntry;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.CategoryRepository;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+import tqs.backend.tqsbackend.repository.UserRepository;
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
+import tqs.backend.tqsbackend.repository.WalletRepository;
+import tqs.backend.tqsbackend.repository.WalletTransactionRepository;
+
+/**
+ * Many threads withdrawing from one wallet against a real database. Each
+ * withdrawal commits on its own, so the test itself runs outside a
+ * transaction and cleans up after itself.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "wallet.withdraw.max-attempts=1000"
+})
+@ActiveProfiles("dev")
+@Import(WalletService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int WITHDRAWALS_PER_THREAD = 25;
+    private static final BigDecimal ONE = new BigDecimal("1.00");
+
+    @MockitoBean
+    private UserService userService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletLedgerEntryRepository ledgerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+
+    private Long ownerId;
+    private Long walletId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(new User("Owner", "concurrent-owner@test.com", "hash", UserRoles.OWNER));
+        ownerId = owner.getId();
+        Wallet wallet = new Wallet(owner);
+        wallet.setBalance(new BigDecimal("60.00"));
+        walletId = walletRepository.save(wallet).getId();
+        // Another 40.00 released into the wallet but not yet folded into the snapshot
+        for (int i = 0; i < 40; i++) {
+            ledgerRepository.save(new WalletLedgerEntry(walletId, null, LedgerEntryType.RELEASE, ONE));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        ledgerRepository.deleteAll();
+        transactionRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        walletRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentWithdrawals_NeverSpendMoreThanTheBalance() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < WITHDRAWALS_PER_THREAD; i++) {
+                    try {
+                        walletService.withdraw(ownerId, ONE);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        // 200 attempts against 100.00: exactly half go through
+        assertThat(succeeded.get()).isEqualTo(100);
+        assertThat(refused.get()).isEqualTo(100);
+        assertBalance("0.00");
+    }
+
+    @Test
+    void concurrentWithdrawalsAndCompaction_KeepTheTotals() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> withdrawers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            withdrawers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < WITHDRAWALS_PER_THREAD; i++) {
+                    try {
+                        walletService.withdraw(ownerId, ONE);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // Balance exhausted
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> compactor = executor.submit(() -> {
+            start.await();
+            while (!done.get()) {
+                walletService.compactLedger(walletId);
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> future : withdrawers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        compactor.get(10, TimeUnit.SECONDS);
+
+        assertThat(succeeded.get()).isEqualTo(100);
+        assertBalance("0.00");
+
+        // Folding what is left does not change the balance either
+        walletService.compactLedger(walletId);
+        Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+        assertThat(wallet.getBalance()).isEqualByComparingTo("0.00");
+        assertThat(ledgerRepository.findLastUnfoldedId(walletId)).isEmpty();
+    }
+
+    @Test
+    void compactionWhileAHoldIsInFlight_FoldsItOnALaterRun() throws Exception {
+        Category category = categoryRepository.save(new Category("Audio"));
+        Item item = itemRepository.save(new Item("Speaker", "Loud", 20.0, category, 0.0, "Lisbon", ownerId));
+        LocalDate start = LocalDate.now().plusDays(1);
+        Long bookingId = bookingRepository.save(new Booking(item, 99L, start, start.plusDays(1),
+                new BigDecimal("20.00"), new BigDecimal("25.00"), BookingStatus.ACCEPTED, PaymentStatus.PAID)).getId();
+
+        // The hold takes its ledger id first but commits only after the compaction
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        Future<?> hold = executor.submit(() -> transactions.execute(status -> {
+            walletService.holdFunds(bookingId);
+            recorded.countDown();
+            await(commit);
+            return null;
+        }));
+        try {
+            assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+            // A later entry with a higher id commits while the hold is still open
+            ledgerRepository.save(new WalletLedgerEntry(walletId, null, LedgerEntryType.WITHDRAW, ONE));
+            assertThat(executor.submit(() -> walletService.compactLedger(walletId)).get(10, TimeUnit.SECONDS))
+                    .isTrue();
+        } finally {
+            commit.countDown();
+        }
+        hold.get(10, TimeUnit.SECONDS);
+
+        WalletBalance balance = walletService.getBalance(walletRepository.findById(walletId).orElseThrow());
+        assertThat(balance.available()).isEqualByComparingTo("99.00");
+        assertThat(balance.pending()).isEqualByComparingTo("25.00");
+
+        assertThat(walletService.compactLedger(walletId)).isTrue();
+        Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+        assertThat(wallet.getBalance()).isEqualByComparingTo("99.00");
+        assertThat(wallet.getPendingBalance()).isEqualByComparingTo("25.00");
+        assertThat(ledgerRepository.findLastUnfoldedId(walletId)).isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertBalance(String expected) {
+        Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+        WalletBalance balance = walletService.getBalance(wallet);
+        assertThat(balance.available()).isEqualByComparingTo(expected);
+        assertThat(ledgerRepository.findAll().stream()
+                .filter(entry -> entry.getType() == LedgerEntryType.WITHDRAW)
+                .count()).isEqualTo(100);
+    }
+}
@@ -3,21 +3,28 @@ package tqs.backend.tqsbackend.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import tqs.backend.tqsbackend.dto.WalletBalance;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
 import tqs.backend.tqsbackend.entity.*;
+import tqs.backend.tqsbackend.exception.ServiceOverloadedException;
 import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
 import tqs.backend.tqsbackend.repository.WalletRepository;
 import tqs.backend.tqsbackend.repository.WalletTransactionRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,13 +36,18 @@ class WalletServiceTest {
     @Mock
     private WalletTransactionRepository transactionRepository;
 
+    @Mock
+    private WalletLedgerEntryRepository ledgerRepository;
+
     @Mock
     private BookingRepository bookingRepository;
 
     @Mock
     private UserService userService;
 
-    @InjectMocks
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private WalletService walletService;
 
     private User owner;
@@ -45,6 +57,9 @@ class WalletServiceTest {
 
     @BeforeEach
     void setUp() {
+        walletService = new WalletService(walletRepository, transactionRepository, ledgerRepository,
+                bookingRepository, userService, transactionManager, 3);
+
         owner = new User("Owner", "owner@test.com", "pass", UserRoles.OWNER);
         owner.setId(1L);
 
@@ -103,7 +118,6 @@ class WalletServiceTest {
     void holdFunds_Success() {
         when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
         when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(wallet);
         when(transactionRepository.save(any(WalletTransaction.class))).thenAnswer(inv -> {
             WalletTransaction tx = inv.getArgument(0);
             tx.setId(1L);
@@ -115,7 +129,26 @@ class WalletServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getAmount()).isEqualByComparingTo(new BigDecimal("100.00"));
         assertThat(result.getStatus()).isEqualTo(TransactionStatus.PENDING);
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(new BigDecimal("100.00"));
+        WalletLedgerEntry entry = recordedEntry();
+        assertThat(entry.getType()).isEqualTo(LedgerEntryType.HOLD);
+        assertThat(entry.getBookingId()).isEqualTo(1L);
+        assertThat(entry.getPendingDelta()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(entry.getAvailableDelta()).isEqualByComparingTo(BigDecimal.ZERO);
+        // The wallet row is left alone; only the ledger grows
+        verify(walletRepository, never()).save(any(Wallet.class));
+    }
+
+    @Test
+    void holdFunds_AlreadyHeld_ReturnsExistingTransaction() {
+        WalletTransaction existing = new WalletTransaction(wallet, booking, new BigDecimal("100.00"));
+        existing.setId(5L);
+        when(transactionRepository.findByBookingId(1L)).thenReturn(Optional.of(existing));
+
+        WalletTransaction result = walletService.holdFunds(1L);
+
+        assertThat(result).isSameAs(existing);
+        verify(transactionRepository, never()).save(any(WalletTransaction.class));
+        verify(ledgerRepository, never()).save(any(WalletLedgerEntry.class));
     }
 
     @Test
@@ -137,15 +170,32 @@ class WalletServiceTest {
         transaction.setId(1L);
 
         when(transactionRepository.findByBookingId(1L)).thenReturn(Optional.of(transaction));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(wallet);
-        when(transactionRepository.save(any(WalletTransaction.class))).thenReturn(transaction);
+        when(transactionRepository.markReleased(eq(1L), any(LocalDateTime.class))).thenReturn(1);
 
         boolean result = walletService.releaseFunds(1L);
 
         assertThat(result).isTrue();
-        assertThat(wallet.getBalance()).isEqualByComparingTo(new BigDecimal("100.00"));
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-        assertThat(transaction.getStatus()).isEqualTo(TransactionStatus.RELEASED);
+        WalletLedgerEntry entry = recordedEntry();
+        assertThat(entry.getType()).isEqualTo(LedgerEntryType.RELEASE);
+        assertThat(entry.getAvailableDelta()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(entry.getPendingDelta()).isEqualByComparingTo(new BigDecimal("-100.00"));
+    }
+
+    @Test
+    void releaseFunds_SettledConcurrently_ReturnsFalse() {
+        booking.setRenterConfirmed(true);
+        booking.setOwnerConfirmed(true);
+
+        WalletTransaction transaction = new WalletTransaction(wallet, booking, new BigDecimal("100.00"));
+        transaction.setId(1L);
+
+        when(transactionRepository.findByBookingId(1L)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.markReleased(eq(1L), any(LocalDateTime.class))).thenReturn(0);
+
+        boolean result = walletService.releaseFunds(1L);
+
+        assertThat(result).isFalse();
+        verify(ledgerRepository, never()).save(any(WalletLedgerEntry.class));
     }
 
     @Test
@@ -171,54 +221,69 @@ class WalletServiceTest {
         transaction.setId(1L);
 
         when(transactionRepository.findByBookingId(1L)).thenReturn(Optional.of(transaction));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(wallet);
-        when(transactionRepository.save(any(WalletTransaction.class))).thenReturn(transaction);
+        when(transactionRepository.markRefunded(1L)).thenReturn(1);
 
         boolean result = walletService.refundFunds(1L);
 
         assertThat(result).isTrue();
-        assertThat(wallet.getPendingBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-        assertThat(transaction.getStatus()).isEqualTo(TransactionStatus.REFUNDED);
+        WalletLedgerEntry entry = recordedEntry();
+        assertThat(entry.getType()).isEqualTo(LedgerEntryType.REFUND);
+        assertThat(entry.getPendingDelta()).isEqualByComparingTo(new BigDecimal("-100.00"));
+        assertThat(entry.getAvailableDelta()).isEqualByComparingTo(BigDecimal.ZERO);
     }
 
     @Test
     void withdraw_Success() {
-        wallet.setBalance(new BigDecimal("500.00"));
+        wallet.setBalance(new BigDecimal("400.00"));
         when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(wallet);
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(1);
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("500.00"), BigDecimal.ZERO)));
 
         BigDecimal newBalance = walletService.withdraw(1L, new BigDecimal("200.00"));
 
         assertThat(newBalance).isEqualByComparingTo(new BigDecimal("300.00"));
-        assertThat(wallet.getBalance()).isEqualByComparingTo(new BigDecimal("300.00"));
+        WalletLedgerEntry entry = recordedEntry();
+        assertThat(entry.getType()).isEqualTo(LedgerEntryType.WITHDRAW);
+        assertThat(entry.getBookingId()).isNull();
+        assertThat(entry.getAvailableDelta()).isEqualByComparingTo(new BigDecimal("-200.00"));
     }
 
     @Test
     void withdraw_InsufficientBalance_Throws() {
         wallet.setBalance(new BigDecimal("50.00"));
         when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(1);
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("50.00"), BigDecimal.ZERO)));
 
         assertThatThrownBy(() -> walletService.withdraw(1L, new BigDecimal("100.00")))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Insufficient balance");
+        verify(ledgerRepository, never()).save(any(WalletLedgerEntry.class));
     }
 
     @Test
     void withdrawAll_Success() {
         wallet.setBalance(new BigDecimal("500.00"));
         when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(wallet);
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(1);
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("500.00"), BigDecimal.ZERO)));
 
         BigDecimal withdrawn = walletService.withdrawAll(1L);
 
         assertThat(withdrawn).isEqualByComparingTo(new BigDecimal("500.00"));
-        assertThat(wallet.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(recordedEntry().getAvailableDelta()).isEqualByComparingTo(new BigDecimal("-500.00"));
     }
 
     @Test
     void withdrawAll_NoBalance_Throws() {
         wallet.setBalance(BigDecimal.ZERO);
         when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(1);
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("0.00"), BigDecimal.ZERO)));
 
         assertThatThrownBy(() -> walletService.withdrawAll(1L))
                 .isInstanceOf(IllegalArgumentException.class)
@@ -292,7 +357,7 @@ class WalletServiceTest {
         WalletTransaction result = walletService.holdFunds(1L);
 
         assertThat(result).isNotNull();
-        verify(walletRepository, times(2)).save(any(Wallet.class)); // Once for create, once for update
+        verify(walletRepository).save(any(Wallet.class));
     }
 
     @Test
@@ -351,6 +416,7 @@ class WalletServiceTest {
     @Test
     void withdraw_InvalidAmount_Throws() {
         when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(1);
 
         assertThatThrownBy(() -> walletService.withdraw(1L, new BigDecimal("-10.00")))
                 .isInstanceOf(IllegalArgumentException.class)
@@ -365,4 +431,99 @@ class WalletServiceTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Wallet not found");
     }
+
+    @Test
+    void withdraw_ClaimMissed_RetriesFromFreshRead() {
+        Wallet current = new Wallet(owner);
+        current.setId(1L);
+        current.setBalance(new BigDecimal("300.00"));
+        current.setWithdrawalVersion(1L);
+        when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet), Optional.of(current));
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(0);
+        when(walletRepository.claimForWithdrawal(1L, 1L)).thenReturn(1);
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("300.00"), BigDecimal.ZERO)));
+
+        BigDecimal newBalance = walletService.withdraw(1L, new BigDecimal("100.00"));
+
+        assertThat(newBalance).isEqualByComparingTo(new BigDecimal("200.00"));
+        verify(ledgerRepository).save(any(WalletLedgerEntry.class));
+    }
+
+    @Test
+    void withdraw_LockTimeout_Retries() {
+        wallet.setBalance(new BigDecimal("100.00"));
+        when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
+        when(walletRepository.claimForWithdrawal(1L, 0L))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(1);
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("100.00"), BigDecimal.ZERO)));
+
+        assertThat(walletService.withdrawAll(1L)).isEqualByComparingTo(new BigDecimal("100.00"));
+    }
+
+    @Test
+    void withdraw_StillContendedAfterMaxAttempts_Throws() {
+        when(walletRepository.findByOwnerId(1L)).thenReturn(Optional.of(wallet));
+        when(walletRepository.claimForWithdrawal(1L, 0L)).thenReturn(0);
+
+        assertThatThrownBy(() -> walletService.withdraw(1L, new BigDecimal("10.00")))
+                .isInstanceOf(ServiceOverloadedException.class);
+        verify(walletRepository, times(3)).claimForWithdrawal(1L, 0L);
+        verify(ledgerRepository, never()).save(any(WalletLedgerEntry.class));
+    }
+
+    @Test
+    void getBalance_ReadsSnapshotAndUnfoldedEntriesTogether() {
+        when(walletRepository.findBalance(1L))
+                .thenReturn(Optional.of(new WalletBalance(new BigDecimal("60.00"), new BigDecimal("15.00"))));
+
+        WalletBalance balance = walletService.getBalance(wallet);
+
+        assertThat(balance.available()).isEqualByComparingTo(new BigDecimal("60.00"));
+        assertThat(balance.pending()).isEqualByComparingTo(new BigDecimal("15.00"));
+    }
+
+    @Test
+    void compactLedger_FoldsExactlyTheMarkedEntries() {
+        wallet.setSnapshotVersion(3L);
+        when(walletRepository.findById(1L)).thenReturn(Optional.of(wallet));
+        when(ledgerRepository.findLastUnfoldedId(1L)).thenReturn(Optional.of(9L));
+        when(walletRepository.claimSnapshot(1L, 3L)).thenReturn(1);
+        when(ledgerRepository.markFolded(1L, 9L, 4L)).thenReturn(2);
+        when(ledgerRepository.sumFolded(1L, 4L))
+                .thenReturn(new WalletBalance(new BigDecimal("25.00"), new BigDecimal("75.00")));
+
+        assertThat(walletService.compactLedger(1L)).isTrue();
+        verify(walletRepository).addToSnapshot(eq(1L), eq(new BigDecimal("25.00")), eq(new BigDecimal("75.00")),
+                any(LocalDateTime.class));
+    }
+
+    @Test
+    void compactLedger_SnapshotClaimedConcurrently_ReturnsFalse() {
+        wallet.setSnapshotVersion(3L);
+        when(walletRepository.findById(1L)).thenReturn(Optional.of(wallet));
+        when(ledgerRepository.findLastUnfoldedId(1L)).thenReturn(Optional.of(9L));
+        when(walletRepository.claimSnapshot(1L, 3L)).thenReturn(0);
+
+        assertThat(walletService.compactLedger(1L)).isFalse();
+        verify(ledgerRepository, never()).markFolded(any(), any(), any());
+        verify(walletRepository, never()).addToSnapshot(any(), any(), any(), any());
+    }
+
+    @Test
+    void compactLedger_NothingUnfolded_ReturnsFalse() {
+        when(walletRepository.findById(1L)).thenReturn(Optional.of(wallet));
+        when(ledgerRepository.findLastUnfoldedId(1L)).thenReturn(Optional.empty());
+
+        assertThat(walletService.compactLedger(1L)).isFalse();
+        verify(walletRepository, never()).claimSnapshot(any(), any());
+    }
+
+    private WalletLedgerEntry recordedEntry() {
+        ArgumentCaptor<WalletLedgerEntry> captor = ArgumentCaptor.forClass(WalletLedgerEntry.class);
+        verify(ledgerRepository).save(captor.capture());
+        return captor.getValue();
+    }
 }
@@ -0,0 +1,182 @@
+package tqs.backend.tqsbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import tqs.backend.tqsbackend.entity.Booking;
+import tqs.backend.tqsbackend.entity.BookingStatus;
+import tqs.backend.tqsbackend.entity.Category;
+import tqs.backend.tqsbackend.entity.Item;
+import tqs.backend.tqsbackend.entity.PaymentStatus;
+import tqs.backend.tqsbackend.entity.User;
+import tqs.backend.tqsbackend.entity.UserRoles;
+import tqs.backend.tqsbackend.entity.Wallet;
+import tqs.backend.tqsbackend.entity.WalletLedgerEntry;
+import tqs.backend.tqsbackend.entity.WalletTransaction;
+import tqs.backend.tqsbackend.repository.BookingRepository;
+import tqs.backend.tqsbackend.repository.CategoryRepository;
+import tqs.backend.tqsbackend.repository.ItemRepository;
+import tqs.backend.tqsbackend.repository.UserRepository;
+import tqs.backend.tqsbackend.repository.WalletLedgerEntryRepository;
+import tqs.backend.tqsbackend.repository.WalletRepository;
+import tqs.backend.tqsbackend.repository.WalletTransactionRepository;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@ActiveProfiles("dev")
+class WalletSettlementJobTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 20);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletLedgerEntryRepository ledgerRepository;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category("Audio"));
+    }
+
+    private WalletSettlementJob job(int batchSize) {
+        return job(jdbc, batchSize);
+    }
+
+    private WalletSettlementJob job(JdbcTemplate jdbc, int batchSize) {
+        return new WalletSettlementJob(jdbc, ledgerRepository, transactionManager, Period.ofDays(3), batchSize);
+    }
+
+    private Wallet wallet(String email) {
+        User owner = userRepository.save(new User("Owner", email, "hash", UserRoles.OWNER));
+        return walletRepository.save(new Wallet(owner));
+    }
+
+    private WalletTransaction held(Wallet wallet, int endedDaysAgo, BookingStatus status, String amount) {
+        Item item = itemRepository.save(
+                new Item("Speaker", "Loud", 20.0, category, 0.0, "Lisbon", wallet.getOwner().getId()));
+        LocalDate end = TODAY.minusDays(endedDaysAgo);
+        Booking booking = bookingRepository.save(new Booking(item, 99L, end.minusDays(2), end,
+                new BigDecimal("20.00"), new BigDecimal(amount), status, PaymentStatus.PAID));
+        return transactionRepository.save(new WalletTransaction(wallet, booking, new BigDecimal(amount)));
+    }
+
+    private String status(WalletTransaction transaction) {
+        return jdbc.queryForObject("SELECT status FROM wallet_transactions WHERE id = ?", String.class,
+                transaction.getId());
+    }
+
+    @Test
+    void settle_ReleasesOnlyBookingsPastTheGracePeriod() {
+        Wallet wallet = wallet("settle-a@test.com");
+        WalletTransaction overdue = held(wallet, 4, BookingStatus.ACCEPTED, "60.00");
+        WalletTransaction withinGrace = held(wallet, 3, BookingStatus.ACCEPTED, "30.00");
+        WalletTransaction cancelled = held(wallet, 10, BookingStatus.CANCELLED, "15.00");
+
+        int settled = job(500).settle(TODAY);
+
+        assertThat(settled).isEqualTo(1);
+        assertThat(status(overdue)).isEqualTo("RELEASED");
+        assertThat(status(withinGrace)).isEqualTo("PENDING");
+        assertThat(status(cancelled)).isEqualTo("PENDING");
+        assertThat(ledgerRepository.sumUnfolded(wallet.getId()).available()).isEqualByComparingTo("60.00");
+    }
+
+    @Test
+    void settle_WritesOneReleaseEntryPerBooking() {
+        Wallet first = wallet("settle-b@test.com");
+        Wallet second = wallet("settle-c@test.com");
+        for (int i = 0; i < 5; i++) {
+            held(first, 5 + i, BookingStatus.ACCEPTED, "10.00");
+            held(second, 5 + i, BookingStatus.ACCEPTED, "7.00");
+        }
+
+        int settled = job(4).settle(TODAY);
+
+        assertThat(settled).isEqualTo(10);
+        // Batched or not, each booking keeps its own audit entry
+        assertThat(ledgerRepository.findAll()).hasSize(10)
+                .allSatisfy(entry -> assertThat(entry.getBookingId()).isNotNull())
+                .extracting(WalletLedgerEntry::getBookingId).doesNotHaveDuplicates();
+        assertThat(ledgerRepository.sumUnfolded(first.getId()).available()).isEqualByComparingTo("50.00");
+        assertThat(ledgerRepository.sumUnfolded(first.getId()).pending()).isEqualByComparingTo("-50.00");
+        assertThat(ledgerRepository.sumUnfolded(second.getId()).available()).isEqualByComparingTo("35.00");
+    }
+
+    @Test
+    void settle_SkipsTransactionsAlreadyReleased() {
+        Wallet wallet = wallet("settle-d@test.com");
+        WalletTransaction confirmed = held(wallet, 6, BookingStatus.ACCEPTED, "40.00");
+        transactionRepository.markReleased(confirmed.getId(), TODAY.atStartOfDay());
+
+        assertThat(job(500).settle(TODAY)).isZero();
+        assertThat(ledgerRepository.count()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void settle_DriverWithoutRowCounts_StillCreditsReleasedRows() {
+        Wallet wallet = wallet("settle-e@test.com");
+        held(wallet, 5, BookingStatus.ACCEPTED, "25.00");
+        held(wallet, 6, BookingStatus.ACCEPTED, "15.00");
+        WalletTransaction confirmed = held(wallet, 7, BookingStatus.ACCEPTED, "40.00");
+        transactionRepository.markReleased(confirmed.getId(), TODAY.atStartOfDay());
+
+        // Some drivers answer a batch with SUCCESS_NO_INFO rather than a count per row
+        JdbcTemplate noInfo = spy(jdbc);
+        doAnswer(invocation -> {
+            int[][] counts = (int[][]) invocation.callRealMethod();
+            for (int[] batch : counts) {
+                Arrays.fill(batch, Statement.SUCCESS_NO_INFO);
+            }
+            return counts;
+        }).when(noInfo).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+
+        assertThat(job(noInfo, 500).settle(TODAY)).isEqualTo(2);
+        assertThat(ledgerRepository.count()).isEqualTo(2);
+        assertThat(ledgerRepository.sumUnfolded(wallet.getId()).available()).isEqualByComparingTo("40.00");
+    }
+}